@@ -0,0 +1,198 @@
+package stylechecker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The AutoFixer fixes the style errors that have a fix, the missing blank
+ * lines and the missing optional braces, without writing a report. Every
+ * fixer records its edits against the lines of the original program in one
+ * EditBuffer, so the fixers never see each other's changes and a program is
+ * checked only once. The edits are then written either as a unified diff of
+ * each file or straight back into the files.
+ *
+ * Only the lines that are fixed are written to a diff, so a diff is as small
+ * as the fixes in it. A file rewritten in place keeps every line that is not
+ * fixed exactly as it was, line separators included.
+ */
+final class AutoFixer
+{
+
+    private final RuleRegistry registry;
+    private final boolean inPlace;
+
+    /**
+     * Creates a fixer that fixes the errors of the given rules.
+     *
+     * @param registry  The rules the programs are checked against; only the
+     *                  errors of the rules that have a fix are fixed
+     * @param inPlace   true to rewrite each file with its fixes, false to
+     *                  print the fixes as a unified diff
+     */
+    AutoFixer(RuleRegistry registry, boolean inPlace)
+    {
+        this.registry = registry;
+        this.inPlace = inPlace;
+    }
+
+    /**
+     * Fixes every file given, printing either the diff of each file that has
+     * fixes or the name of each file rewritten.
+     *
+     * @param files     The files to fix
+     * @param out       The stream the diff or the names are printed to
+     * @return status   0 if every file was read and either needed no fixes
+     *                  or was rewritten, 1 otherwise
+     */
+    int run(List<File> files, PrintStream out)
+    {
+        int status = 0;
+        ReportWriter diff = new ReportWriter(new OutputStreamWriter(out));
+
+        for (File file: files)
+        {
+            try
+            {
+                SourceText source = SourceText.read(file);
+                EditBuffer edits = collectFixes(source);
+
+                if (edits.isEmpty())
+                {
+                    continue;
+                }
+
+                if (inPlace)
+                {
+                    rewrite(file.toPath(), source, edits);
+                    out.println("Fixed " + file.getPath());
+                }
+
+                else if (edits.writeDiff(source, diffPath(file), diff))
+                {
+                    status = 1;
+                }
+            }
+
+            catch (IOException ex)
+            {
+                diff.flush();
+                System.err.println("ERROR: " + file + " could not be fixed");
+                status = 1;
+            }
+        }
+        diff.flush();
+        return status;
+    }
+
+    /**
+     * Returns the path a file is named by in a diff, with forward slashes
+     * and without any "." or ".." parts.
+     *
+     * @param file      The file
+     * @return path     The path of the file in the diff
+     */
+    private static String diffPath(File file)
+    {
+        return file.toPath().normalize().toString()
+                   .replace(File.separatorChar, '/');
+    }
+
+    /**
+     * Checks a program once and records the fixes of every error that has
+     * one, all against the lines of the original program.
+     *
+     * @param source    The text of the program
+     * @return edits    The fixes of the program
+     */
+    EditBuffer collectFixes(SourceText source)
+    {
+        Rule[] rules = registry.createRules();
+        ViolationCollector violations = new ViolationCollector(
+                                            source.lineCount());
+        ParallelChecker.run(source, violations, ForkJoinPool.commonPool(),
+                            null, registry::createRules, rules);
+
+        List<String> lineList = source.lineView();
+        EditBuffer edits = new EditBuffer();
+        StyleChecker.addBlankLineFixes(lineList, violations.getErrorLines(
+                                                   NoBlankLineRule.class),
+                                       edits);
+        StyleChecker.addOptionalBraceFixes(lineList, BlockIndex.of(source),
+                                           violations.getErrorLines(
+                                               OptionalBraceRule.class),
+                                           edits);
+        return edits;
+    }
+
+    /**
+     * Rewrites a file with its fixes. The fixed text is written to a file
+     * beside it first and then moved over it, so the file is never left half
+     * written.
+     *
+     * @param path      The file to rewrite
+     * @param source    The text the file held when it was checked
+     * @param edits     The fixes of the file
+     * @throws IOException if the file cannot be written
+     */
+    private static void rewrite(Path path, SourceText source, EditBuffer edits)
+                               throws IOException
+    {
+        Path directory = path.toAbsolutePath().getParent();
+        Path fixed = Files.createTempFile(directory, ".stylechecker", ".tmp");
+
+        try
+        {
+            try (Writer writer = Files.newBufferedWriter(
+                                     fixed, Charset.defaultCharset());
+                 ReportWriter out = new ReportWriter(writer))
+            {
+                edits.rewrite(source, out);
+            }
+
+            catch (UncheckedIOException ex)
+            {
+                throw ex.getCause();
+            }
+            copyPermissions(path, fixed);
+            Files.move(fixed, path, StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        finally
+        {
+            Files.deleteIfExists(fixed);
+        }
+    }
+
+    /**
+     * Gives a file the same permissions as another, on file systems that
+     * have POSIX permissions.
+     *
+     * @param from      The file whose permissions are copied
+     * @param to        The file given the permissions
+     * @throws IOException if the permissions cannot be read or set
+     */
+    private static void copyPermissions(Path from, Path to) throws IOException
+    {
+        try
+        {
+            Files.setPosixFilePermissions(to,
+                                          Files.getPosixFilePermissions(from));
+        }
+
+        catch (UnsupportedOperationException ex)
+        {
+            // The temporary file keeps the file system's default permissions
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package stylechecker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The BatchChecker checks many programs at once on a fixed size pool of
+ * worker threads, or as a pipeline that reads, checks and writes on separate
+ * threads. Each program gets its own style report in the output directory,
+ * and a summary of every file checked is printed at the end.
+ */
+final class BatchChecker
+{
+
+    private final File outputDirectory;
+    private final int threadCount;
+    private final ResultCache cache;
+    private final boolean pipeline;
+    private final ReportFormat format;
+    private final RuleRegistry registry;
+
+    /**
+     * Creates a batch checker that writes its reports to the given directory.
+     *
+     * @param outputDirectory  The directory the style reports are written to
+     * @param threadCount      The number of files checked at the same time
+     * @param cache            The cache of earlier results, or null for none
+     * @param pipeline         true to read and write files on their own
+     *                         threads through a PipelineChecker, false to
+     *                         read, check and write each file on one thread
+     * @param format           The format the style reports are written in
+     * @param registry         The rules the files are checked against
+     */
+    BatchChecker(File outputDirectory, int threadCount, ResultCache cache,
+                 boolean pipeline, ReportFormat format, RuleRegistry registry)
+    {
+        this.outputDirectory = outputDirectory;
+        this.threadCount = Math.max(1, threadCount);
+        this.cache = cache;
+        this.pipeline = pipeline;
+        this.format = format;
+        this.registry = registry;
+    }
+
+    /**
+     * Given a list of files, directories and glob patterns, finds every file
+     * they name. Directories are walked for all of the regular files inside
+     * them, and glob patterns are matched against the files under the
+     * directory that the pattern starts with.
+     *
+     * @param paths     The files, directories and glob patterns to check
+     * @return files    The files found, sorted by path
+     * @throws IOException if a directory cannot be walked
+     */
+    static List<File> collectFiles(List<String> paths) throws IOException
+    {
+        ArrayList<Path> found = new ArrayList<>();
+
+        for (String path: paths)
+        {
+            if (isGlob(path))
+            {
+                Path base = globBase(path);
+                PathMatcher matcher = FileSystems.getDefault()
+                                                .getPathMatcher("glob:" + path);
+                found.addAll(walk(base, matcher));
+            }
+
+            else if (Files.isDirectory(Paths.get(path)))
+            {
+                found.addAll(walk(Paths.get(path), null));
+            }
+
+            else
+            {
+                found.add(Paths.get(path));
+            }
+        }
+
+        return found.stream().distinct().sorted().map(Path::toFile)
+                    .collect(Collectors.toList());
+    }
+
+    /**
+     * Checks every file on the worker pool or through the pipeline, then
+     * prints a summary of the style errors found in each file and in total.
+     *
+     * @param files    The files to check
+     * @param summary  The stream the summary is printed to
+     * @return status  0 if every file was checked and is free of style
+     *                 errors, 1 otherwise
+     * @throws IOException if the output directory cannot be created
+     */
+    int run(List<File> files, PrintStream summary) throws IOException
+    {
+        Files.createDirectories(outputDirectory.toPath());
+        HashMap<File, File> reportFiles = new HashMap<>();
+        HashMap<File, File> owners = new HashMap<>();
+        ArrayList<File> checked = new ArrayList<>(files.size());
+        int filesFailed = 0;
+
+        // Two paths can still name the same report, as a/B.java and /a/B.java
+        // do when the working directory is not the root, so the second such
+        // file fails rather than replacing the first one's report
+        for (File file: files)
+        {
+            File reportFile = reportFileFor(file);
+            File owner = owners.putIfAbsent(reportFile, file);
+
+            if (owner != null)
+            {
+                System.err.println("ERROR: " + file.getPath() + " could not "
+                                   + "be checked: its report would replace "
+                                   + "the report of " + owner.getPath());
+                filesFailed++;
+                continue;
+            }
+            Files.createDirectories(reportFile.getParentFile().toPath());
+            reportFiles.put(file, reportFile);
+            checked.add(file);
+        }
+
+        ExecutorService pool = null;
+        List<? extends Future<Integer>> results;
+
+        if (pipeline)
+        {
+            results = new PipelineChecker(threadCount, cache, format,
+                                                registry)
+                          .start(checked, reportFiles::get);
+        }
+
+        else
+        {
+            pool = Executors.newFixedThreadPool(threadCount);
+            ArrayList<Future<Integer>> submitted =
+                                       new ArrayList<>(checked.size());
+
+            for (File file: checked)
+            {
+                File reportFile = reportFiles.get(file);
+                submitted.add(pool.submit(() -> StyleChecker.checkFile(
+                                                    file, reportFile, cache,
+                                                    format, registry)));
+            }
+            pool.shutdown();
+            results = submitted;
+        }
+
+        int totalErrors = 0;
+        int filesWithErrors = 0;
+
+        for (int i = 0; i < checked.size(); i++)
+        {
+            String name = checked.get(i).getPath();
+
+            try
+            {
+                int errors = results.get(i).get();
+
+                if (errors > 0)
+                {
+                    summary.println(name + ": " + errors + " style error(s)");
+                    filesWithErrors++;
+                    totalErrors += errors;
+                }
+            }
+
+            catch (ExecutionException ex)
+            {
+                System.err.println("ERROR: " + name + " could not be checked: "
+                                   + ex.getCause());
+                filesFailed++;
+            }
+
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+
+                if (pool != null)
+                {
+                    pool.shutdownNow();
+                }
+                return 1;
+            }
+        }
+
+        summary.println("\nFiles checked: " + files.size());
+        summary.println("Files with style errors: " + filesWithErrors);
+        summary.println("Files that could not be checked: " + filesFailed);
+        summary.println("Total style errors: " + totalErrors);
+        return (totalErrors > 0 || filesFailed > 0) ? 1 : 0;
+    }
+
+    /**
+     * Given an input file, returns the file its style report is written to.
+     * The report keeps the directories of the input file's path under the
+     * output directory, so files with the same name in different directories
+     * do not collide. A path that is absolute or leads out of the working
+     * directory keeps the directories of its absolute path instead.
+     *
+     * @param inputFile    The file being checked
+     * @return reportFile  The file the style report is written to
+     */
+    private File reportFileFor(File inputFile)
+    {
+        Path path = inputFile.toPath().normalize();
+
+        if (path.isAbsolute() || path.startsWith(".."))
+        {
+            path = inputFile.toPath().toAbsolutePath().normalize();
+            path = path.getRoot().relativize(path);
+        }
+        return new File(outputDirectory, path + format.getSuffix());
+    }
+
+    /**
+     * Walks a directory for all of the regular files inside it.
+     *
+     * @param base      The directory to walk
+     * @param matcher   The matcher the files must match, or null for all files
+     * @return files    The regular files found
+     * @throws IOException if the directory cannot be walked
+     */
+    private static List<Path> walk(Path base, PathMatcher matcher)
+                                  throws IOException
+    {
+        try (Stream<Path> stream = Files.walk(base))
+        {
+            return stream.filter(Files::isRegularFile)
+                         .filter(p -> matcher == null || matcher.matches(p))
+                         .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Returns true if the given path contains any glob pattern characters.
+     *
+     * @param path      The path given on the command line
+     * @return true     if the path is a glob pattern
+     *         false    otherwise
+     */
+    private static boolean isGlob(String path)
+    {
+        for (int i = 0; i < path.length(); i++)
+        {
+            char letter = path.charAt(i);
+
+            if (letter == '*' || letter == '?' || letter == '['
+                || letter == '{')
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Given a glob pattern, returns the directory the pattern starts with,
+     * which is the part of the pattern before the first path segment that
+     * contains a glob character.
+     *
+     * @param pattern   The glob pattern
+     * @return base     The directory to walk for files matching the pattern
+     */
+    private static Path globBase(String pattern)
+    {
+        int end = 0;
+
+        for (int i = 0; i < pattern.length(); i++)
+        {
+            char letter = pattern.charAt(i);
+
+            if (letter == '/' || letter == File.separatorChar)
+            {
+                end = i;
+            }
+
+            else if (isGlob(String.valueOf(letter)))
+            {
+                break;
+            }
+        }
+
+        if (end == 0)
+        {
+            return Paths.get(pattern.startsWith("/") ? "/" : "");
+        }
+        return Paths.get(pattern.substring(0, end));
+    }
+}
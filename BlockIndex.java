@@ -0,0 +1,245 @@
+package stylechecker;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A BlockIndex holds the block structure of a whole program that the
+ * optional brace fixer needs, found in one pass over its lines: the line
+ * that closes the first block opened on each line, and the statement keyword
+ * each line starts with. Braces inside comments and literals do not count.
+ * Once the index is built the end of the statement that starts at any line
+ * is found from those arrays, so the fixer does not have to walk the program
+ * again for each missing brace to find where a block or a statement ends.
+ */
+final class BlockIndex
+{
+
+    private static final int NONE = -1;
+    private static final LineContext.Keyword[] KEYWORDS =
+                                                LineContext.Keyword.values();
+    private final int[] blockEnds;
+    private final byte[] keywords;
+    private final boolean[] elseIfs;
+    private int[] statementEnds;
+    private int lineCount = 0;
+
+    // The lines of the blocks still open, each shifted left once, with the
+    // lowest bit set if the block is the first one opened on its line
+    private int[] openBlocks = new int[16];
+    private int openCount = 0;
+
+    /**
+     * Creates an empty index for the given number of lines.
+     *
+     * @param capacity  The number of lines in the program
+     */
+    private BlockIndex(int capacity)
+    {
+        blockEnds = new int[capacity];
+        keywords = new byte[capacity];
+        elseIfs = new boolean[capacity];
+    }
+
+    /**
+     * Builds the index of a program in one pass over its lines.
+     *
+     * @param source    The text of the program
+     * @return index    The block structure of the program
+     */
+    static BlockIndex of(SourceText source)
+    {
+        BlockIndex index = new BlockIndex(source.lineCount());
+        CodeMask mask = CodeMask.of(source);
+        LineContext context = new LineContext();
+
+        for (int i = 0; i < source.lineCount(); i++)
+        {
+            context.reset(source, source.lineStart(i), source.lineEnd(i), mask);
+            index.add(context);
+        }
+        return index;
+    }
+
+    /**
+     * Builds the index of a program held as a list of lines in one pass.
+     *
+     * @param lineList  The lines of the program
+     * @return index    The block structure of the program
+     */
+    static BlockIndex of(List<String> lineList)
+    {
+        BlockIndex index = new BlockIndex(lineList.size());
+        CodeMask mask = new CodeMask();
+        LineContext context = new LineContext();
+
+        for (String line: lineList)
+        {
+            mask.mark(line, 0, line.length());
+            context.reset(line, 0, line.length(), mask);
+            index.add(context);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the number of lines in the index.
+     *
+     * @return lineCount    The number of lines
+     */
+    int lineCount()
+    {
+        return lineCount;
+    }
+
+    /**
+     * Returns the last line of the statement that starts at a line. A
+     * statement led by a keyword runs to the end of its block, or of the
+     * statement that is its body when it has no braces, and an if or else if
+     * statement also takes in the else that follows it. Any other statement is taken
+     * to end on the line it starts on.
+     *
+     * @param index     The index of the line the statement starts on
+     * @return end      The index of the statement's last line
+     */
+    int statementEnd(int index)
+    {
+        if (statementEnds == null)
+        {
+            statementEnds = new int[lineCount];
+            Arrays.fill(statementEnds, NONE);
+        }
+
+        if (statementEnds[index] == NONE)
+        {
+            statementEnds[index] = findStatementEnd(index);
+        }
+        return statementEnds[index];
+    }
+
+    /**
+     * Finds the last line of the statement that starts at a line, as
+     * statementEnd describes it.
+     *
+     * @param index     The index of the line the statement starts on
+     * @return end      The index of the statement's last line
+     */
+    private int findStatementEnd(int index)
+    {
+        LineContext.Keyword keyword = keyword(index);
+
+        if (keyword == LineContext.Keyword.NONE || index + 1 == lineCount)
+        {
+            return index;
+        }
+
+        int end;
+
+        if (blockEnds[index] != NONE)
+        {
+            end = blockEnds[index];
+        }
+
+        else if (blockEnds[index + 1] != NONE)
+        {
+            end = blockEnds[index + 1];
+        }
+
+        else
+        {
+            end = statementEnd(index + 1);
+        }
+
+        // A block that closes on a line that opens another, as "} else {"
+        // does, goes on to the end of the other block
+        while (blockEnds[end] > end)
+        {
+            end = blockEnds[end];
+        }
+
+        if ((keyword == LineContext.Keyword.IF || elseIfs[index])
+            && end + 1 < lineCount
+            && keyword(end + 1) == LineContext.Keyword.ELSE)
+        {
+            end = statementEnd(end + 1);
+        }
+        return end;
+    }
+
+    /**
+     * Returns the statement keyword a line starts with.
+     *
+     * @param index     The index of the line
+     * @return keyword  The keyword, or NONE
+     */
+    private LineContext.Keyword keyword(int index)
+    {
+        return KEYWORDS[keywords[index]];
+    }
+
+    /**
+     * Adds the next line of the program to the index.
+     *
+     * @param line      The context of the line
+     */
+    private void add(LineContext line)
+    {
+        int index = lineCount++;
+        boolean firstOpen = true;
+        blockEnds[index] = NONE;
+
+        for (int i = 0; i < line.tokenCount(); i++)
+        {
+            int kind = line.tokenKind(i);
+
+            if (kind == LineLexer.OPEN_BRACE)
+            {
+                if (openCount == openBlocks.length)
+                {
+                    openBlocks = Arrays.copyOf(openBlocks, openCount * 2);
+                }
+                openBlocks[openCount++] = index << 1 | (firstOpen ? 1 : 0);
+                firstOpen = false;
+            }
+
+            else if (kind == LineLexer.CLOSE_BRACE && openCount > 0)
+            {
+                int block = openBlocks[--openCount];
+
+                if ((block & 1) != 0)
+                {
+                    blockEnds[block >>> 1] = index;
+                }
+            }
+        }
+
+        keywords[index] = (byte) line.keyword.ordinal();
+        elseIfs[index] = line.keyword == LineContext.Keyword.ELSE
+                         && startsWithElseIf(line);
+    }
+
+    /**
+     * Returns true if the second word of a line that starts with else is if.
+     *
+     * @param line      The context of the line
+     * @return true     if the line starts with else if
+     *         false    otherwise
+     */
+    private static boolean startsWithElseIf(LineContext line)
+    {
+        int codeTokens = 0;
+
+        for (int i = 0; i < line.tokenCount(); i++)
+        {
+            if (line.tokenKind(i) != LineLexer.COMMENT && ++codeTokens == 2)
+            {
+                int start = line.tokenStart(i);
+                return line.tokenKind(i) == LineLexer.WORD
+                       && line.tokenEnd(i) - start == 2
+                       && line.charAt(start) == 'i'
+                       && line.charAt(start + 1) == 'f';
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,44 @@
+package stylechecker;
+
+/**
+ * Finds every line of code in the program where the open or close curly
+ * brace should be on a new line but is not. We will assume that braces will
+ * be on the same line, and errors where there are one or more blank lines
+ * before the brace will not be considered.
+ */
+public final class BraceAlignmentRule implements Rule
+{
+
+    @Override
+    public void checkLine(int index, LineContext current, LineContext next,
+                          LineContext nextNext, ViolationSink sink)
+    {
+        if (next == null)
+        {
+            return;
+        }
+
+        boolean onSameLine = current.endsWithOpenBrace;
+
+        if ((current.mentionsClass || current.hasAccessModifier) && onSameLine)
+        {
+            sink.addViolation(this, index + 1);
+        }
+
+        if (current.keyword != LineContext.Keyword.NONE && onSameLine)
+        {
+            sink.addViolation(this, index + 1);
+        }
+
+        if (current.endsWithCloseBrace && current.codeTokenCount > 1)
+        {
+            sink.addViolation(this, index + 1);
+        }
+    }
+
+    @Override
+    public String getMessage()
+    {
+        return "brace alignment error";
+    }
+}
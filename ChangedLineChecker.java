@@ -0,0 +1,239 @@
+package stylechecker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The ChangedLineChecker checks only the lines a diff changes, and reports
+ * only the style errors on those lines. A rule reports an error on the line
+ * it checks or on one of the two lines after it, so the errors of a range of
+ * lines are all found by checking from two lines before the range to its
+ * last line, which needs the two lines after the range to be read as well.
+ * Only those windows are lexed and checked; the rest of a file is only
+ * scanned for the characters that start comments and literals, and, when the
+ * IndentRule is on, for the lines with braces, which give the brace depth the
+ * rule starts each window at. Nothing after the last window is read at all.
+ */
+final class ChangedLineChecker
+{
+
+    // The errors of a line are found by checking it and the lines before it
+    private static final int LOOK_BEHIND = 2;
+
+    // Checking a line reads the lines after it
+    private static final int LOOK_AHEAD = 2;
+
+    private final RuleRegistry registry;
+
+    /**
+     * Creates a checker that checks the changed lines against the given
+     * rules.
+     *
+     * @param registry  The rules the changed lines are checked against
+     */
+    ChangedLineChecker(RuleRegistry registry)
+    {
+        this.registry = registry;
+    }
+
+    /**
+     * Checks the changed lines of every file and prints each style error on
+     * them as "path:line: message", file by file and in line order, followed
+     * by the total. Files that no longer exist, or are not regular files, are
+     * passed over.
+     *
+     * @param files     The changed lines of each file
+     * @param out       The stream the style errors are printed to
+     * @return status   0 if every file was read and no changed line has a
+     *                  style error, 1 otherwise
+     */
+    int run(List<ChangedLines> files, PrintStream out)
+    {
+        int status = 0;
+        int errorCount = 0;
+
+        for (ChangedLines changes: files)
+        {
+            File file = new File(changes.getPath());
+
+            if (!file.isFile())
+            {
+                continue;
+            }
+
+            try
+            {
+                errorCount += report(SourceText.read(file), changes, out);
+            }
+
+            catch (IOException ex)
+            {
+                System.err.println("ERROR: " + file + " could not be read");
+                status = 1;
+            }
+        }
+
+        out.println("Total style errors on changed lines: " + errorCount);
+        out.flush();
+        return errorCount > 0 ? 1 : status;
+    }
+
+    /**
+     * Checks the changed lines of one program and prints their style errors
+     * in line order.
+     *
+     * @param source        The text of the program
+     * @param changes       The changed lines of the program
+     * @param out           The stream the style errors are printed to
+     * @return errorCount   The number of style errors printed
+     */
+    private int report(SourceText source, ChangedLines changes,
+                       PrintStream out)
+    {
+        long checkStart = CheckerMetrics.startPhase();
+        Rule[] rules = registry.createRules();
+        RuleMetrics metrics = CheckerMetrics.isTiming()
+                              ? new RuleMetrics(rules.length) : null;
+        ViolationCollector violations = new ViolationCollector();
+        int lineCount = check(source, changes, violations, metrics, rules);
+
+        if (metrics != null)
+        {
+            CheckerMetrics.addCheck(changes.getPath(), lineCount,
+                                    source.length(), rules, metrics);
+        }
+        CheckerMetrics.endPhase(CheckerMetrics.Phase.CHECK, checkStart);
+
+        // Each error is packed as its line number above the index of its
+        // rule, so sorting puts them in line order and then rule order
+        long[] errors = new long[violations.getErrorCount()];
+        int count = 0;
+
+        for (int r = 0; r < rules.length; r++)
+        {
+            LineNumberList lines = violations.getErrorLines(rules[r]);
+
+            for (int i = 0; i < lines.size(); i++)
+            {
+                errors[count++] = (long) lines.get(i) << 32 | r;
+            }
+        }
+        Arrays.sort(errors, 0, count);
+
+        for (int i = 0; i < count; i++)
+        {
+            out.println(changes.getPath() + ":" + (errors[i] >>> 32) + ": "
+                        + rules[(int) errors[i]].getMessage());
+        }
+        return count;
+    }
+
+    /**
+     * Checks the windows around the changed lines of a program, passing the
+     * errors on the changed lines to the sink. The rules are given their
+     * state at the start of each window, so the sink receives exactly the
+     * errors a check of the whole program finds on those lines.
+     *
+     * @param source        The text of the program
+     * @param changes       The changed lines of the program
+     * @param sink          The sink that receives the errors found
+     * @param metrics       The metrics the cost of each rule is added to, or
+     *                      null to not measure the rules
+     * @param rules         The rules to check the lines against
+     * @return lineCount    The number of lines checked
+     */
+    static int check(SourceText source, ChangedLines changes,
+                     ViolationSink sink, RuleMetrics metrics, Rule... rules)
+    {
+        int lastLine = source.lineCount();
+        int ranges = changes.rangeCount();
+
+        while (ranges > 0 && changes.first(ranges - 1) > lastLine)
+        {
+            ranges--;
+        }
+
+        if (ranges == 0)
+        {
+            return 0;
+        }
+
+        // Comments and literals are masked up to the end of the last window
+        int end = Math.min(lastLine, changes.last(ranges - 1) + LOOK_AHEAD);
+        CodeMask mask = new CodeMask();
+        mask.mark(source, 0, source.lineEnd(end - 1));
+
+        IndentRule indentRule = null;
+
+        for (Rule rule: rules)
+        {
+            if (rule instanceof IndentRule)
+            {
+                indentRule = (IndentRule) rule;
+            }
+        }
+
+        ViolationSink changedSink = (rule, lineNumber) ->
+        {
+            if (changes.contains(lineNumber))
+            {
+                sink.addViolation(rule, lineNumber);
+            }
+        };
+        int openLines = 0;
+        int closeLines = 0;
+        int counted = 0;
+        int checkedCount = 0;
+        int range = 0;
+
+        while (range < ranges)
+        {
+            // Line numbers count from 1, so a window checks from the index
+            // LOOK_BEHIND lines before a range's first line to the index of
+            // its last line, and ranges whose windows meet are checked as one
+            int from = Math.max(0, changes.first(range) - 1 - LOOK_BEHIND);
+            int last = changes.last(range);
+
+            while (range + 1 < ranges
+                   && changes.first(range + 1) - 1 - LOOK_BEHIND <= last)
+            {
+                last = Math.max(last, changes.last(++range));
+            }
+            range++;
+
+            int to = Math.min(lastLine, last + LOOK_AHEAD);
+
+            if (indentRule != null)
+            {
+                // The lines with braces are counted from where the last
+                // window's count stopped to the first line of this one
+                int[] counts = IndentRule.countBraceLines(source, mask,
+                                                          counted, from);
+                openLines += counts[0];
+                closeLines += counts[1];
+                counted = from;
+                indentRule.restoreState(indentRule.stateAfter(openLines,
+                                                              closeLines),
+                                        from);
+            }
+
+            RuleEngine engine = new RuleEngine(changedSink, mask, from,
+                                               metrics, rules);
+
+            for (int i = from; i < to; i++)
+            {
+                engine.push(source, source.lineStart(i), source.lineEnd(i));
+            }
+
+            if (to == lastLine)
+            {
+                engine.finish();
+            }
+            checkedCount += to - from;
+        }
+        return checkedCount;
+    }
+}
@@ -0,0 +1,368 @@
+package stylechecker;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A ChangedLines holds the lines of one file that a diff adds or changes, as
+ * ranges of line numbers in the new version of the file. The ranges are read
+ * from a unified diff, either one that git writes for the working tree or
+ * one saved to a file, from the name of each file and the header of each
+ * hunk; the lines of a hunk are only counted, never read. The diff should be
+ * made with no lines of context, as git diff --unified=0 makes it, or every
+ * line of context counts as changed.
+ *
+ * A hunk that only removes lines changes no line of the new file, but it
+ * brings the lines on either side of the gap together, so those two lines
+ * are taken to be changed.
+ */
+final class ChangedLines
+{
+
+    private static final String NEW_FILE = "+++ ";
+    private static final String HUNK = "@@ -";
+    private static final String NO_FILE = "/dev/null";
+    private static final String NEW_PREFIX = "b/";
+    private final String path;
+    private int[] firsts = new int[8];
+    private int[] lasts = new int[8];
+    private int rangeCount = 0;
+
+    /**
+     * Creates an empty set of changed lines for a file.
+     *
+     * @param path      The path of the file
+     */
+    private ChangedLines(String path)
+    {
+        this.path = path;
+    }
+
+    /**
+     * Runs git diff in the working directory and reads the lines it shows as
+     * changed, in the working tree and the index, since a revision.
+     *
+     * @param revision  The revision to compare the working tree with
+     * @param paths     The paths to limit the diff to, or none for every
+     *                  file git tracks under the working directory
+     * @return files    The changed lines of every file that has any
+     * @throws IOException if git cannot be run, or fails
+     */
+    static List<ChangedLines> fromGit(String revision, List<String> paths)
+                                     throws IOException
+    {
+        ArrayList<String> command = new ArrayList<>(Arrays.asList(
+            "git", "diff", "--unified=0", "--no-color", "--no-ext-diff",
+            "--no-textconv", "--relative", "--src-prefix=a/",
+            "--dst-prefix=" + NEW_PREFIX, revision, "--"));
+        command.addAll(paths);
+        Process git = new ProcessBuilder(command)
+                          .redirectError(ProcessBuilder.Redirect.INHERIT)
+                          .start();
+        List<ChangedLines> files;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                                         git.getInputStream(),
+                                         StandardCharsets.UTF_8)))
+        {
+            files = parse(reader);
+        }
+
+        try
+        {
+            int status = git.waitFor();
+
+            if (status != 0)
+            {
+                throw new IOException("git diff failed with status "
+                                      + status);
+            }
+        }
+
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            git.destroy();
+            throw new IOException("git diff was interrupted");
+        }
+        return files;
+    }
+
+    /**
+     * Reads the changed lines of every file in a unified diff. Files that
+     * the diff deletes, and files with no hunks, such as binary files, are
+     * left out.
+     *
+     * @param reader    The reader the diff is read from
+     * @return files    The changed lines of every file that has any, in the
+     *                  order the diff names them
+     * @throws IOException if the diff cannot be read
+     */
+    static List<ChangedLines> parse(BufferedReader reader) throws IOException
+    {
+        ArrayList<ChangedLines> files = new ArrayList<>();
+        ChangedLines file = null;
+        int[] hunkLeft = new int[2];
+        String line;
+
+        while ((line = reader.readLine()) != null)
+        {
+            // The lines of a hunk are skipped by count, since an added line
+            // may itself start with "++ "
+            if (hunkLeft[0] > 0 || hunkLeft[1] > 0)
+            {
+                char kind = line.isEmpty() ? ' ' : line.charAt(0);
+
+                if (kind != '\\')
+                {
+                    hunkLeft[0] -= kind == '+' ? 0 : 1;
+                    hunkLeft[1] -= kind == '-' ? 0 : 1;
+                }
+            }
+
+            else if (line.startsWith(NEW_FILE))
+            {
+                // A tab ends the name, before a time stamp or, from git,
+                // after a name with a space in it
+                int tab = line.indexOf('\t');
+                String name = unquote(line.substring(NEW_FILE.length(),
+                                                     tab < 0 ? line.length()
+                                                     : tab));
+                file = name.equals(NO_FILE) ? null
+                       : new ChangedLines(name.startsWith(NEW_PREFIX)
+                                          ? name.substring(NEW_PREFIX.length())
+                                          : name);
+            }
+
+            else if (line.startsWith(HUNK))
+            {
+                int[] oldRange = readRange(line, HUNK.length());
+                int[] newRange = readRange(line, line.indexOf(" +") + 2);
+                hunkLeft[0] = oldRange[1];
+                hunkLeft[1] = newRange[1];
+
+                if (file == null)
+                {
+                    continue;
+                }
+
+                if (file.rangeCount == 0)
+                {
+                    files.add(file);
+                }
+
+                if (newRange[1] == 0)
+                {
+                    // The lines were removed after the start line
+                    file.add(Math.max(1, newRange[0]), newRange[0] + 1);
+                }
+
+                else
+                {
+                    file.add(newRange[0], newRange[0] + newRange[1] - 1);
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Returns the path of the file, as the diff names it.
+     *
+     * @return path     The path of the file
+     */
+    String getPath()
+    {
+        return path;
+    }
+
+    /**
+     * Returns the number of ranges of changed lines. Ranges are in order and
+     * do not overlap or touch.
+     *
+     * @return count    The number of ranges
+     */
+    int rangeCount()
+    {
+        return rangeCount;
+    }
+
+    /**
+     * Returns the first line of a range of changed lines.
+     *
+     * @param range     The index of the range
+     * @return first    The line number of the first line, counting from 1
+     */
+    int first(int range)
+    {
+        return firsts[range];
+    }
+
+    /**
+     * Returns the last line of a range of changed lines.
+     *
+     * @param range     The index of the range
+     * @return last     The line number of the last line, counting from 1
+     */
+    int last(int range)
+    {
+        return lasts[range];
+    }
+
+    /**
+     * Returns true if a line is one of the changed lines.
+     *
+     * @param lineNumber    The line number, counting from 1
+     * @return true         if the line is in a range of changed lines
+     *         false        otherwise
+     */
+    boolean contains(int lineNumber)
+    {
+        int low = 0;
+        int high = rangeCount - 1;
+
+        while (low <= high)
+        {
+            int middle = (low + high) >>> 1;
+
+            if (lasts[middle] < lineNumber)
+            {
+                low = middle + 1;
+            }
+
+            else if (firsts[middle] > lineNumber)
+            {
+                high = middle - 1;
+            }
+
+            else
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads one side of a hunk header "@@ -start,count +start,count @@". A
+     * missing count is 1.
+     *
+     * @param header    The header line of the hunk
+     * @param offset    The offset the start of the side is at
+     * @return range    The start line and the count of lines of the side
+     * @throws IOException if the header cannot be read
+     */
+    private static int[] readRange(String header, int offset)
+                                  throws IOException
+    {
+        int end = header.indexOf(' ', offset);
+
+        if (offset < HUNK.length() || end < 0)
+        {
+            throw new IOException("bad hunk header in diff: " + header);
+        }
+
+        String range = header.substring(offset, end);
+        int comma = range.indexOf(',');
+
+        try
+        {
+            return new int[] {Integer.parseInt(comma < 0 ? range
+                                               : range.substring(0, comma)),
+                              comma < 0 ? 1 : Integer.parseInt(
+                                                  range.substring(comma + 1))};
+        }
+
+        catch (NumberFormatException ex)
+        {
+            throw new IOException("bad hunk header in diff: " + header);
+        }
+    }
+
+    /**
+     * Adds a range of changed lines. The hunks of a file come in order, so a
+     * range that overlaps or touches the last one is joined to it.
+     *
+     * @param first     The line number of the first line of the range
+     * @param last      The line number of the last line of the range
+     */
+    private void add(int first, int last)
+    {
+        if (rangeCount > 0 && first <= lasts[rangeCount - 1] + 1)
+        {
+            lasts[rangeCount - 1] = Math.max(lasts[rangeCount - 1], last);
+            return;
+        }
+
+        if (rangeCount == firsts.length)
+        {
+            firsts = Arrays.copyOf(firsts, rangeCount * 2);
+            lasts = Arrays.copyOf(lasts, rangeCount * 2);
+        }
+        firsts[rangeCount] = first;
+        lasts[rangeCount] = last;
+        rangeCount++;
+    }
+
+    /**
+     * Returns a file name from a diff header. Git puts names with unusual
+     * characters in double quotes, with C escapes and with the bytes of
+     * other characters as octal escapes.
+     *
+     * @param name      The name as it appears in the header
+     * @return name     The name with its quotes and escapes undone
+     */
+    private static String unquote(String name)
+    {
+        if (name.length() < 2 || name.charAt(0) != '"'
+            || name.charAt(name.length() - 1) != '"')
+        {
+            return name;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int i = 1;
+
+        while (i < name.length() - 1)
+        {
+            char letter = name.charAt(i++);
+
+            if (letter != '\\' || i == name.length() - 1)
+            {
+                byte[] encoded = String.valueOf(letter)
+                                       .getBytes(StandardCharsets.UTF_8);
+                bytes.write(encoded, 0, encoded.length);
+                continue;
+            }
+
+            char escape = name.charAt(i++);
+
+            if (escape >= '0' && escape <= '7')
+            {
+                int value = escape - '0';
+
+                for (int digits = 1; digits < 3 && i < name.length() - 1
+                     && name.charAt(i) >= '0' && name.charAt(i) <= '7';
+                     digits++)
+                {
+                    value = value * 8 + name.charAt(i++) - '0';
+                }
+                bytes.write(value);
+            }
+
+            else
+            {
+                int index = "abtnvfr".indexOf(escape);
+                bytes.write(index < 0 ? escape : "\u0007\b\t\n\u000b\f\r"
+                                                 .charAt(index));
+            }
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,304 @@
+package stylechecker;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * A CheckerConfig holds the settings a run of the checker uses: the limits
+ * the rules check against, the files the default run reads and writes, and
+ * which rules are checked. It is read once at startup from a properties file
+ * with any command line options laid over it, and never changes after that,
+ * so the rules can copy what they need into their own fields.
+ *
+ * The settings, with their command line options and defaults, are
+ *
+ *   max.line.length   --max-line-length   80
+ *   indent.width      --indent-width      3
+ *   input.file        --input             input/trevor_blank_lines.txt
+ *   output.file       --output            output/Fixed_Style_Output.txt
+ *   rules.enable      --enable            every rule
+ *   rules.disable     --disable           none
+ *   rules.file        --rules             none
+ *
+ * where the rule settings are lists of rule names separated by commas, and
+ * the rules file declares more rules in the language RuleLanguage reads.
+ */
+public final class CheckerConfig
+{
+
+    static final String FILE_NAME = "stylechecker.properties";
+    static final String MAX_LINE_LENGTH = "max.line.length";
+    static final String INDENT_WIDTH = "indent.width";
+    static final String INPUT_FILE = "input.file";
+    static final String OUTPUT_FILE = "output.file";
+    static final String RULES_ENABLE = "rules.enable";
+    static final String RULES_DISABLE = "rules.disable";
+    static final String RULES_FILE = "rules.file";
+
+    // Each command line option followed by the setting it overrides
+    private static final String[] OPTIONS = {
+        "--max-line-length", MAX_LINE_LENGTH,
+        "--indent-width", INDENT_WIDTH,
+        "--input", INPUT_FILE,
+        "--output", OUTPUT_FILE,
+        "--enable", RULES_ENABLE,
+        "--disable", RULES_DISABLE,
+        "--rules", RULES_FILE
+    };
+    private static final List<String> KEYS = Arrays.asList(
+        MAX_LINE_LENGTH, INDENT_WIDTH, INPUT_FILE, OUTPUT_FILE, RULES_ENABLE,
+        RULES_DISABLE, RULES_FILE);
+    private static final CheckerConfig DEFAULTS =
+                                            new CheckerConfig(new Properties());
+    private final int maxLineLength;
+    private final int indentWidth;
+    private final String inputFile;
+    private final String outputFile;
+    private final List<String> enabledRules;
+    private final List<String> disabledRules;
+    private final String rulesFile;
+
+    /**
+     * Creates a configuration from the given settings, using the default of
+     * every setting that is not given.
+     *
+     * @param settings  The settings, keyed by their property names
+     * @throws IllegalArgumentException if a setting is unknown or its value
+     *                                  is not valid
+     */
+    private CheckerConfig(Properties settings)
+    {
+        for (String key: settings.stringPropertyNames())
+        {
+            if (!KEYS.contains(key))
+            {
+                throw new IllegalArgumentException("unknown setting: " + key);
+            }
+        }
+
+        maxLineLength = positive(settings, MAX_LINE_LENGTH, 80);
+        indentWidth = positive(settings, INDENT_WIDTH, 3);
+        inputFile = settings.getProperty(INPUT_FILE,
+                                         "input/trevor_blank_lines.txt");
+        outputFile = settings.getProperty(OUTPUT_FILE,
+                                          "output/Fixed_Style_Output.txt");
+        enabledRules = names(settings, RULES_ENABLE);
+        disabledRules = names(settings, RULES_DISABLE);
+        rulesFile = settings.getProperty(RULES_FILE);
+    }
+
+    /**
+     * Returns the configuration with every setting at its default.
+     *
+     * @return config   The default configuration
+     */
+    static CheckerConfig defaults()
+    {
+        return DEFAULTS;
+    }
+
+    /**
+     * Reads a configuration from a properties file, then lays the given
+     * settings over it.
+     *
+     * @param file      The properties file, or null to start from the
+     *                  defaults
+     * @param overrides The settings that take the place of the file's
+     * @return config   The configuration
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a setting is unknown or its value
+     *                                  is not valid
+     */
+    static CheckerConfig load(File file, Properties overrides)
+                             throws IOException
+    {
+        Properties settings = new Properties();
+
+        if (file != null)
+        {
+            try (Reader reader = Files.newBufferedReader(
+                                     file.toPath(), StandardCharsets.UTF_8))
+            {
+                settings.load(reader);
+            }
+
+            catch (NoSuchFileException ex)
+            {
+                throw new FileNotFoundException(file + " not found");
+            }
+        }
+        settings.putAll(overrides);
+        return new CheckerConfig(settings);
+    }
+
+    /**
+     * Returns the setting a command line option overrides.
+     *
+     * @param option    The command line option
+     * @return key      The property name of the setting, or null if the
+     *                  option is not a setting
+     */
+    static String keyForOption(String option)
+    {
+        for (int i = 0; i < OPTIONS.length; i += 2)
+        {
+            if (OPTIONS[i].equals(option))
+            {
+                return OPTIONS[i + 1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the longest a line may be before it is a style error.
+     *
+     * @return length   The maximum line length
+     */
+    public int getMaxLineLength()
+    {
+        return maxLineLength;
+    }
+
+    /**
+     * Returns the number of spaces each block is indented by.
+     *
+     * @return width    The indent width
+     */
+    public int getIndentWidth()
+    {
+        return indentWidth;
+    }
+
+    /**
+     * Returns the file the default run checks.
+     *
+     * @return path     The path of the input file
+     */
+    String getInputFile()
+    {
+        return inputFile;
+    }
+
+    /**
+     * Returns the file the default run writes its report to.
+     *
+     * @return path     The path of the report file
+     */
+    String getOutputFile()
+    {
+        return outputFile;
+    }
+
+    /**
+     * Returns the names of the only rules to check, or an empty list if
+     * every rule is checked.
+     *
+     * @return names    The names of the rules enabled
+     */
+    List<String> getEnabledRules()
+    {
+        return enabledRules;
+    }
+
+    /**
+     * Returns the names of the rules that are not checked.
+     *
+     * @return names    The names of the rules disabled
+     */
+    List<String> getDisabledRules()
+    {
+        return disabledRules;
+    }
+
+    /**
+     * Returns the file that declares more rules to check, if there is one.
+     *
+     * @return path     The path of the rules file, or null if there is none
+     */
+    String getRulesFile()
+    {
+        return rulesFile;
+    }
+
+    /**
+     * Returns the settings that change which errors the rules find, in a
+     * form that can be hashed into the key of a cached result.
+     *
+     * @return settings The rule settings as text
+     */
+    String fingerprint()
+    {
+        return MAX_LINE_LENGTH + "=" + maxLineLength + "\n"
+               + INDENT_WIDTH + "=" + indentWidth + "\n";
+    }
+
+    /**
+     * Returns the value of a setting that must be a positive number.
+     *
+     * @param settings      The settings
+     * @param key           The property name of the setting
+     * @param defaultValue  The value if the setting is not given
+     * @return value        The value of the setting
+     * @throws IllegalArgumentException if the value is not a positive number
+     */
+    private static int positive(Properties settings, String key,
+                                int defaultValue)
+    {
+        String value = settings.getProperty(key);
+
+        if (value == null)
+        {
+            return defaultValue;
+        }
+
+        try
+        {
+            int number = Integer.parseInt(value.trim());
+
+            if (number > 0)
+            {
+                return number;
+            }
+        }
+
+        catch (NumberFormatException ex)
+        {
+            // Reported below like any other value that is not allowed
+        }
+        throw new IllegalArgumentException(key + " must be a positive number, "
+                                           + "not " + value);
+    }
+
+    /**
+     * Returns the value of a setting that is a list of names separated by
+     * commas.
+     *
+     * @param settings  The settings
+     * @param key       The property name of the setting
+     * @return names    The names in the list, which may be empty
+     */
+    private static List<String> names(Properties settings, String key)
+    {
+        ArrayList<String> names = new ArrayList<>();
+
+        for (String name: settings.getProperty(key, "").split(","))
+        {
+            if (!name.trim().isEmpty())
+            {
+                names.add(name.trim());
+            }
+        }
+        return Collections.unmodifiableList(names);
+    }
+}
@@ -0,0 +1,303 @@
+package stylechecker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CheckerMetrics adds up what every check in this run of the checker cost:
+ * the time spent reading programs, checking them and writing their reports,
+ * and for each rule the time it spent checking lines, the bytes it allocated
+ * and the style errors it found. The totals can be printed as a summary or
+ * written out as JSON for other tools to read.
+ *
+ * Nothing is measured until the metrics are enabled, so a run that does not
+ * ask for them pays only for a check of a flag per program. The rules are
+ * also timed while a flight recording has the RuleCheckEvent enabled, so the
+ * events can be recorded without the summary. The totals are kept for the
+ * whole run and may be added to from many threads at once.
+ */
+final class CheckerMetrics
+{
+
+    /**
+     * The stages of checking a program that are timed.
+     */
+    enum Phase
+    {
+        READ("reading"),
+        CHECK("checking"),
+        REPORT("reporting");
+
+        private final String label;
+        private final LongAdder nanos = new LongAdder();
+
+        Phase(String label)
+        {
+            this.label = label;
+        }
+    }
+
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double BYTES_PER_KILOBYTE = 1024;
+    private static final LongAdder FILES = new LongAdder();
+    private static final LongAdder LINES = new LongAdder();
+    private static final LongAdder CHARACTERS = new LongAdder();
+    private static final Map<String, long[]> RULES = new LinkedHashMap<>();
+    private static volatile boolean enabled = false;
+    private static long startTime;
+
+    private CheckerMetrics()
+    {
+    }
+
+    /**
+     * Starts measuring every check from now on.
+     */
+    static void enable()
+    {
+        startTime = System.nanoTime();
+        enabled = true;
+    }
+
+    /**
+     * Stops measuring and clears every total, as if the metrics had never
+     * been enabled.
+     */
+    static void reset()
+    {
+        enabled = false;
+        FILES.reset();
+        LINES.reset();
+        CHARACTERS.reset();
+
+        for (Phase phase: Phase.values())
+        {
+            phase.nanos.reset();
+        }
+
+        synchronized (RULES)
+        {
+            RULES.clear();
+        }
+    }
+
+    /**
+     * Returns true if the totals are being added up.
+     *
+     * @return true     if the metrics are enabled
+     *         false    otherwise
+     */
+    static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Returns true if the rules should be timed as they check a program,
+     * which is when the metrics are enabled or a flight recording wants the
+     * RuleCheckEvent.
+     *
+     * @return true     if the rules should be timed
+     *         false    otherwise
+     */
+    static boolean isTiming()
+    {
+        return enabled || new RuleCheckEvent().isEnabled();
+    }
+
+    /**
+     * Returns the time now, if the metrics are enabled, to be passed to
+     * endPhase when the phase is over.
+     *
+     * @return time     The time now in nanoseconds, or 0 if the metrics are
+     *                  not enabled
+     */
+    static long startPhase()
+    {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Adds the time from the given start to now to a phase.
+     *
+     * @param phase     The phase that is over
+     * @param start     The time startPhase returned
+     */
+    static void endPhase(Phase phase, long start)
+    {
+        if (enabled)
+        {
+            phase.nanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Adds a checked program to the totals, and commits a RuleCheckEvent for
+     * each rule if a flight recording wants them.
+     *
+     * @param path          The path of the program
+     * @param lineCount     The number of lines in the program
+     * @param length        The number of characters in the program
+     * @param rules         The rules the program was checked against
+     * @param metrics       What each rule cost, in the order of the rules
+     */
+    static void addCheck(String path, int lineCount, long length, Rule[] rules,
+                         RuleMetrics metrics)
+    {
+        for (int i = 0; i < rules.length; i++)
+        {
+            RuleCheckEvent event = new RuleCheckEvent();
+
+            if (event.isEnabled())
+            {
+                event.rule = rules[i].getName();
+                event.file = path;
+                event.lines = lineCount;
+                event.checkTime = metrics.getNanos(i);
+                event.allocated = metrics.getAllocatedBytes(i);
+                event.violations = metrics.getViolations(i);
+                event.commit();
+            }
+        }
+
+        if (!enabled)
+        {
+            return;
+        }
+        FILES.increment();
+        LINES.add(lineCount);
+        CHARACTERS.add(length);
+
+        synchronized (RULES)
+        {
+            for (int i = 0; i < rules.length; i++)
+            {
+                long[] totals = RULES.computeIfAbsent(rules[i].getName(),
+                                                      name -> new long[3]);
+                totals[0] += metrics.getNanos(i);
+                totals[1] += metrics.getAllocatedBytes(i);
+                totals[2] += metrics.getViolations(i);
+            }
+        }
+    }
+
+    /**
+     * Prints a table of what each rule cost, followed by the totals of the
+     * run.
+     *
+     * @param out       The stream the summary is printed to
+     */
+    static void printSummary(PrintStream out)
+    {
+        long ruleNanos = 0;
+
+        synchronized (RULES)
+        {
+            for (long[] totals: RULES.values())
+            {
+                ruleNanos += totals[0];
+            }
+
+            out.printf(Locale.ROOT, "%-24s %12s %7s %15s %8s%n", "Rule",
+                       "Time (ms)", "Share", "Allocated (KB)", "Errors");
+
+            for (Map.Entry<String, long[]> entry: RULES.entrySet())
+            {
+                long[] totals = entry.getValue();
+                out.printf(Locale.ROOT, "%-24s %12.3f %6.1f%% %15.1f %8d%n",
+                           entry.getKey(), totals[0] / NANOS_PER_MILLI,
+                           ruleNanos == 0 ? 0 : 100.0 * totals[0] / ruleNanos,
+                           totals[1] / BYTES_PER_KILOBYTE, totals[2]);
+            }
+        }
+
+        out.printf(Locale.ROOT, "%nFiles: %d  Lines: %d  Characters: %d%n",
+                   FILES.sum(), LINES.sum(), CHARACTERS.sum());
+        out.printf(Locale.ROOT, "Lines per second: %.0f checking, "
+                   + "%.0f overall%n", linesPerSecond(Phase.CHECK.nanos.sum()),
+                   linesPerSecond(System.nanoTime() - startTime));
+
+        ArrayList<String> phases = new ArrayList<>();
+
+        for (Phase phase: Phase.values())
+        {
+            phases.add(String.format(Locale.ROOT, "%s %.3f ms", phase.label,
+                                     phase.nanos.sum() / NANOS_PER_MILLI));
+        }
+        out.println("Time spent " + String.join(", ", phases));
+        out.flush();
+    }
+
+    /**
+     * Writes the totals of the run to a file as a single JSON object.
+     *
+     * @param file      The file the totals are written to
+     * @throws IOException if the file cannot be written
+     */
+    static void writeJson(File file) throws IOException
+    {
+        try (ReportWriter out = new ReportWriter(Files.newBufferedWriter(
+                                    file.toPath(), StandardCharsets.UTF_8)))
+        {
+            long elapsed = System.nanoTime() - startTime;
+            out.append("{\"files\":").append(Long.toString(FILES.sum()))
+               .append(",\"lines\":").append(Long.toString(LINES.sum()))
+               .append(",\"characters\":")
+               .append(Long.toString(CHARACTERS.sum()))
+               .append(",\"elapsedNanos\":").append(Long.toString(elapsed))
+               .append(",\"linesPerSecond\":")
+               .append(Long.toString(Math.round(linesPerSecond(
+                                                Phase.CHECK.nanos.sum()))))
+               .append(",\"phases\":{");
+
+            for (Phase phase: Phase.values())
+            {
+                out.append(phase.ordinal() == 0 ? "\"" : ",\"")
+                   .append(phase.name().toLowerCase(Locale.ROOT))
+                   .append("Nanos\":")
+                   .append(Long.toString(phase.nanos.sum()));
+            }
+            out.append("},\"rules\":[");
+
+            synchronized (RULES)
+            {
+                boolean first = true;
+
+                for (Map.Entry<String, long[]> entry: RULES.entrySet())
+                {
+                    long[] totals = entry.getValue();
+                    out.append(first ? "{\"name\":\"" : ",{\"name\":\"")
+                       .appendJson(entry.getKey())
+                       .append("\",\"nanos\":")
+                       .append(Long.toString(totals[0]))
+                       .append(",\"allocatedBytes\":")
+                       .append(Long.toString(totals[1]))
+                       .append(",\"violations\":")
+                       .append(Long.toString(totals[2])).append('}');
+                    first = false;
+                }
+            }
+            out.append("]}").newLine();
+        }
+    }
+
+    /**
+     * Returns the number of lines checked per second of the given time.
+     *
+     * @param nanos     The time in nanoseconds
+     * @return rate     The lines per second, or 0 if no time has passed
+     */
+    private static double linesPerSecond(long nanos)
+    {
+        return nanos <= 0 ? 0 : LINES.sum() * NANOS_PER_SECOND / nanos;
+    }
+}
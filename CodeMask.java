@@ -0,0 +1,275 @@
+package stylechecker;
+
+import java.util.Arrays;
+
+/**
+ * A CodeMask records which characters of a program are code and which are
+ * inside a comment or a literal. It is built by a single pass that carries
+ * its state from one line to the next, so block comments and text blocks
+ * that span many lines are masked, and escaped quotes do not end a literal.
+ * Asking whether a character is code then costs a single bit lookup.
+ *
+ * A mask can cover a whole text at once, or be given the lines of a program
+ * one at a time; then it only holds the bits of the last line marked, but
+ * keeps the state that line ended in for the line after it.
+ */
+final class CodeMask
+{
+
+    static final int CODE = 0;
+    static final int BLOCK_COMMENT = 1;
+    static final int TEXT_BLOCK = 2;
+    private static final int LINE_COMMENT = 3;
+    private static final int STRING = 4;
+    private static final int CHAR = 5;
+
+    private long[] comment = new long[4];
+    private long[] literal = new long[4];
+    private int base = 0;
+    private int state = CODE;
+
+    /**
+     * Builds the mask of a whole text in one pass.
+     *
+     * @param source    The text of the program
+     * @return mask     The mask of every character of the text
+     */
+    static CodeMask of(CharSequence source)
+    {
+        CodeMask mask = new CodeMask();
+        mask.mark(source, 0, source.length());
+        return mask;
+    }
+
+    /**
+     * Marks the characters between two offsets of a text, starting in the
+     * state the last text marked ended in, and forgets the bits of that
+     * text. Line comments and string and character literals end at a line
+     * separator or at the end of the text marked; block comments and text
+     * blocks go on into the next text marked.
+     *
+     * @param source    The text to mark
+     * @param start     The offset of the first character to mark
+     * @param end       The offset just past the last character to mark
+     */
+    void mark(CharSequence source, int start, int end)
+    {
+        int words = ((end - start) >>> 6) + 1;
+
+        if (comment.length < words)
+        {
+            comment = new long[Math.max(words, comment.length * 2)];
+            literal = new long[comment.length];
+        }
+
+        else
+        {
+            Arrays.fill(comment, 0, words, 0L);
+            Arrays.fill(literal, 0, words, 0L);
+        }
+        base = start;
+        int i = start;
+
+        while (i < end)
+        {
+            char letter = source.charAt(i);
+
+            switch (state)
+            {
+                case CODE:
+                    if (letter == '/' && i + 1 < end
+                        && source.charAt(i + 1) == '/')
+                    {
+                        state = LINE_COMMENT;
+                        set(comment, i, 2);
+                        i += 2;
+                    }
+
+                    else if (letter == '/' && i + 1 < end
+                             && source.charAt(i + 1) == '*')
+                    {
+                        state = BLOCK_COMMENT;
+                        set(comment, i, 2);
+                        i += 2;
+                    }
+
+                    else if (letter == '"' && i + 2 < end
+                             && source.charAt(i + 1) == '"'
+                             && source.charAt(i + 2) == '"')
+                    {
+                        state = TEXT_BLOCK;
+                        set(literal, i, 3);
+                        i += 3;
+                    }
+
+                    else if (letter == '"' || letter == '\'')
+                    {
+                        state = letter == '"' ? STRING : CHAR;
+                        set(literal, i, 1);
+                        i++;
+                    }
+
+                    else
+                    {
+                        i++;
+                    }
+                    break;
+
+                case LINE_COMMENT:
+                    if (SourceText.isLineSeparator(letter))
+                    {
+                        state = CODE;
+                    }
+
+                    else
+                    {
+                        set(comment, i, 1);
+                    }
+                    i++;
+                    break;
+
+                case BLOCK_COMMENT:
+                    if (letter == '*' && i + 1 < end
+                        && source.charAt(i + 1) == '/')
+                    {
+                        state = CODE;
+                        set(comment, i, 2);
+                        i += 2;
+                    }
+
+                    else
+                    {
+                        set(comment, i, 1);
+                        i++;
+                    }
+                    break;
+
+                case TEXT_BLOCK:
+                    if (letter == '"' && i + 2 < end
+                        && source.charAt(i + 1) == '"'
+                        && source.charAt(i + 2) == '"')
+                    {
+                        state = CODE;
+                        set(literal, i, 3);
+                        i += 3;
+                    }
+
+                    else
+                    {
+                        int length = letter == '\\' && i + 1 < end ? 2 : 1;
+                        set(literal, i, length);
+                        i += length;
+                    }
+                    break;
+
+                default:
+                    char quote = state == STRING ? '"' : '\'';
+
+                    if (SourceText.isLineSeparator(letter))
+                    {
+                        state = CODE;
+                        i++;
+                    }
+
+                    else if (letter == '\\' && i + 1 < end
+                             && !SourceText.isLineSeparator(
+                                     source.charAt(i + 1)))
+                    {
+                        set(literal, i, 2);
+                        i += 2;
+                    }
+
+                    else
+                    {
+                        state = letter == quote ? CODE : state;
+                        set(literal, i, 1);
+                        i++;
+                    }
+                    break;
+            }
+        }
+
+        // Only block comments and text blocks go on past the end of a line
+        if (state != BLOCK_COMMENT && state != TEXT_BLOCK)
+        {
+            state = CODE;
+        }
+    }
+
+    /**
+     * Returns true if the character at the given offset is code, that is,
+     * not part of a comment or a literal.
+     *
+     * @param offset    The offset of the character in the text marked
+     * @return true     if the character is code
+     *         false    otherwise
+     */
+    boolean isCode(int offset)
+    {
+        return !isComment(offset) && !isLiteral(offset);
+    }
+
+    /**
+     * Returns true if the character at the given offset is part of a comment.
+     *
+     * @param offset    The offset of the character in the text marked
+     * @return true     if the character is in a comment
+     *         false    otherwise
+     */
+    boolean isComment(int offset)
+    {
+        int bit = offset - base;
+        return (comment[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    /**
+     * Returns true if the character at the given offset is part of a string,
+     * character or text block literal.
+     *
+     * @param offset    The offset of the character in the text marked
+     * @return true     if the character is in a literal
+     *         false    otherwise
+     */
+    boolean isLiteral(int offset)
+    {
+        int bit = offset - base;
+        return (literal[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    /**
+     * Returns the state the last text marked ended in, which is the state the
+     * next text marked starts in.
+     *
+     * @return state    CODE, BLOCK_COMMENT or TEXT_BLOCK
+     */
+    int getState()
+    {
+        return state;
+    }
+
+    /**
+     * Sets the state the next text marked starts in, so that marking can be
+     * resumed from a line whose state was saved with getState.
+     *
+     * @param state     CODE, BLOCK_COMMENT or TEXT_BLOCK
+     */
+    void setState(int state)
+    {
+        this.state = state;
+    }
+
+    /**
+     * Sets the bits of a run of characters.
+     *
+     * @param bits      The bits to set
+     * @param offset    The offset of the first character
+     * @param length    The number of characters
+     */
+    private void set(long[] bits, int offset, int length)
+    {
+        for (int bit = offset - base; bit < offset - base + length; bit++)
+        {
+            bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package stylechecker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The CountChecker finds out whether programs have style errors, and how
+ * many of each rule's, without writing any report. Every error found only
+ * adds one to its rule's counter, so no list of error lines is kept, no
+ * message is formatted and the fixers never run. Lines are masked as they
+ * are checked, so a check that stops early has not read ahead.
+ *
+ * A limit can be set on the number of errors to find. The limit is shared by
+ * every file, and as soon as that many errors have been found every file
+ * still being checked stops at the line it is on and no other file is
+ * started, so a check of programs with many errors costs little more than
+ * finding the first of them. A check is only said to be cut short when a
+ * line or file was left unchecked or an error was left out, so one that
+ * found exactly as many errors as the limit in the last lines it had to
+ * check is not. With no limit there is no shared count, so each file is
+ * counted on its own.
+ */
+final class CountChecker
+{
+
+    private final int threadCount;
+    private final RuleRegistry registry;
+    private final AtomicLong budget;
+    private final AtomicBoolean stopped = new AtomicBoolean();
+    private final AtomicBoolean cutShort = new AtomicBoolean();
+
+    /**
+     * Creates a checker that counts the errors of the given rules.
+     *
+     * @param threadCount   The number of files checked at the same time
+     * @param maxErrors     The number of errors to stop at, or 0 for no
+     *                      limit
+     * @param registry      The rules the files are checked against
+     */
+    CountChecker(int threadCount, long maxErrors, RuleRegistry registry)
+    {
+        this.threadCount = Math.max(1, threadCount);
+        this.registry = registry;
+        this.budget = maxErrors > 0 ? new AtomicLong(maxErrors) : null;
+    }
+
+    /**
+     * Counts the errors of every file, then prints the count of each file
+     * that has any, by rule, and the total. When the limit is reached the
+     * files not yet checked are left out and the total is the limit.
+     *
+     * @param files     The files to check
+     * @param summary   The stream the counts are printed to
+     * @return status   0 if every file was checked and is free of style
+     *                  errors, 1 otherwise
+     */
+    int run(List<File> files, PrintStream summary)
+    {
+        ExecutorService pool = Executors.newFixedThreadPool(threadCount);
+        ArrayList<Future<int[]>> results = new ArrayList<>(files.size());
+
+        for (File file: files)
+        {
+            results.add(pool.submit(() -> count(file)));
+        }
+        pool.shutdown();
+
+        String[] names = registry.getNames().toArray(new String[0]);
+        long totalErrors = 0;
+        int filesWithErrors = 0;
+        int filesFailed = 0;
+        int filesChecked = 0;
+
+        for (int i = 0; i < files.size(); i++)
+        {
+            String name = files.get(i).getPath();
+
+            try
+            {
+                int[] counts = results.get(i).get();
+
+                if (counts == null)
+                {
+                    continue;
+                }
+                filesChecked++;
+
+                int errors = 0;
+
+                for (int count: counts)
+                {
+                    errors += count;
+                }
+
+                if (errors == 0)
+                {
+                    continue;
+                }
+                summary.println(name + ": " + errors + " style error(s)");
+
+                for (int r = 0; r < counts.length; r++)
+                {
+                    if (counts[r] > 0)
+                    {
+                        summary.println("    " + names[r] + ": " + counts[r]);
+                    }
+                }
+                filesWithErrors++;
+                totalErrors += errors;
+            }
+
+            catch (ExecutionException ex)
+            {
+                System.err.println("ERROR: " + name + " could not be checked: "
+                                   + ex.getCause());
+                filesFailed++;
+            }
+
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+                pool.shutdownNow();
+                return 1;
+            }
+        }
+
+        summary.println("\nFiles checked: " + filesChecked);
+        summary.println("Files with style errors: " + filesWithErrors);
+        summary.println("Files that could not be checked: " + filesFailed);
+        summary.println("Total style errors: " + totalErrors);
+
+        if (cutShort.get())
+        {
+            summary.println("Stopped at the limit of " + totalErrors
+                            + " style error(s)");
+        }
+        return (totalErrors > 0 || filesFailed > 0) ? 1 : 0;
+    }
+
+    /**
+     * Counts the errors of each rule in one file, stopping as soon as the
+     * limit is reached.
+     *
+     * @param file      The file to check
+     * @return counts   The number of errors of each rule, in the order of
+     *                  the registry, or null if the check was stopped before
+     *                  the file was started
+     * @throws IOException if the file cannot be read
+     */
+    private int[] count(File file) throws IOException
+    {
+        if (stopped.get())
+        {
+            cutShort.set(true);
+            return null;
+        }
+
+        SourceText source = SourceText.read(file);
+        long checkStart = CheckerMetrics.startPhase();
+        Rule[] rules = registry.createRules();
+        RuleMetrics metrics = CheckerMetrics.isTiming()
+                              ? new RuleMetrics(rules.length) : null;
+        Counter counter = new Counter(rules, metrics, budget, stopped,
+                                      cutShort);
+        RuleEngine engine = new RuleEngine(counter, metrics, rules);
+        int lineCount = source.lineCount();
+        int i = 0;
+
+        while (i < lineCount && !stopped.get())
+        {
+            engine.push(source, source.lineStart(i), source.lineEnd(i));
+            i++;
+        }
+
+        // Once every line is in, the lines still in the window are checked
+        // even after a stop, as any error they hold is left out and marks
+        // the check as cut short
+        if (i < lineCount)
+        {
+            cutShort.set(true);
+        }
+
+        else
+        {
+            engine.finish();
+        }
+
+        if (metrics != null)
+        {
+            CheckerMetrics.addCheck(file.getPath(), engine.getLineCount(),
+                                    source.length(), rules, metrics);
+        }
+        CheckerMetrics.endPhase(CheckerMetrics.Phase.CHECK, checkStart);
+        return counter.counts;
+    }
+
+    /**
+     * A Counter is the sink of a count: it adds each error to its rule's
+     * counter, as long as the limit shared by every file, if there is one,
+     * has not been reached, and stops the check when its error reaches it.
+     */
+    private static final class Counter implements ViolationSink
+    {
+        private final Rule[] rules;
+        private final int[] counts;
+        private final RuleMetrics metrics;
+        private final AtomicLong budget;
+        private final AtomicBoolean stopped;
+        private final AtomicBoolean cutShort;
+
+        /**
+         * Creates a counter for the given rules.
+         *
+         * @param rules     The rules the file is checked against
+         * @param metrics   The metrics each error is also added to, or null
+         * @param budget    The number of errors still to find, or null for
+         *                  no limit
+         * @param stopped   The flag set when the limit is reached
+         * @param cutShort  The flag set when an error is left out
+         */
+        Counter(Rule[] rules, RuleMetrics metrics, AtomicLong budget,
+                AtomicBoolean stopped, AtomicBoolean cutShort)
+        {
+            this.rules = rules;
+            this.counts = new int[rules.length];
+            this.metrics = metrics;
+            this.budget = budget;
+            this.stopped = stopped;
+            this.cutShort = cutShort;
+        }
+
+        @Override
+        public void addViolation(Rule rule, int lineNumber)
+        {
+            if (budget != null)
+            {
+                long left = budget.decrementAndGet();
+
+                if (left < 0)
+                {
+                    cutShort.set(true);
+                    return;
+                }
+
+                if (left == 0)
+                {
+                    stopped.set(true);
+                }
+            }
+
+            for (int i = 0; i < rules.length; i++)
+            {
+                if (rules[i] == rule)
+                {
+                    counts[i]++;
+
+                    if (metrics != null)
+                    {
+                        metrics.addViolations(i, 1);
+                    }
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package stylechecker;
+
+import java.util.Arrays;
+
+/**
+ * A DeclaredRule is a rule written in a rules file rather than in Java. Its
+ * condition is compiled by RuleLanguage into a few clauses, any of which
+ * matching a line is a style error. A clause is a fixed set of tests on the
+ * facts of a line that the LineContext has already worked out: a table of
+ * the statement keywords the line may start with, bit masks of the yes or no
+ * facts that must and must not hold, and a range for each count. Checking a
+ * clause is a table lookup, two mask tests and a few comparisons, however the
+ * condition was written.
+ *
+ * The clauses never change once they are compiled, so every copy of the rule
+ * shares them and only the arrays the counts of a line are put in are its
+ * own.
+ */
+final class DeclaredRule implements Rule
+{
+
+    // The yes or no facts of a line, as bits of a mask
+    static final int HAS_OPEN_BRACE = 1;
+    static final int HAS_CLOSE_BRACE = 1 << 1;
+    static final int ENDS_WITH_OPEN_BRACE = 1 << 2;
+    static final int ENDS_WITH_CLOSE_BRACE = 1 << 3;
+    static final int MENTIONS_CLASS = 1 << 4;
+    static final int HAS_ACCESS_MODIFIER = 1 << 5;
+    static final int IS_METHOD = 1 << 6;
+    static final int IS_BLANK = 1 << 7;
+
+    // The counts of a line, as indexes of a clause's ranges
+    static final int SEMICOLONS = 0;
+    static final int TOKENS = 1;
+    static final int LENGTH = 2;
+    static final int INDENT = 3;
+    static final int COUNT_KINDS = 4;
+
+    // Every statement keyword, as bits by ordinal
+    static final int ANY_KEYWORD =
+                                (1 << LineContext.Keyword.values().length) - 1;
+
+    // The lines a clause tests
+    static final int CURRENT = 0;
+    static final int NEXT = 1;
+
+    private final String name;
+    private final String message;
+    private final String definition;
+    private final boolean reportNext;
+    private final Clause[] clauses;
+    private final boolean usesNext;
+    private final int[] currentCounts = new int[COUNT_KINDS];
+    private final int[] nextCounts = new int[COUNT_KINDS];
+
+    /**
+     * Creates a rule from its compiled condition.
+     *
+     * @param name          The name of the rule
+     * @param message       The description of the rule's style error
+     * @param definition    The text the rule was declared with
+     * @param reportNext    true to report the error on the line after the
+     *                      line that matches, false to report it on the line
+     *                      that matches
+     * @param clauses       The clauses of the condition, any of which
+     *                      matching a line is an error
+     */
+    DeclaredRule(String name, String message, String definition,
+                 boolean reportNext, Clause[] clauses)
+    {
+        boolean next = reportNext;
+
+        for (Clause clause: clauses)
+        {
+            next |= clause.usesNext;
+        }
+        this.name = name;
+        this.message = message;
+        this.definition = definition;
+        this.reportNext = reportNext;
+        this.clauses = clauses;
+        this.usesNext = next;
+    }
+
+    /**
+     * Returns a new copy of this rule, for another thread to check with.
+     *
+     * @return rule     The copy
+     */
+    DeclaredRule copy()
+    {
+        return new DeclaredRule(name, message, definition, reportNext,
+                                clauses);
+    }
+
+    @Override
+    public void checkLine(int index, LineContext current, LineContext next,
+                          LineContext nextNext, ViolationSink sink)
+    {
+        if (usesNext && next == null)
+        {
+            return;
+        }
+
+        int currentFacts = factsOf(current, currentCounts);
+        int nextFacts = usesNext ? factsOf(next, nextCounts) : 0;
+
+        for (Clause clause: clauses)
+        {
+            if (clause.matches(CURRENT, current.keyword, currentFacts,
+                               currentCounts)
+                && (!clause.usesNext
+                    || clause.matches(NEXT, next.keyword, nextFacts,
+                                      nextCounts)))
+            {
+                sink.addViolation(this, reportNext ? index + 2 : index + 1);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public String getMessage()
+    {
+        return message;
+    }
+
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public String getDefinition()
+    {
+        return definition;
+    }
+
+    /**
+     * Returns the yes or no facts of a line as a bit mask, and fills in its
+     * counts.
+     *
+     * @param line      The context of the line
+     * @param counts    Receives the counts of the line
+     * @return facts    The mask of the facts that hold for the line
+     */
+    private static int factsOf(LineContext line, int[] counts)
+    {
+        counts[SEMICOLONS] = line.semiColonCount;
+        counts[TOKENS] = line.codeTokenCount;
+        counts[LENGTH] = line.length();
+        counts[INDENT] = line.indent();
+        return (line.hasOpenBrace ? HAS_OPEN_BRACE : 0)
+               | (line.hasCloseBrace ? HAS_CLOSE_BRACE : 0)
+               | (line.endsWithOpenBrace ? ENDS_WITH_OPEN_BRACE : 0)
+               | (line.endsWithCloseBrace ? ENDS_WITH_CLOSE_BRACE : 0)
+               | (line.mentionsClass ? MENTIONS_CLASS : 0)
+               | (line.hasAccessModifier ? HAS_ACCESS_MODIFIER : 0)
+               | (line.isMethod ? IS_METHOD : 0)
+               | (line.isBlank() ? IS_BLANK : 0);
+    }
+
+    /**
+     * A Clause is one way for a line to match a condition: every test of the
+     * clause must pass for the current line, and for the next line when the
+     * clause tests it. Clauses are built up by RuleLanguage, one test at a
+     * time, and are not changed once a rule has been made from them.
+     */
+    static final class Clause
+    {
+        private final int[] keywords = {ANY_KEYWORD, ANY_KEYWORD};
+        private final int[] required = new int[2];
+        private final int[] forbidden = new int[2];
+        private final int[][] minimums = new int[2][COUNT_KINDS];
+        private final int[][] maximums = new int[2][COUNT_KINDS];
+        private boolean usesNext = false;
+
+        /**
+         * Creates a clause that every line matches.
+         */
+        Clause()
+        {
+            for (int[] maximum: maximums)
+            {
+                Arrays.fill(maximum, Integer.MAX_VALUE);
+            }
+        }
+
+        /**
+         * Returns a clause that matches only the lines both this clause and
+         * another match.
+         *
+         * @param other     The other clause
+         * @return clause   The clause of both
+         */
+        Clause and(Clause other)
+        {
+            Clause both = new Clause();
+
+            for (int side = CURRENT; side <= NEXT; side++)
+            {
+                both.keywords[side] = keywords[side] & other.keywords[side];
+                both.required[side] = required[side] | other.required[side];
+                both.forbidden[side] = forbidden[side]
+                                       | other.forbidden[side];
+
+                for (int kind = 0; kind < COUNT_KINDS; kind++)
+                {
+                    both.minimums[side][kind] = Math.max(
+                        minimums[side][kind], other.minimums[side][kind]);
+                    both.maximums[side][kind] = Math.min(
+                        maximums[side][kind], other.maximums[side][kind]);
+                }
+            }
+            both.usesNext = usesNext || other.usesNext;
+            return both;
+        }
+
+        /**
+         * Limits the keywords a line may start with.
+         *
+         * @param side      CURRENT or NEXT
+         * @param mask      The keywords allowed, as bits by ordinal
+         * @return clause   This clause
+         */
+        Clause keywords(int side, int mask)
+        {
+            keywords[side] &= mask;
+            usesNext |= side == NEXT;
+            return this;
+        }
+
+        /**
+         * Requires a yes or no fact of a line to hold, or not to hold.
+         *
+         * @param side      CURRENT or NEXT
+         * @param fact      The bit of the fact
+         * @param holds     true if the fact must hold, false if it must not
+         * @return clause   This clause
+         */
+        Clause fact(int side, int fact, boolean holds)
+        {
+            if (holds)
+            {
+                required[side] |= fact;
+            }
+
+            else
+            {
+                forbidden[side] |= fact;
+            }
+            usesNext |= side == NEXT;
+            return this;
+        }
+
+        /**
+         * Limits a count of a line to a range.
+         *
+         * @param side      CURRENT or NEXT
+         * @param kind      The kind of count
+         * @param minimum   The smallest count allowed
+         * @param maximum   The largest count allowed
+         * @return clause   This clause
+         */
+        Clause range(int side, int kind, int minimum, int maximum)
+        {
+            minimums[side][kind] = Math.max(minimums[side][kind], minimum);
+            maximums[side][kind] = Math.min(maximums[side][kind], maximum);
+            usesNext |= side == NEXT;
+            return this;
+        }
+
+        /**
+         * Returns true if no line can match this clause.
+         *
+         * @return true     if the tests of the clause contradict each other
+         *         false    otherwise
+         */
+        boolean isEmpty()
+        {
+            for (int side = CURRENT; side <= NEXT; side++)
+            {
+                if (keywords[side] == 0
+                    || (required[side] & forbidden[side]) != 0)
+                {
+                    return true;
+                }
+
+                for (int kind = 0; kind < COUNT_KINDS; kind++)
+                {
+                    if (minimums[side][kind] > maximums[side][kind])
+                    {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns true if a line passes the tests of one side of the clause.
+         *
+         * @param side      CURRENT or NEXT
+         * @param keyword   The keyword the line starts with
+         * @param facts     The mask of the facts that hold for the line
+         * @param counts    The counts of the line
+         * @return true     if the line passes every test
+         *         false    otherwise
+         */
+        boolean matches(int side, LineContext.Keyword keyword, int facts,
+                        int[] counts)
+        {
+            if ((keywords[side] & (1 << keyword.ordinal())) == 0
+                || (facts & required[side]) != required[side]
+                || (facts & forbidden[side]) != 0)
+            {
+                return false;
+            }
+
+            for (int kind = 0; kind < COUNT_KINDS; kind++)
+            {
+                if (counts[kind] < minimums[side][kind]
+                    || counts[kind] > maximums[side][kind])
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,617 @@
+package stylechecker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An EditBuffer records the changes a fixer wants to make to a program
+ * without touching the program itself. Every edit names a line by its line
+ * number in the original program, so fixers never have to track how earlier
+ * edits moved the lines after them. The edits are applied all at once, in a
+ * single pass over the program.
+ *
+ * Several fixers may record their edits in the same buffer. Edits of the same
+ * line go in before the line, then in place of it, then after it, each kind
+ * in the order the edits were made. A line can only be replaced once, so when
+ * two fixers both replace a line the first one wins.
+ *
+ * Besides the edited program, the buffer can write its edits as a unified
+ * diff or rewrite the text of the program with them. Both only touch the
+ * lines that are edited, so their cost grows with the number of edits rather
+ * than with the size of the program.
+ */
+final class EditBuffer
+{
+
+    private static final int BEFORE = 0;
+    private static final int REPLACE = 1;
+    private static final int AFTER = 2;
+    private static final int CONTEXT_LINES = 3;
+    private static final String NO_NEWLINE = "\\ No newline at end of file";
+
+    /**
+     * A single edit anchored to a line of the original program.
+     */
+    private static final class Edit
+    {
+        final int lineNumber;
+        final int kind;
+        final int order;
+        final String[] lines;
+
+        Edit(int lineNumber, int kind, int order, String[] lines)
+        {
+            this.lineNumber = lineNumber;
+            this.kind = kind;
+            this.order = order;
+            this.lines = lines;
+        }
+    }
+
+    private static final Comparator<Edit> EDIT_ORDER =
+                        Comparator.comparingInt((Edit e) -> e.lineNumber)
+                                  .thenComparingInt(e -> e.kind)
+                                  .thenComparingInt(e -> e.order);
+    private final ArrayList<Edit> edits = new ArrayList<>();
+    private int lineDelta = 0;
+
+    /**
+     * Inserts a line before the given line of the original program. Lines
+     * inserted before the same line keep the order they were inserted in.
+     *
+     * @param lineNumber    The line number in the original program
+     * @param line          The line to insert
+     */
+    void insertBefore(int lineNumber, String line)
+    {
+        add(lineNumber, BEFORE, new String[] {line});
+        lineDelta++;
+    }
+
+    /**
+     * Inserts a line after the given line of the original program. Lines
+     * inserted after the same line keep the order they were inserted in.
+     *
+     * @param lineNumber    The line number in the original program
+     * @param line          The line to insert
+     */
+    void insertAfter(int lineNumber, String line)
+    {
+        add(lineNumber, AFTER, new String[] {line});
+        lineDelta++;
+    }
+
+    /**
+     * Replaces the given line of the original program with one or more lines.
+     * A line can only be replaced once; a later replacement of the same line
+     * is ignored.
+     *
+     * @param lineNumber    The line number in the original program
+     * @param lines         The lines to put in its place
+     */
+    void replace(int lineNumber, String... lines)
+    {
+        add(lineNumber, REPLACE, lines);
+        lineDelta += lines.length - 1;
+    }
+
+    /**
+     * Returns true if no edits have been recorded.
+     *
+     * @return true     if there are no edits
+     *         false    otherwise
+     */
+    boolean isEmpty()
+    {
+        return edits.isEmpty();
+    }
+
+    /**
+     * Applies every edit to the given program in a single pass and returns
+     * the edited program. The given program is not changed.
+     *
+     * @param lineList      The lines of the original program
+     * @return fixedLines   The lines of the edited program
+     */
+    ArrayList<String> apply(List<String> lineList)
+    {
+        ArrayList<Edit> resolved = resolve(lineList.size());
+        ArrayList<String> fixedLines = new ArrayList<>(lineList.size()
+                                                       + lineDelta);
+        int next = 0;
+
+        for (int i = 0; i < lineList.size(); i++)
+        {
+            int lineNumber = i + 1;
+            boolean lineWritten = false;
+
+            while (next < resolved.size()
+                   && resolved.get(next).lineNumber == lineNumber)
+            {
+                Edit edit = resolved.get(next++);
+
+                if (edit.kind == REPLACE)
+                {
+                    lineWritten = true;
+                }
+
+                else if (edit.kind == AFTER && !lineWritten)
+                {
+                    fixedLines.add(lineList.get(i));
+                    lineWritten = true;
+                }
+
+                for (String line: edit.lines)
+                {
+                    fixedLines.add(line);
+                }
+            }
+
+            if (!lineWritten)
+            {
+                fixedLines.add(lineList.get(i));
+            }
+        }
+        return fixedLines;
+    }
+
+    /**
+     * Writes the edits as a unified diff of the given program, with three
+     * lines of context around each group of edited lines. Every line of the
+     * diff ends with the separator it has in the program, so a diff of a
+     * program with Windows line endings applies to it as it is. Separators
+     * that do not end in a newline cannot be told apart from the rest of the
+     * line by the tools that apply diffs, so they are written as newlines.
+     * Nothing is written if there are no edits.
+     *
+     * @param source    The text of the original program
+     * @param path      The path of the program, named in the diff's header
+     * @param out       The writer the diff is written to
+     * @return changed  true if a diff was written, false otherwise
+     */
+    boolean writeDiff(SourceText source, String path, ReportWriter out)
+    {
+        int lineCount = source.lineCount();
+        ArrayList<Edit> resolved = resolve(lineCount);
+
+        if (resolved.isEmpty())
+        {
+            return false;
+        }
+
+        String separator = inDiff(separatorOf(source));
+        StringBuilder hunk = new StringBuilder();
+
+        // The blank lines after the program are not part of it, but a hunk
+        // near the end takes its context from them like any other lines
+        ArrayList<String> lines = new ArrayList<>();
+        ArrayList<String> lineEnds = new ArrayList<>();
+        addTrailingLines(source, lines, lineEnds);
+        int fileLineCount = lineCount + lines.size();
+        int delta = 0;
+        int next = 0;
+
+        out.append("--- a/").append(path).append('\n');
+        out.append("+++ b/").append(path).append('\n');
+
+        while (next < resolved.size())
+        {
+            // Edited lines whose context would touch share one hunk
+            int first = resolved.get(next).lineNumber;
+            int last = first;
+
+            for (Edit edit: resolved.subList(next, resolved.size()))
+            {
+                if (edit.lineNumber > last + 2 * CONTEXT_LINES + 1)
+                {
+                    break;
+                }
+                last = edit.lineNumber;
+            }
+
+            int from = Math.max(1, first - CONTEXT_LINES);
+            int to = Math.min(fileLineCount, last + CONTEXT_LINES);
+            int oldCount = to - from + 1;
+            int newCount = oldCount;
+            hunk.setLength(0);
+
+            for (int lineNumber = from; lineNumber <= to; lineNumber++)
+            {
+                int start = next;
+
+                while (next < resolved.size()
+                       && resolved.get(next).lineNumber == lineNumber)
+                {
+                    next++;
+                }
+                boolean inProgram = lineNumber <= lineCount;
+                int tail = lineNumber - lineCount - 1;
+                newCount += diffLine(inProgram ? source.line(lineNumber - 1)
+                                               : lines.get(tail),
+                                     inDiff(inProgram
+                                            ? lineEndOf(source, lineNumber - 1)
+                                            : lineEnds.get(tail)),
+                                     separator, resolved.subList(start, next),
+                                     hunk);
+            }
+
+            out.append("@@ -").append(from).append(',').append(oldCount)
+               .append(" +").append(from + delta).append(',')
+               .append(newCount).append(" @@").append('\n').append(hunk);
+            delta += newCount - oldCount;
+        }
+        return true;
+    }
+
+    /**
+     * Writes the text of the given program with every edit made to it. The
+     * text between the edited lines, line separators included, is copied as
+     * it is, and the lines the edits add end with the separator of the
+     * program's first line. Where that separator would meet a lone carriage
+     * return and line feed of its neighbours and join them into one
+     * separator, which would lose a line, it is written as a carriage
+     * return and line feed instead.
+     *
+     * @param source    The text of the original program
+     * @param out       The writer the edited text is written to
+     */
+    void rewrite(SourceText source, ReportWriter out)
+    {
+        ArrayList<Edit> resolved = resolve(source.lineCount());
+        LineWriter text = new LineWriter(out, separatorOf(source));
+        int copied = 0;
+        int next = 0;
+
+        while (next < resolved.size())
+        {
+            int lineNumber = resolved.get(next).lineNumber;
+            int start = source.lineStart(lineNumber - 1);
+            int end = source.lineEnd(lineNumber - 1);
+            boolean lineWritten = false;
+            text.append(source.subSequence(copied, start));
+
+            while (next < resolved.size()
+                   && resolved.get(next).lineNumber == lineNumber)
+            {
+                Edit edit = resolved.get(next++);
+
+                if (edit.kind == BEFORE)
+                {
+                    text.append(edit.lines[0]);
+                    text.endLine();
+                }
+
+                else if (edit.kind == REPLACE)
+                {
+                    for (int i = 0; i < edit.lines.length; i++)
+                    {
+                        if (i > 0)
+                        {
+                            text.endLine();
+                        }
+                        text.append(edit.lines[i]);
+                    }
+                    lineWritten = true;
+                }
+
+                else
+                {
+                    if (!lineWritten)
+                    {
+                        text.append(source.subSequence(start, end));
+                        lineWritten = true;
+                    }
+                    text.endLine();
+                    text.append(edit.lines[0]);
+                }
+            }
+
+            if (!lineWritten)
+            {
+                text.append(source.subSequence(start, end));
+            }
+            copied = end;
+        }
+        text.append(source.subSequence(copied, source.length()));
+        text.finish();
+    }
+
+    /**
+     * Adds the lines of a hunk for one line of the original program and the
+     * edits of that line. The lines added end with the program's separator,
+     * except the last, which takes the place of the original line and keeps
+     * its separator.
+     *
+     * @param line      The line of the original program
+     * @param lineEnd   The separator after the line, or "" if it is the last
+     *                  line of a program that does not end with one
+     * @param separator The separator of the program
+     * @param lineEdits The edits of the line, in the order they are applied
+     * @param hunk      The text of the hunk
+     * @return delta    The number of lines the edits add, less the number
+     *                  they remove
+     */
+    private static int diffLine(String line, String lineEnd, String separator,
+                                List<Edit> lineEdits, StringBuilder hunk)
+    {
+        boolean atEnd = lineEnd.isEmpty();
+        boolean replaced = false;
+        int inserted = 0;
+        ArrayList<String> added = new ArrayList<>();
+
+        for (Edit edit: lineEdits)
+        {
+            if (edit.kind == BEFORE)
+            {
+                hunk.append('+').append(edit.lines[0]).append(separator);
+                inserted++;
+            }
+
+            else if (edit.kind == REPLACE)
+            {
+                replaced = true;
+                Collections.addAll(added, edit.lines);
+            }
+
+            else
+            {
+                // The last line gains a separator when lines follow it
+                if (atEnd && !replaced && added.isEmpty())
+                {
+                    added.add(line);
+                }
+                added.add(edit.lines[0]);
+            }
+        }
+
+        boolean removed = replaced || (atEnd && !added.isEmpty());
+        hunk.append(removed ? '-' : ' ').append(line)
+            .append(atEnd ? "\n" + NO_NEWLINE + "\n" : lineEnd);
+
+        for (int i = 0; i < added.size(); i++)
+        {
+            hunk.append('+').append(added.get(i));
+
+            if (i + 1 < added.size())
+            {
+                hunk.append(separator);
+            }
+
+            else
+            {
+                hunk.append(atEnd ? "\n" + NO_NEWLINE + "\n" : lineEnd);
+            }
+        }
+        return inserted + added.size() - (removed ? 1 : 0);
+    }
+
+    /**
+     * Adds the lines of a program's text that come after its last line of
+     * code, which hold nothing but whitespace.
+     *
+     * @param source    The text of the program
+     * @param lines     Receives the text of each line
+     * @param lineEnds  Receives the separator after each line, or "" after
+     *                  a last line that does not end with one
+     */
+    private static void addTrailingLines(SourceText source, List<String> lines,
+                                         List<String> lineEnds)
+    {
+        int lineCount = source.lineCount();
+        int start = lineCount == 0 ? 0
+                    : source.lineEnd(lineCount - 1)
+                      + lineEndOf(source, lineCount - 1).length();
+
+        while (start < source.length())
+        {
+            int end = start;
+
+            while (end < source.length()
+                   && !SourceText.isLineSeparator(source.charAt(end)))
+            {
+                end++;
+            }
+
+            String lineEnd = separatorAt(source, end);
+            lines.add(source.subSequence(start, end).toString());
+            lineEnds.add(lineEnd);
+            start = end + lineEnd.length();
+        }
+    }
+
+    /**
+     * Returns the separator after the given line of a program.
+     *
+     * @param source    The text of the program
+     * @param index     The index of the line
+     * @return lineEnd  The separator after the line, or "" if the line ends
+     *                  the text
+     */
+    private static String lineEndOf(SourceText source, int index)
+    {
+        return separatorAt(source, source.lineEnd(index));
+    }
+
+    /**
+     * Returns the line separator that starts at the given offset of a text.
+     *
+     * @param text      The text
+     * @param offset    The offset just past the end of a line
+     * @return lineEnd  The separator, or "" if the offset is the end of the
+     *                  text
+     */
+    private static String separatorAt(CharSequence text, int offset)
+    {
+        if (offset == text.length())
+        {
+            return "";
+        }
+
+        if (text.charAt(offset) == '\r' && offset + 1 < text.length()
+            && text.charAt(offset + 1) == '\n')
+        {
+            return "\r\n";
+        }
+        return String.valueOf(text.charAt(offset));
+    }
+
+    /**
+     * Returns the separator a line of a diff ends with in place of the given
+     * separator.
+     *
+     * @param lineEnd   The separator in the program
+     * @return lineEnd  The separator in the diff
+     */
+    private static String inDiff(String lineEnd)
+    {
+        return lineEnd.isEmpty() || lineEnd.endsWith("\n") ? lineEnd : "\n";
+    }
+
+    /**
+     * Returns the separator the lines added to a program end with, which is
+     * the separator after its first line.
+     *
+     * @param source        The text of the program
+     * @return separator    The separator of the program, or "\n" if it has
+     *                      none
+     */
+    private static String separatorOf(SourceText source)
+    {
+        String separator = source.lineCount() == 0 ? ""
+                                                   : lineEndOf(source, 0);
+        return separator.isEmpty() ? "\n" : separator;
+    }
+
+    /**
+     * Returns the edits that apply to a program of the given number of lines,
+     * in the order they are applied. Edits of lines that are not in the
+     * program are dropped, and so is every replacement of a line after the
+     * first.
+     *
+     * @param lineCount     The number of lines in the program
+     * @return edits        The edits to apply
+     */
+    private ArrayList<Edit> resolve(int lineCount)
+    {
+        edits.sort(EDIT_ORDER);
+
+        ArrayList<Edit> resolved = new ArrayList<>(edits.size());
+
+        for (Edit edit: edits)
+        {
+            Edit previous = resolved.isEmpty() ? null
+                            : resolved.get(resolved.size() - 1);
+
+            if (edit.lineNumber < 1 || edit.lineNumber > lineCount)
+            {
+                continue;
+            }
+
+            if (edit.kind == REPLACE && previous != null
+                && previous.lineNumber == edit.lineNumber
+                && previous.kind == REPLACE)
+            {
+                continue;
+            }
+            resolved.add(edit);
+        }
+        return resolved;
+    }
+
+    /**
+     * Records an edit, remembering the order it was made in.
+     *
+     * @param lineNumber    The line number in the original program
+     * @param kind          Whether the edit goes before, replaces or goes
+     *                      after the line
+     * @param lines         The lines the edit adds
+     */
+    private void add(int lineNumber, int kind, String[] lines)
+    {
+        edits.add(new Edit(lineNumber, kind, edits.size(), lines));
+    }
+
+    /**
+     * A LineWriter writes the edited text of a program, ending the lines the
+     * edits add with the program's separator. A lone carriage return is held
+     * back until the character after it is known, so that neither a carriage
+     * return of the program followed by an added line feed, nor an added
+     * carriage return followed by a line feed of the program, is read as a
+     * single separator.
+     */
+    private static final class LineWriter
+    {
+        private final ReportWriter out;
+        private final String separator;
+        private char last = 0;
+        private boolean returnHeld = false;
+
+        LineWriter(ReportWriter out, String separator)
+        {
+            this.out = out;
+            this.separator = separator;
+        }
+
+        /**
+         * Writes text of the program or of an edit.
+         *
+         * @param text      The text to write
+         */
+        void append(CharSequence text)
+        {
+            if (text.length() == 0)
+            {
+                return;
+            }
+            writeHeldReturn(text.charAt(0));
+            out.append(text);
+            last = text.charAt(text.length() - 1);
+        }
+
+        /**
+         * Ends a line an edit added with the program's separator.
+         */
+        void endLine()
+        {
+            writeHeldReturn(separator.charAt(0));
+
+            if (separator.equals("\r"))
+            {
+                returnHeld = true;
+            }
+
+            else
+            {
+                out.append(separator.equals("\n") && last == '\r'
+                           ? "\r\n" : separator);
+            }
+            last = separator.charAt(separator.length() - 1);
+        }
+
+        /**
+         * Writes whatever is still held back at the end of the text.
+         */
+        void finish()
+        {
+            writeHeldReturn((char) 0);
+        }
+
+        /**
+         * Writes the carriage return held back, if there is one, as a
+         * carriage return and line feed when the next character is a line
+         * feed.
+         *
+         * @param following     The next character to be written
+         */
+        private void writeHeldReturn(char following)
+        {
+            if (returnHeld)
+            {
+                out.append(following == '\n' ? "\r\n" : "\r");
+                returnHeld = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package stylechecker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An IncrementalChecker keeps the style errors of a program up to date as the
+ * program is edited, for editors that check a file while it is being
+ * written. The whole program is checked once; after that, each edit is
+ * checked again only from the checkpoint nearest before it, and only until
+ * the rules have the same state they had at a checkpoint after the edit.
+ * From there on the errors already found are still right and are kept.
+ *
+ * The errors of each line are kept relative to the line that was being
+ * checked when they were found, so lines added or removed before them do not
+ * change them. An IncrementalChecker is not safe to use from more than one
+ * thread at a time.
+ */
+final class IncrementalChecker
+{
+
+    private static final int CHECKPOINT_INTERVAL = 256;
+
+    /**
+     * The state of every rule, and of the code mask, just before a line is
+     * checked.
+     */
+    private static final class Checkpoint
+    {
+        int index;
+        final int[][] states;
+        final int maskState;
+
+        Checkpoint(int index, int[][] states, int maskState)
+        {
+            this.index = index;
+            this.states = states;
+            this.maskState = maskState;
+        }
+
+        boolean matches(int[][] states, int maskState)
+        {
+            return this.maskState == maskState
+                   && Arrays.deepEquals(this.states, states);
+        }
+    }
+
+    private final Rule[] rules;
+    private final ArrayList<String> lines;
+    private final LineContext[] window = {new LineContext(),
+                                          new LineContext(),
+                                          new LineContext()};
+    private final CodeMask mask = new CodeMask();
+
+    // The mask state each line in the window started in
+    private final int[] maskStates = new int[window.length];
+    private ArrayList<Checkpoint> checkpoints = new ArrayList<>();
+    private int checkedCount = 0;
+
+    // The errors found while checking line i are errors[errorStart[i]] up to
+    // errors[errorStart[i + 1]], each holding the index of the rule in the
+    // high bits and the line it names, relative to i, in the low bits
+    private int[] errorStart = new int[1];
+    private int[] errors;
+
+    /**
+     * Creates a checker for the given program and checks the whole program.
+     *
+     * @param lineList  The lines of the program
+     * @param rules     The rules to check the program against
+     */
+    IncrementalChecker(List<String> lineList, Rule... rules)
+    {
+        this.rules = rules;
+        this.lines = new ArrayList<>(lineList);
+        errors = new int[ViolationCollector.expectedErrors(lines.size())
+                         * rules.length + 1];
+        checkpoints.add(new Checkpoint(0, saveStates(0), CodeMask.CODE));
+        edit(0, 0, new ArrayList<>());
+    }
+
+    /**
+     * Replaces lines of the program and checks the lines affected again.
+     *
+     * @param index         The index of the first line replaced
+     * @param removedCount  The number of lines replaced
+     * @param newLines      The lines put in their place
+     */
+    void edit(int index, int removedCount, List<String> newLines)
+    {
+        int oldCount = checkedCount;
+        int delta = newLines.size() - removedCount;
+        lines.subList(index, index + removedCount).clear();
+        lines.addAll(index, newLines);
+        int newCount = programLength();
+
+        // When the end of the program moves by more than the edit, the last
+        // lines see a different end and nothing after the edit can be kept
+        boolean endMoved = newCount != oldCount + delta;
+        int dirty = Math.min(index, Math.min(oldCount, newCount));
+
+        // The two lines before the edit look ahead into it
+        int checkpoint = findCheckpoint(Math.max(0, dirty - 2));
+        Checkpoint start = checkpoints.get(checkpoint);
+        int startIndex = start.index;
+        int oldEnd = index + removedCount;
+
+        int[] newStart = new int[newCount + 1];
+        System.arraycopy(errorStart, 0, newStart, 0, startIndex + 1);
+        int size = errorStart[startIndex];
+        int[] newErrors = new int[Math.max(errors.length, size + 16)];
+        System.arraycopy(errors, 0, newErrors, 0, size);
+
+        ArrayList<Checkpoint> newCheckpoints = new ArrayList<>(
+                                    checkpoints.subList(0, checkpoint + 1));
+        int next = checkpoint + 1;
+
+        for (int i = 0; i < rules.length; i++)
+        {
+            rules[i].restoreState(start.states[i], startIndex);
+        }
+        mask.setState(start.maskState);
+
+        ErrorRecorder recorder = new ErrorRecorder(newErrors, size);
+
+        for (int i = startIndex; i < Math.min(startIndex + 2, newCount); i++)
+        {
+            load(i);
+        }
+        int j = startIndex;
+
+        for (; j < newCount; j++)
+        {
+            // Skips the old checkpoints the recheck has already passed
+            while (next < checkpoints.size()
+                   && (checkpoints.get(next).index < oldEnd
+                       || checkpoints.get(next).index + delta < j))
+            {
+                next++;
+            }
+
+            boolean atOldCheckpoint = !endMoved && next < checkpoints.size()
+                                      && checkpoints.get(next).index + delta
+                                         == j;
+
+            if (j > startIndex && (atOldCheckpoint
+                || (j - startIndex) % CHECKPOINT_INTERVAL == 0))
+            {
+                int[][] states = saveStates(j);
+                int maskState = maskStates[j % window.length];
+
+                if (atOldCheckpoint && checkpoints.get(next).matches(states,
+                                                                 maskState))
+                {
+                    break;
+                }
+                newCheckpoints.add(new Checkpoint(j, states, maskState));
+            }
+
+            // The line after next takes the slot of the line checked last
+            if (j + 2 < newCount)
+            {
+                load(j + 2);
+            }
+
+            LineContext current = window[j % window.length];
+            LineContext following = j + 1 < newCount
+                                    ? window[(j + 1) % window.length] : null;
+            LineContext nextNext = j + 2 < newCount
+                                   ? window[(j + 2) % window.length] : null;
+            recorder.index = j;
+
+            for (Rule rule: rules)
+            {
+                rule.checkLine(j, current, following, nextNext, recorder);
+            }
+            newStart[j + 1] = recorder.size;
+        }
+        newErrors = recorder.errors;
+        size = recorder.size;
+
+        // The rules agree with the old check from line j on, so its errors
+        // and checkpoints are kept
+        if (j < newCount)
+        {
+            int oldIndex = j - delta;
+            int kept = errorStart[oldCount] - errorStart[oldIndex];
+
+            if (size + kept > newErrors.length)
+            {
+                newErrors = Arrays.copyOf(newErrors, size + kept);
+            }
+            System.arraycopy(errors, errorStart[oldIndex], newErrors, size,
+                             kept);
+
+            for (int i = oldIndex; i <= oldCount; i++)
+            {
+                newStart[i + delta] = errorStart[i] - errorStart[oldIndex]
+                                      + size;
+            }
+
+            for (int i = next; i < checkpoints.size(); i++)
+            {
+                Checkpoint old = checkpoints.get(i);
+                old.index += delta;
+                newCheckpoints.add(old);
+            }
+        }
+
+        checkpoints = newCheckpoints;
+        errorStart = newStart;
+        errors = newErrors;
+        checkedCount = newCount;
+    }
+
+    /**
+     * Replays every style error of the program into the given sink, in the
+     * order a full check of the program would find them.
+     *
+     * @param sink      The sink that receives the errors
+     */
+    void report(ViolationSink sink)
+    {
+        for (int i = 0; i < checkedCount; i++)
+        {
+            for (int k = errorStart[i]; k < errorStart[i + 1]; k++)
+            {
+                sink.addViolation(rules[errors[k] >>> 16],
+                                  i + (short) errors[k]);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of style errors in the program.
+     *
+     * @return errorCount   The number of style errors
+     */
+    int getErrorCount()
+    {
+        return errorStart[checkedCount];
+    }
+
+    /**
+     * Returns the rules the program is checked against.
+     *
+     * @return rules    The rules, in the order they were given
+     */
+    Rule[] getRules()
+    {
+        return rules;
+    }
+
+    /**
+     * Returns the lines of the program as it is after every edit so far.
+     *
+     * @return lines    The lines of the program
+     */
+    List<String> getLines()
+    {
+        return lines;
+    }
+
+    /**
+     * Returns the number of lines that are checked. Like a full check, the
+     * whitespace only lines at the end of the program are not.
+     *
+     * @return count    The number of lines up to the last line with code
+     */
+    private int programLength()
+    {
+        int count = lines.size();
+
+        while (count > 0 && SourceText.isBlank(lines.get(count - 1)))
+        {
+            count--;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the position in the checkpoint list of the last checkpoint at
+     * or before the given line.
+     *
+     * @param index         The index of the line
+     * @return position     The position of the checkpoint
+     */
+    private int findCheckpoint(int index)
+    {
+        int low = 0;
+        int high = checkpoints.size() - 1;
+        int found = 0;
+
+        while (low <= high)
+        {
+            int middle = (low + high) >>> 1;
+
+            if (checkpoints.get(middle).index <= index)
+            {
+                found = middle;
+                low = middle + 1;
+            }
+
+            else
+            {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Masks the line at the given index and makes it the context in its slot
+     * of the window, remembering the mask state the line started in.
+     *
+     * @param index     The index of the line
+     */
+    private void load(int index)
+    {
+        String line = lines.get(index);
+        int slot = index % window.length;
+        maskStates[slot] = mask.getState();
+        mask.mark(line, 0, line.length());
+        window[slot].reset(line, 0, line.length(), mask);
+    }
+
+    /**
+     * Saves the state of every rule just before the given line is checked.
+     *
+     * @param index     The index of the next line to be checked
+     * @return states   The state of each rule, in rule order
+     */
+    private int[][] saveStates(int index)
+    {
+        int[][] states = new int[rules.length][];
+
+        for (int i = 0; i < rules.length; i++)
+        {
+            states[i] = rules[i].saveState(index);
+        }
+        return states;
+    }
+
+    /**
+     * A ViolationSink that adds each error to the error array, relative to
+     * the line being checked.
+     */
+    private final class ErrorRecorder implements ViolationSink
+    {
+        int[] errors;
+        int size;
+        int index;
+
+        ErrorRecorder(int[] errors, int size)
+        {
+            this.errors = errors;
+            this.size = size;
+        }
+
+        @Override
+        public void addViolation(Rule rule, int lineNumber)
+        {
+            int ruleIndex = 0;
+
+            while (rules[ruleIndex] != rule)
+            {
+                ruleIndex++;
+            }
+
+            if (size == errors.length)
+            {
+                errors = Arrays.copyOf(errors, size * 2);
+            }
+            errors[size++] = (ruleIndex << 16)
+                             | ((lineNumber - index) & 0xffff);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package stylechecker;
+
+/**
+ * Finds every line of code in the program that should be indented by one more
+ * indent than the block around it, three spaces unless configured otherwise,
+ * but is not. We assume that lines will not be indented too much, and over
+ * indentation errors will not be caught.
+ */
+public final class IndentRule implements Rule
+{
+
+    private int indentWidth = CheckerConfig.defaults().getIndentWidth();
+    private int openBraceCount = 0;
+    private int closeBraceCount = 0;
+    private int requiredWhitespace = 0;
+
+    @Override
+    public void configure(CheckerConfig config)
+    {
+        indentWidth = config.getIndentWidth();
+    }
+
+    @Override
+    public void checkLine(int index, LineContext current, LineContext next,
+                          LineContext nextNext, ViolationSink sink)
+    {
+        if (next == null)
+        {
+            return;
+        }
+
+        boolean specialCase = current.keyword != LineContext.Keyword.NONE;
+
+        if (current.hasOpenBrace)
+        {
+            openBraceCount++;
+
+            if (openBraceCount > 1)
+            {
+                requiredWhitespace += indentWidth;
+            }
+        }
+
+        if (next.hasCloseBrace)
+        {
+            closeBraceCount++;
+            requiredWhitespace -= indentWidth;
+        }
+
+        // A statement after a keyword without a brace is indented once more
+        if (specialCase && !current.hasOpenBrace && !next.hasOpenBrace
+            && next.length() > requiredWhitespace + 2 * indentWidth - 1)
+        {
+            if (openBraceCount > 0 && (openBraceCount - closeBraceCount) > 0
+                && !isBlank(next, requiredWhitespace + indentWidth))
+            {
+                sink.addViolation(this, index + 2);
+            }
+        }
+        if (next.length() > requiredWhitespace + indentWidth - 1)
+        {
+            if ((openBraceCount - closeBraceCount) > 0
+                    && !isBlank(next, requiredWhitespace))
+            {
+                sink.addViolation(this, index + 2);
+            }
+        }
+    }
+
+    /**
+     * Returns whether one indent's worth of characters of a line, starting
+     * at the given column, are all whitespace.
+     *
+     * @param line      The line to look at
+     * @param column    The column the indent starts at
+     * @return blank    true if none of those characters are printed
+     */
+    private boolean isBlank(LineContext line, int column)
+    {
+        for (int i = column; i < column + indentWidth; i++)
+        {
+            if (!Character.isWhitespace(line.charAt(i)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int[] saveState(int index)
+    {
+        // Only whether more than one brace has been opened matters, so the
+        // count is capped and states that check alike compare as equal
+        int opened = Math.min(openBraceCount, 2);
+        return new int[] {opened, openBraceCount - closeBraceCount,
+                          requiredWhitespace};
+    }
+
+    @Override
+    public void restoreState(int[] state, int index)
+    {
+        openBraceCount = state[0];
+        closeBraceCount = state[0] - state[1];
+        requiredWhitespace = state[2];
+    }
+
+    /**
+     * Returns the state this rule is in just before a line is checked, given
+     * how many of the lines before it open a brace and how many of the lines
+     * up to and including it close one, in the form saveState returns it.
+     *
+     * @param openLines     The number of lines before it that open a brace
+     * @param closeLines    The number of lines after the first line, up to
+     *                      and including it, that close a brace
+     * @return state        The state of the rule
+     */
+    int[] stateAfter(int openLines, int closeLines)
+    {
+        int opened = Math.min(openLines, 2);
+        int nested = Math.max(0, openLines - 1);
+        return new int[] {opened, openLines - closeLines,
+                          indentWidth * (nested - closeLines)};
+    }
+
+    /**
+     * Counts the lines of part of a program that change this rule's brace
+     * depth, in the form stateAfter takes them: the lines from the first up
+     * to the last, not including it, that open a brace, and the lines after
+     * the first, up to and including the last, that close one. Only braces
+     * in code count, and a line counts once however many braces it has. The
+     * counts of parts that follow each other add up to the counts of the
+     * whole.
+     *
+     * @param source    The text of the program
+     * @param mask      The mask of the program, up to the last line at least
+     * @param from      The index of the first line
+     * @param to        The index of the last line, or the line count
+     * @return counts   The number of lines that open a brace, then the
+     *                  number of lines that close one
+     */
+    static int[] countBraceLines(SourceText source, CodeMask mask, int from,
+                                 int to)
+    {
+        int[] counts = new int[2];
+
+        for (int i = from; i <= to && i < source.lineCount(); i++)
+        {
+            boolean opens = false;
+            boolean closes = false;
+
+            for (int j = source.lineStart(i); j < source.lineEnd(i); j++)
+            {
+                char letter = source.charAt(j);
+
+                if ((letter == '{' || letter == '}') && mask.isCode(j))
+                {
+                    opens |= letter == '{';
+                    closes |= letter == '}';
+                }
+            }
+            counts[0] += i < to && opens ? 1 : 0;
+            counts[1] += i > from && closes ? 1 : 0;
+        }
+        return counts;
+    }
+
+    @Override
+    public String getMessage()
+    {
+        return "statement block indentation error";
+    }
+}
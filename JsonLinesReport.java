@@ -0,0 +1,62 @@
+package stylechecker;
+
+import java.util.List;
+
+/**
+ * A JsonLinesReport writes each style error as a JSON object on a line of
+ * its own, naming the file, the line, the rule and its message:
+ *
+ *   {"file":"A.java","line":12,"rule":"IndentRule","message":"..."}
+ *
+ * The header, the total and the fixed program are left out.
+ */
+final class JsonLinesReport implements ReportSink
+{
+
+    private final ReportWriter out;
+    private String path = "-";
+
+    /**
+     * Creates a JSON Lines report that writes through the given writer.
+     *
+     * @param out       The writer the report is written to
+     */
+    JsonLinesReport(ReportWriter out)
+    {
+        this.out = out;
+    }
+
+    @Override
+    public void begin(String path, String author, String errorTypes,
+                      Rule[] rules)
+    {
+        this.path = path;
+    }
+
+    @Override
+    public void addViolation(Rule rule, int lineNumber)
+    {
+        out.append("{\"file\":\"").appendJson(path)
+           .append("\",\"line\":").append(lineNumber)
+           .append(",\"rule\":\"").appendJson(rule.getName())
+           .append("\",\"message\":\"").appendJson(rule.getMessage())
+           .append("\"}").newLine();
+    }
+
+    @Override
+    public void end(int errorCount)
+    {
+    }
+
+    @Override
+    public void addCorrection(String title, String underline,
+                              List<String> lines)
+    {
+    }
+
+    @Override
+    public void close()
+    {
+        out.close();
+    }
+}
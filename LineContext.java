@@ -0,0 +1,339 @@
+package stylechecker;
+
+/**
+ * A LineContext holds the facts about a single line of the program that the
+ * style rules need. Each line is split into tokens once, by a LineLexer, when
+ * its context is built, and every rule reads the same tokens and facts
+ * instead of scanning the line again on its own. The line itself is never
+ * copied: a context only keeps the offsets of the line in the text it came
+ * from. A context can be reset to another line, so the engine reuses the same
+ * few contexts, and the same token buffers, for every line of a program.
+ *
+ * Rules outside this package read a line only through its public methods,
+ * which give its text; the tokens and facts are kept for the built in rules.
+ */
+public final class LineContext
+{
+
+    /**
+     * The statement keywords that the rules look for at the start of a
+     * line.
+     */
+    enum Keyword
+    {
+        NONE, IF, ELSE, WHILE, FOR, SWITCH, DO
+    }
+
+    private final LineLexer lexer = new LineLexer();
+    private CharSequence source;
+    private int start;
+    private int end;
+    private int trimStart;
+    private int trimEnd;
+    Keyword keyword;
+    boolean hasOpenBrace;
+    boolean hasCloseBrace;
+    boolean endsWithOpenBrace;
+    boolean endsWithCloseBrace;
+    boolean mentionsClass;
+    boolean hasAccessModifier;
+    boolean isMethod;
+    int semiColonCount;
+    int codeTokenCount;
+
+    /**
+     * Builds an empty context, to be reset to a line before it is used.
+     */
+    LineContext()
+    {
+    }
+
+    /**
+     * Makes this the context of the line between two offsets of a text by
+     * lexing the line once and computing each fact about it from its tokens.
+     * Braces, semicolons and words inside literals and comments do not count.
+     *
+     * @param source    The text the line is part of
+     * @param start     The offset of the first character of the line
+     * @param end       The offset just past the last character of the line
+     * @param mask      The mask of the line's comments and literals
+     */
+    void reset(CharSequence source, int start, int end, CodeMask mask)
+    {
+        this.source = source;
+        this.start = start;
+        this.end = end;
+
+        // Trims the line the same way String.trim() does
+        int first = start;
+        int last = end;
+
+        while (first < last && source.charAt(first) <= ' ')
+        {
+            first++;
+        }
+
+        while (last > first && source.charAt(last - 1) <= ' ')
+        {
+            last--;
+        }
+        trimStart = first;
+        trimEnd = last;
+
+        lexer.tokenize(source, start, end, mask);
+        keyword = Keyword.NONE;
+        hasOpenBrace = false;
+        hasCloseBrace = false;
+        mentionsClass = false;
+        hasAccessModifier = false;
+        semiColonCount = 0;
+        codeTokenCount = 0;
+        boolean hasOpenParenthesis = false;
+        int lastCodeKind = -1;
+
+        for (int i = 0; i < lexer.size(); i++)
+        {
+            int kind = lexer.kind(i);
+
+            if (kind == LineLexer.COMMENT)
+            {
+                continue;
+            }
+
+            if (codeTokenCount == 0 && kind == LineLexer.WORD)
+            {
+                keyword = findKeyword(i);
+            }
+            codeTokenCount++;
+            lastCodeKind = kind;
+
+            if (kind == LineLexer.OPEN_BRACE)
+            {
+                hasOpenBrace = true;
+            }
+
+            else if (kind == LineLexer.CLOSE_BRACE)
+            {
+                hasCloseBrace = true;
+            }
+
+            else if (kind == LineLexer.SEMICOLON)
+            {
+                semiColonCount++;
+            }
+
+            else if (kind == LineLexer.WORD)
+            {
+                mentionsClass |= tokenIs(i, "class");
+                hasAccessModifier |= tokenIs(i, "private")
+                                     || tokenIs(i, "public");
+            }
+
+            else if (kind == LineLexer.PUNCTUATION)
+            {
+                hasOpenParenthesis |= source.charAt(lexer.start(i)) == '(';
+            }
+        }
+
+        endsWithOpenBrace = lastCodeKind == LineLexer.OPEN_BRACE;
+        endsWithCloseBrace = lastCodeKind == LineLexer.CLOSE_BRACE;
+        isMethod = hasAccessModifier && hasOpenParenthesis;
+    }
+
+    /**
+     * Returns the number of tokens in the line, including comments.
+     *
+     * @return count    The number of tokens
+     */
+    int tokenCount()
+    {
+        return lexer.size();
+    }
+
+    /**
+     * Returns the kind of the token at the given index, one of the token
+     * kinds of LineLexer.
+     *
+     * @param token     The index of the token in the line
+     * @return kind     The kind of the token
+     */
+    int tokenKind(int token)
+    {
+        return lexer.kind(token);
+    }
+
+    /**
+     * Returns the OperatorTable id of an operator token.
+     *
+     * @param token     The index of the token in the line
+     * @return id       The id of the operator, or -1 if the token is not an
+     *                  operator
+     */
+    int tokenOperator(int token)
+    {
+        return lexer.operator(token);
+    }
+
+    /**
+     * Returns the index in the line of the first character of a token.
+     *
+     * @param token     The index of the token in the line
+     * @return index    The index of the token's first character
+     */
+    int tokenStart(int token)
+    {
+        return lexer.start(token) - start;
+    }
+
+    /**
+     * Returns the index in the line just past the last character of a token.
+     *
+     * @param token     The index of the token in the line
+     * @return index    The index just past the token's last character
+     */
+    int tokenEnd(int token)
+    {
+        return lexer.end(token) - start;
+    }
+
+    /**
+     * Returns the number of characters in the line.
+     *
+     * @return length   The length of the line
+     */
+    public int length()
+    {
+        return end - start;
+    }
+
+    /**
+     * Returns the number of whitespace characters before the first character
+     * of the line that is not whitespace.
+     *
+     * @return indent   The indent of the line
+     */
+    public int indent()
+    {
+        return trimStart - start;
+    }
+
+    /**
+     * Returns the character at the given index of the line.
+     *
+     * @param index     The index of the character in the line
+     * @return letter   The character at the index
+     */
+    public char charAt(int index)
+    {
+        if (index < 0 || index >= end - start)
+        {
+            throw new StringIndexOutOfBoundsException(index);
+        }
+        return source.charAt(start + index);
+    }
+
+    /**
+     * Returns true if the trimmed line starts with the given prefix.
+     *
+     * @param prefix    The prefix to compare with
+     * @return true     if the trimmed line starts with the prefix
+     *         false    otherwise
+     */
+    public boolean trimmedStartsWith(String prefix)
+    {
+        return trimEnd - trimStart >= prefix.length()
+               && regionMatches(trimStart, prefix);
+    }
+
+    /**
+     * Returns true if the trimmed line is empty, false otherwise.
+     *
+     * @return true     if the line contains only whitespace
+     *         false    otherwise
+     */
+    public boolean isBlank()
+    {
+        return trimEnd == trimStart;
+    }
+
+    @Override
+    public String toString()
+    {
+        return source.subSequence(start, end).toString();
+    }
+
+    /**
+     * Finds the statement keyword a line that starts with the given word
+     * token begins with.
+     *
+     * @param token     The index of the first token of the line
+     * @return keyword  The keyword the line starts with, or NONE
+     */
+    private Keyword findKeyword(int token)
+    {
+        if (tokenIs(token, "if"))
+        {
+            return Keyword.IF;
+        }
+
+        if (tokenIs(token, "else"))
+        {
+            return Keyword.ELSE;
+        }
+
+        if (tokenIs(token, "while"))
+        {
+            return Keyword.WHILE;
+        }
+
+        if (tokenIs(token, "for"))
+        {
+            return Keyword.FOR;
+        }
+
+        if (tokenIs(token, "switch"))
+        {
+            return Keyword.SWITCH;
+        }
+
+        if (tokenIs(token, "do"))
+        {
+            return Keyword.DO;
+        }
+        return Keyword.NONE;
+    }
+
+    /**
+     * Returns true if the token at the given index is exactly the given word.
+     *
+     * @param token     The index of the token in the line
+     * @param word      The word to compare with
+     * @return true     if the token is the word
+     *         false    otherwise
+     */
+    private boolean tokenIs(int token, String word)
+    {
+        return lexer.end(token) - lexer.start(token) == word.length()
+               && regionMatches(lexer.start(token), word);
+    }
+
+    /**
+     * Returns true if the text starting at the given offset matches target.
+     *
+     * @param offset    The offset in the source text
+     * @param target    The text to compare with
+     * @return true     if the text at the offset matches
+     *         false    otherwise
+     */
+    private boolean regionMatches(int offset, String target)
+    {
+        for (int k = 0; k < target.length(); k++)
+        {
+            if (source.charAt(offset + k) != target.charAt(k))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
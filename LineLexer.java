@@ -0,0 +1,290 @@
+package stylechecker;
+
+import java.util.Arrays;
+
+/**
+ * A LineLexer splits a line of the program into tokens in a single scan. The
+ * tokens are kept in primitive arrays that are reused for every line the
+ * lexer is given, so lexing a line makes no garbage once the arrays are big
+ * enough. Each token has a kind and the offsets of its first character and
+ * of the character just past it.
+ *
+ * Whitespace is not a token. Which characters are inside literals and
+ * comments is read from a CodeMask, and each run of them is a single token,
+ * so nothing inside them is ever mistaken for code. Operators are matched by
+ * the OperatorTable, so a compound operator such as += or -> is a single
+ * token that knows which operator it is.
+ */
+final class LineLexer
+{
+
+    static final int WORD = 0;
+    static final int NUMBER = 1;
+    static final int OPERATOR = 2;
+    static final int OPEN_BRACE = 3;
+    static final int CLOSE_BRACE = 4;
+    static final int SEMICOLON = 5;
+    static final int STRING = 6;
+    static final int CHAR = 7;
+    static final int COMMENT = 8;
+    static final int PUNCTUATION = 9;
+
+    private static final int INITIAL_CAPACITY = 16;
+    private int[] kinds = new int[INITIAL_CAPACITY];
+    private int[] starts = new int[INITIAL_CAPACITY];
+    private int[] ends = new int[INITIAL_CAPACITY];
+    private int[] operators = new int[INITIAL_CAPACITY];
+    private int count = 0;
+
+    /**
+     * Splits the line between two offsets of a text into tokens, replacing
+     * the tokens of the line lexed before it.
+     *
+     * @param source    The text the line is part of
+     * @param start     The offset of the first character of the line
+     * @param end       The offset just past the last character of the line
+     * @param mask      The mask of the line's comments and literals
+     */
+    void tokenize(CharSequence source, int start, int end, CodeMask mask)
+    {
+        count = 0;
+        int i = start;
+
+        while (i < end)
+        {
+            char letter = source.charAt(i);
+            int tokenStart = i;
+
+            if (mask.isComment(i))
+            {
+                i = skipMasked(mask, i + 1, end, true);
+                add(COMMENT, tokenStart, i, -1);
+                continue;
+            }
+
+            if (mask.isLiteral(i))
+            {
+                i = skipMasked(mask, i + 1, end, false);
+                add(letter == '\'' ? CHAR : STRING, tokenStart, i, -1);
+                continue;
+            }
+
+            if (letter <= ' ' || Character.isWhitespace(letter))
+            {
+                i++;
+                continue;
+            }
+
+            int operator = OperatorTable.match(source, i, end);
+
+            if (operator >= 0)
+            {
+                i += OperatorTable.length(operator);
+                add(OPERATOR, tokenStart, i, operator);
+                continue;
+            }
+
+            if (Character.isJavaIdentifierStart(letter))
+            {
+                i++;
+
+                while (i < end
+                       && Character.isJavaIdentifierPart(source.charAt(i)))
+                {
+                    i++;
+                }
+                add(WORD, tokenStart, i, -1);
+                continue;
+            }
+
+            if (letter >= '0' && letter <= '9')
+            {
+                i = skipNumber(source, i + 1, end);
+                add(NUMBER, tokenStart, i, -1);
+                continue;
+            }
+
+            i++;
+
+            if (letter == '{')
+            {
+                add(OPEN_BRACE, tokenStart, i, -1);
+            }
+
+            else if (letter == '}')
+            {
+                add(CLOSE_BRACE, tokenStart, i, -1);
+            }
+
+            else if (letter == ';')
+            {
+                add(SEMICOLON, tokenStart, i, -1);
+            }
+
+            else
+            {
+                add(PUNCTUATION, tokenStart, i, -1);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of tokens in the line.
+     *
+     * @return count    The number of tokens
+     */
+    int size()
+    {
+        return count;
+    }
+
+    /**
+     * Returns the kind of the token at the given index.
+     *
+     * @param index     The index of the token in the line
+     * @return kind     The kind of the token
+     */
+    int kind(int index)
+    {
+        return kinds[index];
+    }
+
+    /**
+     * Returns the offset of the first character of the token at the given
+     * index.
+     *
+     * @param index     The index of the token in the line
+     * @return start    The offset of the token in the text
+     */
+    int start(int index)
+    {
+        return starts[index];
+    }
+
+    /**
+     * Returns the offset just past the last character of the token at the
+     * given index.
+     *
+     * @param index     The index of the token in the line
+     * @return end      The offset just past the token in the text
+     */
+    int end(int index)
+    {
+        return ends[index];
+    }
+
+    /**
+     * Returns the OperatorTable id of the operator token at the given index.
+     *
+     * @param index     The index of the token in the line
+     * @return id       The id of the operator, or -1 if the token is not an
+     *                  operator
+     */
+    int operator(int index)
+    {
+        return operators[index];
+    }
+
+    /**
+     * Adds a token to the buffer, growing the buffer if it is full.
+     *
+     * @param kind      The kind of the token
+     * @param start     The offset of the first character of the token
+     * @param end       The offset just past the token
+     * @param operator  The id of the operator, or -1 for other tokens
+     */
+    private void add(int kind, int start, int end, int operator)
+    {
+        if (count == kinds.length)
+        {
+            kinds = Arrays.copyOf(kinds, count * 2);
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+            operators = Arrays.copyOf(operators, count * 2);
+        }
+        kinds[count] = kind;
+        starts[count] = start;
+        ends[count] = end;
+        operators[count] = operator;
+        count++;
+    }
+
+    /**
+     * Returns the offset just past a run of comment characters, or of literal
+     * characters, that goes on up to the end of the line at most.
+     *
+     * @param mask      The mask of the line's comments and literals
+     * @param from      The offset just past the first character of the run
+     * @param end       The offset just past the end of the line
+     * @param comment   true for a run of comment characters, false for a run
+     *                  of literal characters
+     * @return offset   The offset just past the run
+     */
+    private static int skipMasked(CodeMask mask, int from, int end,
+                                  boolean comment)
+    {
+        int i = from;
+
+        while (i < end && (comment ? mask.isComment(i) : mask.isLiteral(i)))
+        {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the offset just past a number literal, including any suffix,
+     * underscores, decimal point and signed exponent.
+     *
+     * @param source    The text the line is part of
+     * @param from      The offset just past the first digit
+     * @param end       The offset just past the end of the line
+     * @return offset   The offset just past the number
+     */
+    private static int skipNumber(CharSequence source, int from, int end)
+    {
+        int i = from;
+
+        while (i < end)
+        {
+            char letter = source.charAt(i);
+
+            if (Character.isLetterOrDigit(letter) || letter == '_'
+                || letter == '.')
+            {
+                i++;
+            }
+
+            else if ((letter == '+' || letter == '-')
+                     && (source.charAt(i - 1) == 'e'
+                         || source.charAt(i - 1) == 'E')
+                     && !isHex(source, from - 1, i))
+            {
+                i++;
+            }
+
+            else
+            {
+                break;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Returns true if the number starting at the given offset is written in
+     * hexadecimal, where 'e' is a digit and not an exponent.
+     *
+     * @param source    The text the line is part of
+     * @param start     The offset of the first digit of the number
+     * @param end       The offset the number has been read up to
+     * @return true     if the number starts with 0x or 0X
+     *         false    otherwise
+     */
+    private static boolean isHex(CharSequence source, int start, int end)
+    {
+        return end - start > 1 && source.charAt(start) == '0'
+               && (source.charAt(start + 1) == 'x'
+                   || source.charAt(start + 1) == 'X');
+    }
+}
@@ -0,0 +1,84 @@
+package stylechecker;
+
+import java.util.Arrays;
+
+/**
+ * A LineNumberList holds the line numbers of the style errors found by a rule
+ * without boxing them. The line numbers are kept in a growable int array in
+ * the order they were added.
+ */
+final class LineNumberList
+{
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private int[] lineNumbers;
+    private int size = 0;
+
+    /**
+     * Creates an empty list with room for a default number of line numbers.
+     */
+    LineNumberList()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty list with room for the given number of line numbers.
+     *
+     * @param capacity  The number of line numbers the list starts with room for
+     */
+    LineNumberList(int capacity)
+    {
+        lineNumbers = new int[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Adds a line number to the end of the list.
+     *
+     * @param lineNumber    The line number to add
+     */
+    void add(int lineNumber)
+    {
+        if (size == lineNumbers.length)
+        {
+            lineNumbers = Arrays.copyOf(lineNumbers, size * 2);
+        }
+        lineNumbers[size++] = lineNumber;
+    }
+
+    /**
+     * Returns the line number at the given position of the list.
+     *
+     * @param index         The position in the list
+     * @return lineNumber   The line number at the position
+     */
+    int get(int index)
+    {
+        if (index >= size)
+        {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        return lineNumbers[index];
+    }
+
+    /**
+     * Returns the number of line numbers in the list.
+     *
+     * @return size     The number of line numbers
+     */
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns true if the list holds no line numbers.
+     *
+     * @return true     if the list is empty
+     *         false    otherwise
+     */
+    boolean isEmpty()
+    {
+        return size == 0;
+    }
+}
@@ -0,0 +1,33 @@
+package stylechecker;
+
+/**
+ * Finds every line of code in the program where the length exceeds the
+ * maximum line length.
+ */
+public final class LongLineRule implements Rule
+{
+
+    private int maxLineLength = CheckerConfig.defaults().getMaxLineLength();
+
+    @Override
+    public void configure(CheckerConfig config)
+    {
+        maxLineLength = config.getMaxLineLength();
+    }
+
+    @Override
+    public void checkLine(int index, LineContext current, LineContext next,
+                          LineContext nextNext, ViolationSink sink)
+    {
+        if (current.length() > maxLineLength)
+        {
+            sink.addViolation(this, index + 1);
+        }
+    }
+
+    @Override
+    public String getMessage()
+    {
+        return "exceeds the maximum line length";
+    }
+}
@@ -0,0 +1,39 @@
+package stylechecker;
+
+/**
+ * Finds every line of code in the program with two lines of code that should
+ * be on two separate lines but are not.
+ */
+public final class MultiCodeSameLineRule implements Rule
+{
+
+    @Override
+    public void checkLine(int index, LineContext current, LineContext next,
+                          LineContext nextNext, ViolationSink sink)
+    {
+        LineContext.Keyword keyword = current.keyword;
+        int numSemiColon = current.semiColonCount;
+
+        if (keyword != LineContext.Keyword.NONE
+            && keyword != LineContext.Keyword.FOR && numSemiColon > 0)
+        {
+            sink.addViolation(this, index + 1);
+        }
+
+        if (keyword == LineContext.Keyword.FOR && numSemiColon > 2)
+        {
+            sink.addViolation(this, index + 1);
+        }
+
+        if (numSemiColon > 1 && keyword != LineContext.Keyword.FOR)
+        {
+            sink.addViolation(this, index + 1);
+        }
+    }
+
+    @Override
+    public String getMessage()
+    {
+        return "two separate lines of code on the same line";
+    }
+}
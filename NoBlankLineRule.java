@@ -0,0 +1,65 @@
+package stylechecker;
+
+/**
+ * Finds every line of code in the program that contains a method block that
+ * should have a blank line before it but does not. We assume that the program
+ * given will not contain methods with parameters that take up more than one
+ * line.
+ */
+public final class NoBlankLineRule implements Rule
+{
+
+    // Errors are found in line order, so a line already reported is never
+    // after the last line reported
+    private int lastErrorLine = 0;
+
+    @Override
+    public void checkLine(int index, LineContext current, LineContext next,
+                          LineContext nextNext, ViolationSink sink)
+    {
+        if (nextNext == null)
+        {
+            return;
+        }
+
+        if ((current.mentionsClass && current.hasOpenBrace && !next.isBlank())
+            || (next.isMethod && (next.hasOpenBrace || nextNext.hasOpenBrace)
+            && !current.isBlank()))
+        {
+            if (index + 2 > lastErrorLine)
+            {
+                sink.addViolation(this, index + 2);
+                lastErrorLine = index + 2;
+            }
+        }
+
+        else if (current.mentionsClass && next.hasOpenBrace
+                 && !nextNext.isBlank())
+        {
+            if (index + 3 > lastErrorLine)
+            {
+                sink.addViolation(this, index + 3);
+                lastErrorLine = index + 3;
+            }
+        }
+    }
+
+    @Override
+    public int[] saveState(int index)
+    {
+        // Lines before index + 2 can no longer be reported
+        return new int[] {Math.max(0, lastErrorLine - index - 1)};
+    }
+
+    @Override
+    public void restoreState(int[] state, int index)
+    {
+        lastErrorLine = index + 1 + state[0];
+    }
+
+    @Override
+    public String getMessage()
+    {
+        return "missing blank line before statement";
+    }
+}
@@ -0,0 +1,195 @@
+package stylechecker;
+
+/**
+ * Finds every line of code in the program where there needs to be spaces
+ * before and after a binary operator but there are not. The operators come
+ * from the line's tokens, so every operator on the line is checked in one
+ * pass, compound operators such as += and == are checked as a whole, and
+ * operators inside literals and comments are not operators at all.
+ */
+public final class OperatorSpaceRule implements Rule
+{
+
+    @Override
+    public void checkLine(int index, LineContext current, LineContext next,
+                          LineContext nextNext, ViolationSink sink)
+    {
+        if (next == null)
+        {
+            return;
+        }
+
+        int previous = -1;
+
+        for (int t = 0; t < current.tokenCount(); t++)
+        {
+            int kind = current.tokenKind(t);
+
+            if (kind == LineLexer.COMMENT)
+            {
+                continue;
+            }
+
+            if (kind == LineLexer.OPERATOR
+                && isBinary(current, previous, t)
+                && noOperatorSpace(current, previous, t))
+            {
+                sink.addViolation(this, index + 1);
+                return;
+            }
+            previous = t;
+        }
+    }
+
+    @Override
+    public String getMessage()
+    {
+        return "needs exactly one space between operator";
+    }
+
+    /**
+     * Returns true if the operator token is a binary operator that must be
+     * spaced. A + or - is a sign rather than a binary operator when it does
+     * not follow an operand, and an operator after a '.' is part of a name,
+     * as in an import of java.util.*.
+     *
+     * @param current     The context of the line being processed
+     * @param previous    The index of the code token before the operator,
+     *                    or -1 if the operator starts the line
+     * @param operator    The index of the operator token
+     * @return true       if the operator must be spaced
+     *         false      otherwise
+     */
+    private static boolean isBinary(LineContext current, int previous,
+                                    int operator)
+    {
+        int id = current.tokenOperator(operator);
+
+        if (!OperatorTable.isSpaced(id))
+        {
+            return false;
+        }
+
+        if (previous < 0)
+        {
+            return !OperatorTable.isSign(id);
+        }
+
+        int kind = current.tokenKind(previous);
+        char before = current.charAt(current.tokenStart(previous));
+
+        if (kind == LineLexer.PUNCTUATION)
+        {
+            return before == ')' || before == ']'
+                   || (before != '.' && !OperatorTable.isSign(id));
+        }
+
+        if (OperatorTable.isSign(id))
+        {
+            return isOperand(current, previous);
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the token ends an operand, so that a + or - after it is
+     * a binary operator rather than a sign.
+     *
+     * @param current     The context of the line being processed
+     * @param token       The index of the token
+     * @return true       if the token ends an operand
+     *         false      otherwise
+     */
+    private static boolean isOperand(LineContext current, int token)
+    {
+        switch (current.tokenKind(token))
+        {
+            case LineLexer.NUMBER:
+            case LineLexer.STRING:
+            case LineLexer.CHAR:
+                return true;
+
+            case LineLexer.WORD:
+                return !isWord(current, token, "return")
+                       && !isWord(current, token, "case");
+
+            case LineLexer.OPERATOR:
+                return OperatorTable.isStep(current.tokenOperator(token));
+
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns true if the token is exactly the given word.
+     *
+     * @param current     The context of the line being processed
+     * @param token       The index of the token
+     * @param word        The word to compare with
+     * @return true       if the token is the word
+     *         false      otherwise
+     */
+    private static boolean isWord(LineContext current, int token, String word)
+    {
+        int start = current.tokenStart(token);
+
+        if (current.tokenEnd(token) - start != word.length())
+        {
+            return false;
+        }
+
+        for (int i = 0; i < word.length(); i++)
+        {
+            if (current.charAt(start + i) != word.charAt(i))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Given a line that is being processed and a binary operator on that
+     * line, returns true if the operator is not surrounded by exactly one
+     * space on each side, false otherwise. Assignments only need whitespace
+     * on each side, so that they can be lined up. An operator that starts or
+     * ends the line only needs its space on the other side.
+     *
+     * @param current     The context of the line being processed
+     * @param previous    The index of the code token before the operator,
+     *                    or -1 if the operator starts the line
+     * @param operator    The index of the operator token
+     * @return true       if the operator is not spaced correctly
+     *         false      otherwise
+     */
+    private static boolean noOperatorSpace(LineContext current, int previous,
+                                           int operator)
+    {
+        boolean assignment = OperatorTable.isAssignment(
+                                 current.tokenOperator(operator));
+        int start = current.tokenStart(operator);
+        int end = current.tokenEnd(operator);
+
+        if (previous >= 0)
+        {
+            if (!Character.isWhitespace(current.charAt(start - 1))
+                || (!assignment
+                    && Character.isWhitespace(current.charAt(start - 2))))
+            {
+                return true;
+            }
+        }
+
+        if (end < current.length())
+        {
+            if (!Character.isWhitespace(current.charAt(end))
+                || (!assignment && end + 1 < current.length()
+                    && Character.isWhitespace(current.charAt(end + 1))))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,174 @@
+package stylechecker;
+
+import java.util.Arrays;
+
+/**
+ * The OperatorTable recognizes every Java operator, including the compound
+ * ones, in a single left to right scan. The operators are compiled into a
+ * table driven automaton: each state has a row of next states indexed by
+ * character, so finding the longest operator at an offset costs one table
+ * lookup per character of the operator.
+ */
+final class OperatorTable
+{
+
+    private static final String[] OPERATORS = {
+        "=", "+=", "-=", "*=", "/=", "%=", "&=", "|=", "^=", "<<=", ">>=",
+        ">>>=", "+", "-", "*", "/", "%", "==", "!=", "<=", ">=", "&&", "||",
+        "->", "<", ">", "<<", ">>", ">>>", "&", "|", "^", "!", "~", "?", ":",
+        "::", "++", "--"
+    };
+
+    // The operators up to LAST_ASSIGNMENT assign, and the operators up to
+    // LAST_SPACED must have a space on each side. The rest may be unary, may
+    // close generic types or are not checked for spacing
+    private static final int LAST_ASSIGNMENT = idOf(">>>=");
+    private static final int LAST_SPACED = idOf("->");
+    private static final int PLUS = idOf("+");
+    private static final int MINUS = idOf("-");
+    private static final int INCREMENT = idOf("++");
+    private static final int DECREMENT = idOf("--");
+    private static final int ALPHABET = 128;
+    private static final int[][] NEXT_STATE;
+    private static final int[] ACCEPT;
+
+    static
+    {
+        int states = 1;
+
+        for (String operator: OPERATORS)
+        {
+            states += operator.length();
+        }
+
+        int[][] next = new int[states][ALPHABET];
+        int[] accept = new int[states];
+        Arrays.fill(accept, -1);
+        int used = 1;
+
+        for (int id = 0; id < OPERATORS.length; id++)
+        {
+            int state = 0;
+
+            for (char letter: OPERATORS[id].toCharArray())
+            {
+                if (next[state][letter] == 0)
+                {
+                    next[state][letter] = used++;
+                }
+                state = next[state][letter];
+            }
+            accept[state] = id;
+        }
+        NEXT_STATE = next;
+        ACCEPT = accept;
+    }
+
+    private OperatorTable()
+    {
+    }
+
+    /**
+     * Returns the id of the given operator, which is its place in the list.
+     *
+     * @param operator  The text of the operator
+     * @return id       The id of the operator
+     */
+    private static int idOf(String operator)
+    {
+        return Arrays.asList(OPERATORS).indexOf(operator);
+    }
+
+    /**
+     * Returns the longest operator that starts at the given offset.
+     *
+     * @param source    The text the line is part of
+     * @param from      The offset to look for an operator at
+     * @param end       The offset just past the end of the line
+     * @return id       The id of the operator, or -1 if there is none
+     */
+    static int match(CharSequence source, int from, int end)
+    {
+        int state = 0;
+        int found = -1;
+
+        for (int i = from; i < end; i++)
+        {
+            char letter = source.charAt(i);
+
+            if (letter >= ALPHABET || NEXT_STATE[state][letter] == 0)
+            {
+                break;
+            }
+            state = NEXT_STATE[state][letter];
+
+            if (ACCEPT[state] >= 0)
+            {
+                found = ACCEPT[state];
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns the number of characters in the given operator.
+     *
+     * @param id        The id of the operator
+     * @return length   The length of the operator
+     */
+    static int length(int id)
+    {
+        return OPERATORS[id].length();
+    }
+
+    /**
+     * Returns true if the given operator is an assignment, which only needs
+     * whitespace on each side so assignments may be lined up.
+     *
+     * @param id        The id of the operator
+     * @return true     if the operator assigns
+     *         false    otherwise
+     */
+    static boolean isAssignment(int id)
+    {
+        return id <= LAST_ASSIGNMENT;
+    }
+
+    /**
+     * Returns true if the given operator must have a space on each side
+     * when it is used as a binary operator.
+     *
+     * @param id        The id of the operator
+     * @return true     if the operator is spaced
+     *         false    otherwise
+     */
+    static boolean isSpaced(int id)
+    {
+        return id <= LAST_SPACED;
+    }
+
+    /**
+     * Returns true if the given operator can also be a unary sign.
+     *
+     * @param id        The id of the operator
+     * @return true     if the operator is + or -
+     *         false    otherwise
+     */
+    static boolean isSign(int id)
+    {
+        return id == PLUS || id == MINUS;
+    }
+
+    /**
+     * Returns true if the given operator is an increment or decrement, which
+     * ends an operand when it is used after a variable.
+     *
+     * @param id        The id of the operator
+     * @return true     if the operator is ++ or --
+     *         false    otherwise
+     */
+    static boolean isStep(int id)
+    {
+        return id == INCREMENT || id == DECREMENT;
+    }
+}
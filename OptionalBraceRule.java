@@ -0,0 +1,33 @@
+package stylechecker;
+
+/**
+ * Finds every line of code in the program where there needs to be curly
+ * braces but there are not. We assume that there are no conditionals and
+ * loops on the same line.
+ */
+public final class OptionalBraceRule implements Rule
+{
+
+    @Override
+    public void checkLine(int index, LineContext current, LineContext next,
+                          LineContext nextNext, ViolationSink sink)
+    {
+        if (next == null)
+        {
+            return;
+        }
+
+        boolean noBraceFlag = !current.hasOpenBrace && !next.hasOpenBrace;
+
+        if (current.keyword != LineContext.Keyword.NONE && noBraceFlag)
+        {
+            sink.addViolation(this, index + 1);
+        }
+    }
+
+    @Override
+    public String getMessage()
+    {
+        return "statement block missing curly braces";
+    }
+}
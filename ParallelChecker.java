@@ -0,0 +1,273 @@
+package stylechecker;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * The ParallelChecker checks a single large program on every core. The lines
+ * are split into chunks that are checked at the same time on a fork/join
+ * pool, each by its own copy of the rules, and the errors of the chunks are
+ * then merged in line order.
+ *
+ * Most rules only look at a line and the two lines after it, so a chunk only
+ * needs to start its window two lines early to find the same errors the
+ * single pass would; errors found in those overlapping lines are dropped,
+ * since the chunk before reports them. The brace depth the IndentRule carries
+ * depends on every line before the chunk, so it is computed first by a
+ * parallel prefix: each chunk counts its lines that open and close braces,
+ * and a prefix sum over the counts gives the depth at the start of every
+ * chunk.
+ */
+final class ParallelChecker
+{
+
+    // A chunk's window starts this many lines before the first line it checks
+    private static final int OVERLAP = 2;
+    private static final int MIN_CHUNK_LINES = 1 << 14;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private final SourceText source;
+    private final CodeMask mask;
+    private final int[] chunkStarts;
+    private final int[] openLines;
+    private final int[] closeLines;
+    private final Rule[][] chunkRules;
+    private final GatedSink[] chunkSinks;
+    private final RuleMetrics[] chunkMetrics;
+
+    /**
+     * Creates a checker for the given program split into the given number of
+     * chunks.
+     *
+     * @param source        The text of the program to check
+     * @param chunkCount    The number of chunks the lines are split into
+     * @param measured      true to measure what the rules of each chunk cost
+     */
+    private ParallelChecker(SourceText source, int chunkCount,
+                            boolean measured)
+    {
+        this.source = source;
+        this.mask = CodeMask.of(source);
+        this.chunkStarts = new int[chunkCount + 1];
+        this.openLines = new int[chunkCount + 1];
+        this.closeLines = new int[chunkCount + 1];
+        this.chunkRules = new Rule[chunkCount][];
+        this.chunkSinks = new GatedSink[chunkCount];
+        this.chunkMetrics = measured ? new RuleMetrics[chunkCount] : null;
+
+        for (int i = 0; i <= chunkCount; i++)
+        {
+            chunkStarts[i] = (int) ((long) source.lineCount() * i / chunkCount);
+        }
+    }
+
+    /**
+     * Checks a program against a set of rules, splitting it into chunks that
+     * are checked on the given pool when it is large enough to be worth it.
+     * The errors reach the sink rule by rule, each rule's in line order,
+     * exactly as a single pass of the RuleEngine would find them.
+     *
+     * @param source    The text of the program to check
+     * @param sink      The sink that receives the errors found
+     * @param pool      The pool the chunks are checked on
+     * @param metrics   The metrics the cost of each rule is added to, or null
+     *                  to not measure the rules
+     * @param factory   Makes a new copy of the rules for each chunk, in the
+     *                  same order as the rules given
+     * @param rules     The rules the errors are reported against
+     */
+    static void run(SourceText source, ViolationSink sink, ForkJoinPool pool,
+                    RuleMetrics metrics, Supplier<Rule[]> factory,
+                    Rule... rules)
+    {
+        int chunkCount = Math.min(pool.getParallelism() * CHUNKS_PER_THREAD,
+                                  source.lineCount() / MIN_CHUNK_LINES);
+
+        if (pool.getParallelism() < 2 || chunkCount < 2)
+        {
+            RuleEngine.run(source, sink, metrics, rules);
+            return;
+        }
+
+        ParallelChecker checker = new ParallelChecker(source, chunkCount,
+                                                      metrics != null);
+        pool.invoke(new ChunkTask(checker::countBraces, 0, chunkCount));
+
+        // The counts of each chunk become the counts before the next chunk
+        Arrays.parallelPrefix(checker.openLines, Integer::sum);
+        Arrays.parallelPrefix(checker.closeLines, Integer::sum);
+
+        pool.invoke(new ChunkTask(i -> checker.checkChunk(i, factory),
+                                  0, chunkCount));
+        checker.merge(sink, rules);
+
+        if (metrics != null)
+        {
+            for (RuleMetrics chunk: checker.chunkMetrics)
+            {
+                metrics.addAll(chunk);
+            }
+        }
+    }
+
+    /**
+     * Counts the lines of a chunk that change the IndentRule's brace depth,
+     * from the first line of the chunk's window to the first line of the next
+     * chunk's window. A line's open brace counts when the line is checked and
+     * its close brace counts when the line before it is checked, so the close
+     * braces are counted one line later than the open braces.
+     *
+     * @param chunk     The index of the chunk
+     */
+    private void countBraces(int chunk)
+    {
+        int from = windowStart(chunk);
+        int to = chunk + 1 < chunkRules.length ? windowStart(chunk + 1)
+                                               : source.lineCount();
+        int[] counts = IndentRule.countBraceLines(source, mask, from, to);
+        openLines[chunk + 1] = counts[0];
+        closeLines[chunk + 1] = counts[1];
+    }
+
+    /**
+     * Checks the lines of a single chunk with a new copy of the rules. The
+     * IndentRule starts from the brace depth found by the prefix pass, and
+     * the errors found while the window fills with the overlapping lines are
+     * dropped.
+     *
+     * @param chunk     The index of the chunk
+     * @param factory   Makes the copy of the rules the chunk is checked with
+     */
+    private void checkChunk(int chunk, Supplier<Rule[]> factory)
+    {
+        int from = windowStart(chunk);
+        int start = chunkStarts[chunk];
+        boolean last = chunk + 1 == chunkRules.length;
+        int to = last ? source.lineCount() : chunkStarts[chunk + 1] + OVERLAP;
+        Rule[] rules = factory.get();
+        GatedSink sink = new GatedSink();
+
+        for (Rule rule: rules)
+        {
+            if (rule instanceof IndentRule)
+            {
+                rule.restoreState(((IndentRule) rule).stateAfter(
+                                      openLines[chunk], closeLines[chunk]),
+                                  from);
+            }
+        }
+
+        RuleMetrics metrics = chunkMetrics == null ? null
+                              : new RuleMetrics(rules.length);
+        RuleEngine engine = new RuleEngine(sink, mask, from, metrics, rules);
+
+        for (int i = from; i < to; i++)
+        {
+            // Pushing a line checks the line two lines before it
+            sink.open = i - OVERLAP >= start;
+            engine.push(source, source.lineStart(i), source.lineEnd(i));
+        }
+
+        if (last)
+        {
+            sink.open = true;
+            engine.finish();
+        }
+        chunkRules[chunk] = rules;
+        chunkSinks[chunk] = sink;
+
+        if (metrics != null)
+        {
+            chunkMetrics[chunk] = metrics;
+        }
+    }
+
+    /**
+     * Passes the errors of every chunk to the sink, rule by rule and chunk by
+     * chunk, reporting each against the rule in the same place of the given
+     * rules.
+     *
+     * @param sink      The sink that receives the errors found
+     * @param rules     The rules the errors are reported against
+     */
+    private void merge(ViolationSink sink, Rule[] rules)
+    {
+        for (int r = 0; r < rules.length; r++)
+        {
+            for (int chunk = 0; chunk < chunkRules.length; chunk++)
+            {
+                LineNumberList lines = chunkSinks[chunk].violations
+                                       .getErrorLines(chunkRules[chunk][r]);
+
+                for (int i = 0; i < lines.size(); i++)
+                {
+                    sink.addViolation(rules[r], lines.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the first line of a chunk's window.
+     *
+     * @param chunk     The index of the chunk
+     * @return index    The first line the chunk's engine is given
+     */
+    private int windowStart(int chunk)
+    {
+        return Math.max(0, chunkStarts[chunk] - OVERLAP);
+    }
+
+    /**
+     * Keeps the errors a chunk finds once its first line is being checked.
+     */
+    private static final class GatedSink implements ViolationSink
+    {
+        final ViolationCollector violations = new ViolationCollector();
+        boolean open = false;
+
+        @Override
+        public void addViolation(Rule rule, int lineNumber)
+        {
+            if (open)
+            {
+                violations.addViolation(rule, lineNumber);
+            }
+        }
+    }
+
+    /**
+     * Runs an action for every chunk in a range, splitting the range in half
+     * until each task has a single chunk.
+     */
+    private static final class ChunkTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private final IntConsumer action;
+        private final int from;
+        private final int to;
+
+        ChunkTask(IntConsumer action, int from, int to)
+        {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from == 1)
+            {
+                action.accept(from);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChunkTask(action, from, middle),
+                      new ChunkTask(action, middle, to));
+        }
+    }
+}
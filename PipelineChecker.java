@@ -0,0 +1,345 @@
+package stylechecker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * The PipelineChecker checks many programs as a pipeline of three stages:
+ * reading each program, checking it and writing its report. Reading and
+ * writing spend most of their time waiting on the disk, so they run on many
+ * cheap I/O threads, while checking runs on one thread per core. The stages
+ * are linked by bounded queues, so a fast stage waits for a slow one instead
+ * of piling up programs or reports in memory.
+ *
+ * Whatever stops a file from getting through a stage, even an Error such as
+ * running out of memory, fails the result of that file alone, and every
+ * stage tells the next that it is done however it ends, so no stage and no
+ * caller is ever left waiting for a file that will not come.
+ *
+ * The I/O threads are virtual threads when the JVM has them, and ordinary
+ * threads otherwise.
+ */
+final class PipelineChecker
+{
+
+    // The number of files read, and of reports written, at the same time
+    private static final int IO_WORKERS = 16;
+    private static final int QUEUE_SLOTS_PER_THREAD = 2;
+    private static final Job END = new Job(-1, null, null, null);
+    private final int threadCount;
+    private final ResultCache cache;
+    private final ReportFormat format;
+    private final RuleRegistry registry;
+
+    /**
+     * Creates a pipeline that checks programs on the given number of threads.
+     *
+     * @param threadCount   The number of programs checked at the same time
+     * @param cache         The cache of earlier results, or null for none
+     * @param format        The format the style reports are written in
+     * @param registry      The rules the programs are checked against
+     */
+    PipelineChecker(int threadCount, ResultCache cache, ReportFormat format,
+                    RuleRegistry registry)
+    {
+        this.threadCount = Math.max(1, threadCount);
+        this.cache = cache;
+        this.format = format;
+        this.registry = registry;
+    }
+
+    /**
+     * Starts reading, checking and writing the reports of the given files,
+     * and returns at once. The result of each file completes with its number
+     * of style errors once its report is written, or with the exception that
+     * stopped it from being read, checked or written.
+     *
+     * @param files         The files to check
+     * @param reportFiles   Gives the file each file's report is written to
+     * @return results      The result of each file, in the order given
+     */
+    List<CompletableFuture<Integer>> start(List<File> files,
+                                           Function<File, File> reportFiles)
+    {
+        ArrayList<CompletableFuture<Integer>> results =
+                                             new ArrayList<>(files.size());
+
+        for (int i = 0; i < files.size(); i++)
+        {
+            results.add(new CompletableFuture<>());
+        }
+
+        int capacity = threadCount * QUEUE_SLOTS_PER_THREAD;
+        BlockingQueue<Job> read = new ArrayBlockingQueue<>(capacity);
+        BlockingQueue<Job> checked = new ArrayBlockingQueue<>(capacity);
+        AtomicInteger nextFile = new AtomicInteger();
+        AtomicInteger readers = new AtomicInteger(IO_WORKERS);
+        AtomicInteger checkers = new AtomicInteger(threadCount);
+        ExecutorService io = newIoExecutor();
+        ExecutorService cpu = Executors.newFixedThreadPool(threadCount);
+
+        for (int i = 0; i < IO_WORKERS; i++)
+        {
+            io.execute(() -> readFiles(files, reportFiles, nextFile, read,
+                                       results, readers));
+            io.execute(() -> writeReports(checked, results));
+        }
+
+        for (int i = 0; i < threadCount; i++)
+        {
+            cpu.execute(() -> checkPrograms(read, checked, results,
+                                            checkers));
+        }
+        io.shutdown();
+        cpu.shutdown();
+        return results;
+    }
+
+    /**
+     * Reads files until none are left, passing each program read to the
+     * checking stage. The last reader to finish tells every checker that no
+     * more programs will come, and fails the result of any file left unread.
+     *
+     * @param files         The files to check
+     * @param reportFiles   Gives the file each file's report is written to
+     * @param nextFile      The index of the next file to be read
+     * @param read          The queue of programs waiting to be checked
+     * @param results       The result of each file
+     * @param readers       The number of readers still reading
+     */
+    private void readFiles(List<File> files, Function<File, File> reportFiles,
+                           AtomicInteger nextFile, BlockingQueue<Job> read,
+                           List<CompletableFuture<Integer>> results,
+                           AtomicInteger readers)
+    {
+        try
+        {
+            int index;
+
+            while ((index = nextFile.getAndIncrement()) < files.size())
+            {
+                File file = files.get(index);
+                Job job;
+
+                try
+                {
+                    job = new Job(index, file, SourceText.read(file),
+                                  reportFiles.apply(file));
+                }
+
+                catch (IOException | RuntimeException | Error ex)
+                {
+                    results.get(index).completeExceptionally(ex);
+                    continue;
+                }
+                read.put(job);
+            }
+        }
+
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        finally
+        {
+            if (readers.decrementAndGet() == 0)
+            {
+                for (int i = nextFile.getAndSet(files.size());
+                     i < files.size(); i++)
+                {
+                    results.get(i).completeExceptionally(new IOException(
+                        "the reading of the files stopped before "
+                        + files.get(i) + " was read"));
+                }
+                sendEnd(read, threadCount);
+            }
+        }
+    }
+
+    /**
+     * Checks programs until the readers are done, passing each report to the
+     * writing stage. The last checker to finish tells every writer that no
+     * more reports will come.
+     *
+     * @param read          The queue of programs waiting to be checked
+     * @param checked       The queue of reports waiting to be written
+     * @param results       The result of each file
+     * @param checkers      The number of checkers still checking
+     */
+    private void checkPrograms(BlockingQueue<Job> read,
+                               BlockingQueue<Job> checked,
+                               List<CompletableFuture<Integer>> results,
+                               AtomicInteger checkers)
+    {
+        try
+        {
+            Job job;
+
+            while ((job = read.take()) != END)
+            {
+                try
+                {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    job.errors = StyleChecker.generateReport(job.source,
+                                     job.file.getPath(), format.open(
+                                         new OutputStreamWriter(bytes)),
+                                     cache, registry);
+                    job.report = bytes.toByteArray();
+                }
+
+                catch (RuntimeException | Error ex)
+                {
+                    results.get(job.index).completeExceptionally(ex);
+                    continue;
+                }
+
+                finally
+                {
+                    job.source = null;
+                }
+                checked.put(job);
+            }
+        }
+
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        finally
+        {
+            if (checkers.decrementAndGet() == 0)
+            {
+                sendEnd(checked, IO_WORKERS);
+            }
+        }
+    }
+
+    /**
+     * Writes reports until the checkers are done, completing the result of
+     * each file once its report is on disk.
+     *
+     * @param checked       The queue of reports waiting to be written
+     * @param results       The result of each file
+     */
+    private static void writeReports(BlockingQueue<Job> checked,
+                                     List<CompletableFuture<Integer>> results)
+    {
+        try
+        {
+            Job job;
+
+            while ((job = checked.take()) != END)
+            {
+                try
+                {
+                    Files.write(job.reportFile.toPath(), job.report);
+                    results.get(job.index).complete(job.errors);
+                }
+
+                catch (IOException | RuntimeException | Error ex)
+                {
+                    results.get(job.index).completeExceptionally(ex);
+                }
+            }
+        }
+
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Tells the threads of the next stage that no more jobs will come. The
+     * markers are put on the queue even if this thread is interrupted, since
+     * the next stage would otherwise wait for them forever.
+     *
+     * @param queue         The queue the next stage takes its jobs from
+     * @param count         The number of threads in the next stage
+     */
+    private static void sendEnd(BlockingQueue<Job> queue, int count)
+    {
+        boolean interrupted = false;
+        int sent = 0;
+
+        while (sent < count)
+        {
+            try
+            {
+                queue.put(END);
+                sent++;
+            }
+
+            catch (InterruptedException ex)
+            {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns an executor that starts a virtual thread for every task when
+     * the JVM has virtual threads, and an ordinary thread otherwise. The
+     * factory is looked up at run time so that the checker still runs on
+     * JVMs older than Java 21.
+     *
+     * @return executor     An executor for tasks that mostly wait
+     */
+    static ExecutorService newIoExecutor()
+    {
+        try
+        {
+            Method factory = Executors.class.getMethod(
+                                 "newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        }
+
+        catch (ReflectiveOperationException ex)
+        {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * A single file as it moves through the pipeline. The program is dropped
+     * once it has been checked, so only the report is kept until it is
+     * written.
+     */
+    private static final class Job
+    {
+        final int index;
+        final File file;
+        final File reportFile;
+        SourceText source;
+        byte[] report;
+        int errors;
+
+        Job(int index, File file, SourceText source, File reportFile)
+        {
+            this.index = index;
+            this.file = file;
+            this.source = source;
+            this.reportFile = reportFile;
+        }
+    }
+}
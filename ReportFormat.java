@@ -0,0 +1,76 @@
+package stylechecker;
+
+import java.io.Writer;
+
+/**
+ * The formats a style report can be written in. The text format is the
+ * report meant to be read, with the fixed program after the errors. JSON
+ * Lines and SARIF only list the errors, for tools and CI systems to read.
+ */
+enum ReportFormat
+{
+    TEXT("text", "_Style_Output.txt"),
+    JSON_LINES("jsonl", "_Style_Output.jsonl"),
+    SARIF("sarif", "_Style_Output.sarif");
+
+    private final String name;
+    private final String suffix;
+
+    ReportFormat(String name, String suffix)
+    {
+        this.name = name;
+        this.suffix = suffix;
+    }
+
+    /**
+     * Returns the format with the given command line name.
+     *
+     * @param name      text, jsonl or sarif
+     * @return format   The format with that name
+     * @throws IllegalArgumentException if there is no such format
+     */
+    static ReportFormat forName(String name)
+    {
+        for (ReportFormat format: values())
+        {
+            if (format.name.equals(name))
+            {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("unknown report format: " + name);
+    }
+
+    /**
+     * Returns the end of the name of a report file in this format.
+     *
+     * @return suffix   The suffix added to the name of the file checked
+     */
+    String getSuffix()
+    {
+        return suffix;
+    }
+
+    /**
+     * Opens a sink that writes a report in this format to the given writer.
+     *
+     * @param out       The writer the report is written to
+     * @return sink     The sink for the report
+     */
+    ReportSink open(Writer out)
+    {
+        ReportWriter writer = new ReportWriter(out);
+
+        switch (this)
+        {
+            case JSON_LINES:
+                return new JsonLinesReport(writer);
+
+            case SARIF:
+                return new SarifReport(writer);
+
+            default:
+                return new TextReport(writer);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package stylechecker;
+
+import java.io.Closeable;
+import java.util.List;
+
+/**
+ * A ReportSink receives the parts of a style report in the order they are
+ * made: the header, the errors rule by rule, the total and then the fixed
+ * program. Each ReportFormat has its own sink, which writes what its format
+ * keeps of the report through a ReportWriter.
+ */
+interface ReportSink extends ViolationSink, Closeable
+{
+    /**
+     * Starts the report of a single program.
+     *
+     * @param path          The path of the program, or "-" if it has none
+     * @param author        The author named in the program's header comment
+     * @param errorTypes    The errors the header comment says are checked
+     * @param rules         The rules the errors are reported against, in
+     *                      the order they are listed
+     */
+    void begin(String path, String author, String errorTypes, Rule[] rules);
+
+    /**
+     * Ends the list of errors.
+     *
+     * @param errorCount    The number of style errors found
+     */
+    void end(int errorCount);
+
+    /**
+     * Receives a copy of the program with one kind of error fixed.
+     *
+     * @param title         The title of the correction
+     * @param underline     The line printed under the title
+     * @param lines         The lines of the fixed program
+     */
+    void addCorrection(String title, String underline, List<String> lines);
+
+    /**
+     * Writes out whatever is left of the report and closes the writer.
+     */
+    @Override
+    void close();
+}
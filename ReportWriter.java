@@ -0,0 +1,205 @@
+package stylechecker;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * A ReportWriter collects the characters of a report in one large buffer and
+ * hands them to the underlying writer only when the buffer is full. Numbers
+ * and escaped JSON strings are appended straight into the buffer, so writing
+ * an error makes no strings. The buffer is reused until the writer is closed.
+ *
+ * A failure of the underlying writer is thrown as an UncheckedIOException.
+ */
+final class ReportWriter implements Closeable
+{
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private final Writer out;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int used = 0;
+    private boolean closed = false;
+
+    /**
+     * Creates a report writer that writes to the given writer.
+     *
+     * @param out       The writer the report is written to
+     */
+    ReportWriter(Writer out)
+    {
+        this.out = out;
+    }
+
+    /**
+     * Appends a single character.
+     *
+     * @param letter    The character to append
+     * @return writer   This writer
+     */
+    ReportWriter append(char letter)
+    {
+        if (used == buffer.length)
+        {
+            drain();
+        }
+        buffer[used++] = letter;
+        return this;
+    }
+
+    /**
+     * Appends every character of the given text.
+     *
+     * @param text      The text to append
+     * @return writer   This writer
+     */
+    ReportWriter append(CharSequence text)
+    {
+        for (int i = 0; i < text.length(); i++)
+        {
+            append(text.charAt(i));
+        }
+        return this;
+    }
+
+    /**
+     * Appends the decimal digits of a number without making a string of it.
+     *
+     * @param number    The number to append
+     * @return writer   This writer
+     */
+    ReportWriter append(int number)
+    {
+        long value = number;
+
+        if (value < 0)
+        {
+            append('-');
+            value = -value;
+        }
+
+        long place = 1;
+
+        while (place * 10 <= value)
+        {
+            place *= 10;
+        }
+
+        for (; place > 0; place /= 10)
+        {
+            append((char) ('0' + value / place % 10));
+        }
+        return this;
+    }
+
+    /**
+     * Appends the given text as the inside of a JSON string, escaping quotes,
+     * backslashes and control characters.
+     *
+     * @param text      The text to append
+     * @return writer   This writer
+     */
+    ReportWriter appendJson(CharSequence text)
+    {
+        for (int i = 0; i < text.length(); i++)
+        {
+            char letter = text.charAt(i);
+
+            if (letter == '"' || letter == '\\')
+            {
+                append('\\').append(letter);
+            }
+
+            else if (letter == '\n')
+            {
+                append("\\n");
+            }
+
+            else if (letter < ' ')
+            {
+                append("\\u00").append(HEX_DIGITS[letter >> 4])
+                               .append(HEX_DIGITS[letter & 0xf]);
+            }
+
+            else
+            {
+                append(letter);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Ends the current line with the platform's line separator.
+     *
+     * @return writer   This writer
+     */
+    ReportWriter newLine()
+    {
+        return append(LINE_SEPARATOR);
+    }
+
+    /**
+     * Writes out everything in the buffer and flushes the underlying writer.
+     */
+    void flush()
+    {
+        drain();
+
+        try
+        {
+            out.flush();
+        }
+
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Writes out everything in the buffer and closes the underlying writer.
+     * Closing a writer that is already closed does nothing.
+     */
+    @Override
+    public void close()
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+        drain();
+
+        try
+        {
+            out.close();
+        }
+
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Hands the characters in the buffer to the underlying writer and empties
+     * the buffer.
+     */
+    private void drain()
+    {
+        try
+        {
+            out.write(buffer, 0, used);
+            used = 0;
+        }
+
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package stylechecker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A ResultCache keeps the style errors found in each program on disk, so a
+ * program that has not changed since it was last checked does not have to be
+ * checked again. An entry is keyed by a hash of the program's text together
+ * with the version of the rule set, and holds the line number lists that the
+ * report is printed from. Entries are written to a temporary file and moved
+ * into place, so several checkers may share a cache directory.
+ */
+final class ResultCache
+{
+
+    // Must be changed whenever a rule starts finding different errors
+    static final int RULESET_VERSION = 5;
+    private static final String ENTRY_SUFFIX = ".cache";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private final Path directory;
+
+    /**
+     * Creates a cache that keeps its entries in the given directory.
+     *
+     * @param directory    The directory the entries are kept in
+     * @throws IOException if the directory cannot be created
+     */
+    ResultCache(File directory) throws IOException
+    {
+        this.directory = Files.createDirectories(directory.toPath());
+    }
+
+    /**
+     * Returns the key of the entry for the given program checked against the
+     * given rules with the given settings.
+     *
+     * @param source    The text of the program
+     * @param rules     The rules the program is checked against
+     * @param config    The settings the rules were given
+     * @return key      The hash of the program, the rule set and its settings
+     */
+    String key(SourceText source, Rule[] rules, CheckerConfig config)
+    {
+        MessageDigest digest = newDigest();
+        digest.update(Integer.toString(RULESET_VERSION)
+                             .getBytes(StandardCharsets.UTF_8));
+
+        for (Rule rule: rules)
+        {
+            update(digest, rule.getDefinition());
+        }
+        update(digest, config.fingerprint());
+        source.digest(digest);
+
+        byte[] hash = digest.digest();
+        char[] hex = new char[hash.length * 2];
+
+        for (int i = 0; i < hash.length; i++)
+        {
+            hex[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX_DIGITS[hash[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Returns the line number lists kept under the given key. A missing,
+     * unreadable or damaged entry is treated as if it was not there.
+     *
+     * @param key           The key of the entry
+     * @param listCount     The number of lists the entry must hold
+     * @return lists        The lists of the entry, or null if there is none
+     */
+    LineNumberList[] load(String key, int listCount)
+    {
+        File entry = directory.resolve(key + ENTRY_SUFFIX).toFile();
+
+        if (!entry.isFile())
+        {
+            return null;
+        }
+
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(entry.toPath()))))
+        {
+            if (input.readInt() != RULESET_VERSION
+                || input.readInt() != listCount)
+            {
+                return null;
+            }
+
+            LineNumberList[] lists = new LineNumberList[listCount];
+
+            for (int i = 0; i < listCount; i++)
+            {
+                int size = input.readInt();
+                lists[i] = new LineNumberList(Math.max(1, size));
+
+                for (int j = 0; j < size; j++)
+                {
+                    lists[i].add(input.readInt());
+                }
+            }
+            return lists;
+        }
+
+        catch (IOException | RuntimeException ex)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Keeps the given line number lists under the given key. The cache only
+     * saves work, so an entry that cannot be written is simply left out.
+     *
+     * @param key       The key of the entry
+     * @param lists     The lists to keep
+     */
+    void store(String key, LineNumberList... lists)
+    {
+        Path temporary = null;
+
+        try
+        {
+            temporary = Files.createTempFile(directory, key, ".tmp");
+
+            try (DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary))))
+            {
+                output.writeInt(RULESET_VERSION);
+                output.writeInt(lists.length);
+
+                for (LineNumberList list: lists)
+                {
+                    output.writeInt(list.size());
+
+                    for (int i = 0; i < list.size(); i++)
+                    {
+                        output.writeInt(list.get(i));
+                    }
+                }
+            }
+            Files.move(temporary, directory.resolve(key + ENTRY_SUFFIX),
+                       StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        catch (IOException ex)
+        {
+            if (temporary != null)
+            {
+                temporary.toFile().delete();
+            }
+        }
+    }
+
+    /**
+     * Adds the given text to a digest after its length, so the texts added
+     * one after another cannot run together: "ab" then "c" hashes
+     * differently from "a" then "bc".
+     *
+     * @param digest    The digest the text is added to
+     * @param text      The text to add
+     */
+    private static void update(MessageDigest digest, String text)
+    {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int length = bytes.length;
+        digest.update(new byte[] {(byte) (length >>> 24),
+                                  (byte) (length >>> 16),
+                                  (byte) (length >>> 8), (byte) length});
+        digest.update(bytes);
+    }
+
+    /**
+     * Returns a new SHA-256 digest, which every Java platform must provide.
+     *
+     * @return digest   The new digest
+     */
+    private static MessageDigest newDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        }
+
+        catch (NoSuchAlgorithmException ex)
+        {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
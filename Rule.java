@@ -0,0 +1,95 @@
+package stylechecker;
+
+/**
+ * A Rule is a single style check that is run by the RuleEngine. The engine
+ * walks the program once and hands each rule the context of the current line
+ * and of the two lines after it, which is as far ahead as any rule looks.
+ * A rule hands each error it finds to a ViolationSink as soon as it is found.
+ *
+ * A rule from outside this package implements this interface in a public
+ * class with a public constructor that takes no arguments, and is found by
+ * the RuleRegistry through its service file.
+ */
+public interface Rule
+{
+    /**
+     * Checks the line at the given index for this rule's style error.
+     *
+     * @param index     The index of the current line in the program
+     * @param current   The context of the current line
+     * @param next      The context of the next line, or null if the current
+     *                  line is the last line of the program
+     * @param nextNext  The context of the line after the next line, or null
+     *                  if there is no such line
+     * @param sink      The sink that receives the errors found
+     */
+    void checkLine(int index, LineContext current, LineContext next,
+                   LineContext nextNext, ViolationSink sink);
+
+    /**
+     * Returns the description of this rule's style error that follows the
+     * line number in the report.
+     *
+     * @return message  The description of the style error
+     */
+    String getMessage();
+
+    /**
+     * Returns the name this rule is enabled, disabled and reported by.
+     *
+     * @return name     The simple name of the rule's class
+     */
+    default String getName()
+    {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * Returns what decides which errors this rule finds, for the key of a
+     * cached result: the class of a rule written in Java, or the text of a
+     * rule declared in a rules file.
+     *
+     * @return definition   The definition of the rule
+     */
+    default String getDefinition()
+    {
+        return getClass().getName();
+    }
+
+    /**
+     * Gives this rule the configuration of the run before it checks any line.
+     * Rules with settings copy them from the configuration; rules without
+     * settings ignore it.
+     *
+     * @param config    The configuration of the run
+     */
+    default void configure(CheckerConfig config)
+    {
+    }
+
+    /**
+     * Returns the state this rule carries from one line to the next, as it is
+     * just before the line at the given index is checked, so that checking
+     * can later be resumed from that line. Any line numbers in the state are
+     * saved relative to the index, so the state still holds after lines
+     * before it are added or removed. Rules that carry no state return null.
+     *
+     * @param index     The index of the next line to be checked
+     * @return state    The state of the rule, or null if it has none
+     */
+    default int[] saveState(int index)
+    {
+        return null;
+    }
+
+    /**
+     * Restores a state returned by saveState, so that the line at the given
+     * index is the next line checked.
+     *
+     * @param state     The state returned by saveState
+     * @param index     The index of the next line to be checked
+     */
+    default void restoreState(int[] state, int index)
+    {
+    }
+}
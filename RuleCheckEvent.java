@@ -0,0 +1,47 @@
+package stylechecker;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A RuleCheckEvent is a Java Flight Recorder event that records what one rule
+ * cost while checking one program. One event is committed for each rule
+ * after each program is checked, while a recording with the event enabled is
+ * running, so a recording shows which rules are slow on which files.
+ *
+ *   java -XX:StartFlightRecording=filename=check.jfr,settings=profile ...
+ *   jfr print --events stylechecker.RuleCheck check.jfr
+ */
+@Name("stylechecker.RuleCheck")
+@Label("Rule Check")
+@Category("Style Checker")
+@Description("The cost of one rule checking one program")
+@StackTrace(false)
+final class RuleCheckEvent extends jdk.jfr.Event
+{
+
+    @Label("Rule")
+    String rule;
+
+    @Label("File")
+    String file;
+
+    @Label("Lines")
+    int lines;
+
+    @Label("Check Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long checkTime;
+
+    @Label("Allocated")
+    @DataAmount(DataAmount.BYTES)
+    long allocated;
+
+    @Label("Style Errors")
+    int violations;
+}
@@ -0,0 +1,231 @@
+package stylechecker;
+
+import java.util.List;
+
+/**
+ * The RuleEngine checks a program against a set of rules in a single pass.
+ * Lines are pushed into the engine one at a time and kept in a ring of three
+ * line contexts, which is as far ahead as any rule looks. As soon as the two
+ * lines after a line have arrived, every rule checks that line, so the memory
+ * used does not depend on the size of the program. The contexts in the ring
+ * are reset to each new line rather than made anew, so checking a line makes
+ * no garbage. Comments and literals are masked as each line arrives, unless
+ * the whole program was masked before it was checked.
+ *
+ * When the engine is given a RuleMetrics, the time each rule takes and the
+ * bytes it allocates are measured on one line in every SAMPLE_INTERVAL, and
+ * the metrics scale what was measured up to every line checked. The other
+ * lines, and every line when there are no metrics, are checked without any
+ * measuring, so asking for metrics costs little.
+ */
+final class RuleEngine
+{
+
+    private static final int WINDOW_SIZE = 3;
+
+    // The rules are measured on the first line of every this many checked
+    private static final int SAMPLE_INTERVAL = 16;
+    private final LineContext[] window = {new LineContext(),
+                                          new LineContext(),
+                                          new LineContext()};
+    private final ViolationSink sink;
+    private final Rule[] rules;
+    private final CodeMask mask;
+    private final boolean markLines;
+    private final int firstIndex;
+    private final RuleMetrics metrics;
+    private int received = 0;
+    private int checked = 0;
+
+    /**
+     * Creates an engine that checks the lines of a program pushed into it
+     * from the first, masking the comments and literals of each line as it
+     * arrives.
+     *
+     * @param sink      The sink that receives the errors found
+     * @param metrics   The metrics the cost of each rule is added to, or
+     *                  null to not measure the rules
+     * @param rules     The rules to run against each line
+     */
+    RuleEngine(ViolationSink sink, RuleMetrics metrics, Rule... rules)
+    {
+        this(sink, null, 0, metrics, rules);
+    }
+
+    /**
+     * Creates an engine that checks lines of a program whose comments and
+     * literals are already marked in the given mask, which it only reads, so
+     * several engines may share the mask of one program. The first line
+     * pushed need not be the first line of the program.
+     *
+     * @param sink          The sink that receives the errors found
+     * @param mask          The mask of the whole program, or null to mask
+     *                      each line as it is pushed
+     * @param firstIndex    The index in the program of the first line pushed
+     * @param metrics       The metrics the cost of each rule is added to, or
+     *                      null to not measure the rules
+     * @param rules         The rules to run against each line
+     */
+    RuleEngine(ViolationSink sink, CodeMask mask, int firstIndex,
+               RuleMetrics metrics, Rule... rules)
+    {
+        this.sink = sink;
+        this.rules = rules;
+        this.mask = mask == null ? new CodeMask() : mask;
+        this.markLines = mask == null;
+        this.firstIndex = firstIndex;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Walks the lines of a program once, passing the context of each line and
+     * of the two lines after it to every rule in the order given.
+     *
+     * @param lineList  The lines of the program to check
+     * @param sink      The sink that receives the errors found
+     * @param rules     The rules to run against each line
+     */
+    static void run(List<String> lineList, ViolationSink sink, Rule... rules)
+    {
+        RuleEngine engine = new RuleEngine(sink, null, rules);
+
+        for (String line: lineList)
+        {
+            engine.push(line, 0, line.length());
+        }
+        engine.finish();
+    }
+
+    /**
+     * Walks the lines of a program once without copying any of them, passing
+     * the context of each line and of the two lines after it to every rule in
+     * the order given. The comments and literals of the whole program are
+     * masked in a single pass before any line is checked.
+     *
+     * @param source    The text of the program to check
+     * @param sink      The sink that receives the errors found
+     * @param rules     The rules to run against each line
+     */
+    static void run(SourceText source, ViolationSink sink, Rule... rules)
+    {
+        run(source, sink, null, rules);
+    }
+
+    /**
+     * Walks the lines of a program once like run(source, sink, rules), and
+     * measures what each rule costs.
+     *
+     * @param source    The text of the program to check
+     * @param sink      The sink that receives the errors found
+     * @param metrics   The metrics the cost of each rule is added to, or null
+     *                  to not measure the rules
+     * @param rules     The rules to run against each line
+     */
+    static void run(SourceText source, ViolationSink sink, RuleMetrics metrics,
+                    Rule... rules)
+    {
+        RuleEngine engine = new RuleEngine(sink, CodeMask.of(source), 0,
+                                           metrics, rules);
+
+        for (int i = 0; i < source.lineCount(); i++)
+        {
+            engine.push(source, source.lineStart(i), source.lineEnd(i));
+        }
+        engine.finish();
+    }
+
+    /**
+     * Adds the next line of the program to the window. Once the two lines
+     * after the oldest unchecked line are in the window, that line is checked
+     * and its slot is free for the line after.
+     *
+     * @param source    The text the line is part of
+     * @param start     The offset of the first character of the line
+     * @param end       The offset just past the last character of the line
+     */
+    void push(CharSequence source, int start, int end)
+    {
+        if (markLines)
+        {
+            mask.mark(source, start, end);
+        }
+        window[received % WINDOW_SIZE].reset(source, start, end, mask);
+        received++;
+
+        if (received - checked == WINDOW_SIZE)
+        {
+            checkNext();
+        }
+    }
+
+    /**
+     * Checks the lines still in the window once the end of the program has
+     * been reached.
+     */
+    void finish()
+    {
+        while (checked < received)
+        {
+            checkNext();
+        }
+    }
+
+    /**
+     * Returns the number of lines pushed into the engine so far.
+     *
+     * @return received     The number of lines pushed
+     */
+    int getLineCount()
+    {
+        return received;
+    }
+
+    /**
+     * Passes the oldest unchecked line in the window, and the lines after it
+     * that have arrived, to every rule.
+     */
+    private void checkNext()
+    {
+        int index = checked;
+        LineContext current = window[index % WINDOW_SIZE];
+        LineContext next = index + 1 < received
+                           ? window[(index + 1) % WINDOW_SIZE] : null;
+        LineContext nextNext = index + 2 < received
+                               ? window[(index + 2) % WINDOW_SIZE] : null;
+
+        boolean sampled = metrics != null && index % SAMPLE_INTERVAL == 0;
+
+        if (metrics != null)
+        {
+            metrics.addLine(sampled);
+        }
+
+        if (!sampled)
+        {
+            for (Rule rule: rules)
+            {
+                rule.checkLine(firstIndex + index, current, next, nextNext,
+                               sink);
+            }
+        }
+
+        else
+        {
+            // Each reading ends one rule's measurement and starts the next
+            long time = System.nanoTime();
+            long allocated = RuleMetrics.allocatedBytes();
+
+            for (int i = 0; i < rules.length; i++)
+            {
+                rules[i].checkLine(firstIndex + index, current, next, nextNext,
+                                   sink);
+                long nowTime = System.nanoTime();
+                long nowAllocated = RuleMetrics.allocatedBytes();
+                metrics.addCheck(i, nowTime - time, nowAllocated - allocated);
+                time = nowTime;
+                allocated = nowAllocated;
+            }
+        }
+        checked++;
+    }
+}
@@ -0,0 +1,830 @@
+package stylechecker;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * RuleLanguage reads the rules declared in a rules file and compiles each of
+ * them into a DeclaredRule. A rule is a name, the message of its error and
+ * the condition a line must meet to be an error:
+ *
+ *   # A keyword-led line that also holds a statement
+ *   rule KeywordStatement
+ *   message "statement on the same line as its keyword"
+ *   when keyword and not keyword for and semicolons > 0
+ *
+ * A line that starts with whitespace carries on the line before it, and "#"
+ * starts a comment. A condition is built from these tests of a line, joined
+ * with "and", "or", "not" and parentheses:
+ *
+ *   keyword                   starts with any statement keyword
+ *   keyword if                starts with the keyword given
+ *   keyword (if, else)        starts with any of the keywords given
+ *   blank                     holds only whitespace
+ *   class, method             declares a class, or a method
+ *   access-modifier           has an access modifier
+ *   has {, has }              holds a brace outside comments and literals
+ *   ends-with {, ends-with }  ends with a brace
+ *   semicolons, tokens, length, indent  compared to a number with one of
+ *                             >, >=, <, <=, == and !=
+ *
+ * A test, or a parenthesized condition, after "next" is a test of the line
+ * after the current line, and a rule that ends with the line "report next"
+ * reports its error on that line rather than on the current one.
+ *
+ * The whole condition is compiled when the file is read into a short list of
+ * clauses, one for each way the condition can be met, and the clauses never
+ * change after that. Every test is a keyword, a fact or a count that the
+ * LineContext already holds for every line, so a declared rule costs no
+ * extra pass over the program and no string comparisons.
+ */
+final class RuleLanguage
+{
+
+    // A condition with more ways to be met than this is not compiled
+    private static final int MAX_CLAUSES = 64;
+    private static final int MAX_NUMBER = 1 << 20;
+    private static final String[] FACTS = {
+        "has {", "has }", "ends-with {", "ends-with }", "class",
+        "access-modifier", "method", "blank"
+    };
+    private static final int[] FACT_BITS = {
+        DeclaredRule.HAS_OPEN_BRACE, DeclaredRule.HAS_CLOSE_BRACE,
+        DeclaredRule.ENDS_WITH_OPEN_BRACE, DeclaredRule.ENDS_WITH_CLOSE_BRACE,
+        DeclaredRule.MENTIONS_CLASS, DeclaredRule.HAS_ACCESS_MODIFIER,
+        DeclaredRule.IS_METHOD, DeclaredRule.IS_BLANK
+    };
+    private static final String[] COUNTS = {
+        "semicolons", "tokens", "length", "indent"
+    };
+    private static final String[] COMPARISONS = {
+        ">", "<=", ">=", "<", "==", "!="
+    };
+
+    /**
+     * A Condition is a parsed condition, or part of one, that can be compiled
+     * into clauses.
+     */
+    private interface Condition
+    {
+        /**
+         * Returns the clauses of this condition, or of its opposite.
+         *
+         * @param negated   true for the clauses of the opposite condition
+         * @return clauses  The clauses, any of which matching a line meets
+         *                  the condition
+         */
+        List<DeclaredRule.Clause> clauses(boolean negated);
+    }
+
+    private final String fileName;
+    private int lineNumber;
+    private List<String> tokens;
+    private int position;
+
+    /**
+     * Creates a reader of the rules in the named file.
+     *
+     * @param fileName  The name of the file, for error messages
+     */
+    private RuleLanguage(String fileName)
+    {
+        this.fileName = fileName;
+    }
+
+    /**
+     * Reads and compiles every rule declared in a rules file.
+     *
+     * @param file      The rules file
+     * @return rules    The rules, in the order they are declared
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a rule is not valid; the message
+     *                                  names the file and the line
+     */
+    static List<DeclaredRule> load(File file) throws IOException
+    {
+        List<String> lines;
+
+        try
+        {
+            lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        }
+
+        catch (NoSuchFileException ex)
+        {
+            throw new FileNotFoundException(file + " not found");
+        }
+        return parse(file.getPath(), lines);
+    }
+
+    /**
+     * Compiles every rule declared in the lines of a rules file.
+     *
+     * @param fileName  The name of the file, for error messages
+     * @param lines     The lines of the file
+     * @return rules    The rules, in the order they are declared
+     * @throws IllegalArgumentException if a rule is not valid
+     */
+    static List<DeclaredRule> parse(String fileName, List<String> lines)
+    {
+        RuleLanguage language = new RuleLanguage(fileName);
+        ArrayList<DeclaredRule> rules = new ArrayList<>();
+        ArrayList<String> statements = new ArrayList<>();
+        ArrayList<Integer> lineNumbers = new ArrayList<>();
+
+        for (int i = 0; i < lines.size(); i++)
+        {
+            String line = lines.get(i);
+            String trimmed = line.trim();
+
+            if (trimmed.isEmpty() || trimmed.startsWith("#"))
+            {
+                continue;
+            }
+
+            if (Character.isWhitespace(line.charAt(0))
+                && !statements.isEmpty())
+            {
+                int last = statements.size() - 1;
+                statements.set(last, statements.get(last) + " " + trimmed);
+            }
+
+            else
+            {
+                statements.add(trimmed);
+                lineNumbers.add(i + 1);
+            }
+        }
+
+        int i = 0;
+
+        while (i < statements.size())
+        {
+            int end = i + 1;
+
+            while (end < statements.size()
+                   && !statements.get(end).startsWith("rule "))
+            {
+                end++;
+            }
+            rules.add(language.parseRule(statements.subList(i, end),
+                                         lineNumbers.subList(i, end)));
+            i = end;
+        }
+        return rules;
+    }
+
+    /**
+     * Compiles the statements of one rule, the first of which names it.
+     *
+     * @param statements    The statements of the rule
+     * @param lineNumbers   The line each statement starts on
+     * @return rule         The compiled rule
+     * @throws IllegalArgumentException if the rule is not valid
+     */
+    private DeclaredRule parseRule(List<String> statements,
+                                   List<Integer> lineNumbers)
+    {
+        String name = null;
+        String message = null;
+        List<DeclaredRule.Clause> clauses = null;
+        boolean reportNext = false;
+
+        for (int i = 0; i < statements.size(); i++)
+        {
+            lineNumber = lineNumbers.get(i);
+            tokens = tokenize(statements.get(i));
+            position = 0;
+
+            String directive = next();
+
+            if (directive.equals("rule") && i == 0)
+            {
+                name = expectName();
+            }
+
+            else if (i == 0)
+            {
+                throw error("expected \"rule\", found \"" + directive + "\"");
+            }
+
+            else if (directive.equals("message") && message == null)
+            {
+                String text = next();
+
+                if (!text.startsWith("\""))
+                {
+                    throw error("expected a quoted message");
+                }
+                message = text.substring(1);
+            }
+
+            else if (directive.equals("when") && clauses == null)
+            {
+                Condition condition = parseCondition(DeclaredRule.CURRENT);
+
+                try
+                {
+                    clauses = condition.clauses(false);
+                }
+
+                catch (IllegalArgumentException ex)
+                {
+                    throw error(ex.getMessage());
+                }
+
+                if (clauses.isEmpty())
+                {
+                    throw error("the condition can never be met");
+                }
+            }
+
+            else if (directive.equals("report") && !reportNext)
+            {
+                expect("next");
+                reportNext = true;
+            }
+
+            else
+            {
+                throw error("unexpected \"" + directive + "\"");
+            }
+
+            if (position < tokens.size())
+            {
+                throw error("unexpected \"" + tokens.get(position) + "\"");
+            }
+        }
+
+        lineNumber = lineNumbers.get(0);
+
+        if (message == null || clauses == null)
+        {
+            throw error("rule " + name + " needs a message and a condition");
+        }
+        return new DeclaredRule(name, message, String.join("\n", statements),
+                                reportNext,
+                                clauses.toArray(new DeclaredRule.Clause[0]));
+    }
+
+    /**
+     * Parses conditions joined with "or".
+     *
+     * @param side      The line the tests are of, CURRENT or NEXT
+     * @return condition    The condition parsed
+     */
+    private Condition parseCondition(int side)
+    {
+        Condition condition = parseAnd(side);
+
+        while (accept("or"))
+        {
+            Condition left = condition;
+            Condition right = parseAnd(side);
+            condition = negated -> negated
+                                   ? both(left.clauses(true),
+                                          right.clauses(true))
+                                   : either(left.clauses(false),
+                                            right.clauses(false));
+        }
+        return condition;
+    }
+
+    /**
+     * Parses conditions joined with "and".
+     *
+     * @param side      The line the tests are of, CURRENT or NEXT
+     * @return condition    The condition parsed
+     */
+    private Condition parseAnd(int side)
+    {
+        Condition condition = parseUnary(side);
+
+        while (accept("and"))
+        {
+            Condition left = condition;
+            Condition right = parseUnary(side);
+            condition = negated -> negated
+                                   ? either(left.clauses(true),
+                                            right.clauses(true))
+                                   : both(left.clauses(false),
+                                          right.clauses(false));
+        }
+        return condition;
+    }
+
+    /**
+     * Parses a single test, a negated condition, a test of the next line or
+     * a parenthesized condition.
+     *
+     * @param side      The line the tests are of, CURRENT or NEXT
+     * @return condition    The condition parsed
+     */
+    private Condition parseUnary(int side)
+    {
+        if (accept("not"))
+        {
+            Condition condition = parseUnary(side);
+            return negated -> condition.clauses(!negated);
+        }
+
+        if (accept("next"))
+        {
+            if (side == DeclaredRule.NEXT)
+            {
+                throw error("only the line after the current line can be "
+                            + "tested");
+            }
+            return parseUnary(DeclaredRule.NEXT);
+        }
+
+        if (accept("("))
+        {
+            Condition condition = parseCondition(side);
+            expect(")");
+            return condition;
+        }
+        return parseTest(side);
+    }
+
+    /**
+     * Parses a single test of a line.
+     *
+     * @param side      The line the test is of, CURRENT or NEXT
+     * @return condition    The test parsed
+     */
+    private Condition parseTest(int side)
+    {
+        String word = next();
+
+        if (word.equals("keyword"))
+        {
+            int mask = parseKeywords();
+            return negated -> only(new DeclaredRule.Clause().keywords(
+                                       side, negated
+                                             ? DeclaredRule.ANY_KEYWORD & ~mask
+                                             : mask));
+        }
+
+        if (word.equals("has") || word.equals("ends-with"))
+        {
+            word += " " + next();
+        }
+
+        for (int i = 0; i < FACTS.length; i++)
+        {
+            if (FACTS[i].equals(word))
+            {
+                int fact = FACT_BITS[i];
+                return negated -> only(new DeclaredRule.Clause().fact(
+                                           side, fact, !negated));
+            }
+        }
+
+        for (int kind = 0; kind < COUNTS.length; kind++)
+        {
+            if (COUNTS[kind].equals(word))
+            {
+                return parseComparison(side, kind);
+            }
+        }
+        throw error("unknown test \"" + word + "\"");
+    }
+
+    /**
+     * Parses the keywords after "keyword": one keyword, a parenthesized list
+     * of them, or none for any keyword.
+     *
+     * @return mask     The keywords, as bits by ordinal
+     */
+    private int parseKeywords()
+    {
+        if (accept("("))
+        {
+            int mask = keywordBit(next());
+
+            while (accept(","))
+            {
+                mask |= keywordBit(next());
+            }
+            expect(")");
+            return mask;
+        }
+
+        if (position < tokens.size() && isKeyword(tokens.get(position)))
+        {
+            return keywordBit(next());
+        }
+        return DeclaredRule.ANY_KEYWORD
+               & ~(1 << LineContext.Keyword.NONE.ordinal());
+    }
+
+    /**
+     * Parses the comparison after the name of a count.
+     *
+     * @param side      The line the count is of, CURRENT or NEXT
+     * @param kind      The kind of count
+     * @return condition    The comparison parsed
+     */
+    private Condition parseComparison(int side, int kind)
+    {
+        String comparison = next();
+        int operator = indexOf(COMPARISONS, comparison);
+
+        if (operator < 0)
+        {
+            throw error("expected a comparison, found \"" + comparison + "\"");
+        }
+
+        String text = next();
+        int number;
+
+        try
+        {
+            number = Integer.parseInt(text);
+        }
+
+        catch (NumberFormatException ex)
+        {
+            throw error("expected a number, found \"" + text + "\"");
+        }
+
+        if (number < 0 || number > MAX_NUMBER)
+        {
+            throw error("the number " + text + " is out of range");
+        }
+        return negated -> ranges(side, kind,
+                                 negated ? operator ^ 1 : operator, number);
+    }
+
+    /**
+     * Returns the clauses that hold a count to a comparison with a number.
+     * The comparisons are listed in pairs of opposites, so the opposite of a
+     * comparison is the one at its index with the lowest bit flipped.
+     *
+     * @param side      The line the count is of, CURRENT or NEXT
+     * @param kind      The kind of count
+     * @param operator  The index of the comparison
+     * @param number    The number compared with
+     * @return clauses  The clauses of the comparison
+     */
+    private static List<DeclaredRule.Clause> ranges(int side, int kind,
+                                                    int operator, int number)
+    {
+        int max = Integer.MAX_VALUE;
+
+        switch (COMPARISONS[operator])
+        {
+            case ">":
+                return range(side, kind, number + 1, max);
+
+            case ">=":
+                return range(side, kind, number, max);
+
+            case "<":
+                return range(side, kind, 0, number - 1);
+
+            case "<=":
+                return range(side, kind, 0, number);
+
+            case "==":
+                return range(side, kind, number, number);
+
+            default:
+                return either(range(side, kind, 0, number - 1),
+                              range(side, kind, number + 1, max));
+        }
+    }
+
+    /**
+     * Returns the clause that holds a count to a range, or no clause if the
+     * range is empty.
+     *
+     * @param side      The line the count is of, CURRENT or NEXT
+     * @param kind      The kind of count
+     * @param minimum   The smallest count allowed
+     * @param maximum   The largest count allowed
+     * @return clauses  The clause, if any
+     */
+    private static List<DeclaredRule.Clause> range(int side, int kind,
+                                                   int minimum, int maximum)
+    {
+        return only(new DeclaredRule.Clause().range(side, kind, minimum,
+                                                    maximum));
+    }
+
+    /**
+     * Returns a list of the given clause, or an empty list if no line can
+     * match it.
+     *
+     * @param clause    The clause
+     * @return clauses  The list of the clause
+     */
+    private static List<DeclaredRule.Clause> only(DeclaredRule.Clause clause)
+    {
+        ArrayList<DeclaredRule.Clause> clauses = new ArrayList<>(1);
+
+        if (!clause.isEmpty())
+        {
+            clauses.add(clause);
+        }
+        return clauses;
+    }
+
+    /**
+     * Returns the clauses of a line that meets either of two conditions.
+     *
+     * @param left      The clauses of one condition
+     * @param right     The clauses of the other condition
+     * @return clauses  The clauses of both lists
+     */
+    private static List<DeclaredRule.Clause> either(
+                                            List<DeclaredRule.Clause> left,
+                                            List<DeclaredRule.Clause> right)
+    {
+        ArrayList<DeclaredRule.Clause> clauses = new ArrayList<>(left);
+        clauses.addAll(right);
+        return checkSize(clauses);
+    }
+
+    /**
+     * Returns the clauses of a line that meets both of two conditions, one
+     * for each pair of their clauses that a line can match at once.
+     *
+     * @param left      The clauses of one condition
+     * @param right     The clauses of the other condition
+     * @return clauses  The clauses of the pairs
+     */
+    private static List<DeclaredRule.Clause> both(
+                                            List<DeclaredRule.Clause> left,
+                                            List<DeclaredRule.Clause> right)
+    {
+        ArrayList<DeclaredRule.Clause> clauses = new ArrayList<>();
+
+        for (DeclaredRule.Clause first: left)
+        {
+            for (DeclaredRule.Clause second: right)
+            {
+                DeclaredRule.Clause clause = first.and(second);
+
+                if (!clause.isEmpty())
+                {
+                    clauses.add(clause);
+                }
+            }
+        }
+        return checkSize(clauses);
+    }
+
+    /**
+     * Throws if a condition has too many clauses to be checked quickly.
+     *
+     * @param clauses   The clauses of the condition
+     * @return clauses  The same clauses
+     * @throws IllegalArgumentException if there are too many clauses
+     */
+    private static List<DeclaredRule.Clause> checkSize(
+                                            List<DeclaredRule.Clause> clauses)
+    {
+        if (clauses.size() > MAX_CLAUSES)
+        {
+            throw new IllegalArgumentException(
+                "the condition has more than " + MAX_CLAUSES
+                + " ways to be met; write it more simply");
+        }
+        return clauses;
+    }
+
+    /**
+     * Returns the bit of a statement keyword.
+     *
+     * @param name      The keyword
+     * @return bit      The bit of the keyword by its ordinal
+     * @throws IllegalArgumentException if the name is not a keyword
+     */
+    private int keywordBit(String name)
+    {
+        if (!isKeyword(name))
+        {
+            throw error("unknown keyword \"" + name + "\"");
+        }
+        return 1 << LineContext.Keyword.valueOf(
+                        name.toUpperCase(Locale.ROOT)).ordinal();
+    }
+
+    /**
+     * Returns true if a word is one of the statement keywords a line can
+     * start with.
+     *
+     * @param word      The word
+     * @return true     if the word is a keyword
+     *         false    otherwise
+     */
+    private static boolean isKeyword(String word)
+    {
+        for (LineContext.Keyword keyword: LineContext.Keyword.values())
+        {
+            if (keyword != LineContext.Keyword.NONE
+                && keyword.name().toLowerCase(Locale.ROOT).equals(word))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the name of a rule.
+     *
+     * @return name     The name
+     * @throws IllegalArgumentException if the next token is not a name
+     */
+    private String expectName()
+    {
+        String name = next();
+
+        if (!Character.isJavaIdentifierStart(name.charAt(0))
+            || !name.chars().allMatch(Character::isJavaIdentifierPart))
+        {
+            throw error("\"" + name + "\" is not a rule name");
+        }
+        return name;
+    }
+
+    /**
+     * Reads the next token, which must be the given one.
+     *
+     * @param token     The token expected
+     * @throws IllegalArgumentException if the next token is another one
+     */
+    private void expect(String token)
+    {
+        String found = next();
+
+        if (!found.equals(token))
+        {
+            throw error("expected \"" + token + "\", found \"" + found + "\"");
+        }
+    }
+
+    /**
+     * Reads the next token if it is the given one.
+     *
+     * @param token     The token to look for
+     * @return true     if the token was read
+     *         false    otherwise
+     */
+    private boolean accept(String token)
+    {
+        if (position < tokens.size() && tokens.get(position).equals(token))
+        {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reads the next token.
+     *
+     * @return token    The token
+     * @throws IllegalArgumentException if there are no more tokens
+     */
+    private String next()
+    {
+        if (position == tokens.size())
+        {
+            throw error("unexpected end of line");
+        }
+        return tokens.get(position++);
+    }
+
+    /**
+     * Splits a statement into words, numbers, symbols and quoted messages. A
+     * message is kept with its opening quote only, so it cannot be mistaken
+     * for a word.
+     *
+     * @param statement The statement
+     * @return tokens   The tokens of the statement
+     * @throws IllegalArgumentException if the statement holds a character
+     *                                  that is not part of the language
+     */
+    private List<String> tokenize(String statement)
+    {
+        ArrayList<String> words = new ArrayList<>();
+        int i = 0;
+
+        while (i < statement.length())
+        {
+            char letter = statement.charAt(i);
+            int start = i;
+
+            if (letter == '#')
+            {
+                break;
+            }
+
+            if (Character.isWhitespace(letter))
+            {
+                i++;
+            }
+
+            else if (letter == '"')
+            {
+                StringBuilder message = new StringBuilder("\"");
+                i++;
+
+                while (i < statement.length() && statement.charAt(i) != '"')
+                {
+                    if (statement.charAt(i) == '\\'
+                        && i + 1 < statement.length())
+                    {
+                        i++;
+                    }
+                    message.append(statement.charAt(i++));
+                }
+
+                if (i == statement.length())
+                {
+                    throw error("the message has no closing quote");
+                }
+                i++;
+                words.add(message.toString());
+            }
+
+            else if (Character.isLetterOrDigit(letter))
+            {
+                while (i < statement.length()
+                       && (Character.isLetterOrDigit(statement.charAt(i))
+                           || statement.charAt(i) == '-'
+                           || statement.charAt(i) == '_'))
+                {
+                    i++;
+                }
+                words.add(statement.substring(start, i));
+            }
+
+            else if ("<>=!".indexOf(letter) >= 0)
+            {
+                i++;
+
+                if (i < statement.length() && statement.charAt(i) == '=')
+                {
+                    i++;
+                }
+                words.add(statement.substring(start, i));
+            }
+
+            else if ("(){},".indexOf(letter) >= 0)
+            {
+                words.add(String.valueOf(letter));
+                i++;
+            }
+
+            else
+            {
+                throw error("unexpected character '" + letter + "'");
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Returns the position of a string in an array.
+     *
+     * @param array     The array
+     * @param value     The string to look for
+     * @return index    The index of the string, or -1 if it is not there
+     */
+    private static int indexOf(String[] array, String value)
+    {
+        for (int i = 0; i < array.length; i++)
+        {
+            if (array[i].equals(value))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the error for the statement being read, naming the file and
+     * the line it starts on.
+     *
+     * @param message   What is wrong
+     * @return error    The exception to throw
+     */
+    private IllegalArgumentException error(String message)
+    {
+        return new IllegalArgumentException(fileName + ":" + lineNumber + ": "
+                                            + message);
+    }
+}
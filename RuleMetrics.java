@@ -0,0 +1,181 @@
+package stylechecker;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * A RuleMetrics keeps, for each rule of a single check, the time the rule
+ * spent checking lines, the bytes it allocated while doing so and the number
+ * of style errors it found. The rules are known by their place in the array
+ * of rules the program is checked against.
+ *
+ * The rules are only measured on a sample of the lines they check, so the
+ * time and the bytes are kept as measured, together with the number of lines
+ * checked and sampled, and scaled up to every line when they are read.
+ *
+ * A RuleMetrics is only ever used by one thread at a time. A program checked
+ * in chunks keeps one per chunk and adds them together afterwards, the same
+ * way it merges the errors of the chunks.
+ */
+final class RuleMetrics
+{
+
+    private static final com.sun.management.ThreadMXBean ALLOCATION =
+                                                             allocationBean();
+    private final long[] nanos;
+    private final long[] allocatedBytes;
+    private final int[] violations;
+    private long lineCount = 0;
+    private long sampledCount = 0;
+
+    /**
+     * Creates empty metrics for the given number of rules.
+     *
+     * @param ruleCount     The number of rules the program is checked against
+     */
+    RuleMetrics(int ruleCount)
+    {
+        nanos = new long[ruleCount];
+        allocatedBytes = new long[ruleCount];
+        violations = new int[ruleCount];
+    }
+
+    /**
+     * Returns the number of bytes the current thread has allocated since it
+     * started, or 0 if the JVM cannot measure it.
+     *
+     * @return bytes    The bytes allocated by the current thread
+     */
+    static long allocatedBytes()
+    {
+        return ALLOCATION == null ? 0 : ALLOCATION.getThreadAllocatedBytes(
+                                            Thread.currentThread().getId());
+    }
+
+    /**
+     * Counts a line checked by every rule.
+     *
+     * @param sampled   true if the cost of the rules is measured on the line
+     */
+    void addLine(boolean sampled)
+    {
+        lineCount++;
+        sampledCount += sampled ? 1 : 0;
+    }
+
+    /**
+     * Adds the cost of a rule checking one sampled line.
+     *
+     * @param rule      The index of the rule
+     * @param time      The nanoseconds the rule took
+     * @param bytes     The bytes the rule allocated
+     */
+    void addCheck(int rule, long time, long bytes)
+    {
+        nanos[rule] += time;
+        allocatedBytes[rule] += bytes;
+    }
+
+    /**
+     * Adds to the number of style errors a rule found.
+     *
+     * @param rule      The index of the rule
+     * @param count     The number of errors to add
+     */
+    void addViolations(int rule, int count)
+    {
+        violations[rule] += count;
+    }
+
+    /**
+     * Adds the metrics of another part of the same check to these.
+     *
+     * @param other     The metrics to add, for the same rules in the same
+     *                  order
+     */
+    void addAll(RuleMetrics other)
+    {
+        for (int i = 0; i < nanos.length; i++)
+        {
+            nanos[i] += other.nanos[i];
+            allocatedBytes[i] += other.allocatedBytes[i];
+            violations[i] += other.violations[i];
+        }
+        lineCount += other.lineCount;
+        sampledCount += other.sampledCount;
+    }
+
+    /**
+     * Returns the time a rule spent checking lines, scaled up from the lines
+     * sampled to every line checked.
+     *
+     * @param rule      The index of the rule
+     * @return nanos    The time in nanoseconds
+     */
+    long getNanos(int rule)
+    {
+        return scale(nanos[rule]);
+    }
+
+    /**
+     * Returns the bytes a rule allocated while checking lines, scaled up
+     * from the lines sampled to every line checked.
+     *
+     * @param rule      The index of the rule
+     * @return bytes    The bytes allocated
+     */
+    long getAllocatedBytes(int rule)
+    {
+        return scale(allocatedBytes[rule]);
+    }
+
+    /**
+     * Returns the number of style errors a rule found.
+     *
+     * @param rule      The index of the rule
+     * @return count    The number of errors
+     */
+    int getViolations(int rule)
+    {
+        return violations[rule];
+    }
+
+    /**
+     * Scales a cost measured on the sampled lines up to every line checked.
+     *
+     * @param measured  The cost measured
+     * @return cost     The cost of every line
+     */
+    private long scale(long measured)
+    {
+        return sampledCount == 0 ? measured : Math.round((double) measured
+                                                          * lineCount
+                                                          / sampledCount);
+    }
+
+    /**
+     * Returns the thread bean that can measure the bytes a thread allocates,
+     * turning the measurement on if it is off.
+     *
+     * @return bean     The bean, or null if the JVM cannot measure it
+     */
+    private static com.sun.management.ThreadMXBean allocationBean()
+    {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        if (!(threads instanceof com.sun.management.ThreadMXBean))
+        {
+            return null;
+        }
+
+        com.sun.management.ThreadMXBean bean =
+                                    (com.sun.management.ThreadMXBean) threads;
+
+        if (!bean.isThreadAllocatedMemorySupported())
+        {
+            return null;
+        }
+        bean.setThreadAllocatedMemoryEnabled(true);
+        return bean;
+    }
+}
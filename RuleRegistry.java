@@ -0,0 +1,300 @@
+package stylechecker;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.function.Supplier;
+
+/**
+ * The RuleRegistry holds the rules a program can be checked against. The
+ * built in rules are always there, in the order they are listed in the
+ * report, so the checker works however its classes were put on the class
+ * path. Any other rule is found through a ServiceLoader, by listing its class
+ * in a META-INF/services/stylechecker.Rule file, and follows them in the
+ * order it is found. Each rule is named by the simple name of its class. The
+ * rules declared in the configuration's rules file come last, each named by
+ * its declaration.
+ *
+ * Finding a rule does not create it. A registry can be narrowed to only some
+ * of the rules, and a rule that is left out is never created, so it never
+ * sets up any state and never checks a line. Every rule that is created is
+ * given the registry's CheckerConfig before it checks anything.
+ */
+final class RuleRegistry
+{
+
+    /**
+     * An Entry is a rule of the registry: its name, and the way to create a
+     * new instance of it.
+     */
+    private static final class Entry
+    {
+        private final String name;
+        private final Supplier<Rule> factory;
+
+        /**
+         * Creates the entry of a rule.
+         *
+         * @param name      The name of the rule
+         * @param factory   Creates a new instance of the rule
+         */
+        Entry(String name, Supplier<Rule> factory)
+        {
+            this.name = name;
+            this.factory = factory;
+        }
+    }
+
+    private static final RuleRegistry ALL = load(
+        RuleRegistry.class.getClassLoader());
+    private final List<Entry> entries;
+    private final CheckerConfig config;
+
+    /**
+     * Creates a registry of the given rules.
+     *
+     * @param entries       The entries of the rules, in report order
+     * @param config        The configuration given to each rule created
+     */
+    private RuleRegistry(List<Entry> entries, CheckerConfig config)
+    {
+        this.entries = entries;
+        this.config = config;
+    }
+
+    /**
+     * Returns the registry of every rule that was found, with the default
+     * configuration.
+     *
+     * @return registry     The registry of every rule
+     */
+    static RuleRegistry all()
+    {
+        return ALL;
+    }
+
+    /**
+     * Returns the registry of the built in rules and every rule the given
+     * class loader finds, with the default configuration.
+     *
+     * @param loader        The class loader the service files are read from
+     * @return registry     The registry of the rules found
+     * @throws IllegalStateException if two rules have the same name
+     */
+    static RuleRegistry load(ClassLoader loader)
+    {
+        return new RuleRegistry(loadRules(loader), CheckerConfig.defaults());
+    }
+
+    /**
+     * Returns the registry of the rules a configuration enables and does not
+     * disable, together with the rules its rules file declares, which gives
+     * that configuration to each rule it creates.
+     *
+     * @param config        The configuration
+     * @return registry     The registry of the rules configured
+     * @throws IOException if the rules file cannot be read
+     * @throws IllegalArgumentException if the configuration names a rule
+     *                                  that does not exist, or the rules
+     *                                  file is not valid
+     */
+    static RuleRegistry configured(CheckerConfig config) throws IOException
+    {
+        RuleRegistry registry = ALL;
+
+        if (config.getRulesFile() != null)
+        {
+            ArrayList<Entry> entries = new ArrayList<>(ALL.entries);
+            List<String> names = new ArrayList<>(ALL.getNames());
+
+            for (DeclaredRule rule: RuleLanguage.load(
+                                        new File(config.getRulesFile())))
+            {
+                if (names.contains(rule.getName()))
+                {
+                    throw new IllegalArgumentException(
+                        config.getRulesFile() + ": there is already a rule "
+                        + "named " + rule.getName());
+                }
+                names.add(rule.getName());
+                entries.add(new Entry(rule.getName(), rule::copy));
+            }
+            registry = new RuleRegistry(entries, config);
+        }
+
+        if (!config.getEnabledRules().isEmpty())
+        {
+            registry = registry.enable(config.getEnabledRules());
+        }
+        registry = registry.disable(config.getDisabledRules());
+        return new RuleRegistry(registry.entries, config);
+    }
+
+    /**
+     * Returns a registry of only the rules with the given names.
+     *
+     * @param names         The names of the rules to keep
+     * @return registry     The registry of those rules
+     * @throws IllegalArgumentException if a name is not a rule's name
+     */
+    RuleRegistry enable(Collection<String> names)
+    {
+        checkNames(names);
+        return filter(names, true);
+    }
+
+    /**
+     * Returns a registry of every rule but the ones with the given names.
+     *
+     * @param names         The names of the rules to leave out
+     * @return registry     The registry of the other rules
+     * @throws IllegalArgumentException if a name is not a rule's name
+     */
+    RuleRegistry disable(Collection<String> names)
+    {
+        checkNames(names);
+        return filter(names, false);
+    }
+
+    /**
+     * Returns the configuration given to each rule this registry creates.
+     *
+     * @return config       The configuration of the rules
+     */
+    CheckerConfig getConfig()
+    {
+        return config;
+    }
+
+    /**
+     * Returns the names of the rules in this registry, in report order.
+     *
+     * @return names        The names of the rules
+     */
+    List<String> getNames()
+    {
+        ArrayList<String> names = new ArrayList<>(entries.size());
+
+        for (Entry entry: entries)
+        {
+            names.add(entry.name);
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * Creates a new instance of every rule in this registry, in the order
+     * their errors are listed in the report, and configures each of them.
+     *
+     * @return rules        The rules to check a program against
+     */
+    Rule[] createRules()
+    {
+        Rule[] rules = new Rule[entries.size()];
+
+        for (int i = 0; i < rules.length; i++)
+        {
+            rules[i] = entries.get(i).factory.get();
+            rules[i].configure(config);
+        }
+        return rules;
+    }
+
+    /**
+     * Returns a registry of the rules whose names are, or are not, among the
+     * given names.
+     *
+     * @param names         The names to look for
+     * @param keep          true to keep the rules named, false to keep the
+     *                      rules not named
+     * @return registry     The registry of the rules kept
+     */
+    private RuleRegistry filter(Collection<String> names, boolean keep)
+    {
+        ArrayList<Entry> kept = new ArrayList<>();
+
+        for (Entry entry: entries)
+        {
+            if (names.contains(entry.name) == keep)
+            {
+                kept.add(entry);
+            }
+        }
+        return new RuleRegistry(kept, config);
+    }
+
+    /**
+     * Throws if any of the given names is not the name of a rule in this
+     * registry.
+     *
+     * @param names         The names to check
+     * @throws IllegalArgumentException if a name is not a rule's name
+     */
+    private void checkNames(Collection<String> names)
+    {
+        List<String> known = getNames();
+
+        for (String name: names)
+        {
+            if (!known.contains(name))
+            {
+                throw new IllegalArgumentException("unknown rule: " + name
+                                                   + ", the rules are "
+                                                   + known);
+            }
+        }
+    }
+
+    /**
+     * Lists the built in rules, then finds the rules listed in any
+     * META-INF/services/stylechecker.Rule file that are not built in, each
+     * named by the simple name of its class, without creating any of them.
+     *
+     * @param loader        The class loader the service files are read from
+     * @return entries      The entries of the rules, in report order
+     * @throws IllegalStateException if two rules have the same name
+     */
+    private static List<Entry> loadRules(ClassLoader loader)
+    {
+        ArrayList<Entry> entries = new ArrayList<>();
+        entries.add(new Entry("IndentRule", IndentRule::new));
+        entries.add(new Entry("LongLineRule", LongLineRule::new));
+        entries.add(new Entry("OptionalBraceRule", OptionalBraceRule::new));
+        entries.add(new Entry("MultiCodeSameLineRule",
+                              MultiCodeSameLineRule::new));
+        entries.add(new Entry("OperatorSpaceRule", OperatorSpaceRule::new));
+        entries.add(new Entry("BraceAlignmentRule", BraceAlignmentRule::new));
+        entries.add(new Entry("NoBlankLineRule", NoBlankLineRule::new));
+        List<String> builtIn = new ArrayList<>();
+
+        for (Entry entry: entries)
+        {
+            builtIn.add(RuleRegistry.class.getPackageName() + "."
+                        + entry.name);
+        }
+
+        ServiceLoader.load(Rule.class, loader)
+                     .stream()
+                     .filter(provider -> !builtIn.contains(
+                                             provider.type().getName()))
+                     .forEach(provider -> entries.add(new Entry(
+                                  provider.type().getSimpleName(), provider)));
+
+        for (int i = 0; i < entries.size(); i++)
+        {
+            for (int j = 0; j < i; j++)
+            {
+                if (entries.get(i).name.equals(entries.get(j).name))
+                {
+                    throw new IllegalStateException("two rules are named "
+                                                    + entries.get(i).name);
+                }
+            }
+        }
+        return entries;
+    }
+}
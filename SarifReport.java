@@ -0,0 +1,87 @@
+package stylechecker;
+
+import java.io.File;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * A SarifReport writes the style errors as a SARIF 2.1.0 log, the format CI
+ * systems read static analysis results in. Every rule is described once in
+ * the tool's rule list and each error is a result that points at its line.
+ * The log is written as the errors arrive, so none of them are held back.
+ */
+final class SarifReport implements ReportSink
+{
+
+    private static final String SCHEMA =
+                             "https://json.schemastore.org/sarif-2.1.0.json";
+    private static final String TOOL_NAME = "style-checker";
+    private final ReportWriter out;
+    private final IdentityHashMap<Rule, Integer> ruleIndexes =
+                                                       new IdentityHashMap<>();
+    private String uri = "-";
+    private boolean firstResult = true;
+
+    /**
+     * Creates a SARIF report that writes through the given writer.
+     *
+     * @param out       The writer the report is written to
+     */
+    SarifReport(ReportWriter out)
+    {
+        this.out = out;
+    }
+
+    @Override
+    public void begin(String path, String author, String errorTypes,
+                      Rule[] rules)
+    {
+        uri = path.replace(File.separatorChar, '/');
+        out.append("{\"$schema\":\"").append(SCHEMA)
+           .append("\",\"version\":\"2.1.0\",\"runs\":[{\"tool\":{\"driver\":")
+           .append("{\"name\":\"").append(TOOL_NAME).append("\",\"rules\":[");
+
+        for (int i = 0; i < rules.length; i++)
+        {
+            ruleIndexes.put(rules[i], i);
+            out.append(i == 0 ? "" : ",").append("{\"id\":\"")
+               .appendJson(rules[i].getName())
+               .append("\",\"shortDescription\":{\"text\":\"")
+               .appendJson(rules[i].getMessage()).append("\"}}");
+        }
+        out.append("]}},\"results\":[");
+    }
+
+    @Override
+    public void addViolation(Rule rule, int lineNumber)
+    {
+        out.append(firstResult ? "" : ",").append("{\"ruleId\":\"")
+           .appendJson(rule.getName())
+           .append("\",\"ruleIndex\":").append(ruleIndexes.get(rule))
+           .append(",\"level\":\"warning\",\"message\":{\"text\":\"")
+           .appendJson(rule.getMessage())
+           .append("\"},\"locations\":[{\"physicalLocation\":")
+           .append("{\"artifactLocation\":{\"uri\":\"").appendJson(uri)
+           .append("\"},\"region\":{\"startLine\":").append(lineNumber)
+           .append("}}}]}");
+        firstResult = false;
+    }
+
+    @Override
+    public void end(int errorCount)
+    {
+        out.append("]}]}").newLine();
+    }
+
+    @Override
+    public void addCorrection(String title, String underline,
+                              List<String> lines)
+    {
+    }
+
+    @Override
+    public void close()
+    {
+        out.close();
+    }
+}
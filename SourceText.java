@@ -0,0 +1,383 @@
+package stylechecker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A SourceText holds the whole text of a program in a single char array
+ * together with the offsets of each line. Lines are handed to the rules as
+ * offsets into the text, so no String is made for a line unless the line is
+ * printed or fixed.
+ */
+final class SourceText implements CharSequence
+{
+
+    private static final long MAP_THRESHOLD = 1 << 20;
+    private static final int AVERAGE_LINE_LENGTH = 32;
+    private static final int DIGEST_CHUNK = 1 << 13;
+    private final char[] text;
+    private final int length;
+    private final int[] lineStarts;
+    private final int[] lineEnds;
+    private final int lineCount;
+
+    /**
+     * Creates a SourceText over the given characters and splits it into lines.
+     *
+     * @param text      The characters of the program
+     * @param length    The number of characters of the array that are used
+     */
+    SourceText(char[] text, int length)
+    {
+        this.text = text;
+        this.length = length;
+
+        int capacity = length / AVERAGE_LINE_LENGTH + 16;
+        int[] starts = new int[capacity];
+        int[] ends = new int[capacity];
+        int count = 0;
+        int lastLine = -1;
+        int start = 0;
+        int i = 0;
+
+        while (i <= length)
+        {
+            boolean atEnd = i == length;
+            char letter = atEnd ? '\n' : text[i];
+
+            // A next line character is a separator but not whitespace
+            if (!atEnd && !Character.isWhitespace(letter)
+                && !isLineSeparator(letter))
+            {
+                lastLine = count;
+            }
+
+            if (atEnd || isLineSeparator(letter))
+            {
+                if (count == starts.length)
+                {
+                    starts = Arrays.copyOf(starts, count * 2);
+                    ends = Arrays.copyOf(ends, count * 2);
+                }
+                starts[count] = start;
+                ends[count] = i;
+                count++;
+
+                if (letter == '\r' && i + 1 < length && text[i + 1] == '\n')
+                {
+                    i++;
+                }
+                start = i + 1;
+            }
+            i++;
+        }
+
+        // Like Scanner.hasNext(), lines after the last non-whitespace
+        // character of the program are not part of it
+        lineCount = lastLine + 1;
+        lineStarts = starts;
+        lineEnds = ends;
+    }
+
+    /**
+     * Reads the given file through a FileChannel. Large files are memory
+     * mapped instead of being copied onto the heap before they are decoded.
+     *
+     * @param file     The file containing the program
+     * @return source  The text of the program
+     * @throws IOException if the file cannot be read
+     */
+    static SourceText read(File file) throws IOException
+    {
+        long start = CheckerMetrics.startPhase();
+
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                                                    StandardOpenOption.READ))
+        {
+            long size = channel.size();
+
+            if (size > Integer.MAX_VALUE)
+            {
+                throw new IOException(file + " is too large to check");
+            }
+
+            ByteBuffer bytes;
+
+            if (size > MAP_THRESHOLD)
+            {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+
+            else
+            {
+                bytes = ByteBuffer.allocate((int) size);
+
+                while (bytes.hasRemaining() && channel.read(bytes) >= 0)
+                {
+                    // keep reading until the buffer is full
+                }
+                bytes.flip();
+            }
+            return decode(bytes);
+        }
+
+        finally
+        {
+            CheckerMetrics.endPhase(CheckerMetrics.Phase.READ, start);
+        }
+    }
+
+    /**
+     * Decodes the bytes of a program with the default charset, the same way
+     * that Scanner reads a file.
+     *
+     * @param bytes    The bytes of the program
+     * @return source  The text of the program
+     * @throws IOException if the bytes cannot be decoded
+     */
+    static SourceText decode(ByteBuffer bytes) throws IOException
+    {
+        CharsetDecoder decoder = Charset.defaultCharset().newDecoder()
+                                 .onMalformedInput(CodingErrorAction.REPLACE)
+                                 .onUnmappableCharacter(
+                                                    CodingErrorAction.REPLACE);
+        CharBuffer chars = decoder.decode(bytes);
+        return new SourceText(chars.array(), chars.limit());
+    }
+
+    /**
+     * Returns the number of lines in the program.
+     *
+     * @return lineCount    The number of lines
+     */
+    int lineCount()
+    {
+        return lineCount;
+    }
+
+    /**
+     * Returns the offset of the first character of the given line.
+     *
+     * @param index     The index of the line
+     * @return start    The offset the line starts at
+     */
+    int lineStart(int index)
+    {
+        checkLine(index);
+        return lineStarts[index];
+    }
+
+    /**
+     * Returns the offset just past the last character of the given line, not
+     * counting the line separator.
+     *
+     * @param index     The index of the line
+     * @return end      The offset the line ends at
+     */
+    int lineEnd(int index)
+    {
+        checkLine(index);
+        return lineEnds[index];
+    }
+
+    /**
+     * Returns the given line as a String. This copies the line, so it is only
+     * used for lines that are printed or fixed.
+     *
+     * @param index     The index of the line
+     * @return line     The text of the line
+     */
+    String line(int index)
+    {
+        checkLine(index);
+        return new String(text, lineStarts[index],
+                          lineEnds[index] - lineStarts[index]);
+    }
+
+    /**
+     * Copies every line of the program into a list that can be edited.
+     *
+     * @return lineList     An ArrayList of the lines of the program
+     */
+    ArrayList<String> toLineList()
+    {
+        ArrayList<String> lineList = new ArrayList<>(lineCount);
+
+        for (int i = 0; i < lineCount; i++)
+        {
+            lineList.add(line(i));
+        }
+        return lineList;
+    }
+
+    /**
+     * Returns the lines of the program as a list that only makes the String
+     * of a line when the line is asked for, so a fixer that looks at a few
+     * lines does not copy the whole program. The list cannot be edited.
+     *
+     * @return lineList     A view of the lines of the program
+     */
+    List<String> lineView()
+    {
+        return new AbstractList<String>()
+        {
+            @Override
+            public String get(int index)
+            {
+                return line(index);
+            }
+
+            @Override
+            public int size()
+            {
+                return lineCount;
+            }
+        };
+    }
+
+    /**
+     * Finds the first line of the program that contains the given text.
+     *
+     * @param target    The text to look for
+     * @return index    The index of the line, or -1 if no line contains it
+     */
+    int findLine(String target)
+    {
+        for (int i = 0; i < lineCount; i++)
+        {
+            int last = lineEnds[i] - target.length();
+
+            for (int j = lineStarts[i]; j <= last; j++)
+            {
+                if (regionMatches(j, target))
+                {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Feeds the whole text of the program to the given digest, a chunk at a
+     * time, without making a copy of the text.
+     *
+     * @param digest    The digest to update
+     */
+    void digest(MessageDigest digest)
+    {
+        ByteBuffer bytes = ByteBuffer.allocate(DIGEST_CHUNK * 2);
+
+        for (int start = 0; start < length; start += DIGEST_CHUNK)
+        {
+            int count = Math.min(DIGEST_CHUNK, length - start);
+            bytes.clear();
+            bytes.asCharBuffer().put(text, start, count);
+            bytes.limit(count * 2);
+            digest.update(bytes);
+        }
+    }
+
+    @Override
+    public int length()
+    {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index)
+    {
+        return text[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end)
+    {
+        return CharBuffer.wrap(text, start, end - start);
+    }
+
+    @Override
+    public String toString()
+    {
+        return new String(text, 0, length);
+    }
+
+    /**
+     * Returns true if the text starting at the given offset matches target.
+     *
+     * @param offset    The offset in the program
+     * @param target    The text to compare with
+     * @return true     if the text at the offset matches
+     *         false    otherwise
+     */
+    private boolean regionMatches(int offset, String target)
+    {
+        for (int k = 0; k < target.length(); k++)
+        {
+            if (text[offset + k] != target.charAt(k))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Throws an IndexOutOfBoundsException if there is no such line.
+     *
+     * @param index     The index of the line
+     */
+    private void checkLine(int index)
+    {
+        if (index < 0 || index >= lineCount)
+        {
+            throw new IndexOutOfBoundsException("Line index: " + index);
+        }
+    }
+
+    /**
+     * Returns true if the line holds nothing but whitespace, which is what
+     * ends a program when only such lines follow it.
+     *
+     * @param line      The line to check, without its line separator
+     * @return true     if every character of the line is whitespace
+     *         false    otherwise
+     */
+    static boolean isBlank(String line)
+    {
+        for (int i = 0; i < line.length(); i++)
+        {
+            if (!Character.isWhitespace(line.charAt(i)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the character ends a line, matching the line separators
+     * recognized by Scanner.nextLine().
+     *
+     * @param letter    The character to check
+     * @return true     if the character is a line separator
+     *         false    otherwise
+     */
+    static boolean isLineSeparator(char letter)
+    {
+        return letter == '\n' || letter == '\r' || letter == '\u2028'
+               || letter == '\u2029' || letter == '\u0085';
+    }
+}
@@ -0,0 +1,232 @@
+package stylechecker;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The StreamChecker checks a program as it is read, one line at a time, and
+ * prints each style error as soon as it is found. Only the three lines in the
+ * engine's window are kept, so programs of any size can be checked, including
+ * programs piped in on standard input. Lines are split at the same
+ * separators as SourceText splits them, so the line numbers are those of the
+ * batch modes. The fixers need the whole program, so no corrections are
+ * printed in this mode.
+ */
+final class StreamChecker
+{
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private StreamChecker()
+    {
+    }
+
+    /**
+     * Reads a program line by line, checks each line against every rule and
+     * prints the style errors as they are found, followed by the total.
+     *
+     * Blank lines are held back until a line of code arrives after them,
+     * because blank lines at the end of a file are not part of the program.
+     * A run of blank lines is held as a count of each line in it that is the
+     * same as the one before, so a long run of empty or equally indented
+     * lines takes no more memory than one of them.
+     *
+     * @param reader        The reader the program is read from
+     * @param output        The stream the style errors are printed to
+     * @param registry      The rules the program is checked against
+     * @return errorCount   The number of style errors found
+     * @throws IOException if the program cannot be read
+     */
+    static int check(Reader reader, PrintWriter output,
+                     RuleRegistry registry) throws IOException
+    {
+        long checkStart = CheckerMetrics.startPhase();
+        int[] errorCount = {0};
+        Rule[] rules = registry.createRules();
+        RuleMetrics metrics = CheckerMetrics.isTiming()
+                              ? new RuleMetrics(rules.length) : null;
+        ViolationSink sink = (rule, lineNumber) ->
+        {
+            output.println("Line " + lineNumber + ": " + rule.getMessage());
+            errorCount[0]++;
+
+            if (metrics != null)
+            {
+                countViolation(metrics, rules, rule);
+            }
+        };
+        RuleEngine engine = new RuleEngine(sink, metrics, rules);
+        LineReader lines = new LineReader(reader);
+
+        // The run of blank lines held back, as each different line and the
+        // number of times in a row it comes
+        ArrayList<String> blankLines = new ArrayList<>();
+        int[] blankCounts = new int[1];
+        String line;
+
+        output.println("Style errors found:");
+        output.println("====================");
+
+        while ((line = lines.readLine()) != null)
+        {
+            if (!SourceText.isBlank(line))
+            {
+                for (int i = 0; i < blankLines.size(); i++)
+                {
+                    String blankLine = blankLines.get(i);
+
+                    for (int j = 0; j < blankCounts[i]; j++)
+                    {
+                        engine.push(blankLine, 0, blankLine.length());
+                    }
+                }
+                blankLines.clear();
+                engine.push(line, 0, line.length());
+            }
+
+            else if (!blankLines.isEmpty()
+                     && blankLines.get(blankLines.size() - 1).equals(line))
+            {
+                blankCounts[blankLines.size() - 1]++;
+            }
+
+            else
+            {
+                if (blankLines.size() == blankCounts.length)
+                {
+                    blankCounts = Arrays.copyOf(blankCounts,
+                                                blankCounts.length * 2);
+                }
+                blankCounts[blankLines.size()] = 1;
+                blankLines.add(line);
+            }
+        }
+        engine.finish();
+
+        if (metrics != null)
+        {
+            CheckerMetrics.addCheck("-", engine.getLineCount(),
+                                    lines.getLength(), rules, metrics);
+        }
+        CheckerMetrics.endPhase(CheckerMetrics.Phase.CHECK, checkStart);
+
+        output.println("\nTotal style errors: " + errorCount[0]);
+        output.flush();
+        return errorCount[0];
+    }
+
+    /**
+     * Counts a style error against the rule that found it.
+     *
+     * @param metrics   The metrics of the check
+     * @param rules     The rules the program is checked against
+     * @param rule      The rule that found the error
+     */
+    private static void countViolation(RuleMetrics metrics, Rule[] rules,
+                                       Rule rule)
+    {
+        for (int i = 0; i < rules.length; i++)
+        {
+            if (rules[i] == rule)
+            {
+                metrics.addViolations(i, 1);
+            }
+        }
+    }
+
+    /**
+     * A LineReader splits the characters of a reader into lines at the same
+     * separators as SourceText: a carriage return and line feed together,
+     * or any one of a line feed, a carriage return, a next line, a line
+     * separator or a paragraph separator. The end of the input ends the last
+     * line, even when it is empty.
+     */
+    private static final class LineReader
+    {
+        private final Reader reader;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private final StringBuilder line = new StringBuilder();
+        private int position = 0;
+        private int limit = 0;
+        private long length = 0;
+        private boolean afterReturn = false;
+        private boolean atEnd = false;
+
+        /**
+         * Creates a reader of the lines of the given reader.
+         *
+         * @param reader    The reader the characters are read from
+         */
+        LineReader(Reader reader)
+        {
+            this.reader = reader;
+        }
+
+        /**
+         * Reads the next line, without its separator.
+         *
+         * @return line     The text of the line, or null once the last line
+         *                  has been read
+         * @throws IOException if the reader fails
+         */
+        String readLine() throws IOException
+        {
+            if (atEnd)
+            {
+                return null;
+            }
+            line.setLength(0);
+
+            while (true)
+            {
+                if (position == limit)
+                {
+                    limit = reader.read(buffer, 0, buffer.length);
+                    position = 0;
+
+                    if (limit < 0)
+                    {
+                        limit = 0;
+                        atEnd = true;
+                        return line.toString();
+                    }
+                    length += limit;
+                }
+
+                char letter = buffer[position++];
+
+                // The line feed of a carriage return and line feed pair
+                // ends no line of its own
+                if (afterReturn)
+                {
+                    afterReturn = false;
+
+                    if (letter == '\n')
+                    {
+                        continue;
+                    }
+                }
+
+                if (SourceText.isLineSeparator(letter))
+                {
+                    afterReturn = letter == '\r';
+                    return line.toString();
+                }
+                line.append(letter);
+            }
+        }
+
+        /**
+         * Returns the number of characters read so far, separators included.
+         *
+         * @return length   The number of characters read
+         */
+        long getLength()
+        {
+            return length;
+        }
+    }
+}
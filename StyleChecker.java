@@ -1,6 +1,7 @@
 package stylechecker;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * The StyleChecker class is a tool to help programmers adhere to common coding 
@@ -11,748 +12,827 @@ import java.util.*;
 public class StyleChecker
 {
 
-    private final static String INPUT_FILE = "input/trevor_blank_lines.txt";
-    private final static String OUTPUT_FILE = "output/Fixed_Style_Output.txt";
-    private final static int COMMON_INPUT_SIZE = 1000;
-    private static ArrayList<String> inputDataLines = new ArrayList<>
-                                                            (COMMON_INPUT_SIZE);
+    private final static String OUTPUT_DIRECTORY = "output";
 
     
     /**
      * Opens the file containing the program to check for style errors, then
-     * generates a report based on the errors found, if any.
+     * generates a report based on the errors found, if any. When files,
+     * directories or glob patterns are given on the command line, every file
+     * they name is checked in batch mode instead.
+     * 
+     * The settings are read from the file given by --config, or from
+     * stylechecker.properties in the working directory if there is one, and
+     * any setting given as an option takes the place of the file's in every
+     * mode. --stats prints what each rule cost to standard error when the
+     * run is over, and --metrics writes the same totals to a file as JSON.
+     * 
+     * Usage: [--config file] [--max-line-length n] [--indent-width n]
+     *        [--input file] [--output file] [--enable rule,...]
+     *        [--disable rule,...] [--stats] [--metrics file]
+     *        [--stream ...|--daemon ...|--fix ...|--changed ...|--count ...
+     *        |batch...]
      * 
      * @param args the command line arguments
      */
     public static void main(String[] args) 
     {
-        String outputFile = OUTPUT_FILE;
+        ArrayList<String> rest = new ArrayList<>();
+        CheckerConfig config = null;
+        RuleRegistry registry = null;
+        
+        try
+        {
+            config = readConfig(args, rest);
+            registry = RuleRegistry.configured(config);
+        }
+        
+        catch (IOException | IllegalArgumentException ex)
+        {
+            System.err.println("ERROR: " + ex.getMessage());
+            System.exit(1);
+        }
+        
+        boolean stats = rest.remove("--stats");
+        int metricsIndex = rest.indexOf("--metrics");
+        String metricsFile = null;
+        
+        if (metricsIndex >= 0 && metricsIndex + 1 < rest.size())
+        {
+            metricsFile = rest.remove(metricsIndex + 1);
+            rest.remove(metricsIndex);
+        }
+        
+        if (stats || metricsFile != null)
+        {
+            CheckerMetrics.enable();
+        }
+        args = rest.toArray(new String[0]);
+        
+        if (args.length > 0 && args[0].equals("--stream"))
+        {
+            System.exit(reportMetrics(runStream(args, registry), stats, 
+                                      metricsFile));
+        }
+        
+        if (args.length > 0 && args[0].equals("--fix"))
+        {
+            System.exit(reportMetrics(runFix(args, registry), stats, 
+                                      metricsFile));
+        }
+        
+        if (args.length > 0 && (args[0].equals("--count")
+                                || args[0].equals("--fail-fast")
+                                || args[0].equals("--max-violations")))
+        {
+            System.exit(reportMetrics(runCount(args, registry), stats, 
+                                      metricsFile));
+        }
+        
+        if (args.length > 0 && args[0].equals("--changed"))
+        {
+            System.exit(reportMetrics(runChanged(args, registry), stats, 
+                                      metricsFile));
+        }
+        
+        if (args.length > 0 && args[0].equals("--daemon"))
+        {
+            System.exit(reportMetrics(runDaemon(args, registry), stats, 
+                                      metricsFile));
+        }
+        
+        if (args.length > 0)
+        {
+            System.exit(reportMetrics(runBatch(args, registry), stats, 
+                                      metricsFile));
+        }
+        
+        String inputFile = config.getInputFile();
+        String outputFile = config.getOutputFile();
         File outputDataFile = null;
-        PrintWriter output = null;
+        Writer output = null;
+        SourceText source = null;
         
         try
         {
             outputDataFile = new File(outputFile);
-            output = new PrintWriter(outputDataFile);
+            output = new OutputStreamWriter(new FileOutputStream(
+                                                outputDataFile));
         }
         
         catch (FileNotFoundException ex) 
         {
-            System.err.println("ERROR: " + OUTPUT_FILE + " not found");
+            System.err.println("ERROR: " + outputFile + " not found");
             System.exit(0);
         }
         
-        openInputFile();
-        generateReport(output);
-    }
-    
-    /**
-     * Opens the input file if found, otherwise outputs an error message. Reads
-     * each line of input from the input file and adds each line to the
-     * inputDataLines list.
-     */
-    private static void openInputFile()
-    {
-        Scanner inputScanner;
-        File inputFile = null;
-        
-        try 
+        try
         {
-            inputFile = new File(INPUT_FILE);
-            inputScanner = new Scanner(inputFile);
-            
-            while (inputScanner.hasNext())
-            {
-                inputDataLines.add(inputScanner.nextLine());
-            }
+            source = openInputFile(new File(inputFile));
         }
         
-        catch(FileNotFoundException ex) 
+        catch (IOException ex) 
         {
-            System.err.println("ERROR: " + INPUT_FILE + " not found");
+            System.err.println("ERROR: " + inputFile + " not found");
             System.exit(0);
         }
+        generateReport(source, inputFile, ReportFormat.TEXT.open(output), 
+                       null, registry);
+        
+        if (reportMetrics(0, stats, metricsFile) != 0)
+        {
+            System.exit(1);
+        }
     }
     
-    
     /**
-     * Given a program, finds every line of code in the program that should be 
-     * indented by three spaces but is not, and adds each line number with this 
-     * style error to a list. We assume that lines will not be indented too 
-     * much, and over indentation errors will not be caught.
+     * Prints the summary of what the run cost and writes its metrics to a
+     * file, if they were asked for.
      * 
-     * @param lineList  An ArrayList of the input file lines
-     * @return indentErrorLines An ArrayList containing the line numbers of the 
-     *                          program that contain the block indentation 
-     *                          coding style error.
+     * @param status       The exit status of the run
+     * @param stats        true to print the summary to standard error
+     * @param metricsFile  The file the metrics are written to as JSON, or
+     *                     null for none
+     * @return status      The exit status of the run, or 1 if the metrics
+     *                     could not be written
      */
-    private static ArrayList<Integer> findIndentError(ArrayList<String>     
-                                                      lineList) 
+    private static int reportMetrics(int status, boolean stats, 
+                                     String metricsFile)
     {
-        int openBraceCount = 0;
-        int closeBraceCount = 0;
-        int requiredWhitespace = 0;
-        int j = 0;
-        final int EXPECTED_SPACE = 3;
-        ArrayList<Integer> indentErrorLines = new 
-                                              ArrayList<>(COMMON_INPUT_SIZE);
-        
-        while (j < inputDataLines.size() - 1) 
-        {
-            String currentLine = lineList.get(j).trim();
-            String nextLine = lineList.get(j + 1);
-            boolean specialCase = (currentLine.startsWith("for") 
-                               || currentLine.startsWith("if")
-                               || currentLine.startsWith("else") 
-                               || currentLine.startsWith("while")
-                               || currentLine.startsWith("do ") 
-                               || currentLine.startsWith("switch"));
-            
-            if (currentLine.contains("{") && !isBetweenQuotes(currentLine, '{')) 
+        if (stats)
+        {
+            CheckerMetrics.printSummary(System.err);
+        }
+        
+        if (metricsFile != null)
+        {
+            try
             {
-                openBraceCount++;
-                
-                if (openBraceCount > 1)
-                {
-                    requiredWhitespace += EXPECTED_SPACE;
-                }
+                CheckerMetrics.writeJson(new File(metricsFile));
             }
             
-            if (nextLine.contains("}") 
-                && !isBetweenQuotes(nextLine.trim(), '}')) 
+            catch (IOException ex)
             {
-                closeBraceCount++;
-                requiredWhitespace -= EXPECTED_SPACE;
-            }
-            
-            if (specialCase && !currentLine.contains("{") 
-                && !nextLine.contains("{") 
-                && nextLine.length() > requiredWhitespace + 5)
-            {
-                if (openBraceCount > 0 && (openBraceCount - closeBraceCount) > 0
-                    && !(Character.isWhitespace(nextLine.charAt(
-                                                        requiredWhitespace + 3))
-                    && Character.isWhitespace(nextLine.charAt(  
-                                                        requiredWhitespace + 4))
-                    && Character.isWhitespace(nextLine.charAt(
-                                                      requiredWhitespace + 5))))
-                {
-                    indentErrorLines.add(j + 2);
-                } 
-            }
-            if (nextLine.length() > requiredWhitespace + 2) 
-            {
-                if ((openBraceCount - closeBraceCount) > 0
-                        && !(Character.isWhitespace(nextLine.charAt(
-                                                      requiredWhitespace))
-                        && Character.isWhitespace(nextLine.charAt(  
-                                                      requiredWhitespace + 1))
-                        && Character.isWhitespace(nextLine.charAt(
-                                                      requiredWhitespace + 2))))
-                {
-                    indentErrorLines.add(j + 2);
-                }
+                System.err.println("ERROR: " + metricsFile 
+                                   + " could not be written");
+                return 1;
             }
-            
-            j++;
         }
-        return indentErrorLines;
-    }
-    
-    /**
-     * Given a program, finds every line of code in the program that contains
-     * a line of code where there needs to be curly braces but is not, and 
-     * adds each line number with this style error to a list. We assume that
-     * there are no conditionals and loops on the same line.
-     * 
-     * @param lineList  An ArrayList of the input file lines
-     * @return optionalBraceErrorLines  An ArrayList containing the line numbers
-     *                                  of the program that contain the optional
-     *                                  curly braces error.
-     */
-    private static ArrayList<Integer> findOptionalBraceError(ArrayList<String> 
-                                                            lineList)
-    {
-       ArrayList<Integer> optionalBraceErrorLines = new ArrayList<>
-                                                            (COMMON_INPUT_SIZE);
-       
-       for (int i = 0; i < lineList.size() - 1; i++)
-       {
-           String currentLine = lineList.get(i).trim();
-           String nextLine = lineList.get(i + 1);
-           boolean noBraceFlag = !currentLine.contains("{") 
-                                  && !nextLine.contains("{");
-           
-           if (currentLine.startsWith("if") && noBraceFlag)
-           {
-               optionalBraceErrorLines.add(i + 1);
-           }
-           
-           if (currentLine.startsWith("else") && noBraceFlag)
-           {
-               optionalBraceErrorLines.add(i + 1);
-           }
-           
-           if (currentLine.startsWith("while") && noBraceFlag)
-           {
-               optionalBraceErrorLines.add(i + 1);
-           }
-           
-           if (currentLine.startsWith("for") && noBraceFlag)
-           {
-               optionalBraceErrorLines.add(i + 1);
-           }
-           
-           if (currentLine.startsWith("switch") && noBraceFlag)
-           {
-               optionalBraceErrorLines.add(i + 1);
-           }
-           
-           if (currentLine.startsWith("do ") && noBraceFlag)
-           {
-               optionalBraceErrorLines.add(i + 1);
-           }
-       }
-       return optionalBraceErrorLines;
-    }
-    
-    /**
-     * Given an array of character of a line from inputDataLines, counts the 
-     * number of appropriate spaces needed to pad the fixed open and close
-     * brace.
-     * 
-     * @param lineArray    An array of chars from inputDataLines
-     * @return count       The number of appropriate spaces required
-     */
-    private static int countSpacing(char[] lineArray)
-    {
-       int count = 0;
-       
-       for (int k = 0; k < lineArray.length; k++) 
-       {
-          if (lineArray[k] != ' ') 
-          {
-             count = k;
-             break;
-          }
-       }
-
-       return count;
+        return status;
     }
     
     /**
-     * Given an index number where the '{' should appear in a line, returns a
-     * string with the appropriate spacing and the '{'.
+     * Reads the settings of this run from the configuration file and the
+     * setting options on the command line, and collects every other argument
+     * for the mode to parse.
      * 
-     * @param braceIndex   The index of the string where the '{' should occur
-     * @return fixedOpen   The corrected string with the '{' and appropriate
-     *                     spacing
+     * @param args     The command line arguments
+     * @param rest     Receives the arguments that are not settings
+     * @return config  The settings of this run
+     * @throws IOException if the configuration file cannot be read
+     * @throws IllegalArgumentException if a setting is not valid
      */
-    private static String fixOpenBrace(int braceIndex)
+    private static CheckerConfig readConfig(String[] args, List<String> rest)
+                                           throws IOException
     {
-       String fixedOpen = "";
-
-       while (fixedOpen.length() != braceIndex) 
-       {
-          fixedOpen += " ";
-       }
-       
-       fixedOpen += "{";
-       return fixedOpen;
-    }
-    
-    /**
-     * Given an index number where the '}' should appear in a line, returns a
-     * string with the appropriate spacing and the '}'.
-     * 
-     * @param braceIndex   The index of the string where the '}' should occur
-     * @return fixedClose  The corrected string with the '}' and appropriate
-     *                     spacing
-     */
-    private static String fixCloseBrace(int braceIndex)
-    {
-       String fixedClose = "";
-
-       while (fixedClose.length() != braceIndex) 
-       {
-          fixedClose += " ";
-       }
-       
-       fixedClose += "}";
-       return fixedClose;
-    }
-    
-    /**
-     * Fixes a program that contains optional brace errors by adding open and 
-     * close braces where they belong. We assume we will not see more than 2
-     * if/else/for/while/do statements whose only line is another if/else/while/
-     * for/do statement.
-     * 
-     * @param lineList  The lines of the program with errors
-     * @param output    The text output stream to a specified output file
-     */
-    private static void fixOptionalBraceError(ArrayList<String> lineList, 
-                                              PrintWriter output)
-    {
-        ArrayList<Integer> braceErrorLines = findOptionalBraceError(lineList);
-        int lineNumber;
-        int offset = 0;
+        File configFile = new File(CheckerConfig.FILE_NAME);
+        Properties overrides = new Properties();
+        
+        if (!configFile.isFile())
+        {
+            configFile = null;
+        }
         
-        for (int i = 0; i < braceErrorLines.size(); i++)
+        for (int i = 0; i < args.length; i++)
         {
-            lineNumber = braceErrorLines.get(i) + offset;
-            String currentLine = lineList.get(lineNumber - 1);
-            char[] lineArray = currentLine.toCharArray();
-            int braceIndex = countSpacing(lineArray);
+            String key = CheckerConfig.keyForOption(args[i]);
             
-            // Pads appropriate whitespace before concatenating the brace
-            String fixedOpen = fixOpenBrace(braceIndex);
-            String fixedClose = fixCloseBrace(braceIndex);
+            if (args[i].equals("--config") && i + 1 < args.length)
+            {
+                configFile = new File(args[++i]);
+            }
             
-            // If there are nested loops, conditionals
-            if (braceErrorLines.contains(lineNumber - offset) 
-                && braceErrorLines.contains(lineNumber - offset + 1))
-            {
-                currentLine = lineList.get(lineNumber);
-                lineArray = currentLine.toCharArray();
-                lineList.add(lineNumber, fixedOpen);
-                lineList.add(lineNumber + 3, fixedClose);
-                braceIndex = countSpacing(lineArray);
-                
-                fixedOpen = fixOpenBrace(braceIndex);
-                fixedClose = fixCloseBrace(braceIndex);
-                
-                lineList.add(lineNumber + 2, fixedOpen);
-                lineList.add(lineNumber + 4, fixedClose);
-                offset += 4; // the number of lines added by fixing braces
-                i++; // skip the next line with nested error
+            else if (key != null && i + 1 < args.length)
+            {
+                overrides.setProperty(key, args[++i]);
             }
+            
             else
             {
-                lineList.add(lineNumber, fixedOpen);
-                lineList.add(lineNumber + 2, fixedClose);
-                offset += 2; // the number of lines added by fixing braces'
+                rest.add(args[i]);
             }
         }
-        
-        output.println("\nOptional Curly Brace Correction(s):");
-        output.println("=====================================");
-        for (String line: lineList)
-        {
-            output.println(line);
-        }
+        return CheckerConfig.load(configFile, overrides);
     }
     
     /**
-     * Given a program, finds every line of code in the program that contains
-     * a line segment where there needs to be spaces before and after a binary
-     * operator but is not, and adds each line number with this style error to 
-     * a list.
+     * Parses the batch mode options, then checks every file named by the
+     * remaining arguments and prints a summary of the errors found.
      * 
-     * @param lineList  An ArrayList of the input file lines
-     * @return operatorSpaceErrorLines  An ArrayList containing the line numbers
-     *                                  of the program that contain the binary
-     *                                  operator space error.
+     * Usage: [-o outputDirectory] [-j threads] [--cache directory]
+     *        [--pipeline] [--format text|jsonl|sarif] path|directory|glob...
+     * 
+     * @param args     The command line arguments
+     * @param registry The rules the programs are checked against
+     * @return status  0 if every file was checked and is free of style 
+     *                 errors, 1 otherwise
      */
-    private static ArrayList<Integer> findOperatorSpaceError(ArrayList<String> 
-                                                            lineList)
+    private static int runBatch(String[] args, RuleRegistry registry)
     {
-        ArrayList<Integer> operatorSpaceErrorLines = new ArrayList<>
-                                                            (COMMON_INPUT_SIZE);
+        String outputDirectory = OUTPUT_DIRECTORY;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String cacheDirectory = null;
+        boolean pipeline = false;
+        ReportFormat format = ReportFormat.TEXT;
+        ArrayList<String> paths = new ArrayList<>();
         
-        for (int i = 0; i < lineList.size() - 1; i++)
+        for (int i = 0; i < args.length; i++)
         {
-            String currentLine = lineList.get(i);
-            
-            if (currentLine.contains("+"))
+            if (args[i].equals("-o") && i + 1 < args.length)
             {
-                if (noOperatorSpace(currentLine, "+"))
-                {
-                    operatorSpaceErrorLines.add(i + 1);
-                }
+                outputDirectory = args[++i];
             }
             
-            if (currentLine.contains("-"))
+            else if (args[i].equals("-j") && i + 1 < args.length)
             {
-                if (noOperatorSpace(currentLine, "-"))
-                {
-                    operatorSpaceErrorLines.add(i + 1);
-                }
+                threads = Integer.parseInt(args[++i]);
             }
             
-            if (currentLine.contains("*") && currentLine.length() > 3
-                && !currentLine.trim().startsWith("import"))
+            else if (args[i].equals("--cache") && i + 1 < args.length)
             {
-                if (noOperatorSpace(currentLine, "*"))
-                {
-                    operatorSpaceErrorLines.add(i + 1);
-                }
+                cacheDirectory = args[++i];
             }
             
-            if (currentLine.contains("/") && currentLine.length() > 3)
+            else if (args[i].equals("--pipeline"))
             {
-                if (noOperatorSpace(currentLine, "/"))
-                {
-                    operatorSpaceErrorLines.add(i + 1);
-                }
+                pipeline = true;
             }
             
-            if (currentLine.contains("="))
+            else if (args[i].equals("--format") && i + 1 < args.length)
             {
-                if (noOperatorSpace(currentLine, "="))
+                try
+                {
+                    format = ReportFormat.forName(args[++i]);
+                }
+                
+                catch (IllegalArgumentException ex)
                 {
-                    operatorSpaceErrorLines.add(i + 1);
+                    System.err.println("ERROR: " + ex.getMessage());
+                    return 1;
                 }
             }
             
-            if (currentLine.contains("%"))
+            else
             {
-                if (noOperatorSpace(currentLine, "%"))
-                        {
-                         operatorSpaceErrorLines.add(i + 1);   
-                        }
+                paths.add(args[i]);
             }
         }
-        return operatorSpaceErrorLines;   
+        
+        try
+        {
+            ResultCache cache = cacheDirectory == null ? null
+                                : new ResultCache(new File(cacheDirectory));
+            BatchChecker checker = new BatchChecker(new File(outputDirectory), 
+                                                    threads, cache, pipeline,
+                                                    format, registry);
+            return checker.run(BatchChecker.collectFiles(paths), System.out);
+        }
+        
+        catch (IOException ex)
+        {
+            System.err.println("ERROR: " + ex.getMessage());
+            return 1;
+        }
     }
     
     /**
-     * Given a line that is being processed and a specific binary operator 
-     * character from that line, returns true if there is not a whitespace 
-     * character before and after the specified binary operator, false 
-     * otherwise.
+     * Fixes the style errors that have a fix in every file named by the
+     * arguments, and prints the fixes as a unified diff or writes them back
+     * into the files.
      * 
-     * @param currentLine   The currentLine being processed from inputDataLines
-     * @param character     The specified binary operator from the current line
+     * Usage: --fix [--in-place] path|directory|glob...
+     * 
+     * @param args     The command line arguments
+     * @param registry The rules the programs are checked against
+     * @return status  0 if nothing needed fixing or every fix was written
+     *                 back, 1 if a diff was printed or a file could not be
+     *                 fixed
      */
-    private static boolean noOperatorSpace(String currentLine, String character)
+    private static int runFix(String[] args, RuleRegistry registry)
     {
-        char[] lineArray = currentLine.toCharArray();
-        int operatorIndex = currentLine.indexOf(character);
-        char onceBefore = '\0';
-        char onceAfter = lineArray[operatorIndex + 1];
-        char twiceBefore = '\0';
-        char twiceAfter = lineArray[operatorIndex + 2];
+        boolean inPlace = false;
+        ArrayList<String> paths = new ArrayList<>();
         
-        if (operatorIndex > 1)
+        for (int i = 1; i < args.length; i++)
         {
-            onceBefore = lineArray[operatorIndex - 1];
-            twiceBefore = lineArray[operatorIndex - 2];
-        }
-                
-        if (character.equals("+"))
-        {
-            if (onceBefore == '+' || onceAfter == '+' )
+            if (args[i].equals("--in-place"))
             {
-                return false;
+                inPlace = true;
             }
-        }
-        
-        if (character.equals("-"))
-        {
-            if (onceBefore == '-' || onceAfter == '-')
+            
+            else
             {
-                return false;
+                paths.add(args[i]);
             }
         }
         
-        if (character.equals("="))
+        try
         {
-            if ( !((onceBefore == '<') || (onceBefore == '>') 
-                    || (onceBefore == '!') || (onceBefore == '=') 
-                    || (onceAfter == '=')) 
-                    && (!Character.isWhitespace(onceBefore)
-                    || !Character.isWhitespace(onceAfter)))
-            {
-                return true;
-            }
+            AutoFixer fixer = new AutoFixer(registry, inPlace);
+            return fixer.run(BatchChecker.collectFiles(paths), System.out);
         }
         
-        else if (!Character.isWhitespace(onceBefore)
-                 || !Character.isWhitespace(onceAfter) 
-                 || Character.isWhitespace(twiceBefore)
-                 || Character.isWhitespace(twiceAfter))
+        catch (IOException ex)
         {
-            return true;
+            System.err.println("ERROR: " + ex.getMessage());
+            return 1;
         }
-        return false;
     }
     
     /**
-     * Given a program, finds every line of code in the program that contains
-     * a line segment where the open or close curly brace should be on a new 
-     * line but is not, and adds each line number with this style error to a 
-     * list. We will assume that braces will be on the same line, and errors 
-     * where there are one or more blank lines before the brace will not be 
-     * considered.
+     * Counts the style errors of every file named by the arguments, rule by
+     * rule, without writing reports or running the fixers. --max-violations
+     * stops every check once that many errors have been found in all, and
+     * --fail-fast stops at the first.
      * 
-     * @param lineList  An ArrayList of the input file lines
-     * @return braceAlignmentErrorLines  An ArrayList containing the line numbers
-     *                                  of the program that contain the curly
-     *                                  brace on the same line error.
+     * Usage: --count|--fail-fast|--max-violations n [--fail-fast]
+     *        [--max-violations n] [-j threads] path|directory|glob...
+     * 
+     * @param args     The command line arguments
+     * @param registry The rules the programs are checked against
+     * @return status  0 if every file was checked and is free of style 
+     *                 errors, 1 otherwise
      */
-    private static ArrayList<Integer> findBraceAlignmentError(ArrayList<String> 
-                                                             lineList)
+    private static int runCount(String[] args, RuleRegistry registry)
     {
-        ArrayList<Integer> braceAlignmentErrorLines = new ArrayList<>
-                                                            (COMMON_INPUT_SIZE);
+        int threads = Runtime.getRuntime().availableProcessors();
+        long maxErrors = 0;
+        ArrayList<String> paths = new ArrayList<>();
         
-        for (int i = 0; i < lineList.size() - 1; i++)
+        for (int i = 0; i < args.length; i++)
         {
-            String currentLine = lineList.get(i).trim();
-            boolean onSameLine = currentLine.endsWith("{");
-            
-            if ( (currentLine.contains("class") 
-                  || currentLine.contains("public") 
-                  || currentLine.contains("private")) && onSameLine)
-            {
-                braceAlignmentErrorLines.add(i + 1);
-            }
-            
-            if (currentLine.startsWith("if") && onSameLine)
+            if (args[i].equals("--count"))
             {
-                braceAlignmentErrorLines.add(i + 1);
+                continue;
             }
             
-            if (currentLine.startsWith("else") && onSameLine)
+            else if (args[i].equals("--fail-fast"))
             {
-                braceAlignmentErrorLines.add(i + 1);
+                maxErrors = 1;
             }
             
-            if (currentLine.startsWith("for") && onSameLine)
+            else if (args[i].equals("--max-violations") 
+                     && i + 1 < args.length)
             {
-                braceAlignmentErrorLines.add(i + 1);
-            }
-            
-            if (currentLine.startsWith("while") && onSameLine)
-            {
-                braceAlignmentErrorLines.add(i + 1);
-            }
-            
-            if (currentLine.startsWith("switch") && onSameLine)
-            {
-                braceAlignmentErrorLines.add(i + 1);
+                maxErrors = Long.parseLong(args[++i]);
+                
+                if (maxErrors < 1)
+                {
+                    System.err.println("ERROR: --max-violations must be at "
+                                       + "least 1");
+                    return 1;
+                }
             }
             
-            if (currentLine.startsWith("do ") && onSameLine)
+            else if (args[i].equals("-j") && i + 1 < args.length)
             {
-                braceAlignmentErrorLines.add(i + 1);
+                threads = Integer.parseInt(args[++i]);
             }
             
-            if (currentLine.endsWith("}") && currentLine.length() > 1)
+            else
             {
-                braceAlignmentErrorLines.add(i + 1);
+                paths.add(args[i]);
             }
         }
-        return braceAlignmentErrorLines;   
+        
+        try
+        {
+            CountChecker checker = new CountChecker(threads, maxErrors, 
+                                                    registry);
+            return checker.run(BatchChecker.collectFiles(paths), System.out);
+        }
+        
+        catch (IOException ex)
+        {
+            System.err.println("ERROR: " + ex.getMessage());
+            return 1;
+        }
     }
     
     /**
-     * Given a line of code from inputDataLines and a specific character,
-     * checks if the specific character is in the line of code contained within
-     * quotations.
+     * Checks only the lines changed since a revision, as git diff shows them
+     * for the working tree and the index, or as a saved diff shows them, and
+     * prints the style errors on those lines.
      * 
-     * @param currentLine   the current line of code from inputDataLines
-     * @param letter        the specific character to check for within quotes
+     * Usage: --changed [--base revision] [--diff file|-] [path...]
      * 
-     * @return true     if the specific character is within quotes
-     *         false    if the specific character is not within quotes
+     * @param args     The command line arguments
+     * @param registry The rules the changed lines are checked against
+     * @return status  0 if no changed line has a style error, 1 otherwise
      */
-    private static boolean isBetweenQuotes(String currentLine, char letter)
+    private static int runChanged(String[] args, RuleRegistry registry)
     {
-        int letterIndex = currentLine.indexOf(letter);
-        int singleOpenIndex = currentLine.indexOf("'");
-        int singleCloseIndex = currentLine.lastIndexOf("'");
-        int doubleOpenIndex = currentLine.indexOf("\"");
-        int doubleCloseIndex = currentLine.lastIndexOf("\"");
+        String revision = "HEAD";
+        String diffFile = null;
+        ArrayList<String> paths = new ArrayList<>();
         
-        if (singleOpenIndex >= 0)
+        for (int i = 1; i < args.length; i++)
         {
+            if (args[i].equals("--base") && i + 1 < args.length)
+            {
+                revision = args[++i];
+            }
+            
+            else if (args[i].equals("--diff") && i + 1 < args.length)
+            {
+                diffFile = args[++i];
+            }
             
-            if ((singleOpenIndex < letterIndex) 
-                 && (letterIndex < singleCloseIndex))
+            else
             {
-                return true;
+                paths.add(args[i]);
             }
         }
         
-        else if (doubleOpenIndex >= 0)
+        List<ChangedLines> files;
+        
+        try
         {
+            if (diffFile == null)
+            {
+                files = ChangedLines.fromGit(revision, paths);
+            }
             
-            if ((doubleOpenIndex < letterIndex) 
-                 && (letterIndex < doubleCloseIndex))
+            else
             {
-                return true;
+                try (BufferedReader reader = diffFile.equals("-")
+                        ? new BufferedReader(new InputStreamReader(System.in))
+                        : new BufferedReader(new FileReader(diffFile)))
+                {
+                    files = ChangedLines.parse(reader);
+                }
             }
         }
-        return false;
+        
+        catch (IOException ex)
+        {
+            System.err.println("ERROR: " + ex.getMessage());
+            return 1;
+        }
+        return new ChangedLineChecker(registry).run(files, System.out);
     }
     
     /**
-     * Given a program, finds every line of code in the program that contains
-     * a line segment where the length exceeds the maximum line length, and adds
-     * each line number with this style error to a list.
+     * Parses the daemon mode options, then serves style reports over a
+     * loopback socket until the daemon is told to shut down.
      * 
-     * @param lineList  An ArrayList of the input file lines
-     * @return longLineErrorLines  An ArrayList containing the line numbers of
-     *                             the program that contain the long line error.
+     * Usage: --daemon [-p port] [-j threads] [--cache directory]
+     *                 [--root directory] [--token-file file]
+     * 
+     * @param args     The command line arguments
+     * @param registry The rules the programs are checked against
+     * @return status  0 once the daemon has shut down, 1 if it could not start
      */
-    private static ArrayList<Integer> findLongLines(ArrayList<String> lineList)
+    private static int runDaemon(String[] args, RuleRegistry registry)
     {
-        ArrayList<Integer> longLineErrorLines = new 
-                                                ArrayList<>(COMMON_INPUT_SIZE);
-        final int MAX_LINE_LENGTH = 80;
+        int port = StyleDaemon.DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String cacheDirectory = null;
+        String root = ".";
+        String tokenFile = StyleDaemon.DEFAULT_TOKEN_FILE;
         
-        for (int i = 0; i < lineList.size(); i++)
+        for (int i = 1; i < args.length; i++)
         {
-            if (lineList.get(i).length() > MAX_LINE_LENGTH)
+            if (args[i].equals("-p") && i + 1 < args.length)
+            {
+                port = Integer.parseInt(args[++i]);
+            }
+            
+            else if (args[i].equals("-j") && i + 1 < args.length)
+            {
+                threads = Integer.parseInt(args[++i]);
+            }
+            
+            else if (args[i].equals("--cache") && i + 1 < args.length)
+            {
+                cacheDirectory = args[++i];
+            }
+            
+            else if (args[i].equals("--root") && i + 1 < args.length)
+            {
+                root = args[++i];
+            }
+            
+            else if (args[i].equals("--token-file") && i + 1 < args.length)
             {
-                longLineErrorLines.add(i + 1);
+                tokenFile = args[++i];
             }
         }
         
-        return longLineErrorLines;   
+        try
+        {
+            ResultCache cache = cacheDirectory == null ? null
+                                : new ResultCache(new File(cacheDirectory));
+            StyleDaemon daemon = new StyleDaemon(port, threads, cache, 
+                                                 registry, new File(root), 
+                                                 new File(tokenFile));
+            System.out.println("Listening on port " + daemon.getPort() 
+                               + ", token in " + tokenFile);
+            daemon.serve();
+            return 0;
+        }
+        
+        catch (IOException ex)
+        {
+            System.err.println("ERROR: " + ex.getMessage());
+            return 1;
+        }
     }
     
     /**
-     * Given a program, finds every line of code in the program that contains   
-     * a line segment with two lines of code that should be on two separate 
-     * lines but are not, and adds each line number with this style error to 
-     * a list.
+     * Checks a single program in streaming mode, reading it from the given
+     * file or from standard input, and prints its style errors to standard
+     * output as they are found.
      * 
-     * @param lineList  An ArrayList of the input file lines
-     * @return multiCodeSameLineErrorLines  An ArrayList containing the line
-     *                                      numbers of the program that contain
-     *                                      the two lines of code on the same  
-     *                                      line error.
+     * Usage: --stream [path|-]
+     * 
+     * @param args     The command line arguments
+     * @param registry The rules the program is checked against
+     * @return status  0 if the program is free of style errors, 1 otherwise
      */
-    private static ArrayList<Integer> findMultiCodeSameLine(ArrayList<String> 
-                                                             lineList)
+    private static int runStream(String[] args, RuleRegistry registry)
     {
-        ArrayList<Integer> multiCodeSameLineErrorLines = new ArrayList<>
-                                                            (COMMON_INPUT_SIZE);
+        String path = "-";
         
-        for (int i = 0; i < lineList.size(); i++)
+        for (int i = 1; i < args.length; i++)
         {
-            String currentLine = lineList.get(i).trim();
-            int numSemiColon = countSemiColon(currentLine);
-            
-            if ((currentLine.startsWith("if")
-                || currentLine.startsWith("while") 
-                || currentLine.startsWith("do ")
-                || currentLine.startsWith("switch")
-                || currentLine.startsWith("else")) && currentLine.contains(";"))
-            {
-                multiCodeSameLineErrorLines.add(i + 1);
-            } 
-            
-            if (currentLine.startsWith("for") && numSemiColon > 2)
-            {
-                multiCodeSameLineErrorLines.add(i + 1);
-            }
-            
-            if (numSemiColon > 1 && !currentLine.startsWith("for"))
-            {
-                multiCodeSameLineErrorLines.add(i + 1);
-            }
+            path = args[i];
         }
         
-        return multiCodeSameLineErrorLines; 
+        PrintWriter output = new PrintWriter(new BufferedWriter(
+                                new OutputStreamWriter(System.out)));
+        
+        // The checker reads in blocks of its own, so no buffer is needed
+        try (Reader reader = path.equals("-") 
+                ? new InputStreamReader(System.in) : new FileReader(path))
+        {
+            return StreamChecker.check(reader, output, registry) > 0 ? 1 : 0;
+        }
+        
+        catch (IOException ex)
+        {
+            System.err.println("ERROR: " + path + " could not be read");
+            return 1;
+        }
+    }
+    
+    /**
+     * Creates a new instance of every rule, in the order their errors are
+     * listed in the report.
+     * 
+     * @return rules  The rules to check a program against
+     */
+    static Rule[] createRules()
+    {
+        return RuleRegistry.all().createRules();
+    }
+    
+    /**
+     * Opens the given input file, then reads the whole program into a single
+     * SourceText through a FileChannel.
+     * 
+     * @param inputFile  The file containing the program to check
+     * @return source    The text of the program
+     * @throws IOException if the input file cannot be read
+     */
+    private static SourceText openInputFile(File inputFile) throws IOException
+    {
+        return SourceText.read(inputFile);
     }
     
     /**
-     * Given a line of input from inputDataLines, counts the number of 
-     * occurrences of ';' in the line.
+     * Checks a single program for style errors and writes its style report to
+     * the given report file. Every call works on its own copy of the program,
+     * so several files may be checked at the same time.
      * 
-     * @param currentLine   The current line being processed in inptDataLines
-     * @return counter      The number of occurrences of ';' in the line
+     * @param inputFile    The file containing the program to check
+     * @param reportFile   The file the style report is written to
+     * @param cache        The cache of earlier results, or null for none
+     * @param format       The format the style report is written in
+     * @param registry     The rules the program is checked against
+     * @return errorCount  The number of style errors found in the program
+     * @throws IOException if either file cannot be opened
      */
-    private static int countSemiColon(String currentLine)
+    static int checkFile(File inputFile, File reportFile, ResultCache cache,
+                         ReportFormat format, RuleRegistry registry) 
+                        throws IOException
     {
-        int counter = 0;
+        SourceText source = openInputFile(inputFile);
         
-        for (int i = 0; i < currentLine.length(); i++)
+        // The report is closed even when the check fails part way through
+        try (ReportSink report = format.open(new OutputStreamWriter(
+                                     new FileOutputStream(reportFile))))
         {
-           if (currentLine.charAt(i) == ';')
-           {
-               counter++;
-           }
+            return generateReport(source, inputFile.getPath(), report, cache,
+                                  registry);
         }
-        return counter;
     }
     
+    
     /**
      * Given a program, finds every line of code in the program that contains
-     * a method block that should have a blank line before it  but does not, and 
-     * adds each line number with this style error to a list. We assume that 
-     * the program given will not contain methods with parameters that take up 
-     * more than one line.
+     * a line of code where there needs to be curly braces but is not, and 
+     * adds each line number with this style error to a list. We assume that
+     * there are no conditionals and loops on the same line.
      * 
      * @param lineList  An ArrayList of the input file lines
-     * @return noBlankLineErrorLines  An ArrayList containing the line numbers
-     *                                of the program that contain missing blank 
-     *                                line error.
+     * @return optionalBraceErrorLines  A list containing the line numbers
+     *                                  of the program that contain the optional
+     *                                  curly braces error.
+     */
+    private static LineNumberList findOptionalBraceError(ArrayList<String> 
+                                                            lineList)
+    {
+        OptionalBraceRule optionalBraceRule = new OptionalBraceRule();
+        ViolationCollector violations = new ViolationCollector();
+        RuleEngine.run(lineList, violations, optionalBraceRule);
+        return violations.getErrorLines(optionalBraceRule);
+    }
+    
+    /**
+     * Given an array of character of a line from inputDataLines, counts the 
+     * number of appropriate spaces needed to pad the fixed open and close
+     * brace.
+     * 
+     * @param lineArray    An array of chars from inputDataLines
+     * @return count       The number of appropriate spaces required
+     */
+    private static int countSpacing(char[] lineArray)
+    {
+       int count = 0;
+       
+       for (int k = 0; k < lineArray.length; k++) 
+       {
+          if (lineArray[k] != ' ') 
+          {
+             count = k;
+             break;
+          }
+       }
+
+       return count;
+    }
+    
+    /**
+     * Given an index number where the '{' should appear in a line, returns a
+     * string with the appropriate spacing and the '{'.
+     * 
+     * @param braceIndex   The index of the string where the '{' should occur
+     * @return fixedOpen   The corrected string with the '{' and appropriate
+     *                     spacing
      */
-    private static ArrayList<Integer> findNoBlankLineError(ArrayList<String> 
-                                                          lineList)
+    private static String fixOpenBrace(int braceIndex)
     {
-        ArrayList<Integer> noBlankLineErrorLines = new ArrayList<>  
-                                                            (COMMON_INPUT_SIZE);
+       String fixedOpen = "";
+
+       while (fixedOpen.length() != braceIndex) 
+       {
+          fixedOpen += " ";
+       }
+       
+       fixedOpen += "{";
+       return fixedOpen;
+    }
+    
+    /**
+     * Given an index number where the '}' should appear in a line, returns a
+     * string with the appropriate spacing and the '}'.
+     * 
+     * @param braceIndex   The index of the string where the '}' should occur
+     * @return fixedClose  The corrected string with the '}' and appropriate
+     *                     spacing
+     */
+    private static String fixCloseBrace(int braceIndex)
+    {
+       String fixedClose = "";
+
+       while (fixedClose.length() != braceIndex) 
+       {
+          fixedClose += " ";
+       }
+       
+       fixedClose += "}";
+       return fixedClose;
+    }
+    
+    /**
+     * Fixes a program that contains optional brace errors by adding open and 
+     * close braces where they belong. Statements without braces nested in
+     * each other are each given their own braces, however deep they go.
+     * 
+     * @param lineList         The lines of the program with errors
+     * @param braceErrorLines  The line numbers of the missing braces
+     * @param report           The report the fixed program is written to
+     */
+    static void fixOptionalBraceError(ArrayList<String> lineList, 
+                                      LineNumberList braceErrorLines,
+                                      ReportSink report)
+    {
+        EditBuffer edits = new EditBuffer();
+        addOptionalBraceFixes(lineList, BlockIndex.of(lineList), 
+                              braceErrorLines, edits);
+        report.addCorrection("Optional Curly Brace Correction(s):",
+                             "=====================================",
+                             edits.apply(lineList));
+    }
+    
+    /**
+     * Records the open and close braces that fix the given optional brace
+     * errors as edits of the program. The program itself is not changed.
+     * Each open brace goes after the line of its statement, and each close
+     * brace after the last line of the statement's body, which the block
+     * index finds whether the body is one line, a block, or another statement
+     * without braces. Close braces after the same line go in from the
+     * innermost statement out.
+     * 
+     * @param lineList         The lines of the program with errors
+     * @param blocks           The block structure of the program
+     * @param braceErrorLines  The line numbers of the missing braces
+     * @param edits            The buffer the edits are recorded in
+     */
+    static void addOptionalBraceFixes(List<String> lineList, 
+                                      BlockIndex blocks,
+                                      LineNumberList braceErrorLines,
+                                      EditBuffer edits)
+    {
+        // Each close brace is packed as the line it goes after, then the
+        // statement's line number inverted, so sorting puts them in order
+        long[] closes = new long[braceErrorLines.size()];
         
-        for (int i = 0; i < lineList.size() - 2; i++)
+        for (int i = 0; i < closes.length; i++)
         {
-            String currentLine = lineList.get(i).trim();
-            String nextLine = lineList.get(i + 1).trim();
-            String nextNextLine = lineList.get(i + 2).trim();
+            int lineNumber = braceErrorLines.get(i);
+            int braceIndex = countSpacing(lineList.get(lineNumber - 1)
+                                                  .toCharArray());
+            edits.insertAfter(lineNumber, fixOpenBrace(braceIndex));
             
-            if ((currentLine.contains("class") && currentLine.contains("{")
-                && !nextLine.equals("")) || (isMethod(nextLine) 
-                && (nextLine.contains("{") || nextNextLine.contains("{")) 
-                && currentLine.length() > 0))
-            {
-               if (!noBlankLineErrorLines.contains(i + 2))
-               {
-                   noBlankLineErrorLines.add(i + 2);
-               }
-            }
-            
-            else if (currentLine.contains("class") && nextLine.contains("{")
-                     && !nextNextLine.equals(""))
-            {
-               if (!noBlankLineErrorLines.contains(i + 3))
-               {
-                   noBlankLineErrorLines.add(i + 3);
-               }
-            }
-            
-//            if (isMethod(nextLine) && (nextLine.contains("{") 
-//                     || nextNextLine.contains("{")) && currentLine.length() > 0 
-//                     && !currentLine.equals("@Override"))
-//            {
-//                noBlankLineErrorLines.add(i + 2);
-//            }
+            // The body starts on the next line, whose index is lineNumber
+            int bodyEnd = lineNumber < blocks.lineCount() 
+                          ? blocks.statementEnd(lineNumber) + 1 
+                          : lineNumber + 1;
+            closes[i] = (long) bodyEnd << 32 | (Integer.MAX_VALUE - lineNumber);
         }
+        Arrays.sort(closes);
         
-        return noBlankLineErrorLines; 
+        for (long close: closes)
+        {
+            int lineNumber = Integer.MAX_VALUE - (int) close;
+            int braceIndex = countSpacing(lineList.get(lineNumber - 1)
+                                                  .toCharArray());
+            edits.insertAfter((int) (close >>> 32), fixCloseBrace(braceIndex));
+        }
     }
     
+    
     /**
      * Fixes a program that contains blank line errors before any methods, and
      * before and after any private data field declarations, by adding blank
      * lines in the appropriate places.
      * 
-     * @param lineList  The lines of the program with errors
-     * @param output    The text output stream to a specified output file
+     * @param lineList         The lines of the program with errors
+     * @param blankLineErrors  The line numbers of the missing blank lines
+     * @param report           The report the fixed program is written to
+     * @return fixedLines      The lines of the program with blank lines added
      */
-    private static void fixBlankLineError(ArrayList<String> lineList, 
-                                          PrintWriter output)
+    static ArrayList<String> fixBlankLineError(ArrayList<String> lineList,
+                                               LineNumberList blankLineErrors,
+                                               ReportSink report)
     {
-        ArrayList<Integer> blankLineErrors = findNoBlankLineError(lineList);
-        int offset = -1; // -1 because the line number is 1 greater than index
+        EditBuffer edits = new EditBuffer();
+        addBlankLineFixes(lineList, blankLineErrors, edits);
         
-        for (int i: blankLineErrors)
+        ArrayList<String> fixedLines = edits.apply(lineList);
+        report.addCorrection("Blank Line Error Correction(s):",
+                             "=================================", fixedLines);
+        return fixedLines;
+    }
+    
+    /**
+     * Records the blank lines that fix the given blank line errors as edits
+     * of the program. The program itself is not changed.
+     * 
+     * @param lineList         The lines of the program with errors
+     * @param blankLineErrors  The line numbers of the missing blank lines
+     * @param edits            The buffer the edits are recorded in
+     */
+    static void addBlankLineFixes(List<String> lineList,
+                                  LineNumberList blankLineErrors,
+                                  EditBuffer edits)
+    {
+        for (int j = 0; j < blankLineErrors.size(); j++)
         {
-            String currentLine = inputDataLines.get(i + offset);
+            int i = blankLineErrors.get(j);
+            String currentLine = lineList.get(i - 1);
             
             if (currentLine.contains("}") 
                 && currentLine.length() > 1)
@@ -761,46 +841,14 @@ public class StyleChecker
                 String brace = currentLine.substring(0, braceIndex + 1);
                 String remainder = " " + currentLine.substring(braceIndex + 1);
                 
-                inputDataLines.remove(i + offset);
-                inputDataLines.add(i + offset, brace);
-                inputDataLines.add(i + 1 + offset, "");
-                inputDataLines.add(i + 2 + offset, remainder);
-                offset += 2;
+                edits.replace(i, brace, "", remainder);
             }
             
             else 
             {
-                lineList.add(i + offset, "");
-                offset += 1;
+                edits.insertBefore(i, "");
             }
         }
-        output.println("\nBlank Line Error Correction(s):");
-        output.println("=================================");
-        
-        for (String line: lineList)
-        {
-            output.println(line);
-        }
-    }
-    
-    /**
-     * Given two consecutive lines from inputDataLines, checks if the first line
-     * given is a method. We assume that we will not be passed lines that are
-     * methods with parameters that take up more than one line.
-     * 
-     * @param line       A line given from inputDataLines
-     * @param nextLine   The successive line from inputDataLines 
-     */
-    private static boolean isMethod(String line)
-    {
-       boolean result = false;
-       
-       if (((line.contains("private") || line.contains("public"))
-               && line.contains("(")))
-       {
-           result = true;
-       }
-       return result;
     }
     
     /**
@@ -810,128 +858,188 @@ public class StyleChecker
      * were found on.
      * 
      * 
-     * @param output The output file to written to
+     * @param source      The text of the program to check
+     * @param output      The output file to written to
+     * @return ERROR_SUM  The number of style errors found
+     */
+    static int generateReport(SourceText source, PrintWriter output)
+    {
+        return generateReport(source, "-", ReportFormat.TEXT.open(output),
+                              null, RuleRegistry.all());
+    }
+    
+    /**
+     * Outputs a style report like generateReport(source, output) to the given
+     * report sink, in whatever format the sink writes, but first looks for
+     * the errors of the program in the given cache. When the cache has them
+     * they are replayed into the report without checking any rule, otherwise
+     * the program is checked and its errors are added to the cache. The sink
+     * is closed once the report is written. What the check cost is added to
+     * the CheckerMetrics when they are enabled.
      * 
+     * @param source      The text of the program to check
+     * @param path        The path of the program, or "-" if it has none
+     * @param report      The sink the report is written to
+     * @param cache       The cache of earlier results, or null for none
+     * @param registry    The rules the program is checked against
+     * @return ERROR_SUM  The number of style errors found
      */
-    private static void generateReport(PrintWriter output)
+    static int generateReport(SourceText source, String path, 
+                              ReportSink report, ResultCache cache,
+                              RuleRegistry registry)
     {
-        ArrayList<Integer> indentErrorLines = findIndentError(inputDataLines);
-        ArrayList<Integer> longLineErrorLines = findLongLines(inputDataLines);
-        ArrayList<Integer> optionalBraceErrorLines = 
-                                        findOptionalBraceError(inputDataLines);
-        ArrayList<Integer> multiCodeSameLineErrorLines = 
-                                        findMultiCodeSameLine(inputDataLines);
-        ArrayList<Integer> operatorSpaceErrorLines = 
-                                        findOperatorSpaceError(inputDataLines);
-        ArrayList<Integer> braceAlignmentErrorLines = 
-                                        findBraceAlignmentError(inputDataLines);
-        ArrayList<Integer> noBlankLineErrorLines = 
-                                        findNoBlankLineError(inputDataLines);
-        
-        final int ERROR_SUM = indentErrorLines.size() 
-                            + longLineErrorLines.size()
-                            + optionalBraceErrorLines.size() 
-                            + multiCodeSameLineErrorLines.size()
-                            + operatorSpaceErrorLines.size()
-                            + braceAlignmentErrorLines.size()
-                            + noBlankLineErrorLines.size();
-        
-        final String MY_NAME = "Style report by Jeff Rowell";
-        String authorName = "Test program author: ";
-        String errorTypes = "Error(s) checked: ";
-        String todaysDate = "10/12/2017";
-        
-        for (int i = 0; i < inputDataLines.size(); i++)
-        {
-            if (inputDataLines.get(i).contains("/*"))
-            {
-                authorName += inputDataLines.get(i + 1).trim();
-                
-                if (inputDataLines.get(i + 2).trim().startsWith("Error"))
-                {
-                    int index = inputDataLines.get(i + 2).indexOf(":");
-                    errorTypes += inputDataLines.get(i + 2).substring
-                                                            (index + 1).trim();
-                }
-                
-                else
+        long checkStart = CheckerMetrics.startPhase();
+        Rule[] rules = registry.createRules();
+        RuleMetrics metrics = CheckerMetrics.isTiming() 
+                              ? new RuleMetrics(rules.length) : null;
+        ViolationCollector violations = new ViolationCollector(
+                                            source.lineCount());
+        String cacheKey = cache == null ? null 
+                          : cache.key(source, rules, registry.getConfig());
+        LineNumberList[] cached = cache == null ? null 
+                                  : cache.load(cacheKey, rules.length + 1);
+        
+        // The brace errors left after the blank line fixes are made
+        LineNumberList fixedBraceErrorLines = null;
+        
+        if (cached != null)
+        {
+            for (int i = 0; i < rules.length; i++)
+            {
+                for (int j = 0; j < cached[i].size(); j++)
                 {
-                    errorTypes += inputDataLines.get(i + 2).trim();
+                    violations.addViolation(rules[i], cached[i].get(j));
                 }
-                break;
             }
+            fixedBraceErrorLines = cached[rules.length];
         }
         
-        output.println("Date: " + todaysDate);
-        output.println(MY_NAME + "\n" + authorName + "\n" + errorTypes + "\n");
-        output.println("Style errors found:");
-        output.println("====================");
+        else
+        {
+            // Every rule is checked against each line in a single pass, split
+            // across the cores when the program is large
+            ParallelChecker.run(source, violations, ForkJoinPool.commonPool(),
+                                metrics, registry::createRules, rules);
+        }
         
-        if (!(indentErrorLines.isEmpty() && longLineErrorLines.isEmpty()
-                && optionalBraceErrorLines.isEmpty()
-                && multiCodeSameLineErrorLines.isEmpty() 
-                && operatorSpaceErrorLines.isEmpty()
-                && braceAlignmentErrorLines.isEmpty()
-                && noBlankLineErrorLines.isEmpty())) 
+        if (metrics != null)
         {
-            for (int i = 0; i < indentErrorLines.size(); i++) 
-            {
-                output.println("Line " + indentErrorLines.get(i)
-                        + ": statement block indentation error");
-            }
-            
-            for (int i = 0; i < longLineErrorLines.size(); i++) 
-            {
-                output.println("Line " + longLineErrorLines.get(i)
-                        + ": exceeds the maximum line length");
-            }
-            
-            for (int i = 0; i < optionalBraceErrorLines.size(); i++) 
+            for (int i = 0; i < rules.length; i++)
             {
-                output.println("Line " + optionalBraceErrorLines.get(i)
-                        + ": statement block missing curly braces");
+                metrics.addViolations(i, violations.getErrorLines(rules[i])
+                                                   .size());
             }
+            CheckerMetrics.addCheck(path, source.lineCount(), source.length(),
+                                    rules, metrics);
+        }
+        CheckerMetrics.endPhase(CheckerMetrics.Phase.CHECK, checkStart);
+        long reportStart = CheckerMetrics.startPhase();
+        final int ERROR_SUM = violations.getErrorCount();
+        fixedBraceErrorLines = writeReport(source, path, report, rules, 
+                                           violations, fixedBraceErrorLines);
+        
+        if (cache != null && cached == null)
+        {
+            LineNumberList[] lists = new LineNumberList[rules.length + 1];
             
-            for (int i = 0; i < multiCodeSameLineErrorLines.size(); i++)
+            for (int i = 0; i < rules.length; i++)
             {
-                output.println("Line " + multiCodeSameLineErrorLines.get(i) 
-                           +   ": two separate lines of code on the same line");
+                lists[i] = violations.getErrorLines(rules[i]);
             }
+            lists[rules.length] = fixedBraceErrorLines == null 
+                                  ? new LineNumberList() : fixedBraceErrorLines;
+            cache.store(cacheKey, lists);
+        }
+        report.close();
+        CheckerMetrics.endPhase(CheckerMetrics.Phase.REPORT, reportStart);
+        return ERROR_SUM;
+    } 
+    
+    /**
+     * Writes the style report of a program that has already been checked to
+     * the given report sink, followed by the fixes of its missing blank lines
+     * and optional braces. The sink is left open.
+     * 
+     * @param source                The text of the program
+     * @param path                  The path of the program, or "-" if it has
+     *                              none
+     * @param report                The sink the report is written to
+     * @param rules                 The rules the program was checked against
+     * @param violations            The errors the rules found
+     * @param fixedBraceErrorLines  The brace errors left after the blank line
+     *                              fixes are made, or null if they are not
+     *                              known yet
+     * @return fixedBraceErrorLines The brace errors left after the blank line
+     *                              fixes are made, or null if there are no
+     *                              brace errors to fix
+     */
+    static LineNumberList writeReport(SourceText source, String path, 
+                                      ReportSink report, Rule[] rules, 
+                                      ViolationCollector violations,
+                                      LineNumberList fixedBraceErrorLines)
+    {
+        LineNumberList optionalBraceErrorLines = 
+                            violations.getErrorLines(OptionalBraceRule.class);
+        LineNumberList noBlankLineErrorLines = 
+                            violations.getErrorLines(NoBlankLineRule.class);
+        final int ERROR_SUM = violations.getErrorCount();
+        
+        String authorName = "";
+        String errorTypes = "";
+        int headerLine = source.findLine("/*");
+        
+        if (headerLine >= 0)
+        {
+            String errorLine = source.line(headerLine + 2).trim();
+            authorName = source.line(headerLine + 1).trim();
             
-            for (int i = 0; i < operatorSpaceErrorLines.size(); i++)
+            if (errorLine.startsWith("Error"))
             {
-                output.println("Line " + operatorSpaceErrorLines.get(i)
-                             + ": needs exactly one space between operator");
+                int index = errorLine.indexOf(":");
+                errorTypes = errorLine.substring(index + 1).trim();
             }
             
-            for (int i = 0; i < braceAlignmentErrorLines.size(); i++)
+            else
             {
-                output.println("Line " + braceAlignmentErrorLines.get(i)
-                             + ": brace alignment error");
+                errorTypes = errorLine;
             }
+        }
+        report.begin(path, authorName, errorTypes, rules);
+        
+        for (Rule rule: rules)
+        {
+            LineNumberList errorLines = violations.getErrorLines(rule);
             
-            for (int i = 0; i < noBlankLineErrorLines.size(); i++)
+            for (int i = 0; i < errorLines.size(); i++)
             {
-                output.println("Line " + noBlankLineErrorLines.get(i) 
-                             + ": missing blank line before statement");
+                report.addViolation(rule, errorLines.get(i));
             }
         }
+        report.end(ERROR_SUM);
         
-        else
-        {
-            output.println("No style errors found!");
-        }
-        output.println("\nTotal style errors: " + ERROR_SUM + "\n");
+        // The brace fixes are made on top of the blank line fixes
+        ArrayList<String> fixedLines = null;
         
         if (noBlankLineErrorLines.size() > 0)
         {
-            fixBlankLineError(inputDataLines, output);
+            fixedLines = fixBlankLineError(source.toLineList(), 
+                                           noBlankLineErrorLines, report);
         }
         
         if (optionalBraceErrorLines.size() > 0)
         {
-            fixOptionalBraceError(inputDataLines, output);
+            if (fixedLines == null)
+            {
+                fixedLines = source.toLineList();
+                fixedBraceErrorLines = optionalBraceErrorLines;
+            }
+            
+            else if (fixedBraceErrorLines == null)
+            {
+                fixedBraceErrorLines = findOptionalBraceError(fixedLines);
+            }
+            fixOptionalBraceError(fixedLines, fixedBraceErrorLines, report);
         }
-        output.close();
-    } 
+        return fixedBraceErrorLines;
+    }
 }
\ No newline at end of file
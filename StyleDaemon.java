@@ -0,0 +1,560 @@
+package stylechecker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The StyleDaemon keeps the checker running in the background so that each
+ * check does not pay for starting and warming up a new JVM. It listens on a
+ * loopback socket, so only programs on the same machine can reach it, and
+ * answers each request with the same style report the checker writes to its
+ * output file.
+ *
+ * A loopback socket still lets every local user and process connect, so the
+ * daemon writes a random token to a file only its owner can read, and a
+ * connection must send "AUTH token" as its first line before anything else
+ * is answered. A client that is not authorized is sent "ERROR not authorized"
+ * and is disconnected, and one that has not sent a whole first line within
+ * the authorization timeout is disconnected without an answer, so no one
+ * who lacks the token can hold a thread open. CHECK only reads files under the daemon's root
+ * directory, so an authorized client cannot use it to read other files
+ * either.
+ *
+ * After AUTH, every request is a single line, and a connection may send any
+ * number of them:
+ *
+ *   CHECK path     checks the file at the given path, which is resolved
+ *                  against the root and must lie under it
+ *   CONTENT n      checks the program in the n bytes after the line, where
+ *                  n is from 0 to MAX_CONTENT
+ *   QUIT           closes the connection
+ *   SHUTDOWN       closes the connection and stops the daemon
+ *
+ * AUTH is answered with "OK 0". A check is answered with the line "OK n"
+ * followed by the n bytes of the report, or with the line "ERROR message" if
+ * the program cannot be read or checked.
+ * A CONTENT request whose length cannot be used is answered with ERROR and
+ * the connection is closed, since the bytes after it cannot be told apart
+ * from the next request.
+ *
+ * A connection that sends CONTENT again and again, as an editor does while a
+ * file is written, is answered from an IncrementalChecker it keeps: only the
+ * lines that differ from its last CONTENT are checked again.
+ *
+ * Each connection is read on a thread of its own, and only the checks run on
+ * the fixed pool of workers, so a client that keeps its connection open
+ * without sending anything does not keep other clients waiting.
+ */
+final class StyleDaemon
+{
+
+    static final int DEFAULT_PORT = 4747;
+    static final String DEFAULT_TOKEN_FILE = ".stylechecker-token";
+    static final int MAX_CONTENT = 64 << 20;
+    static final int AUTH_TIMEOUT = 10000;
+    private static final int MAX_REQUEST_LINE = 1 << 16;
+    private static final int TOKEN_BYTES = 32;
+    private final ServerSocket server;
+    private final ExecutorService connections;
+    private final ExecutorService pool;
+    private final ResultCache cache;
+    private final RuleRegistry registry;
+    private final Path root;
+    private final Path tokenFile;
+    private final byte[] authRequest;
+    private volatile int authTimeout = AUTH_TIMEOUT;
+
+    /**
+     * Creates a daemon listening on the given loopback port, and writes the
+     * token its clients must send to the token file. The token file is
+     * replaced if it exists, and is readable only by its owner on file
+     * systems that have POSIX permissions.
+     *
+     * @param port          The port to listen on, or 0 for any free port
+     * @param threadCount   The number of checks run at the same time
+     * @param cache         The cache of earlier results, or null for none
+     * @param registry      The rules the programs are checked against
+     * @param root          The directory CHECK requests are limited to
+     * @param tokenFile     The file the token is written to
+     * @throws IOException if the port cannot be listened on, the root does
+     *                     not exist or the token file cannot be written
+     */
+    StyleDaemon(int port, int threadCount, ResultCache cache,
+                RuleRegistry registry, File root, File tokenFile)
+               throws IOException
+    {
+        this.root = root.toPath().toRealPath();
+        this.tokenFile = tokenFile.toPath();
+        String token = newToken();
+        writeToken(this.tokenFile, token);
+        this.authRequest = ("AUTH " + token).getBytes(StandardCharsets.UTF_8);
+        this.server = new ServerSocket(port, 0,
+                                       InetAddress.getLoopbackAddress());
+        this.connections = PipelineChecker.newIoExecutor();
+        this.pool = Executors.newFixedThreadPool(Math.max(1, threadCount));
+        this.cache = cache;
+        this.registry = registry;
+    }
+
+    /**
+     * Returns the port the daemon is listening on.
+     *
+     * @return port     The local port of the daemon's socket
+     */
+    int getPort()
+    {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Sets how long a new connection has to send its AUTH line before it is
+     * closed.
+     *
+     * @param millis    The timeout in milliseconds
+     */
+    void setAuthTimeout(int millis)
+    {
+        authTimeout = millis;
+    }
+
+    /**
+     * Accepts connections until the daemon is told to shut down. Each
+     * connection is read on a thread of its own. The token file is deleted
+     * once the daemon stops.
+     */
+    void serve()
+    {
+        try
+        {
+            while (!server.isClosed())
+            {
+                Socket socket = server.accept();
+                connections.execute(() -> serve(socket));
+            }
+        }
+
+        catch (IOException ex)
+        {
+            // The socket was closed by a SHUTDOWN request
+        }
+
+        finally
+        {
+            connections.shutdown();
+            pool.shutdown();
+
+            try
+            {
+                Files.deleteIfExists(tokenFile);
+            }
+
+            catch (IOException ex)
+            {
+                // A token that is left behind no longer opens anything
+            }
+        }
+    }
+
+    /**
+     * Answers the requests sent over a single connection until the client
+     * quits or closes it.
+     *
+     * @param socket    The connection to a client
+     */
+    private void serve(Socket socket)
+    {
+        try (Socket client = socket;
+             InputStream input = new BufferedInputStream(
+                                     client.getInputStream());
+             OutputStream output = new BufferedOutputStream(
+                                       client.getOutputStream()))
+        {
+            // Only an authorized client may leave its connection idle
+            client.setSoTimeout(authTimeout);
+            String request = readLine(input);
+
+            if (request == null)
+            {
+                return;
+            }
+
+            if (!MessageDigest.isEqual(
+                    request.getBytes(StandardCharsets.UTF_8), authRequest))
+            {
+                writeLine(output, "ERROR not authorized");
+                return;
+            }
+            client.setSoTimeout(0);
+            writeLine(output, "OK 0");
+            output.flush();
+            Session session = new Session();
+
+            while ((request = readLine(input)) != null)
+            {
+                if (request.equals("QUIT"))
+                {
+                    break;
+                }
+
+                if (request.equals("SHUTDOWN"))
+                {
+                    server.close();
+                    break;
+                }
+                boolean open = respond(request, input, output, session);
+                output.flush();
+
+                if (!open)
+                {
+                    break;
+                }
+            }
+        }
+
+        catch (IOException ex)
+        {
+            // The client went away or did not authorize in time; there is
+            // no one left to answer
+        }
+    }
+
+    /**
+     * Answers a single CHECK or CONTENT request.
+     *
+     * @param request   The request line
+     * @param input     The stream the request came from
+     * @param output    The stream the answer is written to
+     * @param session   The state kept for the connection
+     * @return open     false if the connection must be closed after the
+     *                  answer, true otherwise
+     * @throws IOException if the connection fails
+     */
+    private boolean respond(String request, InputStream input,
+                            OutputStream output, Session session)
+                           throws IOException
+    {
+        SourceText source;
+        String path = "-";
+
+        if (request.startsWith("CHECK "))
+        {
+            path = request.substring("CHECK ".length());
+            Path file;
+
+            try
+            {
+                file = root.resolve(path).toRealPath();
+            }
+
+            catch (IOException | InvalidPathException ex)
+            {
+                writeLine(output, "ERROR " + path + " could not be read");
+                return true;
+            }
+
+            if (!file.startsWith(root))
+            {
+                writeLine(output, "ERROR " + path + " is outside " + root);
+                return true;
+            }
+
+            try
+            {
+                source = SourceText.read(file.toFile());
+            }
+
+            catch (IOException ex)
+            {
+                writeLine(output, "ERROR " + path + " could not be read");
+                return true;
+            }
+        }
+
+        else if (request.startsWith("CONTENT "))
+        {
+            int length;
+
+            try
+            {
+                length = Integer.parseInt(request.substring(
+                                              "CONTENT ".length()).trim());
+            }
+
+            catch (NumberFormatException ex)
+            {
+                writeLine(output, "ERROR bad length: " + request);
+                return false;
+            }
+
+            if (length < 0 || length > MAX_CONTENT)
+            {
+                writeLine(output, "ERROR length must be from 0 to "
+                                  + MAX_CONTENT + ": " + request);
+                return false;
+            }
+            byte[] content = input.readNBytes(length);
+
+            if (content.length < length)
+            {
+                throw new SocketException("connection closed mid request");
+            }
+            source = SourceText.decode(ByteBuffer.wrap(content));
+        }
+
+        else
+        {
+            writeLine(output, "ERROR unknown request: " + request);
+            return true;
+        }
+        SourceText program = source;
+        String name = path;
+        byte[] report;
+
+        try
+        {
+            report = pool.submit(() -> name.equals("-")
+                                        ? report(program, session)
+                                        : report(program, name)).get();
+        }
+
+        catch (ExecutionException ex)
+        {
+            writeLine(output, "ERROR " + path + " could not be checked: "
+                              + ex.getCause());
+            return true;
+        }
+
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw new SocketException("interrupted while checking " + path);
+        }
+        writeLine(output, "OK " + report.length);
+        output.write(report);
+        return true;
+    }
+
+    /**
+     * Writes the style report of the given program into a byte array, in the
+     * default charset like the report file.
+     *
+     * @param source    The text of the program to check
+     * @param path      The path of the program, or "-" if it has none
+     * @return report   The bytes of the style report
+     */
+    private byte[] report(SourceText source, String path)
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        StyleChecker.generateReport(source, path, ReportFormat.TEXT.open(
+                                        new OutputStreamWriter(bytes)), cache,
+                                    registry);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes the style report of a program sent with CONTENT, checking only
+     * what changed since the last program the connection sent.
+     *
+     * @param source    The text of the program to check
+     * @param session   The state kept for the connection
+     * @return report   The bytes of the style report
+     */
+    private byte[] report(SourceText source, Session session)
+    {
+        long checkStart = CheckerMetrics.startPhase();
+        List<String> lines = source.toLineList();
+
+        try
+        {
+            if (session.program == null)
+            {
+                session.program = new IncrementalChecker(
+                                      lines, registry.createRules());
+            }
+
+            else
+            {
+                update(session.program, lines);
+            }
+        }
+
+        catch (RuntimeException | Error ex)
+        {
+            // The checker may be left half way through the edit
+            session.program = null;
+            throw ex;
+        }
+        ViolationCollector violations = new ViolationCollector(
+                                            source.lineCount());
+        session.program.report(violations);
+        CheckerMetrics.endPhase(CheckerMetrics.Phase.CHECK, checkStart);
+
+        long reportStart = CheckerMetrics.startPhase();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ReportSink report = ReportFormat.TEXT.open(
+                                new OutputStreamWriter(bytes));
+        StyleChecker.writeReport(source, "-", report,
+                                 session.program.getRules(), violations,
+                                 null);
+        report.close();
+        CheckerMetrics.endPhase(CheckerMetrics.Phase.REPORT, reportStart);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Edits the program of an IncrementalChecker into the given lines, as a
+     * single edit that replaces the lines between the longest common start
+     * and the longest common end of the two programs.
+     *
+     * @param program   The checker holding the old program
+     * @param lines     The lines of the new program
+     */
+    static void update(IncrementalChecker program, List<String> lines)
+    {
+        List<String> old = program.getLines();
+        int shorter = Math.min(old.size(), lines.size());
+        int start = 0;
+
+        while (start < shorter && old.get(start).equals(lines.get(start)))
+        {
+            start++;
+        }
+        int end = 0;
+
+        while (end < shorter - start
+               && old.get(old.size() - 1 - end).equals(
+                      lines.get(lines.size() - 1 - end)))
+        {
+            end++;
+        }
+
+        if (start < old.size() || start < lines.size())
+        {
+            program.edit(start, old.size() - start - end,
+                         lines.subList(start, lines.size() - end));
+        }
+    }
+
+    /**
+     * Returns a new random token, as hexadecimal digits.
+     *
+     * @return token    The token clients must send to be served
+     */
+    private static String newToken()
+    {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder token = new StringBuilder();
+
+        for (byte letter : bytes)
+        {
+            token.append(String.format("%02x", letter));
+        }
+        return token.toString();
+    }
+
+    /**
+     * Writes the token to a new file that only its owner can read and write
+     * where the file system allows it. Any old token file is removed first,
+     * so that the file cannot be one another user created with looser
+     * permissions.
+     *
+     * @param file      The file to write the token to
+     * @param token     The token
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeToken(Path file, String token) throws IOException
+    {
+        Files.deleteIfExists(file);
+
+        try
+        {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(
+                                       PosixFilePermissions.fromString(
+                                           "rw-------")));
+        }
+
+        catch (UnsupportedOperationException ex)
+        {
+            Files.createFile(file);
+        }
+        Files.write(file, (token + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads a request line, which ends with a line feed. A carriage return
+     * before the line feed is dropped.
+     *
+     * @param input     The stream to read from
+     * @return line     The line read, or null at the end of the stream
+     * @throws IOException if the connection fails or the line is too long
+     */
+    private static String readLine(InputStream input) throws IOException
+    {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int letter;
+
+        while ((letter = input.read()) != '\n')
+        {
+            if (letter == -1)
+            {
+                return line.size() == 0 ? null
+                                        : line.toString(StandardCharsets.UTF_8);
+            }
+
+            if (line.size() == MAX_REQUEST_LINE)
+            {
+                throw new SocketException("request line too long");
+            }
+            line.write(letter);
+        }
+
+        String request = line.toString(StandardCharsets.UTF_8);
+        return request.endsWith("\r")
+               ? request.substring(0, request.length() - 1) : request;
+    }
+
+    /**
+     * Writes a line of the protocol, ending it with a line feed.
+     *
+     * @param output    The stream to write to
+     * @param line      The line to write
+     * @throws IOException if the connection fails
+     */
+    private static void writeLine(OutputStream output, String line)
+                                 throws IOException
+    {
+        output.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The state the daemon keeps for a single connection.
+     */
+    private static final class Session
+    {
+        // The last program sent with CONTENT, or null before the first
+        IncrementalChecker program;
+    }
+}
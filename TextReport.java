@@ -0,0 +1,75 @@
+package stylechecker;
+
+import java.util.List;
+
+/**
+ * A TextReport writes the style report meant to be read: a header, every
+ * error with its line number, the total and the fixed program.
+ */
+final class TextReport implements ReportSink
+{
+
+    private static final String MY_NAME = "Style report by Jeff Rowell";
+    private static final String TODAYS_DATE = "10/12/2017";
+    private final ReportWriter out;
+
+    /**
+     * Creates a text report that writes through the given writer.
+     *
+     * @param out       The writer the report is written to
+     */
+    TextReport(ReportWriter out)
+    {
+        this.out = out;
+    }
+
+    @Override
+    public void begin(String path, String author, String errorTypes,
+                      Rule[] rules)
+    {
+        out.append("Date: ").append(TODAYS_DATE).newLine();
+        out.append(MY_NAME).append('\n')
+           .append("Test program author: ").append(author).append('\n')
+           .append("Error(s) checked: ").append(errorTypes).append('\n')
+           .newLine();
+        out.append("Style errors found:").newLine();
+        out.append("====================").newLine();
+    }
+
+    @Override
+    public void addViolation(Rule rule, int lineNumber)
+    {
+        out.append("Line ").append(lineNumber).append(": ")
+           .append(rule.getMessage()).newLine();
+    }
+
+    @Override
+    public void end(int errorCount)
+    {
+        if (errorCount == 0)
+        {
+            out.append("No style errors found!").newLine();
+        }
+        out.append('\n').append("Total style errors: ").append(errorCount)
+           .append('\n').newLine();
+    }
+
+    @Override
+    public void addCorrection(String title, String underline,
+                              List<String> lines)
+    {
+        out.append('\n').append(title).newLine();
+        out.append(underline).newLine();
+
+        for (String line: lines)
+        {
+            out.append(line).newLine();
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        out.close();
+    }
+}
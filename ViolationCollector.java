@@ -0,0 +1,105 @@
+package stylechecker;
+
+import java.util.IdentityHashMap;
+
+/**
+ * A ViolationCollector keeps every style error it receives, grouped by the
+ * rule that found it and in the order they were found, so that a report can
+ * list them rule by rule.
+ *
+ * The list of each rule starts out sized for the program being checked, so
+ * a small program does not pay for a large list and a large one does not
+ * grow its lists over and over.
+ */
+final class ViolationCollector implements ViolationSink
+{
+
+    // Most rules find far fewer errors than there are lines
+    private static final int LINES_PER_ERROR = 16;
+    private static final int MIN_CAPACITY = 8;
+    private final IdentityHashMap<Rule, LineNumberList> errorLines =
+                                                       new IdentityHashMap<>();
+    private final int capacity;
+    private int errorCount = 0;
+
+    /**
+     * Creates a collector for a program of unknown length.
+     */
+    ViolationCollector()
+    {
+        this(0);
+    }
+
+    /**
+     * Creates a collector for a program of the given number of lines.
+     *
+     * @param lineCount     The number of lines in the program
+     */
+    ViolationCollector(int lineCount)
+    {
+        capacity = expectedErrors(lineCount);
+    }
+
+    /**
+     * Returns the number of errors a rule is expected to find, at most, in
+     * most programs of the given number of lines.
+     *
+     * @param lineCount     The number of lines in the program
+     * @return errorCount   The expected number of errors of one rule
+     */
+    static int expectedErrors(int lineCount)
+    {
+        return Math.max(MIN_CAPACITY, lineCount / LINES_PER_ERROR);
+    }
+
+    @Override
+    public void addViolation(Rule rule, int lineNumber)
+    {
+        errorLines.computeIfAbsent(rule, r -> new LineNumberList(capacity))
+                  .add(lineNumber);
+        errorCount++;
+    }
+
+    /**
+     * Returns the line numbers found to contain the given rule's style error.
+     *
+     * @param rule          The rule that found the errors
+     * @return errorLines   A list of the line numbers, in the order they
+     *                      were found
+     */
+    LineNumberList getErrorLines(Rule rule)
+    {
+        LineNumberList lines = errorLines.get(rule);
+        return lines == null ? new LineNumberList() : lines;
+    }
+
+    /**
+     * Returns the line numbers found to contain the style error of the rule
+     * of the given type.
+     *
+     * @param type          The class of the rule that found the errors
+     * @return errorLines   A list of the line numbers, in the order they
+     *                      were found
+     */
+    LineNumberList getErrorLines(Class<? extends Rule> type)
+    {
+        for (Rule rule: errorLines.keySet())
+        {
+            if (type.isInstance(rule))
+            {
+                return errorLines.get(rule);
+            }
+        }
+        return new LineNumberList();
+    }
+
+    /**
+     * Returns the number of style errors found by all of the rules.
+     *
+     * @return errorCount   The total number of style errors
+     */
+    int getErrorCount()
+    {
+        return errorCount;
+    }
+}
@@ -0,0 +1,17 @@
+package stylechecker;
+
+/**
+ * A ViolationSink receives the style errors found by the rules as soon as
+ * they are found. A sink may keep them for the report or pass them straight
+ * on, so the rules never decide how their errors are stored.
+ */
+public interface ViolationSink
+{
+    /**
+     * Receives a style error found by a rule.
+     *
+     * @param rule          The rule that found the error
+     * @param lineNumber    The line number the error was found on
+     */
+    void addViolation(Rule rule, int lineNumber);
+}
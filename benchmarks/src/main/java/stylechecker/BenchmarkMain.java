@@ -0,0 +1,32 @@
+package stylechecker;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with allocation profiling turned on. Any of the usual
+ * JMH command line options can be given, for example "-p lineCount=1000" to
+ * run against the smallest program only.
+ */
+public final class BenchmarkMain
+{
+
+    private BenchmarkMain()
+    {
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException,
+                                                  RunnerException
+    {
+        Options options = new OptionsBuilder()
+                              .parent(new CommandLineOptions(args))
+                              .addProfiler(GCProfiler.class)
+                              .build();
+        new Runner(options).run();
+    }
+}
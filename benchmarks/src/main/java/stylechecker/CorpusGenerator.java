@@ -0,0 +1,465 @@
+package stylechecker;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Builds seeded synthetic programs of any size with a chosen density of each
+ * kind of style error the checker finds. A program is one class of methods
+ * whose bodies are random statements and nested if, else, while and for
+ * blocks, all written in the house style, with errors planted in some of
+ * them. Each error is planted in code that is otherwise clean, so a check
+ * finds it exactly once, by the rule it is planted for, and the generator
+ * counts what it plants so that a check can be compared with it.
+ *
+ * The density of an error is the chance that each place it can be planted
+ * gets one: every simple statement for the indentation, long line, multiple
+ * statement and operator spacing errors, every block for the missing brace
+ * and brace alignment errors, and every method for the missing blank line.
+ * A statement or a block gets at most one error, so the densities of each
+ * group must add up to no more than 1.
+ *
+ * The same seed, densities and limits always give the same programs, while
+ * the SyntheticCorpus repeats one fixed block so the benchmarks stay
+ * comparable from run to run.
+ */
+final class CorpusGenerator
+{
+
+    /**
+     * The kinds of style error the generator plants, each with the rule that
+     * finds it.
+     */
+    enum Violation
+    {
+        INDENT("indent", IndentRule.class),
+        LONG_LINE("long-line", LongLineRule.class),
+        MULTIPLE_STATEMENTS("multiple-statements",
+                            MultiCodeSameLineRule.class),
+        OPERATOR_SPACE("operator-space", OperatorSpaceRule.class),
+        MISSING_BRACES("missing-braces", OptionalBraceRule.class),
+        BRACE_ALIGNMENT("brace-alignment", BraceAlignmentRule.class),
+        MISSING_BLANK_LINE("missing-blank-line", NoBlankLineRule.class);
+
+        private final String name;
+        private final Class<? extends Rule> rule;
+
+        Violation(String name, Class<? extends Rule> rule)
+        {
+            this.name = name;
+            this.rule = rule;
+        }
+
+        /**
+         * Returns the violation with the given command line name.
+         *
+         * @param name          The name of the violation
+         * @return violation    The violation with that name
+         * @throws IllegalArgumentException if there is no such violation
+         */
+        static Violation forName(String name)
+        {
+            for (Violation violation: values())
+            {
+                if (violation.name.equals(name))
+                {
+                    return violation;
+                }
+            }
+            throw new IllegalArgumentException("unknown violation: " + name);
+        }
+
+        /**
+         * Returns the command line name of the violation.
+         *
+         * @return name     The name of the violation
+         */
+        String getName()
+        {
+            return name;
+        }
+
+        /**
+         * Returns the rule that finds the violation.
+         *
+         * @return rule     The class of the rule
+         */
+        Class<? extends Rule> getRule()
+        {
+            return rule;
+        }
+    }
+
+    static final double DEFAULT_DENSITY = 0.02;
+    private static final int MAX_DEPTH = 6;
+    private static final int MIN_STATEMENTS = 3;
+    private static final int MAX_STATEMENTS = 8;
+    private static final String[] CONDITIONS = {
+        "total > limit", "count < limit", "total != count", "limit >= 0"
+    };
+    private static final String[] STATEMENTS = {
+        "total = total + %d;",
+        "total = total - count;",
+        "count = count + 1;",
+        "total = Math.max(total, limit * %d);",
+        "System.out.println(total);"
+    };
+    private static final String MULTIPLE_STATEMENTS =
+                                    "count = count + 1; total = total - 1;";
+    private static final String FILLER = "the quick brown fox jumps over ";
+    private final long seed;
+    private final int indentWidth;
+    private final int maxLineLength;
+    private final double[] densities = new double[Violation.values().length];
+    private final long[] planted = new long[Violation.values().length];
+    private Random random;
+    private StringBuilder text;
+    private int lineCount;
+
+    /**
+     * Creates a generator with the default density of every error.
+     *
+     * @param seed          The seed of the random choices
+     * @param config        The limits the programs are written for; the
+     *                      clean lines keep within them
+     */
+    CorpusGenerator(long seed, CheckerConfig config)
+    {
+        this.seed = seed;
+        this.indentWidth = config.getIndentWidth();
+        this.maxLineLength = config.getMaxLineLength();
+        Arrays.fill(densities, DEFAULT_DENSITY);
+    }
+
+    /**
+     * Sets the density of one kind of error.
+     *
+     * @param violation     The kind of error
+     * @param density       The chance that each place it can be planted
+     *                      gets one, from 0 to 1
+     * @throws IllegalArgumentException if the density is not between 0 and
+     *                                  1, or its group adds up to more
+     *                                  than 1
+     */
+    void setDensity(Violation violation, double density)
+    {
+        if (!(density >= 0 && density <= 1))
+        {
+            throw new IllegalArgumentException("density of "
+                                               + violation.getName()
+                                               + " must be from 0 to 1");
+        }
+
+        double old = densities[violation.ordinal()];
+        densities[violation.ordinal()] = density;
+
+        if (sum(Violation.INDENT, Violation.OPERATOR_SPACE) > 1
+            || sum(Violation.MISSING_BRACES, Violation.BRACE_ALIGNMENT) > 1)
+        {
+            densities[violation.ordinal()] = old;
+            throw new IllegalArgumentException("the densities of the "
+                                               + "statement or block errors "
+                                               + "add up to more than 1");
+        }
+    }
+
+    /**
+     * Returns the number of errors of a kind planted in every program made
+     * so far.
+     *
+     * @param violation     The kind of error
+     * @return count        The number planted
+     */
+    long getPlanted(Violation violation)
+    {
+        return planted[violation.ordinal()];
+    }
+
+    /**
+     * Builds the program with the given index. Programs with different
+     * indexes are made from different random choices, so a corpus of many
+     * files can be built from one seed.
+     *
+     * @param index         The index of the program
+     * @param lineCount     The number of lines the program has at least; it
+     *                      ends with the method that reaches it
+     * @return source       The text of the program
+     */
+    SourceText generate(int index, int lineCount)
+    {
+        random = new Random(seed * 31 + index);
+        text = new StringBuilder(lineCount * 24);
+        this.lineCount = 0;
+
+        emit(0, "/*");
+        emit(0, "Synthetic corpus " + seed + "." + index);
+        emit(0, "*/");
+        emit(0, "");
+        emit(0, "package tests;");
+        emit(0, "");
+        emit(0, "public class Synthetic" + index);
+        emit(0, "{");
+        emit(0, "");
+        emit(1, "private int count = 0;");
+
+        for (int method = 0; this.lineCount < lineCount - 1; method++)
+        {
+            addMethod(method);
+        }
+        emit(0, "}");
+
+        char[] chars = new char[text.length()];
+        text.getChars(0, chars.length, chars, 0);
+        text = null;
+        return new SourceText(chars, chars.length);
+    }
+
+    /**
+     * Builds the program with the given index and writes it to a file.
+     *
+     * @param file          The file to write
+     * @param index         The index of the program
+     * @param lineCount     The number of lines the program has at least
+     * @return source       The text of the program
+     * @throws IOException if the file cannot be written
+     */
+    SourceText write(Path file, int index, int lineCount) throws IOException
+    {
+        SourceText source = generate(index, lineCount);
+
+        try (Writer writer = Files.newBufferedWriter(file,
+                                                     StandardCharsets.UTF_8))
+        {
+            writer.append(source);
+        }
+        return source;
+    }
+
+    /**
+     * Adds a method with a random body, after a blank line unless a missing
+     * blank line is planted.
+     *
+     * @param method    The number of the method in the class
+     */
+    private void addMethod(int method)
+    {
+        if (!plant(Violation.MISSING_BLANK_LINE))
+        {
+            emit(0, "");
+        }
+        emit(1, "public int method" + method + "(int limit)");
+        emit(1, "{");
+        emit(2, "int total = 0;");
+        addStatements(2);
+        emit(2, "return total;");
+        emit(1, "}");
+    }
+
+    /**
+     * Adds a few random statements and blocks at the given depth.
+     *
+     * @param depth     The number of blocks the statements are in
+     */
+    private void addStatements(int depth)
+    {
+        int count = MIN_STATEMENTS
+                    + random.nextInt(MAX_STATEMENTS - MIN_STATEMENTS + 1);
+
+        for (int i = 0; i < count; i++)
+        {
+            if (depth < MAX_DEPTH && random.nextInt(4) == 0)
+            {
+                addBlock(depth);
+            }
+
+            else
+            {
+                addStatement(depth);
+            }
+        }
+    }
+
+    /**
+     * Adds an if, if and else, while or for block. A missing brace or a
+     * brace alignment error is planted in the first part of the block.
+     *
+     * @param depth     The number of blocks the block is in
+     */
+    private void addBlock(int depth)
+    {
+        String condition = CONDITIONS[random.nextInt(CONDITIONS.length)];
+        int kind = random.nextInt(4);
+        String loop = "i" + depth;
+        String head = kind == 2 ? "while (" + condition + ")"
+                      : kind == 3 ? "for (int " + loop + " = 0; " + loop
+                                    + " < limit; " + loop + "++)"
+                      : "if (" + condition + ")";
+        Violation violation = choose(Violation.MISSING_BRACES,
+                                     Violation.BRACE_ALIGNMENT);
+
+        if (violation == Violation.MISSING_BRACES)
+        {
+            emit(depth, head);
+            emit(depth + 1, cleanStatement());
+        }
+
+        else
+        {
+            if (violation == Violation.BRACE_ALIGNMENT)
+            {
+                emit(depth, head + " {");
+            }
+
+            else
+            {
+                emit(depth, head);
+                emit(depth, "{");
+            }
+            addStatements(depth + 1);
+            emit(depth, "}");
+        }
+
+        if (kind == 1)
+        {
+            emit(depth, "else");
+            emit(depth, "{");
+            addStatements(depth + 1);
+            emit(depth, "}");
+        }
+    }
+
+    /**
+     * Adds a simple statement, with an indentation, long line, multiple
+     * statement or operator spacing error planted in it.
+     *
+     * @param depth     The number of blocks the statement is in
+     */
+    private void addStatement(int depth)
+    {
+        Violation violation = choose(Violation.INDENT,
+                                     Violation.OPERATOR_SPACE);
+
+        if (violation == null)
+        {
+            emit(depth, cleanStatement());
+            return;
+        }
+
+        switch (violation)
+        {
+            case INDENT:
+                // One column short of the block's indentation
+                text.append(" ".repeat(depth * indentWidth - 1))
+                    .append(cleanStatement()).append('\n');
+                lineCount++;
+                break;
+
+            case LONG_LINE:
+                StringBuilder line = new StringBuilder("System.out.println(\"");
+                int length = maxLineLength + 1 + random.nextInt(20)
+                             - depth * indentWidth - 3;
+
+                while (line.length() < length)
+                {
+                    line.append(FILLER.charAt(line.length() % FILLER.length()));
+                }
+                emit(depth, line.append("\");").toString());
+                break;
+
+            case MULTIPLE_STATEMENTS:
+                emit(depth, MULTIPLE_STATEMENTS);
+                break;
+
+            default:
+                emit(depth, "total = total+" + (1 + random.nextInt(9)) + ";");
+                break;
+        }
+    }
+
+    /**
+     * Returns a random statement with no style error.
+     *
+     * @return statement    The text of the statement
+     */
+    private String cleanStatement()
+    {
+        return String.format(STATEMENTS[random.nextInt(STATEMENTS.length)],
+                             1 + random.nextInt(9));
+    }
+
+    /**
+     * Chooses which of a group of errors, if any, is planted in the next
+     * place the group can be planted, and counts it.
+     *
+     * @param first         The first error of the group
+     * @param last          The last error of the group
+     * @return violation    The error to plant, or null for none
+     */
+    private Violation choose(Violation first, Violation last)
+    {
+        double roll = random.nextDouble();
+
+        for (int v = first.ordinal(); v <= last.ordinal(); v++)
+        {
+            roll -= densities[v];
+
+            if (roll < 0)
+            {
+                planted[v]++;
+                return Violation.values()[v];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Decides whether to plant an error that has no group, and counts it.
+     *
+     * @param violation     The error
+     * @return true         if the error is planted
+     *         false        otherwise
+     */
+    private boolean plant(Violation violation)
+    {
+        return choose(violation, violation) != null;
+    }
+
+    /**
+     * Returns the sum of the densities of a group of errors.
+     *
+     * @param first     The first error of the group
+     * @param last      The last error of the group
+     * @return sum      The sum of their densities
+     */
+    private double sum(Violation first, Violation last)
+    {
+        double sum = 0;
+
+        for (int v = first.ordinal(); v <= last.ordinal(); v++)
+        {
+            sum += densities[v];
+        }
+        return sum;
+    }
+
+    /**
+     * Adds a line of code indented to the given depth.
+     *
+     * @param depth     The number of blocks the line is in
+     * @param code      The text of the line after its indentation
+     */
+    private void emit(int depth, String code)
+    {
+        if (!code.isEmpty())
+        {
+            text.append(" ".repeat(depth * indentWidth));
+        }
+        text.append(code).append('\n');
+        lineCount++;
+    }
+}
@@ -0,0 +1,39 @@
+package stylechecker;
+
+import java.util.ArrayList;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The synthetic program a benchmark runs against, built once per trial so
+ * generating it is never part of the measurement.
+ */
+@State(Scope.Benchmark)
+public class CorpusState
+{
+
+    @Param({"1000", "100000", "10000000"})
+    public int lineCount;
+
+    SourceText source;
+    ArrayList<String> lineList;
+    LineNumberList blankLineErrors;
+    LineNumberList braceErrorLines;
+
+    @Setup(Level.Trial)
+    public void generate()
+    {
+        source = SyntheticCorpus.generate(lineCount);
+        lineList = source.toLineList();
+
+        ViolationCollector violations = new ViolationCollector();
+        RuleEngine.run(source, violations, new NoBlankLineRule(),
+                       new OptionalBraceRule());
+        blankLineErrors = violations.getErrorLines(NoBlankLineRule.class);
+        braceErrorLines = violations.getErrorLines(OptionalBraceRule.class);
+    }
+}
@@ -0,0 +1,22 @@
+package stylechecker;
+
+/**
+ * A ViolationSink that only counts what it is given, so the detector
+ * benchmarks measure the rules and not the collection of their results.
+ */
+final class CountingSink implements ViolationSink
+{
+
+    private int count = 0;
+
+    @Override
+    public void addViolation(Rule rule, int lineNumber)
+    {
+        count++;
+    }
+
+    int getCount()
+    {
+        return count;
+    }
+}
@@ -0,0 +1,100 @@
+package stylechecker;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks each style error detector on its own, and all of them together
+ * in a single pass and split into chunks across the cores.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class DetectorBenchmark
+{
+
+    @Benchmark
+    public int indent(CorpusState corpus)
+    {
+        return detect(corpus, new IndentRule());
+    }
+
+    @Benchmark
+    public int longLine(CorpusState corpus)
+    {
+        return detect(corpus, new LongLineRule());
+    }
+
+    @Benchmark
+    public int optionalBrace(CorpusState corpus)
+    {
+        return detect(corpus, new OptionalBraceRule());
+    }
+
+    @Benchmark
+    public int multiCodeSameLine(CorpusState corpus)
+    {
+        return detect(corpus, new MultiCodeSameLineRule());
+    }
+
+    @Benchmark
+    public int operatorSpace(CorpusState corpus)
+    {
+        return detect(corpus, new OperatorSpaceRule());
+    }
+
+    @Benchmark
+    public int braceAlignment(CorpusState corpus)
+    {
+        return detect(corpus, new BraceAlignmentRule());
+    }
+
+    @Benchmark
+    public int noBlankLine(CorpusState corpus)
+    {
+        return detect(corpus, new NoBlankLineRule());
+    }
+
+    @Benchmark
+    public int allRules(CorpusState corpus)
+    {
+        return detect(corpus, StyleChecker.createRules());
+    }
+
+    @Benchmark
+    public int allRulesParallel(CorpusState corpus)
+    {
+        CountingSink sink = new CountingSink();
+        ParallelChecker.run(corpus.source, sink, ForkJoinPool.commonPool(),
+                            null, StyleChecker::createRules,
+                            StyleChecker.createRules());
+        return sink.getCount();
+    }
+
+    @Benchmark
+    public int allRulesMeasured(CorpusState corpus)
+    {
+        Rule[] rules = StyleChecker.createRules();
+        CountingSink sink = new CountingSink();
+        RuleEngine.run(corpus.source, sink, new RuleMetrics(rules.length),
+                       rules);
+        return sink.getCount();
+    }
+
+    private static int detect(CorpusState corpus, Rule... rules)
+    {
+        CountingSink sink = new CountingSink();
+        RuleEngine.run(corpus.source, sink, rules);
+        return sink.getCount();
+    }
+}
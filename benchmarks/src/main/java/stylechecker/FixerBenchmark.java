@@ -0,0 +1,53 @@
+package stylechecker;
+
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks both fixers and the end to end report. The fixed program is
+ * written to a writer that throws it away, so only the checker is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class FixerBenchmark
+{
+
+    @Benchmark
+    public ArrayList<String> fixBlankLineError(CorpusState corpus)
+    {
+        return StyleChecker.fixBlankLineError(corpus.lineList,
+                                              corpus.blankLineErrors,
+                                              discard());
+    }
+
+    @Benchmark
+    public void fixOptionalBraceError(CorpusState corpus)
+    {
+        StyleChecker.fixOptionalBraceError(corpus.lineList,
+                                           corpus.braceErrorLines, discard());
+    }
+
+    @Benchmark
+    public int generateReport(CorpusState corpus)
+    {
+        return StyleChecker.generateReport(corpus.source, "-", discard(),
+                                           null, RuleRegistry.all());
+    }
+
+    private static ReportSink discard()
+    {
+        return ReportFormat.TEXT.open(Writer.nullWriter());
+    }
+}
@@ -0,0 +1,344 @@
+package stylechecker;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Checks a synthetic corpus that grows step by step, the way the batch mode
+ * checks a real one, and reports how the checker holds up as it grows. Each
+ * step adds files made by the CorpusGenerator and then checks every file so
+ * far, with the reports written, and prints the lines checked per second, the
+ * garbage collection pauses during the check and the peak resident set size
+ * of the process. The errors planted in the corpus are compared with the
+ * errors the rules find in it at the end.
+ *
+ * Usage: [--seed n] [--steps n] [--files n] [--lines n] [-j threads]
+ *        [--density violation=rate,...] [--dir directory]
+ */
+public final class SoakRunner
+{
+
+    // The action of a concurrent collector's cycle, which is not a pause
+    private static final String CONCURRENT_CYCLE = "end of GC cycle";
+    private static final String STATUS_FILE = "/proc/self/status";
+    private final AtomicLong pauseCount = new AtomicLong();
+    private final AtomicLong pauseNanos = new AtomicLong();
+    private final AtomicLong longestPause = new AtomicLong();
+    private long seed = 1;
+    private int steps = 8;
+    private int filesPerStep = 16;
+    private int linesPerFile = 20000;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private Path directory;
+    private CorpusGenerator generator;
+
+    private SoakRunner()
+    {
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        SoakRunner runner = new SoakRunner();
+
+        try
+        {
+            runner.parse(args);
+        }
+
+        catch (IllegalArgumentException ex)
+        {
+            System.err.println("ERROR: " + ex.getMessage());
+            System.exit(1);
+        }
+        runner.run();
+    }
+
+    /**
+     * Reads the options of the run.
+     *
+     * @param args      The command line arguments
+     * @throws IllegalArgumentException if an option or its value is not
+     *                                  valid
+     */
+    private void parse(String[] args)
+    {
+        ArrayList<String[]> densities = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++)
+        {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+
+            if (value == null)
+            {
+                throw new IllegalArgumentException("missing value of "
+                                                   + args[i]);
+            }
+
+            switch (args[i++])
+            {
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+
+                case "--steps":
+                    steps = positive(value);
+                    break;
+
+                case "--files":
+                    filesPerStep = positive(value);
+                    break;
+
+                case "--lines":
+                    linesPerFile = positive(value);
+                    break;
+
+                case "-j":
+                    threads = positive(value);
+                    break;
+
+                case "--dir":
+                    directory = Paths.get(value);
+                    break;
+
+                case "--density":
+                    for (String setting: value.split(","))
+                    {
+                        densities.add(setting.split("=", 2));
+                    }
+                    break;
+
+                default:
+                    throw new IllegalArgumentException("unknown option: "
+                                                       + args[i - 1]);
+            }
+        }
+
+        generator = new CorpusGenerator(seed, CheckerConfig.defaults());
+
+        for (String[] setting: densities)
+        {
+            if (setting.length != 2)
+            {
+                throw new IllegalArgumentException("density must be given as"
+                                                   + " violation=rate");
+            }
+            generator.setDensity(CorpusGenerator.Violation.forName(
+                                     setting[0].trim()),
+                                 Double.parseDouble(setting[1].trim()));
+        }
+    }
+
+    /**
+     * Grows and checks the corpus step by step, printing a line for each
+     * step, then compares the errors planted with the errors found.
+     *
+     * @throws IOException if the corpus cannot be written
+     */
+    private void run() throws IOException
+    {
+        boolean temporary = directory == null;
+        Path root = temporary ? Files.createTempDirectory("stylechecker-soak")
+                              : Files.createDirectories(directory);
+        Path corpus = Files.createDirectories(root.resolve("corpus"));
+        File reports = root.resolve("reports").toFile();
+        RuleRegistry registry = RuleRegistry.all();
+        long[] found = new long[CorpusGenerator.Violation.values().length];
+        PrintStream summary = new PrintStream(OutputStream.nullOutputStream());
+        ArrayList<File> files = new ArrayList<>();
+        long lineCount = 0;
+        listenForPauses();
+
+        System.out.printf("%4s %7s %11s %9s %12s %7s %10s %10s %9s%n",
+                          "step", "files", "lines", "seconds", "lines/s",
+                          "pauses", "pause ms", "max ms", "peak MB");
+
+        for (int step = 1; step <= steps; step++)
+        {
+            for (int i = 0; i < filesPerStep; i++)
+            {
+                int index = files.size();
+                Path file = corpus.resolve("Synthetic" + index + ".java");
+                SourceText source = generator.write(file, index,
+                                                    linesPerFile);
+                count(source, registry, found);
+                files.add(file.toFile());
+                lineCount += source.lineCount();
+            }
+
+            pauseCount.set(0);
+            pauseNanos.set(0);
+            longestPause.set(0);
+
+            long start = System.nanoTime();
+            new BatchChecker(reports, threads, null, false, ReportFormat.TEXT,
+                             registry).run(files, summary);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("%4d %7d %11d %9.2f %12.0f %7d %10.1f %10.1f "
+                              + "%9s%n", step, files.size(), lineCount,
+                              seconds, lineCount / seconds, pauseCount.get(),
+                              pauseNanos.get() / 1e6, longestPause.get() / 1e6,
+                              peakResidentMegabytes());
+        }
+
+        System.out.printf("%n%-20s %10s %10s%n", "violation", "planted",
+                          "found");
+
+        for (CorpusGenerator.Violation violation:
+             CorpusGenerator.Violation.values())
+        {
+            System.out.printf("%-20s %10d %10d%n", violation.getName(),
+                              generator.getPlanted(violation),
+                              found[violation.ordinal()]);
+        }
+
+        if (temporary)
+        {
+            delete(root);
+        }
+    }
+
+    /**
+     * Checks a program once more, outside the measured check, and adds up
+     * the errors of each rule a violation is planted for.
+     *
+     * @param source    The text of the program
+     * @param registry  The rules the program is checked against
+     * @param found     The number of errors found by the rule of each
+     *                  violation
+     */
+    private static void count(SourceText source, RuleRegistry registry,
+                              long[] found)
+    {
+        ViolationCollector violations = new ViolationCollector(
+                                            source.lineCount());
+        RuleEngine.run(source, violations, registry.createRules());
+
+        for (CorpusGenerator.Violation violation:
+             CorpusGenerator.Violation.values())
+        {
+            found[violation.ordinal()] += violations.getErrorLines(
+                                              violation.getRule()).size();
+        }
+    }
+
+    /**
+     * Adds up every garbage collection pause the JVM reports. The cycles of
+     * the concurrent collectors run beside the program, so only their pauses
+     * are counted.
+     */
+    private void listenForPauses()
+    {
+        for (GarbageCollectorMXBean collector:
+             ManagementFactory.getGarbageCollectorMXBeans())
+        {
+            if (!(collector instanceof NotificationEmitter))
+            {
+                continue;
+            }
+            ((NotificationEmitter) collector).addNotificationListener(
+                (notification, handback) ->
+                {
+                    if (!notification.getType().equals(
+                            GarbageCollectionNotificationInfo
+                                .GARBAGE_COLLECTION_NOTIFICATION))
+                    {
+                        return;
+                    }
+
+                    GarbageCollectionNotificationInfo info =
+                        GarbageCollectionNotificationInfo.from(
+                            (CompositeData) notification.getUserData());
+
+                    if (!info.getGcAction().equals(CONCURRENT_CYCLE))
+                    {
+                        long nanos = info.getGcInfo().getDuration()
+                                     * 1_000_000L;
+                        pauseCount.incrementAndGet();
+                        pauseNanos.addAndGet(nanos);
+                        longestPause.accumulateAndGet(nanos, Math::max);
+                    }
+                }, null, null);
+        }
+    }
+
+    /**
+     * Returns the most memory the process has held at once, from the
+     * VmHWM line of /proc/self/status.
+     *
+     * @return peak     The peak resident set size in megabytes, or "n/a"
+     *                  where /proc is not there
+     */
+    private static String peakResidentMegabytes()
+    {
+        try (Stream<String> lines = Files.lines(Paths.get(STATUS_FILE)))
+        {
+            return lines.filter(line -> line.startsWith("VmHWM:"))
+                        .map(line -> String.valueOf(Long.parseLong(
+                                 line.replaceAll("[^0-9]", "")) / 1024))
+                        .findFirst().orElse("n/a");
+        }
+
+        catch (IOException ex)
+        {
+            return "n/a";
+        }
+    }
+
+    /**
+     * Returns a count given on the command line.
+     *
+     * @param value     The text of the count
+     * @return count    The count
+     * @throws IllegalArgumentException if the count is not a positive
+     *                                  whole number
+     */
+    private static int positive(String value)
+    {
+        int count = Integer.parseInt(value);
+
+        if (count < 1)
+        {
+            throw new IllegalArgumentException("not a positive count: "
+                                               + value);
+        }
+        return count;
+    }
+
+    /**
+     * Deletes a directory and everything in it.
+     *
+     * @param root      The directory to delete
+     * @throws IOException if a file cannot be deleted
+     */
+    private static void delete(Path root) throws IOException
+    {
+        try (Stream<Path> paths = Files.walk(root))
+        {
+            List<Path> all = new ArrayList<>();
+            paths.sorted(Comparator.reverseOrder()).forEach(all::add);
+
+            for (Path path: all)
+            {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package stylechecker;
+
+/**
+ * Builds synthetic programs of any length for the benchmarks. A program is a
+ * header comment like the ones in the Input directory followed by copies of
+ * a small class that contains every kind of style error the checker finds,
+ * so every rule and both fixers have work to do on each copy.
+ */
+final class SyntheticCorpus
+{
+
+    private static final String[] HEADER = {
+        "/*",
+        "Synthetic Corpus",
+        "Every style error",
+        "Generated for the benchmarks",
+        "*/",
+        "",
+        "package tests;",
+        ""
+    };
+
+    private static final String[] BLOCK = {
+        "public class Synthetic {",
+        "   private int count = 0;",
+        "   public int total(int limit)",
+        "   {",
+        "      int sum = 0;",
+        "      for (int i = 0; i < limit; i++)",
+        "         sum+=i;",
+        "      if (sum > limit)",
+        "         if (limit > 0)",
+        "            sum = sum / limit;",
+        "      while (sum > 100) { sum = sum - 100; count++; }",
+        "    int misplaced = sum;",
+        "      String message = \"a line of code that runs on and on past the"
+                                + " end of the line\";",
+        "      return sum;",
+        "      }",
+        "   public void reset() {",
+        "      count = 0;",
+        "   }",
+        "}",
+        ""
+    };
+
+    private SyntheticCorpus()
+    {
+    }
+
+    /**
+     * Builds a program with the given number of lines.
+     *
+     * @param lineCount     The number of lines in the program
+     * @return source       The text of the program
+     */
+    static SourceText generate(int lineCount)
+    {
+        int length = 0;
+
+        for (int i = 0; i < lineCount; i++)
+        {
+            length += line(i).length() + 1;
+        }
+
+        char[] text = new char[length];
+        int end = 0;
+
+        for (int i = 0; i < lineCount; i++)
+        {
+            String line = line(i);
+            line.getChars(0, line.length(), text, end);
+            end += line.length();
+            text[end++] = '\n';
+        }
+        return new SourceText(text, end);
+    }
+
+    /**
+     * Returns the line at the given index of every generated program.
+     *
+     * @param index     The index of the line
+     * @return line     The text of the line
+     */
+    private static String line(int index)
+    {
+        if (index < HEADER.length)
+        {
+            return HEADER[index];
+        }
+        return BLOCK[(index - HEADER.length) % BLOCK.length];
+    }
+}
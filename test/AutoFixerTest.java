@@ -0,0 +1,225 @@
+package stylechecker;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that fix mode rewrites a file with exactly its fixes, keeping every
+ * other byte and line separator, and that its diff holds the same fixes.
+ */
+class AutoFixerTest
+{
+
+    private static final String PROGRAM = "public class A {\r\n"
+                                          + "    int a;\r\n"
+                                          + "    void f()\r\n"
+                                          + "    {\r\n"
+                                          + "        if (a)\r\n"
+                                          + "            a = 1;\r\n"
+                                          + "    }\r\n"
+                                          + "}\r\n"
+                                          + "\r\n";
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Writes a file into the test's directory.
+     *
+     * @param name      The name of the file
+     * @param text      The text of the file
+     * @return file     The file written
+     * @throws IOException if the file cannot be written
+     */
+    private File write(String name, String text) throws IOException
+    {
+        Path path = directory.resolve(name);
+        Files.write(path, text.getBytes());
+        return path.toFile();
+    }
+
+    /**
+     * Runs fix mode over a single file.
+     *
+     * @param file      The file to fix
+     * @param inPlace   true to rewrite the file, false to print a diff
+     * @param output    The stream what fix mode prints is written to
+     * @return status   The exit status of fix mode
+     */
+    private static int fix(File file, boolean inPlace,
+                           ByteArrayOutputStream output)
+    {
+        PrintStream out = new PrintStream(output, true);
+        return new AutoFixer(RuleRegistry.all(), inPlace).run(
+                   Collections.singletonList(file), out);
+    }
+
+    /**
+     * Returns the line separators of a text in order, a carriage return and
+     * line feed together counting as one.
+     *
+     * @param text          The text
+     * @return separators   The separators
+     */
+    private static List<String> separators(String text)
+    {
+        ArrayList<String> separators = new ArrayList<>();
+
+        for (int i = 0; i < text.length(); i++)
+        {
+            if (text.startsWith("\r\n", i))
+            {
+                separators.add("\r\n");
+                i++;
+            }
+
+            else if (SourceText.isLineSeparator(text.charAt(i)))
+            {
+                separators.add(String.valueOf(text.charAt(i)));
+            }
+        }
+        return separators;
+    }
+
+    @Test
+    void inPlaceKeepsWindowsLineEndings() throws IOException
+    {
+        File file = write("A.java", PROGRAM);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        assertEquals(0, fix(file, true, output));
+        assertEquals("public class A {\r\n"
+                     + "\r\n"
+                     + "    int a;\r\n"
+                     + "    void f()\r\n"
+                     + "    {\r\n"
+                     + "        if (a)\r\n"
+                     + "        {\r\n"
+                     + "            a = 1;\r\n"
+                     + "        }\r\n"
+                     + "    }\r\n"
+                     + "}\r\n"
+                     + "\r\n",
+                     new String(Files.readAllBytes(file.toPath())));
+    }
+
+    @Test
+    void inPlaceChangesOnlyTheFixedLines() throws IOException
+    {
+        List<String> samples = TestPrograms.sampleLines();
+        String[] separators = {"\n", "\r\n", "\r", "\u2028"};
+        Random random = new Random(17);
+
+        for (int program = 0; program < 30; program++)
+        {
+            StringBuilder text = new StringBuilder();
+
+            for (String line : TestPrograms.randomProgram(random, samples,
+                                                          150))
+            {
+                text.append(line).append(
+                    separators[random.nextInt(separators.length)]);
+            }
+
+            // Half the programs do not end with a separator
+            if (program % 2 == 1)
+            {
+                text.setLength(text.length() - 1);
+                text.append("} ");
+            }
+            // The checker reads and writes files in the default charset,
+            // which may not have every separator
+            String original = new String(text.toString().getBytes());
+            File file = write("P" + program + ".java", original);
+            SourceText source = SourceText.read(file);
+            List<String> expected = new AutoFixer(RuleRegistry.all(), true)
+                                    .collectFixes(source)
+                                    .apply(source.toLineList());
+
+            fix(file, true, new ByteArrayOutputStream());
+            String fixed = new String(Files.readAllBytes(file.toPath()));
+
+            assertEquals(expected, SourceText.read(file).toLineList(),
+                         "program " + program);
+
+            // The original separators are all still there, in order, and
+            // the lines added end like the first line of the program, or
+            // with a carriage return and line feed where that would join
+            // a lone carriage return and line feed
+            List<String> added = new ArrayList<>(separators(fixed));
+            String first = separators(original).get(0);
+
+            for (String separator : separators(original))
+            {
+                int at = added.indexOf(separator);
+
+                assertTrue(at >= 0, "program " + program);
+                assertTrue(added.subList(0, at).stream()
+                                .allMatch(extra -> extra.equals(first)
+                                               || extra.equals("\r\n")),
+                           "program " + program);
+                added.subList(0, at + 1).clear();
+            }
+        }
+    }
+
+    @Test
+    void fileWithoutFixesIsNotTouched() throws IOException
+    {
+        String program = "class A\r\n{\r\n\n    int a;\r}";
+        File file = write("A.java", program);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        assertEquals(0, fix(file, true, output));
+        assertEquals(0, fix(file, false, output));
+        assertEquals(0, output.size());
+        assertArrayEquals(program.getBytes(),
+                          Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    void diffHoldsTheFixesWithTheFilesSeparators() throws IOException
+    {
+        File file = write("A.java", PROGRAM);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        assertEquals(1, fix(file, false, output));
+
+        String diff = output.toString();
+        String path = file.toPath().normalize().toString()
+                          .replace(File.separatorChar, '/');
+        assertEquals("--- a/" + path + "\n"
+                     + "+++ b/" + path + "\n"
+                     + "@@ -1,9 +1,12 @@\n"
+                     + " public class A {\r\n"
+                     + "+\r\n"
+                     + "     int a;\r\n"
+                     + "     void f()\r\n"
+                     + "     {\r\n"
+                     + "         if (a)\r\n"
+                     + "+        {\r\n"
+                     + "             a = 1;\r\n"
+                     + "+        }\r\n"
+                     + "     }\r\n"
+                     + " }\r\n"
+                     + " \r\n",
+                     diff);
+        assertArrayEquals(PROGRAM.getBytes(),
+                          Files.readAllBytes(file.toPath()));
+    }
+}
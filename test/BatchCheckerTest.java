@@ -0,0 +1,163 @@
+package stylechecker;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a batch writes each file's report under the directories of the
+ * file's path, so no two files share a report, whether they are checked on
+ * the worker pool or through the pipeline.
+ */
+class BatchCheckerTest
+{
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Copies a sample program to the given path under the temporary
+     * directory.
+     *
+     * @param sample    The name of the sample program
+     * @param path      The path of the copy, under the temporary directory
+     * @return file     The copy
+     * @throws IOException if the program cannot be copied
+     */
+    private File copy(String sample, String path) throws IOException
+    {
+        Path target = directory.resolve(path);
+        Files.createDirectories(target.getParent());
+        Files.copy(Paths.get("Input", sample), target);
+        return target.toFile();
+    }
+
+    /**
+     * Checks the given files in a batch and returns what was printed.
+     *
+     * @param files     The files to check
+     * @param pipeline  true to check the files through the pipeline
+     * @return summary  The summary printed
+     * @throws IOException if the output directory cannot be created
+     */
+    private String check(List<File> files, boolean pipeline)
+                         throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BatchChecker checker = new BatchChecker(
+                                   directory.resolve("output").toFile(), 2,
+                                   null, pipeline, ReportFormat.TEXT,
+                                   RuleRegistry.all());
+
+        assertEquals(1, checker.run(files, new PrintStream(bytes, true)));
+        return bytes.toString();
+    }
+
+    /**
+     * Returns every report written to the output directory.
+     *
+     * @return reports  The paths of the reports
+     * @throws IOException if the output directory cannot be walked
+     */
+    private List<Path> reports() throws IOException
+    {
+        try (Stream<Path> stream = Files.walk(directory.resolve("output")))
+        {
+            return stream.filter(Files::isRegularFile)
+                         .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Returns the report a single check writes for a program.
+     *
+     * @param file      The program
+     * @return report   The bytes of the report
+     * @throws IOException if the program cannot be read
+     */
+    private static byte[] expectedReport(File file) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        StyleChecker.generateReport(SourceText.read(file), file.getPath(),
+                                    ReportFormat.TEXT.open(
+                                        new OutputStreamWriter(bytes)),
+                                    null, RuleRegistry.all());
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Returns the report in the list whose path ends with the given path.
+     *
+     * @param reports   The reports written
+     * @param path      The end of the path of the report
+     * @return report   The bytes of the report
+     * @throws IOException if the report cannot be read
+     */
+    private static byte[] reportEndingWith(List<Path> reports, Path path)
+                                           throws IOException
+    {
+        for (Path report : reports)
+        {
+            if (report.endsWith(path))
+            {
+                return Files.readAllBytes(report);
+            }
+        }
+        throw new AssertionError("no report ends with " + path);
+    }
+
+    @Test
+    void filesWhosePathsFlattenAlikeKeepTheirOwnReports() throws IOException
+    {
+        for (String mode : new String[] {"pool", "pipeline"})
+        {
+            File first = copy("Chris_indents.txt", mode + "/a_b/C.java");
+            File second = copy("zachary_opt_braces.txt",
+                               mode + "/a/b_C.java");
+            check(Arrays.asList(first, second), mode.equals("pipeline"));
+            List<Path> reports = reports();
+
+            String suffix = ReportFormat.TEXT.getSuffix();
+
+            assertArrayEquals(expectedReport(first), reportEndingWith(
+                reports, Paths.get(mode, "a_b", "C.java" + suffix)));
+            assertArrayEquals(expectedReport(second), reportEndingWith(
+                reports, Paths.get(mode, "a", "b_C.java" + suffix)));
+        }
+        assertEquals(4, reports().size());
+    }
+
+    @Test
+    void fileWhoseReportIsTakenFails() throws IOException
+    {
+        File file = copy("Chris_indents.txt", "A.java");
+        Path relative = Paths.get("").toAbsolutePath()
+                             .relativize(file.toPath());
+        assumeTrue(relative.startsWith(".."));
+        String summary = check(Arrays.asList(file, relative.toFile()),
+                               false);
+
+        assertTrue(summary.contains("Files that could not be checked: 1"),
+                   summary);
+        assertEquals(1, reports().size());
+        assertArrayEquals(expectedReport(file),
+                          Files.readAllBytes(reports().get(0)));
+    }
+}
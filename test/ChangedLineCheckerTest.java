@@ -0,0 +1,179 @@
+package stylechecker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that checking only the changed lines of a program finds exactly the
+ * errors a check of the whole program finds on those lines.
+ */
+class ChangedLineCheckerTest
+{
+
+    /**
+     * Describes the errors each rule found on the changed lines, one rule to
+     * a line.
+     *
+     * @param violations    The errors found
+     * @param rules         The rules the program was checked against
+     * @param changes       The changed lines
+     * @return description  The message of each rule and its error lines
+     */
+    private static String describe(ViolationCollector violations,
+                                   Rule[] rules, ChangedLines changes)
+    {
+        StringBuilder description = new StringBuilder();
+
+        for (Rule rule : rules)
+        {
+            LineNumberList lines = violations.getErrorLines(rule);
+            description.append(rule.getMessage()).append(':');
+
+            for (int i = 0; i < lines.size(); i++)
+            {
+                if (changes.contains(lines.get(i)))
+                {
+                    description.append(' ').append(lines.get(i));
+                }
+            }
+            description.append('\n');
+        }
+        return description.toString();
+    }
+
+    /**
+     * Makes a diff of a file with random hunks of added lines, some of them
+     * past the end of the program.
+     *
+     * @param random    The source of randomness
+     * @param lineCount The number of lines of the program
+     * @return changes  The changed lines of the diff
+     * @throws IOException if the diff cannot be read
+     */
+    private static ChangedLines randomChanges(Random random, int lineCount)
+                                             throws IOException
+    {
+        StringBuilder diff = new StringBuilder("--- a/A.java\n+++ b/A.java\n");
+        int line = 0;
+
+        for (int hunk = 1 + random.nextInt(6); hunk > 0; hunk--)
+        {
+            line += 1 + random.nextInt(Math.max(1, lineCount / 3));
+            int count = random.nextInt(5);
+            diff.append("@@ -1,0 +").append(line).append(',').append(count)
+                .append(" @@\n");
+
+            for (int i = 0; i < count; i++)
+            {
+                diff.append("+\n");
+            }
+            line += count;
+        }
+        return parse(diff.toString());
+    }
+
+    /**
+     * Reads the changed lines of the one file of a diff.
+     *
+     * @param diff      The text of the diff
+     * @return changes  The changed lines of the file
+     * @throws IOException if the diff cannot be read
+     */
+    private static ChangedLines parse(String diff) throws IOException
+    {
+        return ChangedLines.parse(new BufferedReader(new StringReader(diff)))
+                           .get(0);
+    }
+
+    /**
+     * Checks the changed lines of a program and the whole program, and
+     * asserts that the two find the same errors on the changed lines.
+     *
+     * @param source    The text of the program
+     * @param changes   The changed lines of the program
+     * @param message   What the program is, for a failed assertion
+     */
+    private static void assertSameAsFullCheck(SourceText source,
+                                              ChangedLines changes,
+                                              String message)
+    {
+        Rule[] all = RuleRegistry.all().createRules();
+        ViolationCollector expected = new ViolationCollector();
+        RuleEngine.run(source, expected, all);
+
+        Rule[] changed = RuleRegistry.all().createRules();
+        ViolationCollector actual = new ViolationCollector();
+        ChangedLineChecker.check(source, changes, actual, null, changed);
+
+        assertEquals(describe(expected, all, changes),
+                     TestPrograms.describe(actual, changed), message);
+    }
+
+    @Test
+    void changedLinesMatchAFullCheck() throws IOException
+    {
+        List<String> samples = TestPrograms.sampleLines();
+        samples.add("/* {");
+        samples.add("} */ int a;");
+        Random random = new Random(23);
+
+        for (int program = 0; program < 200; program++)
+        {
+            List<String> lines = TestPrograms.randomProgram(
+                                     random, samples, 1 + random.nextInt(300));
+            String text = String.join("\n", lines);
+            SourceText source = new SourceText(text.toCharArray(),
+                                               text.length());
+            ChangedLines changes = randomChanges(random, source.lineCount());
+
+            assertSameAsFullCheck(source, changes, "program " + program);
+        }
+    }
+
+    @Test
+    void removingTheFirstLinesChecksTheNewFirstLine() throws IOException
+    {
+        List<String> lines = TestPrograms.sampleLines().subList(0, 40);
+        String text = String.join("\n", lines) + "\n";
+        SourceText source = new SourceText(text.toCharArray(), text.length());
+        ChangedLines changes = parse("--- a/A.java\n"
+                                     + "+++ b/A.java\n"
+                                     + "@@ -1,3 +0,0 @@\n"
+                                     + "-a\n"
+                                     + "-b\n"
+                                     + "-c\n");
+
+        assertTrue(changes.contains(1));
+        assertFalse(changes.contains(2));
+        assertSameAsFullCheck(source, changes, "removed first lines");
+    }
+
+    @Test
+    void lastLineWithoutNewlineIsChecked() throws IOException
+    {
+        List<String> lines = TestPrograms.sampleLines().subList(0, 40);
+        String text = String.join("\n", lines);
+        SourceText source = new SourceText(text.toCharArray(), text.length());
+        ChangedLines changes = parse("--- a/A.java\n"
+                                     + "+++ b/A.java\n"
+                                     + "@@ -39,2 +39,2 @@\n"
+                                     + " a\n"
+                                     + "-b\n"
+                                     + "\\ No newline at end of file\n"
+                                     + "+c\n"
+                                     + "\\ No newline at end of file\n");
+
+        assertEquals(1, changes.rangeCount());
+        assertTrue(changes.contains(40));
+        assertSameAsFullCheck(source, changes, "no newline at end");
+    }
+}
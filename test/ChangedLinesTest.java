@@ -0,0 +1,215 @@
+package stylechecker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that ChangedLines reads the changed lines of each file from the
+ * names and hunk headers of a unified diff.
+ */
+class ChangedLinesTest
+{
+
+    /**
+     * Reads the changed lines of a diff.
+     *
+     * @param diff      The text of the diff
+     * @return files    The changed lines of each file
+     * @throws IOException if the diff cannot be read
+     */
+    private static List<ChangedLines> parse(String diff) throws IOException
+    {
+        return ChangedLines.parse(new BufferedReader(new StringReader(diff)));
+    }
+
+    /**
+     * Describes the ranges of a file as "first-last" pairs.
+     *
+     * @param file          The changed lines of a file
+     * @return description  The ranges, separated by spaces
+     */
+    private static String ranges(ChangedLines file)
+    {
+        StringBuilder description = new StringBuilder();
+
+        for (int i = 0; i < file.rangeCount(); i++)
+        {
+            description.append(i == 0 ? "" : " ").append(file.first(i))
+                       .append('-').append(file.last(i));
+        }
+        return description.toString();
+    }
+
+    @Test
+    void hunksGiveTheRangesOfEachFile() throws IOException
+    {
+        List<ChangedLines> files = parse(
+            "diff --git a/A.java b/A.java\n"
+            + "index 1..2 100644\n"
+            + "--- a/A.java\n"
+            + "+++ b/A.java\n"
+            + "@@ -3 +3 @@\n"
+            + "-old\n"
+            + "+new\n"
+            + "@@ -10,2 +10,3 @@ class A\n"
+            + "-a\n"
+            + "-b\n"
+            + "+a\n"
+            + "+b\n"
+            + "+c\n"
+            + "--- a/src/B.java\n"
+            + "+++ b/src/B.java\n"
+            + "@@ -0,0 +1,4 @@\n"
+            + "+1\n"
+            + "+2\n"
+            + "+3\n"
+            + "+4\n");
+
+        assertEquals(2, files.size());
+        assertEquals("A.java", files.get(0).getPath());
+        assertEquals("3-3 10-12", ranges(files.get(0)));
+        assertEquals("src/B.java", files.get(1).getPath());
+        assertEquals("1-4", ranges(files.get(1)));
+    }
+
+    @Test
+    void removedLinesChangeTheLinesAroundTheGap() throws IOException
+    {
+        List<ChangedLines> files = parse("--- a/A.java\n"
+                                         + "+++ b/A.java\n"
+                                         + "@@ -6,2 +5,0 @@\n"
+                                         + "-a\n"
+                                         + "-b\n"
+                                         + "@@ -1 +0,0 @@\n"
+                                         + "-c\n");
+
+        assertEquals("5-6", ranges(files.get(0)));
+
+        files = parse("--- a/A.java\n"
+                      + "+++ b/A.java\n"
+                      + "@@ -1 +0,0 @@\n"
+                      + "-c\n");
+
+        assertEquals("1-1", ranges(files.get(0)));
+    }
+
+    @Test
+    void touchingHunksAreJoined() throws IOException
+    {
+        List<ChangedLines> files = parse("--- a/A.java\n"
+                                         + "+++ b/A.java\n"
+                                         + "@@ -1,0 +2,2 @@\n"
+                                         + "+a\n"
+                                         + "+b\n"
+                                         + "@@ -1,0 +4 @@\n"
+                                         + "+c\n"
+                                         + "@@ -1,0 +9 @@\n"
+                                         + "+d\n");
+        ChangedLines file = files.get(0);
+
+        assertEquals("2-4 9-9", ranges(file));
+        assertFalse(file.contains(1));
+        assertTrue(file.contains(3));
+        assertFalse(file.contains(5));
+        assertTrue(file.contains(9));
+        assertFalse(file.contains(10));
+    }
+
+    @Test
+    void linesOfAHunkAreNotReadAsHeaders() throws IOException
+    {
+        List<ChangedLines> files = parse("--- a/A.java\n"
+                                         + "+++ b/A.java\n"
+                                         + "@@ -1,2 +1,3 @@\n"
+                                         + "+++ b/C.java\n"
+                                         + "-@@ -1 +1 @@\n"
+                                         + " context\n"
+                                         + "+@@ -1 +7 @@\n");
+
+        assertEquals(1, files.size());
+        assertEquals("A.java", files.get(0).getPath());
+        assertEquals("1-3", ranges(files.get(0)));
+    }
+
+    @Test
+    void noNewlineMarkersAreNotLinesOfTheHunk() throws IOException
+    {
+        // Counting the marker as a line would end the hunk early, and its
+        // last added line would be read as the header of another file
+        List<ChangedLines> files = parse("--- a/A.java\n"
+                                         + "+++ b/A.java\n"
+                                         + "@@ -1 +1,2 @@\n"
+                                         + "-a\n"
+                                         + "\\ No newline at end of file\n"
+                                         + "+a\n"
+                                         + "+++ b/C.java\n"
+                                         + "@@ -9 +10 @@\n"
+                                         + "-x\n"
+                                         + "+y\n"
+                                         + "\\ No newline at end of file\n");
+
+        assertEquals(1, files.size());
+        assertEquals("A.java", files.get(0).getPath());
+        assertEquals("1-2 10-10", ranges(files.get(0)));
+    }
+
+    @Test
+    void deletedAndBinaryFilesAreLeftOut() throws IOException
+    {
+        List<ChangedLines> files = parse(
+            "--- a/Gone.java\n"
+            + "+++ /dev/null\n"
+            + "@@ -1,2 +0,0 @@\n"
+            + "-a\n"
+            + "-b\n"
+            + "diff --git a/logo.png b/logo.png\n"
+            + "Binary files a/logo.png and b/logo.png differ\n"
+            + "--- a/A.java\n"
+            + "+++ b/A.java\n"
+            + "@@ -1 +1 @@\n"
+            + "-a\n"
+            + "+b\n");
+
+        assertEquals(1, files.size());
+        assertEquals("A.java", files.get(0).getPath());
+    }
+
+    @Test
+    void namesAreUnquotedAndEndAtATab() throws IOException
+    {
+        List<ChangedLines> files = parse(
+            "--- a/x\n"
+            + "+++ \"b/caf\\303\\251 \\\"1\\\".java\"\n"
+            + "@@ -1 +1 @@\n"
+            + "-a\n"
+            + "+b\n"
+            + "--- old/A B.java\t2024-01-01 00:00:00\n"
+            + "+++ new/A B.java\t2024-01-02 00:00:00\n"
+            + "@@ -1 +1 @@\n"
+            + "-a\n"
+            + "+b\n");
+
+        assertEquals("caf\u00e9 \"1\".java", files.get(0).getPath());
+        assertEquals("new/A B.java", files.get(1).getPath());
+    }
+
+    @Test
+    void badHunkHeaderIsAnError()
+    {
+        assertThrows(IOException.class, () -> parse("--- a/A.java\n"
+                                                    + "+++ b/A.java\n"
+                                                    + "@@ -x +1 @@\n"));
+        assertThrows(IOException.class, () -> parse("--- a/A.java\n"
+                                                    + "+++ b/A.java\n"
+                                                    + "@@ -1 +1\n"));
+    }
+}
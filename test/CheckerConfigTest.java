@@ -0,0 +1,176 @@
+package stylechecker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that the settings of a run come from the defaults, then the
+ * properties file, then the command line, and that a setting that is not
+ * valid stops the run with a message naming it.
+ */
+class CheckerConfigTest
+{
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Writes a properties file of the given lines.
+     *
+     * @param lines     The lines of the file
+     * @return file     The properties file
+     * @throws IOException if the file cannot be written
+     */
+    private File properties(String... lines) throws IOException
+    {
+        File file = directory.resolve(CheckerConfig.FILE_NAME).toFile();
+        Files.write(file.toPath(), Arrays.asList(lines));
+        return file;
+    }
+
+    /**
+     * Returns the settings given on a command line.
+     *
+     * @param args      The option of each setting followed by its value
+     * @return settings The settings, keyed by their property names
+     */
+    private static Properties options(String... args)
+    {
+        Properties overrides = new Properties();
+
+        for (int i = 0; i < args.length; i += 2)
+        {
+            overrides.setProperty(CheckerConfig.keyForOption(args[i]),
+                                  args[i + 1]);
+        }
+        return overrides;
+    }
+
+    /**
+     * Asserts that loading the given settings fails with a message that
+     * names the given text.
+     *
+     * @param named     The text the message must hold
+     * @param file      The properties file, or null for none
+     * @param overrides The settings given on the command line
+     */
+    private static void assertRejected(String named, File file,
+                                       Properties overrides)
+    {
+        IllegalArgumentException ex = assertThrows(
+            IllegalArgumentException.class,
+            () -> RuleRegistry.configured(CheckerConfig.load(file,
+                                                             overrides)));
+
+        assertTrue(ex.getMessage().contains(named), ex.getMessage());
+    }
+
+    @Test
+    void startsFromTheDefaults() throws IOException
+    {
+        CheckerConfig config = CheckerConfig.load(null, new Properties());
+
+        assertEquals(80, config.getMaxLineLength());
+        assertEquals(3, config.getIndentWidth());
+        assertEquals("input/trevor_blank_lines.txt", config.getInputFile());
+        assertEquals("output/Fixed_Style_Output.txt", config.getOutputFile());
+        assertEquals(Collections.emptyList(), config.getEnabledRules());
+        assertEquals(Collections.emptyList(), config.getDisabledRules());
+        assertNull(config.getRulesFile());
+    }
+
+    @Test
+    void commandLineTakesThePlaceOfTheFile() throws IOException
+    {
+        File file = properties("max.line.length = 100", "indent.width=4",
+                               "rules.disable=NoBlankLineRule, IndentRule");
+        CheckerConfig config = CheckerConfig.load(file, options(
+                                   "--max-line-length", "120",
+                                   "--output", "report.txt"));
+
+        assertEquals(120, config.getMaxLineLength());
+        assertEquals(4, config.getIndentWidth());
+        assertEquals("report.txt", config.getOutputFile());
+        assertEquals(Arrays.asList("NoBlankLineRule", "IndentRule"),
+                     config.getDisabledRules());
+        assertEquals(8, CheckerConfig.load(file, options(
+                            "--indent-width", "8")).getIndentWidth());
+    }
+
+    @Test
+    void onlyTheRuleLimitsChangeTheFingerprint() throws IOException
+    {
+        String defaults = CheckerConfig.defaults().fingerprint();
+
+        assertEquals(defaults, CheckerConfig.load(null, options(
+                                   "--input", "Other.java",
+                                   "--disable", "IndentRule")).fingerprint());
+        assertNotEquals(defaults, CheckerConfig.load(null, options(
+                            "--max-line-length", "100")).fingerprint());
+        assertNotEquals(defaults, CheckerConfig.load(null, options(
+                            "--indent-width", "4")).fingerprint());
+    }
+
+    @Test
+    void optionsThatAreNotSettingsAreLeftAlone()
+    {
+        assertEquals(CheckerConfig.MAX_LINE_LENGTH,
+                     CheckerConfig.keyForOption("--max-line-length"));
+        assertEquals(CheckerConfig.RULES_FILE,
+                     CheckerConfig.keyForOption("--rules"));
+        assertNull(CheckerConfig.keyForOption("--stats"));
+        assertNull(CheckerConfig.keyForOption("max.line.length"));
+    }
+
+    @Test
+    void rejectsAnUnknownSetting() throws IOException
+    {
+        assertRejected("max.line.lenght",
+                       properties("max.line.lenght=100"), new Properties());
+    }
+
+    @Test
+    void rejectsANumberThatIsNotPositive() throws IOException
+    {
+        for (String value : new String[] {"0", "-3", "wide", ""})
+        {
+            assertRejected(CheckerConfig.MAX_LINE_LENGTH, null, options(
+                               "--max-line-length", value));
+        }
+        assertRejected(CheckerConfig.INDENT_WIDTH,
+                       properties("indent.width=0"), new Properties());
+    }
+
+    @Test
+    void rejectsAnUnknownRule() throws IOException
+    {
+        assertRejected("NoSuchRule", null, options("--enable",
+                                                   "IndentRule,NoSuchRule"));
+        assertRejected("NoSuchRule", properties("rules.disable=NoSuchRule"),
+                       new Properties());
+    }
+
+    @Test
+    void reportsAMissingFile()
+    {
+        File missing = directory.resolve("missing.properties").toFile();
+
+        assertThrows(FileNotFoundException.class,
+                     () -> CheckerConfig.load(missing, new Properties()));
+    }
+}
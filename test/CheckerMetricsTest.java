@@ -0,0 +1,371 @@
+package stylechecker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that the metrics count exactly the files, lines and errors the
+ * reports hold, that a count stopped at its limit counts only the lines it
+ * checked, and that the JSON written is valid and holds every total.
+ */
+class CheckerMetricsTest
+{
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void enable()
+    {
+        CheckerMetrics.reset();
+        CheckerMetrics.enable();
+    }
+
+    @AfterEach
+    void reset()
+    {
+        CheckerMetrics.reset();
+    }
+
+    /**
+     * Reads a single JSON value, failing the test if the text is not valid
+     * JSON. Objects are read as maps, arrays as lists, numbers as longs or
+     * doubles and strings as strings.
+     */
+    private static final class JsonReader
+    {
+        private final String text;
+        private int at = 0;
+
+        JsonReader(String text)
+        {
+            this.text = text;
+        }
+
+        /**
+         * Reads the whole text as one value.
+         *
+         * @return value    The value of the text
+         */
+        Object readAll()
+        {
+            Object value = read();
+            skipSpace();
+            assertEquals(text.length(), at, "text after the value");
+            return value;
+        }
+
+        private Object read()
+        {
+            skipSpace();
+            assertTrue(at < text.length(), "value missing at the end");
+            char letter = text.charAt(at);
+
+            if (letter == '{')
+            {
+                return readObject();
+            }
+
+            if (letter == '[')
+            {
+                return readArray();
+            }
+
+            if (letter == '"')
+            {
+                return readString();
+            }
+
+            for (String word : new String[] {"true", "false", "null"})
+            {
+                if (text.startsWith(word, at))
+                {
+                    at += word.length();
+                    return word.equals("null") ? null
+                           : Boolean.valueOf(word);
+                }
+            }
+            return readNumber();
+        }
+
+        private Map<String, Object> readObject()
+        {
+            LinkedHashMap<String, Object> object = new LinkedHashMap<>();
+            expect('{');
+            skipSpace();
+
+            if (text.charAt(at) == '}')
+            {
+                at++;
+                return object;
+            }
+
+            do
+            {
+                skipSpace();
+                String key = readString();
+                skipSpace();
+                expect(':');
+                object.put(key, read());
+                skipSpace();
+            }
+            while (text.charAt(at++) == ',');
+
+            assertEquals('}', text.charAt(at - 1), "object not closed");
+            return object;
+        }
+
+        private List<Object> readArray()
+        {
+            ArrayList<Object> array = new ArrayList<>();
+            expect('[');
+            skipSpace();
+
+            if (text.charAt(at) == ']')
+            {
+                at++;
+                return array;
+            }
+
+            do
+            {
+                array.add(read());
+                skipSpace();
+            }
+            while (text.charAt(at++) == ',');
+
+            assertEquals(']', text.charAt(at - 1), "array not closed");
+            return array;
+        }
+
+        private String readString()
+        {
+            StringBuilder string = new StringBuilder();
+            expect('"');
+
+            while (text.charAt(at) != '"')
+            {
+                char letter = text.charAt(at++);
+                assertTrue(letter >= ' ', "control character in a string");
+
+                if (letter == '\\')
+                {
+                    letter = text.charAt(at++);
+
+                    if (letter == 'u')
+                    {
+                        letter = (char) Integer.parseInt(
+                                            text.substring(at, at + 4), 16);
+                        at += 4;
+                    }
+
+                    else
+                    {
+                        int escape = "\"\\/bfnrt".indexOf(letter);
+                        assertTrue(escape >= 0, "bad escape " + letter);
+                        letter = "\"\\/\b\f\n\r\t".charAt(escape);
+                    }
+                }
+                string.append(letter);
+            }
+            at++;
+            return string.toString();
+        }
+
+        private Number readNumber()
+        {
+            int start = at;
+
+            while (at < text.length()
+                   && "+-0123456789.eE".indexOf(text.charAt(at)) >= 0)
+            {
+                at++;
+            }
+
+            String number = text.substring(start, at);
+            assertTrue(number.matches(
+                           "-?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][+-]?[0-9]+)?"),
+                       "bad number at " + start + ": " + number);
+
+            if (number.matches("-?[0-9]+"))
+            {
+                return Long.valueOf(number);
+            }
+            return Double.valueOf(number);
+        }
+
+        private void expect(char letter)
+        {
+            assertEquals(letter, text.charAt(at), "at " + at);
+            at++;
+        }
+
+        private void skipSpace()
+        {
+            while (at < text.length()
+                   && Character.isWhitespace(text.charAt(at)))
+            {
+                at++;
+            }
+        }
+    }
+
+    /**
+     * Writes the totals as JSON and reads them back.
+     *
+     * @return totals   The object written
+     * @throws IOException if the file cannot be written or read
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> writeAndRead() throws IOException
+    {
+        File file = directory.resolve("metrics.json").toFile();
+        CheckerMetrics.writeJson(file);
+        String json = new String(Files.readAllBytes(file.toPath()),
+                                 StandardCharsets.UTF_8);
+        return (Map<String, Object>) new JsonReader(json).readAll();
+    }
+
+    /**
+     * Returns the errors each rule found in the JSON totals, by rule name.
+     *
+     * @param totals        The totals read back
+     * @return violations   The errors of each rule
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Long> violations(Map<String, Object> totals)
+    {
+        LinkedHashMap<String, Long> violations = new LinkedHashMap<>();
+
+        for (Object rule : (List<Object>) totals.get("rules"))
+        {
+            Map<String, Object> fields = (Map<String, Object>) rule;
+
+            assertEquals(Arrays.asList("name", "nanos", "allocatedBytes",
+                                       "violations"),
+                         new ArrayList<>(fields.keySet()));
+            violations.put((String) fields.get("name"),
+                           (Long) fields.get("violations"));
+        }
+        return violations;
+    }
+
+    @Test
+    void countsWhatTheReportsHold() throws IOException
+    {
+        File[] files = new File("Input").listFiles(
+                           (parent, name) -> name.endsWith(".txt"));
+        LinkedHashMap<String, Long> expected = new LinkedHashMap<>();
+        long lines = 0;
+        long characters = 0;
+        long errors = 0;
+
+        for (File file : files)
+        {
+            SourceText source = SourceText.read(file);
+            Rule[] rules = RuleRegistry.all().createRules();
+            ViolationCollector collector = new ViolationCollector();
+            RuleEngine.run(source, collector, rules);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            int reported = StyleChecker.generateReport(
+                               source, file.getPath(),
+                               ReportFormat.TEXT.open(
+                                   new OutputStreamWriter(bytes)),
+                               null, RuleRegistry.all());
+
+            assertEquals(collector.getErrorCount(), reported);
+            assertTrue(bytes.toString().contains("Total style errors: "
+                                                 + reported), file.getPath());
+
+            for (Rule rule : rules)
+            {
+                expected.merge(rule.getName(),
+                               (long) collector.getErrorLines(rule).size(),
+                               Long::sum);
+            }
+            lines += source.lineCount();
+            characters += source.length();
+            errors += reported;
+        }
+        Map<String, Object> totals = writeAndRead();
+
+        assertTrue(errors > 0);
+        assertEquals((long) files.length, totals.get("files"));
+        assertEquals(lines, totals.get("lines"));
+        assertEquals(characters, totals.get("characters"));
+        assertEquals(expected, violations(totals));
+
+        ByteArrayOutputStream summary = new ByteArrayOutputStream();
+        CheckerMetrics.printSummary(new PrintStream(summary, true));
+
+        assertTrue(summary.toString().contains("Files: " + files.length
+                                               + "  Lines: " + lines),
+                   summary.toString());
+    }
+
+    @Test
+    void countStoppedAtTheLimitCountsOnlyTheLinesChecked() throws IOException
+    {
+        ArrayList<String> program = new ArrayList<>(Arrays.asList(
+            "// " + String.join("", Collections.nCopies(100, "x")),
+            "public class Big", "{", ""));
+
+        for (int i = 0; i < 10000; i++)
+        {
+            program.add("   int a" + i + " = 1;");
+        }
+        program.add("}");
+        File file = directory.resolve("Big.txt").toFile();
+        Files.write(file.toPath(), program);
+        new CountChecker(1, 1, RuleRegistry.all()).run(
+            Collections.singletonList(file),
+            new PrintStream(new ByteArrayOutputStream(), true));
+        Map<String, Object> totals = writeAndRead();
+        long violations = 0;
+
+        for (long count : violations(totals).values())
+        {
+            violations += count;
+        }
+
+        assertEquals(1L, totals.get("files"));
+        assertEquals(1, violations);
+        assertTrue((Long) totals.get("lines") < 10, totals.toString());
+    }
+
+    @Test
+    void writesEveryTotalAsJson() throws IOException
+    {
+        Map<String, Object> totals = writeAndRead();
+
+        assertEquals(Arrays.asList("files", "lines", "characters",
+                                   "elapsedNanos", "linesPerSecond",
+                                   "phases", "rules"),
+                     new ArrayList<>(totals.keySet()));
+        assertEquals(Arrays.asList("readNanos", "checkNanos", "reportNanos"),
+                     new ArrayList<>(((Map<?, ?>) totals.get("phases"))
+                                         .keySet()));
+        assertEquals(0L, totals.get("files"));
+        assertEquals(Collections.emptyList(), totals.get("rules"));
+    }
+}
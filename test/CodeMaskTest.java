@@ -0,0 +1,147 @@
+package stylechecker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that a CodeMask tells code from comments and literals, and that
+ * marking a program one line at a time gives the mask of the whole text.
+ */
+class CodeMaskTest
+{
+
+    /**
+     * Draws the mask of a text: c for code, # for a comment and " for a
+     * literal, one letter for each character.
+     *
+     * @param text      The text
+     * @param mask      The mask of the text
+     * @param start     The offset of the first character to draw
+     * @param end       The offset just past the last character to draw
+     * @return picture  The letter of each character
+     */
+    private static String draw(CharSequence text, CodeMask mask, int start,
+                               int end)
+    {
+        StringBuilder picture = new StringBuilder();
+
+        for (int i = start; i < end; i++)
+        {
+            picture.append(mask.isComment(i) ? '#'
+                           : mask.isLiteral(i) ? '"' : 'c');
+        }
+        return picture.toString();
+    }
+
+    /**
+     * Draws the mask of a whole text, marked in one pass.
+     *
+     * @param text      The text
+     * @return picture  The letter of each character
+     */
+    private static String draw(String text)
+    {
+        return draw(text, CodeMask.of(text), 0, text.length());
+    }
+
+    @Test
+    void commentsAreMasked()
+    {
+        assertEquals("ccccccc####", draw("a = 1; // x"));
+        assertEquals("cc#######cc", draw("a /* b */ c"));
+    }
+
+    @Test
+    void literalsAreMasked()
+    {
+        assertEquals("cccc\"\"\"\"\"c", draw("s = \"{ }\";"));
+        assertEquals("cccc\"\"\"c", draw("c = '}';"));
+    }
+
+    @Test
+    void escapedQuoteDoesNotEndALiteral()
+    {
+        assertEquals("\"\"\"\"\"\"ccc", draw("\"a\\\"b\" {}"));
+        assertEquals("\"\"\"\"cc", draw("'\\''{}"));
+    }
+
+    @Test
+    void commentMarkersInALiteralAreNotComments()
+    {
+        assertEquals("\"\"\"\"\"\"cc", draw("\"//*/\"{}"));
+    }
+
+    @Test
+    void blockCommentAndTextBlockGoOnToTheNextLine()
+    {
+        String text = "a /* b\nc */ d\ns = \"\"\"\n{\n\"\"\"; e";
+        CodeMask mask = CodeMask.of(text);
+
+        assertEquals("cc####", draw(text, mask, 0, 6));
+        assertEquals("####cc", draw(text, mask, 7, 13));
+        assertEquals("cccc\"\"\"", draw(text, mask, 14, 21));
+        assertEquals("\"", draw(text, mask, 22, 23));
+        assertEquals("\"\"\"ccc", draw(text, mask, 24, 30));
+    }
+
+    @Test
+    void lineCommentAndStringEndWithTheLine()
+    {
+        String text = "a // b\n{ \"c\n}";
+        CodeMask mask = CodeMask.of(text);
+
+        assertEquals("c", draw(text, mask, 12, 13));
+        assertEquals("cc\"\"", draw(text, mask, 7, 11));
+    }
+
+    @Test
+    void lineByLineMatchesWholeText() throws IOException
+    {
+        List<String> samples = TestPrograms.sampleLines();
+        samples.add("x = \"\"\" /* */");
+        samples.add("\"\"\" // \\\"\"\" y");
+        samples.add("/* a \" b");
+        samples.add("c */ '\\'' d // e");
+        Random random = new Random(11);
+
+        for (int program = 0; program < 50; program++)
+        {
+            List<String> lines = TestPrograms.randomProgram(random, samples,
+                                                            100);
+            String text = String.join("\n", lines);
+            CodeMask whole = CodeMask.of(text);
+            CodeMask byLine = new CodeMask();
+            int start = 0;
+
+            for (String line : lines)
+            {
+                byLine.mark(line, 0, line.length());
+
+                assertEquals(draw(text, whole, start, start + line.length()),
+                             draw(line, byLine, 0, line.length()),
+                             line);
+                start += line.length() + 1;
+            }
+        }
+    }
+
+    @Test
+    void savedStateResumesMarking()
+    {
+        CodeMask mask = new CodeMask();
+        mask.mark("a /* b", 0, 6);
+        int state = mask.getState();
+
+        CodeMask resumed = new CodeMask();
+        resumed.setState(state);
+        resumed.mark("c */ d", 0, 6);
+
+        assertEquals(CodeMask.BLOCK_COMMENT, state);
+        assertEquals("####cc", draw("c */ d", resumed, 0, 6));
+    }
+}
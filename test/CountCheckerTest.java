@@ -0,0 +1,235 @@
+package stylechecker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a count finds as many errors of each rule as a full check, and
+ * that a limit stops it at exactly that many errors.
+ */
+class CountCheckerTest
+{
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Returns the sample programs, in file name order.
+     *
+     * @return files    The sample programs
+     */
+    private static List<File> samples()
+    {
+        File[] files = new File("Input").listFiles(
+                           (parent, name) -> name.endsWith(".txt"));
+        Arrays.sort(files);
+        return Arrays.asList(files);
+    }
+
+    /**
+     * Counts the errors of the given files and returns what was printed.
+     *
+     * @param checker   The checker that counts the errors
+     * @param files     The files to check
+     * @param status    The status the count is expected to end with
+     * @return summary  The counts printed
+     */
+    private static String count(CountChecker checker, List<File> files,
+                                int status)
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream summary = new PrintStream(bytes, true);
+        assertEquals(status, checker.run(files, summary));
+        return bytes.toString();
+    }
+
+    /**
+     * Returns the number of errors a full check of the given files finds.
+     *
+     * @param files     The files to check
+     * @return total    The number of errors found
+     * @throws IOException if a file cannot be read
+     */
+    private static int checkAll(List<File> files) throws IOException
+    {
+        int total = 0;
+
+        for (File file : files)
+        {
+            ViolationCollector violations = new ViolationCollector();
+            RuleEngine.run(SourceText.read(file), violations,
+                           RuleRegistry.all().createRules());
+            total += violations.getErrorCount();
+        }
+        return total;
+    }
+
+    @Test
+    void countsWhatAFullCheckFinds() throws IOException
+    {
+        List<File> files = samples();
+        StringBuilder expected = new StringBuilder();
+        int total = 0;
+
+        for (File file : files)
+        {
+            Rule[] rules = RuleRegistry.all().createRules();
+            ViolationCollector violations = new ViolationCollector();
+            RuleEngine.run(SourceText.read(file), violations, rules);
+
+            if (violations.getErrorCount() == 0)
+            {
+                continue;
+            }
+            expected.append(file.getPath()).append(": ")
+                    .append(violations.getErrorCount())
+                    .append(" style error(s)\n");
+
+            for (Rule rule : rules)
+            {
+                int errors = violations.getErrorLines(rule).size();
+
+                if (errors > 0)
+                {
+                    expected.append("    ").append(rule.getName())
+                            .append(": ").append(errors).append('\n');
+                }
+            }
+            total += violations.getErrorCount();
+        }
+        expected.append("\nFiles checked: ").append(files.size())
+                .append('\n');
+        String summary = count(new CountChecker(3, 0, RuleRegistry.all()),
+                               files, 1);
+
+        assertTrue(total > 0);
+        assertTrue(summary.startsWith(expected.toString()), summary);
+        assertTrue(summary.endsWith("Total style errors: " + total
+                                    + System.lineSeparator()), summary);
+    }
+
+    @Test
+    void stopsAtTheLimit() throws IOException
+    {
+        List<File> files = samples();
+        int total = checkAll(files);
+
+        for (int threads = 1; threads <= 4; threads += 3)
+        {
+            for (int limit = 1; limit < total; limit += 4)
+            {
+                String summary = count(new CountChecker(
+                                           threads, limit,
+                                           RuleRegistry.all()),
+                                       files, 1);
+
+                assertTrue(summary.contains("Total style errors: " + limit
+                                            + System.lineSeparator()),
+                           summary);
+                assertTrue(summary.endsWith("Stopped at the limit of "
+                                            + limit + " style error(s)"
+                                            + System.lineSeparator()),
+                           summary);
+            }
+        }
+    }
+
+    /**
+     * Writes a program of a class with many clean fields, and a line too
+     * long either before or after it, which is its only style error.
+     *
+     * @param name      The name of the file
+     * @param longFirst true to put the long line first, false to put it last
+     * @return file     The program
+     * @throws IOException if the file cannot be written
+     */
+    private File writeLongProgram(String name, boolean longFirst)
+                                  throws IOException
+    {
+        ArrayList<String> lines = new ArrayList<>();
+        String longLine = "// " + String.join("", Collections.nCopies(
+                                                  100, "x"));
+        lines.add("public class Big");
+        lines.add("{");
+        lines.add("");
+
+        for (int i = 0; i < 100000; i++)
+        {
+            lines.add("   int a" + i + " = 1;");
+        }
+        lines.add("}");
+        lines.add(longFirst ? 0 : lines.size(), longLine);
+
+        File file = directory.resolve(name).toFile();
+        Files.write(file.toPath(), lines);
+        return file;
+    }
+
+    @Test
+    void stopsAsSoonAsTheLimitIsReached() throws IOException
+    {
+        List<File> files = Arrays.asList(writeLongProgram("First.txt", true),
+                                         writeLongProgram("Second.txt",
+                                                          true));
+        String summary = count(new CountChecker(1, 1, RuleRegistry.all()),
+                               files, 1);
+
+        assertTrue(summary.contains("Files checked: 1"), summary);
+        assertTrue(summary.contains("Total style errors: 1"
+                                    + System.lineSeparator()), summary);
+        assertTrue(summary.endsWith("Stopped at the limit of 1 style error(s)"
+                                    + System.lineSeparator()), summary);
+    }
+
+    @Test
+    void doesNotStopAtALimitItOnlyReaches() throws IOException
+    {
+        File file = writeLongProgram("Last.txt", false);
+        String summary = count(new CountChecker(1, 1, RuleRegistry.all()),
+                               Collections.singletonList(file), 1);
+
+        assertTrue(summary.endsWith("Total style errors: 1"
+                                    + System.lineSeparator()), summary);
+        assertFalse(summary.contains("Stopped"), summary);
+    }
+
+    @Test
+    void passesAProgramWithoutErrors() throws IOException
+    {
+        File file = directory.resolve("Clean.txt").toFile();
+        Files.write(file.toPath(), Arrays.asList("public class Clean", "{", "",
+                                                 "}"));
+        String summary = count(new CountChecker(1, 1, RuleRegistry.all()),
+                               Collections.singletonList(file), 0);
+
+        assertFalse(summary.contains("Clean.txt"), summary);
+        assertTrue(summary.endsWith("Total style errors: 0"
+                                    + System.lineSeparator()), summary);
+    }
+
+    @Test
+    void reportsAFileThatCannotBeRead()
+    {
+        File missing = directory.resolve("Missing.txt").toFile();
+        String summary = count(new CountChecker(1, 0, RuleRegistry.all()),
+                               Collections.singletonList(missing), 1);
+
+        assertTrue(summary.contains("Files that could not be checked: 1"),
+                   summary);
+    }
+}
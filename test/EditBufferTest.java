@@ -0,0 +1,78 @@
+package stylechecker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the edits in an EditBuffer are made against the line numbers
+ * of the original program, in the order the buffer promises.
+ */
+class EditBufferTest
+{
+
+    private static final List<String> PROGRAM = Arrays.asList("a", "b", "c");
+
+    @Test
+    void noEditsLeaveTheProgramAsItWas()
+    {
+        EditBuffer edits = new EditBuffer();
+
+        assertTrue(edits.isEmpty());
+        assertEquals(PROGRAM, edits.apply(PROGRAM));
+    }
+
+    @Test
+    void editsNameLinesOfTheOriginalProgram()
+    {
+        EditBuffer edits = new EditBuffer();
+        edits.insertBefore(1, "0");
+        edits.insertAfter(1, "a2");
+        edits.replace(3, "c1", "c2");
+
+        assertFalse(edits.isEmpty());
+        assertEquals(Arrays.asList("0", "a", "a2", "b", "c1", "c2"),
+                     edits.apply(PROGRAM));
+    }
+
+    @Test
+    void editsOfOneLineGoBeforeThenInPlaceThenAfter()
+    {
+        EditBuffer edits = new EditBuffer();
+        edits.insertAfter(2, "after 1");
+        edits.replace(2, "B");
+        edits.insertBefore(2, "before 1");
+        edits.insertAfter(2, "after 2");
+        edits.insertBefore(2, "before 2");
+
+        assertEquals(Arrays.asList("a", "before 1", "before 2", "B",
+                                   "after 1", "after 2", "c"),
+                     edits.apply(PROGRAM));
+    }
+
+    @Test
+    void firstReplacementOfALineWins()
+    {
+        EditBuffer edits = new EditBuffer();
+        edits.replace(2, "first");
+        edits.replace(2, "second", "third");
+
+        assertEquals(Arrays.asList("a", "first", "c"), edits.apply(PROGRAM));
+    }
+
+    @Test
+    void originalProgramIsNotChanged()
+    {
+        List<String> program = Arrays.asList("a", "b");
+        EditBuffer edits = new EditBuffer();
+        edits.replace(1, "x");
+        edits.apply(program);
+
+        assertEquals(Arrays.asList("a", "b"), program);
+    }
+}
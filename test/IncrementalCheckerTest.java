@@ -0,0 +1,96 @@
+package stylechecker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the errors an IncrementalChecker keeps after each edit are the
+ * errors a full check of the edited program finds.
+ */
+class IncrementalCheckerTest
+{
+
+    /**
+     * Describes the errors an incremental checker holds.
+     *
+     * @param checker       The checker
+     * @return description  The errors, as TestPrograms.describe writes them
+     */
+    private static String describe(IncrementalChecker checker)
+    {
+        ViolationCollector violations = new ViolationCollector();
+        checker.report(violations);
+        return TestPrograms.describe(violations, checker.getRules());
+    }
+
+    @Test
+    void randomEditsMatchAFullCheck() throws IOException
+    {
+        List<String> samples = TestPrograms.sampleLines();
+        Random random = new Random(42);
+
+        for (int program = 0; program < 60; program++)
+        {
+            int count = random.nextInt(program % 10 == 0 ? 1500 : 60);
+            IncrementalChecker checker = new IncrementalChecker(
+                    TestPrograms.randomProgram(random, samples, count),
+                    RuleRegistry.all().createRules());
+
+            for (int edit = 0; edit < 30; edit++)
+            {
+                List<String> lines = checker.getLines();
+                int index = random.nextInt(lines.size() + 1);
+                int removed = random.nextInt(
+                                  Math.min(4, lines.size() - index) + 1);
+                ArrayList<String> added = new ArrayList<>();
+
+                for (int i = random.nextInt(4); i > 0; i--)
+                {
+                    added.add(random.nextInt(5) == 0 ? "   "
+                              : samples.get(random.nextInt(samples.size())));
+                }
+                checker.edit(index, removed, added);
+
+                assertEquals(TestPrograms.checkAll(checker.getLines()),
+                             describe(checker),
+                             "program " + program + ", edit " + edit);
+            }
+        }
+    }
+
+    @Test
+    void programEndsWhereSourceTextEndsIt()
+    {
+        // An em space is whitespace that trim() keeps, and a null character
+        // is not whitespace though trim() drops it. The rules look past an
+        // if without braces, so the lines after it decide its errors.
+        IncrementalChecker checker = new IncrementalChecker(
+                Arrays.asList("class A", "{", "if (a)"),
+                RuleRegistry.all().createRules());
+        checker.edit(3, 0, Arrays.asList("  ", "\t\u2003", ""));
+
+        assertEquals(TestPrograms.checkAll(checker.getLines()),
+                     describe(checker));
+
+        checker.edit(5, 0, Arrays.asList("\0", " "));
+
+        assertEquals(TestPrograms.checkAll(checker.getLines()),
+                     describe(checker));
+    }
+
+    @Test
+    void emptyProgramHasNoErrors()
+    {
+        IncrementalChecker checker = new IncrementalChecker(
+                new ArrayList<>(), RuleRegistry.all().createRules());
+
+        assertEquals(0, checker.getErrorCount());
+    }
+}
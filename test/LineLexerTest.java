@@ -0,0 +1,122 @@
+package stylechecker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that a LineLexer splits a line into the tokens a reader would, with
+ * each compound operator, comment and literal as a single token.
+ */
+class LineLexerTest
+{
+
+    private static final String[] KINDS = {
+        "word", "number", "operator", "{", "}", ";", "string", "char",
+        "comment", "punctuation"
+    };
+
+    /**
+     * Lexes a line on its own and describes its tokens, each as its kind
+     * and its text.
+     *
+     * @param line          The line
+     * @return description  The kind and text of each token, separated by
+     *                      spaces
+     */
+    private static String lex(String line)
+    {
+        LineLexer lexer = new LineLexer();
+        lexer.tokenize(line, 0, line.length(), CodeMask.of(line));
+        StringBuilder description = new StringBuilder();
+
+        for (int i = 0; i < lexer.size(); i++)
+        {
+            String text = line.substring(lexer.start(i), lexer.end(i));
+
+            if (i > 0)
+            {
+                description.append(' ');
+            }
+            description.append(KINDS[lexer.kind(i)]).append(':').append(text);
+
+            if (lexer.kind(i) == LineLexer.OPERATOR)
+            {
+                assertEquals(text.length(),
+                             OperatorTable.length(lexer.operator(i)), text);
+            }
+
+            else
+            {
+                assertEquals(-1, lexer.operator(i), text);
+            }
+        }
+        return description.toString();
+    }
+
+    @Test
+    void splitsWordsNumbersAndPunctuation()
+    {
+        assertEquals("word:int word:a operator:= number:1 ;:;",
+                     lex("int a = 1;"));
+        assertEquals("word:if punctuation:( word:a operator:< word:b "
+                     + "punctuation:) {:{ }:}", lex("   if (a<b) { }"));
+        assertEquals("word:x punctuation:. word:y punctuation:[ number:0 "
+                     + "punctuation:]", lex("x.y[0]"));
+    }
+
+    @Test
+    void compoundOperatorsAreOneToken()
+    {
+        assertEquals("word:a operator:>>>= word:b", lex("a >>>= b"));
+        assertEquals("word:a operator:-> word:b", lex("a->b"));
+        assertEquals("word:a operator:++ operator:+ word:b",
+                     lex("a+++b"));
+        assertEquals("word:String operator::: word:valueOf",
+                     lex("String::valueOf"));
+        assertEquals("word:a operator:!= word:b operator:&& word:c "
+                     + "operator:|| operator:! word:d",
+                     lex("a != b && c || !d"));
+    }
+
+    @Test
+    void numbersKeepTheirSuffixAndExponent()
+    {
+        assertEquals("number:1_000L", lex("1_000L"));
+        assertEquals("number:1.5e-3 operator:- number:2",
+                     lex("1.5e-3 - 2"));
+        assertEquals("number:0x1F", lex("0x1F"));
+    }
+
+    @Test
+    void commentsAndLiteralsAreOneToken()
+    {
+        assertEquals("word:a operator:= string:\"b + c\" ;:; "
+                     + "comment:// d = e", lex("a = \"b + c\"; // d = e"));
+        assertEquals("word:c operator:= char:'+' ;:;", lex("c = '+';"));
+        assertEquals("word:a comment:/* + */ word:b",
+                     lex("a /* + */ b"));
+    }
+
+    @Test
+    void reusesItsBuffersForLongerLines()
+    {
+        StringBuilder line = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        LineLexer lexer = new LineLexer();
+        lexer.tokenize("a", 0, 1, CodeMask.of("a"));
+
+        for (int i = 0; i < 40; i++)
+        {
+            line.append("a").append(i).append(" + ");
+            expected.append("word:a").append(i).append(" operator:+ ");
+        }
+        line.append("b;");
+        expected.append("word:b ;:;");
+        String text = line.toString();
+        lexer.tokenize(text, 0, text.length(), CodeMask.of(text));
+
+        assertEquals(82, lexer.size());
+        assertEquals(expected.toString(), lex(text));
+    }
+}
@@ -0,0 +1,115 @@
+package stylechecker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the OperatorTable knows what kind each operator is, and that
+ * the OperatorSpaceRule finds binary operators without exactly one space on
+ * each side, but not signs, assignments lined up or operators in comments
+ * and literals.
+ */
+class OperatorSpaceRuleTest
+{
+
+    /**
+     * Returns the id of an operator written on its own.
+     *
+     * @param operator  The text of the operator
+     * @return id       The id of the operator
+     */
+    private static int id(String operator)
+    {
+        int id = OperatorTable.match(operator, 0, operator.length());
+        assertEquals(operator.length(), OperatorTable.length(id), operator);
+        return id;
+    }
+
+    /**
+     * Returns true if the rule finds an error on a line of code. A line is
+     * added after it, as the rule does not check the last line.
+     *
+     * @param line      The line of code
+     * @return true     if the line has an operator spacing error
+     *         false    otherwise
+     */
+    private static boolean hasError(String line)
+    {
+        OperatorSpaceRule rule = new OperatorSpaceRule();
+        ViolationCollector violations = new ViolationCollector();
+        RuleEngine.run(Arrays.asList(line, "}"), violations, rule);
+        return violations.getErrorCount() > 0;
+    }
+
+    @Test
+    void tableKnowsEachKindOfOperator()
+    {
+        for (String operator : new String[] {"=", "+=", ">>>="})
+        {
+            assertTrue(OperatorTable.isAssignment(id(operator)), operator);
+            assertTrue(OperatorTable.isSpaced(id(operator)), operator);
+        }
+
+        for (String operator : new String[] {"+", "==", "&&", "||", "->"})
+        {
+            assertFalse(OperatorTable.isAssignment(id(operator)), operator);
+            assertTrue(OperatorTable.isSpaced(id(operator)), operator);
+        }
+
+        for (String operator : new String[] {"<", ">", "!", "?", "::"})
+        {
+            assertFalse(OperatorTable.isSpaced(id(operator)), operator);
+        }
+        assertTrue(OperatorTable.isSign(id("+")));
+        assertTrue(OperatorTable.isSign(id("-")));
+        assertFalse(OperatorTable.isSign(id("*")));
+        assertTrue(OperatorTable.isStep(id("++")));
+        assertTrue(OperatorTable.isStep(id("--")));
+        assertFalse(OperatorTable.isStep(id("+")));
+    }
+
+    @Test
+    void findsBinaryOperatorsWithoutOneSpace()
+    {
+        assertTrue(hasError("   a = b+c;"));
+        assertTrue(hasError("   a = b  + c;"));
+        assertTrue(hasError("   a = b +  c;"));
+        assertTrue(hasError("   if (a==b)"));
+        assertTrue(hasError("   a+= 1;"));
+        assertTrue(hasError("   list.forEach(x ->x.run());"));
+        assertFalse(hasError("   a = b + c;"));
+        assertFalse(hasError("   if (a == b && c != d)"));
+    }
+
+    @Test
+    void assignmentsMayBeLinedUp()
+    {
+        assertFalse(hasError("   a     = 1;"));
+        assertFalse(hasError("   total +=  2;"));
+    }
+
+    @Test
+    void signsAreNotBinaryOperators()
+    {
+        assertFalse(hasError("   a = -b;"));
+        assertFalse(hasError("   return -1;"));
+        assertFalse(hasError("   f(-1, +2);"));
+        assertFalse(hasError("   a = b * -c;"));
+        assertFalse(hasError("   i++;"));
+        assertTrue(hasError("   a = i++-1;"));
+    }
+
+    @Test
+    void ignoresCommentsLiteralsAndOtherOperators()
+    {
+        assertFalse(hasError("   a = \"b+c\"; // d+e"));
+        assertFalse(hasError("   a = '+';"));
+        assertFalse(hasError("   List<String> a = b ? c : d;"));
+        assertFalse(hasError("import java.util.*;"));
+    }
+}
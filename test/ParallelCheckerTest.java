@@ -0,0 +1,124 @@
+package stylechecker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that a program checked in parallel chunks has the errors a single
+ * pass over it finds, however its brace depths, comments and literals fall
+ * across the chunk boundaries.
+ */
+class ParallelCheckerTest
+{
+
+    // The lines of each chunk of a program of four times as many lines
+    private static final int CHUNK_LINES = 1 << 14;
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void startPool()
+    {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void stopPool()
+    {
+        pool.shutdown();
+    }
+
+    /**
+     * Checks a program in chunks and in a single pass, and asserts that the
+     * two find the same errors.
+     *
+     * @param lines     The lines of the program
+     * @param message   What the program is, for a failed assertion
+     */
+    private static void assertSameAsSinglePass(List<String> lines,
+                                               String message)
+    {
+        String text = String.join("\n", lines) + "\n";
+        SourceText source = new SourceText(text.toCharArray(), text.length());
+
+        Rule[] single = RuleRegistry.all().createRules();
+        ViolationCollector expected = new ViolationCollector();
+        RuleEngine.run(source, expected, single);
+
+        Rule[] chunked = RuleRegistry.all().createRules();
+        ViolationCollector actual = new ViolationCollector();
+        ParallelChecker.run(source, actual, pool,
+                            new RuleMetrics(chunked.length),
+                            RuleRegistry.all()::createRules, chunked);
+
+        assertEquals(TestPrograms.describe(expected, single),
+                     TestPrograms.describe(actual, chunked), message);
+        assertEquals(expected.getErrorCount(), actual.getErrorCount(),
+                     message);
+    }
+
+    @Test
+    void chunksMatchSinglePass() throws IOException
+    {
+        List<String> samples = TestPrograms.sampleLines();
+
+        // Braces and comment markers that are not code, so the depths and
+        // the mask must be carried into each chunk right
+        samples.add("String s = \"{ /*\";");
+        samples.add("/* {");
+        samples.add("   } */ int a; {");
+        samples.add("char c = '}'; // {");
+        Random random = new Random(13);
+
+        for (int program = 0; program < 6; program++)
+        {
+            int count = 33000 + random.nextInt(90000);
+
+            assertSameAsSinglePass(TestPrograms.randomProgram(
+                                       random, samples, count),
+                                   "program " + program + " of " + count
+                                   + " lines");
+        }
+    }
+
+    @Test
+    void chunkBoundariesInsideBlockComments() throws IOException
+    {
+        List<String> samples = TestPrograms.sampleLines();
+        List<String> lines = new ArrayList<>();
+
+        // Four chunks on a pool of four, starting every CHUNK_LINES lines
+        for (int i = 0; i < 4 * CHUNK_LINES; i++)
+        {
+            lines.add(samples.get(i % samples.size()));
+        }
+
+        for (int start = CHUNK_LINES; start < lines.size();
+             start += CHUNK_LINES)
+        {
+            // A comment that opens before the window of the chunk and
+            // closes after its first line, with braces and code inside
+            lines.set(start - 4, "int a = 1; /* {");
+            lines.set(start - 3, "if (a)");
+            lines.set(start - 2, "{ b=2;");
+            lines.set(start - 1, "   }");
+            lines.set(start, "x=y;  while (x) {");
+            lines.set(start + 1, " */ int c=3; {");
+        }
+        assertSameAsSinglePass(lines, "comments across chunk boundaries");
+    }
+
+    @Test
+    void smallProgramIsCheckedInOnePass() throws IOException
+    {
+        assertSameAsSinglePass(TestPrograms.sampleLines(), "samples");
+    }
+}
@@ -0,0 +1,211 @@
+package stylechecker;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that the pipeline writes the report a single check writes for every
+ * file, and that a file that fails in any stage, even with an Error, fails
+ * alone and never leaves a result waiting.
+ */
+class PipelineCheckerTest
+{
+
+    // Long enough for any of these checks, short enough to fail a hang
+    private static final long TIMEOUT_SECONDS = 30;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Returns copies of the sample programs, more of them than the queues
+     * between the stages can hold.
+     *
+     * @param count     The number of copies
+     * @return files    The copies, each named after its index
+     * @throws IOException if a copy cannot be made
+     */
+    private List<File> copies(int count) throws IOException
+    {
+        File[] samples = new File("Input").listFiles(
+                             (parent, name) -> name.endsWith(".txt"));
+        Arrays.sort(samples);
+        ArrayList<File> files = new ArrayList<>();
+
+        for (int i = 0; i < count; i++)
+        {
+            Path copy = directory.resolve("Program" + i + ".txt");
+            Files.copy(samples[i % samples.length].toPath(), copy);
+            files.add(copy.toFile());
+        }
+        return files;
+    }
+
+    /**
+     * Returns the file the report of a program is written to.
+     *
+     * @param file      The program
+     * @return report   The file of its report
+     */
+    private static File reportFile(File file)
+    {
+        return new File(file.getPath() + ".report");
+    }
+
+    /**
+     * Returns the report a single check writes for a program.
+     *
+     * @param file      The program
+     * @return report   The bytes of the report
+     * @throws IOException if the program cannot be read
+     */
+    private static byte[] expectedReport(File file) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        StyleChecker.generateReport(SourceText.read(file), file.getPath(),
+                                    ReportFormat.TEXT.open(
+                                        new OutputStreamWriter(bytes)),
+                                    null, RuleRegistry.all());
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Waits for the result of a file, failing the test if it never comes.
+     *
+     * @param result    The result of the file
+     * @return errors   The number of style errors of the file
+     * @throws Exception the exception that failed the file
+     */
+    private static int await(CompletableFuture<Integer> result)
+                             throws Exception
+    {
+        try
+        {
+            return result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+
+        catch (TimeoutException ex)
+        {
+            throw new AssertionError("the pipeline never finished a file", ex);
+        }
+    }
+
+    /**
+     * Starts a pipeline over the given files with the text report format.
+     *
+     * @param threadCount   The number of checking threads
+     * @param files         The files to check
+     * @param reportFiles   Gives the file each file's report is written to
+     * @return results      The result of each file
+     */
+    private static List<CompletableFuture<Integer>> start(
+        int threadCount, List<File> files, Function<File, File> reportFiles)
+    {
+        return new PipelineChecker(threadCount, null, ReportFormat.TEXT,
+                                   RuleRegistry.all())
+               .start(files, reportFiles);
+    }
+
+    @Test
+    void writesTheReportOfASingleCheck() throws Exception
+    {
+        List<File> files = copies(40);
+        List<CompletableFuture<Integer>> results =
+            start(2, files, PipelineCheckerTest::reportFile);
+
+        for (int i = 0; i < files.size(); i++)
+        {
+            File file = files.get(i);
+            int errors = await(results.get(i));
+            ViolationCollector violations = new ViolationCollector();
+            RuleEngine.run(SourceText.read(file), violations,
+                           RuleRegistry.all().createRules());
+
+            assertEquals(violations.getErrorCount(), errors);
+            assertArrayEquals(expectedReport(file),
+                              Files.readAllBytes(reportFile(file).toPath()));
+        }
+    }
+
+    @Test
+    void failsOnlyTheFilesThatFail() throws Exception
+    {
+        List<File> files = copies(30);
+        files.set(3, directory.resolve("Missing.txt").toFile());
+        Error error = new Error("out of memory");
+        File unwritable = directory.resolve("no-such-directory")
+                                   .resolve("report").toFile();
+        List<CompletableFuture<Integer>> results = start(2, files,
+            file ->
+            {
+                if (file.getName().equals("Program7.txt"))
+                {
+                    throw error;
+                }
+                return file.getName().equals("Program11.txt")
+                       ? unwritable : reportFile(file);
+            });
+
+        for (int i = 0; i < files.size(); i++)
+        {
+            CompletableFuture<Integer> result = results.get(i);
+
+            if (i == 3 || i == 7 || i == 11)
+            {
+                ExecutionException ex = assertThrows(
+                    ExecutionException.class, () -> await(result));
+
+                if (i == 7)
+                {
+                    assertSame(error, ex.getCause());
+                }
+            }
+
+            else
+            {
+                await(result);
+            }
+        }
+        assertFalse(unwritable.exists());
+    }
+
+    @Test
+    void finishesWhenEveryFileFails() throws Exception
+    {
+        List<File> files = copies(20);
+        List<CompletableFuture<Integer>> results = start(1, files,
+            file ->
+            {
+                throw new StackOverflowError();
+            });
+
+        for (CompletableFuture<Integer> result : results)
+        {
+            ExecutionException ex = assertThrows(
+                ExecutionException.class, () -> await(result));
+
+            assertEquals(StackOverflowError.class, ex.getCause().getClass());
+        }
+    }
+}
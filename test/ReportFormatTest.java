@@ -0,0 +1,119 @@
+package stylechecker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the JSON Lines and SARIF reports write valid JSON for paths,
+ * rule names and messages that need escaping.
+ */
+class ReportFormatTest
+{
+
+    private static final String NEW_LINE = System.lineSeparator();
+
+    /**
+     * A rule whose name and message hold characters JSON must escape.
+     */
+    private static final Rule ODD_RULE = new Rule()
+    {
+        @Override
+        public void checkLine(int index, LineContext current,
+                              LineContext next, LineContext nextNext,
+                              ViolationSink sink)
+        {
+        }
+
+        @Override
+        public String getMessage()
+        {
+            return "say \"hi\"\tto C:\\";
+        }
+
+        @Override
+        public String getName()
+        {
+            return "Odd\"Rule";
+        }
+    };
+
+    /**
+     * Writes a report of two errors of the odd rule in the given format.
+     *
+     * @param format    The format of the report
+     * @param path      The path of the program
+     * @return report   The text of the report
+     */
+    private static String report(ReportFormat format, String path)
+    {
+        StringWriter written = new StringWriter();
+        ReportSink report = format.open(written);
+        report.begin(path, "author", "all", new Rule[] {ODD_RULE});
+        report.addViolation(ODD_RULE, 3);
+        report.addViolation(ODD_RULE, 12);
+        report.end(2);
+        report.close();
+        return written.toString();
+    }
+
+    @Test
+    void jsonLinesWritesOneEscapedObjectPerError()
+    {
+        String line = ",\"rule\":\"Odd\\\"Rule\",\"message\":"
+                      + "\"say \\\"hi\\\"\\u0009to C:\\\\\"}";
+
+        assertEquals("{\"file\":\"a\\\"b\\n.java\",\"line\":3" + line
+                     + NEW_LINE
+                     + "{\"file\":\"a\\\"b\\n.java\",\"line\":12" + line
+                     + NEW_LINE,
+                     report(ReportFormat.JSON_LINES, "a\"b\n.java"));
+    }
+
+    @Test
+    void sarifDescribesEachRuleOnceAndEachErrorAsAResult()
+    {
+        String result = "{\"ruleId\":\"Odd\\\"Rule\",\"ruleIndex\":0,"
+                        + "\"level\":\"warning\",\"message\":{\"text\":"
+                        + "\"say \\\"hi\\\"\\u0009to C:\\\\\"},\"locations\":"
+                        + "[{\"physicalLocation\":{\"artifactLocation\":"
+                        + "{\"uri\":\"src/a\\\"b.java\"},\"region\":"
+                        + "{\"startLine\":";
+
+        assertEquals("{\"$schema\":"
+                     + "\"https://json.schemastore.org/sarif-2.1.0.json\","
+                     + "\"version\":\"2.1.0\",\"runs\":[{\"tool\":{\"driver\":"
+                     + "{\"name\":\"style-checker\",\"rules\":[{\"id\":"
+                     + "\"Odd\\\"Rule\",\"shortDescription\":{\"text\":"
+                     + "\"say \\\"hi\\\"\\u0009to C:\\\\\"}}]}},\"results\":["
+                     + result + "3}}}]}," + result + "12}}}]}]}]}" + NEW_LINE,
+                     report(ReportFormat.SARIF, "src/a\"b.java"));
+    }
+
+    @Test
+    void sarifWithoutErrorsHasNoResults()
+    {
+        StringWriter written = new StringWriter();
+        ReportSink report = ReportFormat.SARIF.open(written);
+        report.begin("a.java", "", "", new Rule[0]);
+        report.end(0);
+        report.close();
+
+        assertEquals("{\"$schema\":"
+                     + "\"https://json.schemastore.org/sarif-2.1.0.json\","
+                     + "\"version\":\"2.1.0\",\"runs\":[{\"tool\":{\"driver\":"
+                     + "{\"name\":\"style-checker\",\"rules\":[]}},"
+                     + "\"results\":[]}]}" + NEW_LINE,
+                     written.toString());
+    }
+
+    @Test
+    void formatsAreFoundByName()
+    {
+        assertEquals(ReportFormat.SARIF, ReportFormat.forName("sarif"));
+        assertEquals(ReportFormat.JSON_LINES, ReportFormat.forName("jsonl"));
+        assertEquals(ReportFormat.TEXT, ReportFormat.forName("text"));
+    }
+}
@@ -0,0 +1,86 @@
+package stylechecker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that a ReportWriter writes what is appended to it, escaped for JSON
+ * where asked, however much of it there is.
+ */
+class ReportWriterTest
+{
+
+    /**
+     * Returns the text a writer writes once it is closed.
+     *
+     * @param text      The text to append as the inside of a JSON string
+     * @return written  The text written
+     */
+    private static String json(String text)
+    {
+        StringWriter written = new StringWriter();
+
+        try (ReportWriter out = new ReportWriter(written))
+        {
+            out.appendJson(text);
+        }
+        return written.toString();
+    }
+
+    @Test
+    void jsonEscapesQuotesBackslashesAndControlCharacters()
+    {
+        assertEquals("a\\\"b\\\\c", json("a\"b\\c"));
+        assertEquals("\\n\\u000d\\u0009\\u0000\\u001f",
+                     json("\n\r\t\0\u001f"));
+    }
+
+    @Test
+    void jsonKeepsOtherCharactersAsTheyAre()
+    {
+        assertEquals(" /{}\u00e9\u2028\u007f", json(" /{}\u00e9\u2028\u007f"));
+    }
+
+    @Test
+    void numbersAreWrittenInDecimal()
+    {
+        StringWriter written = new StringWriter();
+
+        try (ReportWriter out = new ReportWriter(written))
+        {
+            out.append(0).append(' ').append(-7).append(' ')
+               .append(1234567890).append(' ').append(Integer.MIN_VALUE);
+        }
+
+        assertEquals("0 -7 1234567890 -2147483648", written.toString());
+    }
+
+    @Test
+    void textLongerThanTheBufferIsWrittenWhole()
+    {
+        StringBuilder text = new StringBuilder();
+
+        for (int i = 0; i < 100000; i++)
+        {
+            text.append(i % 10 == 0 ? '"' : 'a');
+        }
+
+        assertEquals(text.toString().replace("\"", "\\\""),
+                     json(text.toString()));
+    }
+
+    @Test
+    void closingTwiceWritesOnce()
+    {
+        StringWriter written = new StringWriter();
+        ReportWriter out = new ReportWriter(written);
+        out.append("a");
+        out.close();
+        out.close();
+
+        assertEquals("a", written.toString());
+    }
+}
@@ -0,0 +1,142 @@
+package stylechecker;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a report made from the cache is the same as one made by a
+ * check, and that a program checked differently never gets an entry it
+ * does not match.
+ */
+class ResultCacheTest
+{
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Returns a rule with the given definition, which finds no errors.
+     *
+     * @param definition    The definition of the rule
+     * @return rule         The rule
+     */
+    private static Rule defined(String definition)
+    {
+        return new Rule()
+        {
+            @Override
+            public void checkLine(int index, LineContext current,
+                                  LineContext next, LineContext nextNext,
+                                  ViolationSink sink)
+            {
+            }
+
+            @Override
+            public String getMessage()
+            {
+                return "never found";
+            }
+
+            @Override
+            public String getDefinition()
+            {
+                return definition;
+            }
+        };
+    }
+
+    /**
+     * Returns the report of a program, looking its errors up in the given
+     * cache.
+     *
+     * @param file      The program
+     * @param cache     The cache of earlier results, or null for none
+     * @return report   The bytes of the report
+     * @throws IOException if the program cannot be read
+     */
+    private static byte[] report(File file, ResultCache cache)
+                                 throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        StyleChecker.generateReport(SourceText.read(file), file.getPath(),
+                                    ReportFormat.TEXT.open(
+                                        new OutputStreamWriter(bytes)),
+                                    cache, RuleRegistry.all());
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Returns the number of entries in the cache directory.
+     *
+     * @return count    The number of entries
+     */
+    private int entryCount()
+    {
+        return directory.toFile().list(
+                   (parent, name) -> name.endsWith(".cache")).length;
+    }
+
+    @Test
+    void reportFromTheCacheIsTheReportOfACheck() throws IOException
+    {
+        ResultCache cache = new ResultCache(directory.toFile());
+        File[] files = new File("Input").listFiles(
+                           (parent, name) -> name.endsWith(".txt"));
+
+        for (File file : files)
+        {
+            byte[] expected = report(file, null);
+
+            assertArrayEquals(expected, report(file, cache), file.getPath());
+            assertArrayEquals(expected, report(file, cache), file.getPath());
+        }
+        assertEquals(files.length, entryCount());
+    }
+
+    @Test
+    void changedSettingsMissTheCache() throws IOException
+    {
+        ResultCache cache = new ResultCache(directory.toFile());
+        SourceText source = SourceText.read(
+                                new File("Input/Chris_indents.txt"));
+        Rule[] rules = RuleRegistry.all().createRules();
+        Properties overrides = new Properties();
+        overrides.setProperty(CheckerConfig.MAX_LINE_LENGTH, "100");
+        String key = cache.key(source, rules, CheckerConfig.defaults());
+        String changed = cache.key(source, rules,
+                                   CheckerConfig.load(null, overrides));
+        cache.store(key, new LineNumberList(), new LineNumberList());
+
+        assertNotEquals(key, changed);
+        assertNotNull(cache.load(key, 2));
+        assertNull(cache.load(changed, 2));
+    }
+
+    @Test
+    void definitionsDoNotRunTogether() throws IOException
+    {
+        ResultCache cache = new ResultCache(directory.toFile());
+        SourceText source = SourceText.read(
+                                new File("Input/Chris_indents.txt"));
+        CheckerConfig config = CheckerConfig.defaults();
+
+        assertNotEquals(cache.key(source, new Rule[] {defined("ab"),
+                                                      defined("c")}, config),
+                        cache.key(source, new Rule[] {defined("a"),
+                                                      defined("bc")},
+                                  config));
+    }
+}
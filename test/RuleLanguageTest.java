@@ -0,0 +1,292 @@
+package stylechecker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that RuleLanguage compiles declared rules into rules that match the
+ * lines their conditions describe, negations included, and that it rejects
+ * rules that are not valid with the file and line of the mistake.
+ */
+class RuleLanguageTest
+{
+
+    private static final String[] TESTS = {
+        "keyword", "keyword if", "keyword (for, while)", "blank", "class",
+        "method", "access-modifier", "has {", "has }", "ends-with {",
+        "ends-with }", "semicolons > 0", "semicolons <= 1", "tokens >= 4",
+        "tokens != 3", "length < 20", "indent == 4", "indent > 8",
+        "next blank", "next has }", "next keyword else", "next indent >= 4"
+    };
+
+    /**
+     * Compiles a rule with the given condition.
+     *
+     * @param condition     The condition of the rule
+     * @param more          Any statements after the condition
+     * @return rule         The compiled rule
+     */
+    private static DeclaredRule compile(String condition, String... more)
+    {
+        ArrayList<String> lines = new ArrayList<>(Arrays.asList(
+                                      "rule Test", "message \"test\"",
+                                      "when " + condition));
+        lines.addAll(Arrays.asList(more));
+        List<DeclaredRule> rules = RuleLanguage.parse("test.rules", lines);
+
+        assertEquals(1, rules.size());
+        return rules.get(0);
+    }
+
+    /**
+     * Returns the line numbers a rule reports in a program.
+     *
+     * @param rule      The rule
+     * @param program   The lines of the program
+     * @return lines    The line numbers reported, in order
+     */
+    private static List<Integer> errors(Rule rule, List<String> program)
+    {
+        ArrayList<Integer> lines = new ArrayList<>();
+        RuleEngine.run(program, (found, lineNumber) -> lines.add(lineNumber),
+                       rule);
+        return lines;
+    }
+
+    /**
+     * Returns the line numbers a rule with the given condition reports in a
+     * program.
+     *
+     * @param condition     The condition of the rule
+     * @param program       The lines of the program
+     * @return lines        The line numbers reported, in order
+     */
+    private static List<Integer> errors(String condition, String... program)
+    {
+        return errors(compile(condition), Arrays.asList(program));
+    }
+
+    @Test
+    void testsMatchTheLinesTheyDescribe()
+    {
+        assertEquals(Arrays.asList(2), errors("keyword if",
+                                              "x = 1;", "if (a)", "b();"));
+        assertEquals(Arrays.asList(1, 3), errors("semicolons > 1",
+                                                 "a; b;", "c;",
+                                                 "for (;;) d;"));
+        assertEquals(Arrays.asList(2), errors("blank", "a", "   ", "b"));
+        assertEquals(Arrays.asList(1), errors("indent == 4 and length < 12",
+                                              "    int a;", "        b;",
+                                              "    int a = 1;"));
+    }
+
+    @Test
+    void bracesInCommentsAndLiteralsAreNotCounted()
+    {
+        assertEquals(Arrays.asList(3), errors("has {",
+                                              "s = \"{\";", "// {",
+                                              "if (a) {"));
+    }
+
+    @Test
+    void nextTestsTheLineAfter()
+    {
+        assertEquals(Arrays.asList(1), errors("keyword if and next blank",
+                                              "if (a)", "", "if (b)",
+                                              "c();"));
+    }
+
+    @Test
+    void reportNextNamesTheLineAfter()
+    {
+        assertEquals(Arrays.asList(2), errors(compile("keyword if",
+                                                      "report next"),
+                                              Arrays.asList("if (a)",
+                                                            "b();")));
+    }
+
+    /**
+     * Returns the line numbers a rule with the given condition reports in a
+     * program, or null if the condition can never be met.
+     *
+     * @param condition     The condition of the rule
+     * @param program       The lines of the program
+     * @return lines        The line numbers reported, or null
+     */
+    private static List<Integer> errorsOrNever(String condition,
+                                               List<String> program)
+    {
+        try
+        {
+            return errors(compile(condition), program);
+        }
+
+        catch (IllegalArgumentException ex)
+        {
+            assertTrue(ex.getMessage().endsWith("can never be met"),
+                       ex.getMessage());
+            return null;
+        }
+    }
+
+    @Test
+    void notOfAnAndIsTheOrOfTheNots() throws IOException
+    {
+        List<String> program = TestPrograms.sampleLines();
+
+        for (String left : TESTS)
+        {
+            for (String right : TESTS)
+            {
+                assertEquals(errorsOrNever("not (" + left + " and " + right
+                                           + ")", program),
+                             errorsOrNever("not " + left + " or not "
+                                           + right, program),
+                             left + ", " + right);
+                assertEquals(errorsOrNever("not (" + left + " or " + right
+                                           + ")", program),
+                             errorsOrNever("not " + left + " and not "
+                                           + right, program),
+                             left + ", " + right);
+            }
+        }
+    }
+
+    @Test
+    void conditionAndItsNegationSplitEveryLine() throws IOException
+    {
+        List<String> program = TestPrograms.sampleLines();
+        Random random = new Random(19);
+        int compiled = 0;
+
+        for (int i = 0; i < 300; i++)
+        {
+            String condition = randomCondition(random, 3);
+            DeclaredRule rule;
+            DeclaredRule negation;
+
+            try
+            {
+                rule = compile(condition);
+                negation = compile("not (" + condition + ")");
+            }
+
+            catch (IllegalArgumentException ex)
+            {
+                // Too many clauses, or a condition that is never met
+                continue;
+            }
+            compiled++;
+
+            BitSet matched = new BitSet();
+            BitSet unmatched = new BitSet();
+            errors(rule, program).forEach(matched::set);
+            errors(negation, program).forEach(unmatched::set);
+
+            // A rule that looks at the next line does not check the last one
+            matched.clear(program.size());
+            unmatched.clear(program.size());
+
+            assertTrue(!matched.intersects(unmatched), condition);
+            matched.or(unmatched);
+            assertEquals(program.size() - 1, matched.cardinality(),
+                         condition);
+        }
+
+        assertTrue(compiled > 150, compiled + " conditions compiled");
+    }
+
+    /**
+     * Builds a random condition out of the tests.
+     *
+     * @param random        The source of randomness
+     * @param depth         How deep the condition may nest
+     * @return condition    The condition
+     */
+    private static String randomCondition(Random random, int depth)
+    {
+        int choice = depth == 0 ? 0 : random.nextInt(4);
+
+        switch (choice)
+        {
+            case 1:
+                return "not " + randomCondition(random, depth - 1);
+
+            case 2:
+                return "(" + randomCondition(random, depth - 1) + " and "
+                       + randomCondition(random, depth - 1) + ")";
+
+            case 3:
+                return "(" + randomCondition(random, depth - 1) + " or "
+                       + randomCondition(random, depth - 1) + ")";
+
+            default:
+                return TESTS[random.nextInt(TESTS.length)];
+        }
+    }
+
+    /**
+     * Asserts that a rules file is rejected, naming the line of the mistake.
+     *
+     * @param lineNumber    The line the mistake is on
+     * @param lines         The lines of the rules file
+     */
+    private static void assertRejected(int lineNumber, String... lines)
+    {
+        IllegalArgumentException error = assertThrows(
+                IllegalArgumentException.class,
+                () -> RuleLanguage.parse("test.rules", Arrays.asList(lines)));
+
+        assertTrue(error.getMessage().startsWith("test.rules:" + lineNumber
+                                                 + ": "),
+                   error.getMessage());
+    }
+
+    @Test
+    void invalidRulesAreRejected()
+    {
+        assertRejected(1, "message \"m\"");
+        assertRejected(1, "rule A", "message \"m\"");
+        assertRejected(2, "rule A", "message m", "when blank");
+        assertRejected(3, "rule A", "message \"m\"", "when bogus");
+        assertRejected(3, "rule A", "message \"m\"", "when length > x");
+        assertRejected(3, "rule A", "message \"m\"", "when length ~ 3");
+        assertRejected(3, "rule A", "message \"m\"", "when length > -1");
+        assertRejected(3, "rule A", "message \"m\"", "when (blank");
+        assertRejected(3, "rule A", "message \"m\"", "when blank blank");
+        assertRejected(3, "rule A", "message \"m\"", "when next next blank");
+        assertRejected(3, "rule A", "message \"m\"",
+                       "when blank and not blank");
+        assertRejected(4, "rule A", "message \"m\"", "when blank",
+                       "when class");
+        assertRejected(4, "rule A", "message \"m\"", "when blank",
+                       "report here");
+    }
+
+    @Test
+    void commentsAndContinuationLinesAreRead()
+    {
+        List<DeclaredRule> rules = RuleLanguage.parse("test.rules",
+                Arrays.asList("# A comment", "rule A", "message \"a\"",
+                              "when keyword if", "    and next blank", "",
+                              "rule B", "message \"b\"", "when class"));
+
+        assertEquals(2, rules.size());
+        assertEquals("A", rules.get(0).getName());
+        assertEquals("a", rules.get(0).getMessage());
+        assertEquals("B", rules.get(1).getName());
+        assertEquals(Arrays.asList(1), errors(rules.get(0),
+                                              Arrays.asList("if (a)", "",
+                                                            "b();")));
+    }
+}
@@ -0,0 +1,187 @@
+package stylechecker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that the registry always holds the built in rules in report order,
+ * narrows them by name, adds the declared rules and the rules of other
+ * packages found through a service file, and configures every rule it
+ * creates.
+ */
+class RuleRegistryTest
+{
+
+    private static final List<String> BUILT_IN = Arrays.asList(
+        "IndentRule", "LongLineRule", "OptionalBraceRule",
+        "MultiCodeSameLineRule", "OperatorSpaceRule", "BraceAlignmentRule",
+        "NoBlankLineRule");
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Returns a configuration of the default settings with the given
+     * settings laid over them.
+     *
+     * @param settings  The keys and values of the settings, in turn
+     * @return config   The configuration
+     * @throws IOException never, as no file is read
+     */
+    private static CheckerConfig configure(String... settings)
+                                          throws IOException
+    {
+        Properties overrides = new Properties();
+
+        for (int i = 0; i < settings.length; i += 2)
+        {
+            overrides.setProperty(settings[i], settings[i + 1]);
+        }
+        return CheckerConfig.load(null, overrides);
+    }
+
+    @Test
+    void holdsTheBuiltInRulesInReportOrder()
+    {
+        Rule[] rules = RuleRegistry.all().createRules();
+
+        assertEquals(BUILT_IN, RuleRegistry.all().getNames());
+        assertEquals(BUILT_IN.size(), rules.length);
+
+        for (int i = 0; i < rules.length; i++)
+        {
+            assertEquals(BUILT_IN.get(i), rules[i].getName());
+        }
+    }
+
+    @Test
+    void createsNewRulesEachTime()
+    {
+        Rule[] first = RuleRegistry.all().createRules();
+        Rule[] second = RuleRegistry.all().createRules();
+
+        for (int i = 0; i < first.length; i++)
+        {
+            assertNotSame(first[i], second[i]);
+        }
+    }
+
+    @Test
+    void narrowsTheRulesByName()
+    {
+        RuleRegistry all = RuleRegistry.all();
+
+        assertEquals(Arrays.asList("LongLineRule", "NoBlankLineRule"),
+                     all.enable(Arrays.asList("NoBlankLineRule",
+                                              "LongLineRule")).getNames());
+        assertEquals(BUILT_IN.subList(1, BUILT_IN.size()),
+                     all.disable(Collections.singletonList("IndentRule"))
+                        .getNames());
+        assertThrows(IllegalArgumentException.class,
+                     () -> all.enable(Collections.singletonList("NoRule")));
+        assertThrows(IllegalArgumentException.class,
+                     () -> all.disable(Collections.singletonList("NoRule")));
+    }
+
+    @Test
+    void configuresTheRulesItCreates() throws IOException
+    {
+        RuleRegistry registry = RuleRegistry.configured(configure(
+                                    CheckerConfig.MAX_LINE_LENGTH, "10",
+                                    CheckerConfig.RULES_ENABLE,
+                                    "LongLineRule"));
+        Rule[] rules = registry.createRules();
+        ViolationCollector violations = new ViolationCollector();
+        RuleEngine.run(Arrays.asList("int a;", "int abcdefgh;"), violations,
+                       rules);
+
+        assertEquals(Collections.singletonList("LongLineRule"),
+                     registry.getNames());
+        assertEquals(1, violations.getErrorCount());
+        assertEquals(2, violations.getErrorLines(rules[0]).get(0));
+    }
+
+    @Test
+    void addsTheDeclaredRulesLast() throws IOException
+    {
+        File rulesFile = directory.resolve("house.rules").toFile();
+        Files.write(rulesFile.toPath(), Arrays.asList(
+                        "rule EmptyLine", "message \"empty line\"",
+                        "when length == 0"));
+        RuleRegistry registry = RuleRegistry.configured(configure(
+                                    CheckerConfig.RULES_FILE,
+                                    rulesFile.getPath(),
+                                    CheckerConfig.RULES_DISABLE,
+                                    "IndentRule"));
+        List<String> names = registry.getNames();
+
+        assertEquals(BUILT_IN.size(), names.size());
+        assertEquals(BUILT_IN.subList(1, BUILT_IN.size()),
+                     names.subList(0, names.size() - 1));
+        assertEquals("EmptyLine", names.get(names.size() - 1));
+    }
+
+    @Test
+    void loadsARuleFromAnotherPackage() throws IOException
+    {
+        Path services = directory.resolve("META-INF/services");
+        Files.createDirectories(services);
+        Files.write(services.resolve(Rule.class.getName()),
+                    Collections.singletonList(
+                        "stylechecker.plugin.TrailingSpaceRule"));
+
+        try (URLClassLoader loader = new URLClassLoader(
+                 new URL[] {directory.toUri().toURL()},
+                 RuleRegistryTest.class.getClassLoader()))
+        {
+            RuleRegistry registry = RuleRegistry.load(loader);
+            List<String> names = registry.getNames();
+            Rule[] rules = registry.createRules();
+            ViolationCollector violations = new ViolationCollector();
+            RuleEngine.run(Arrays.asList("public class A", "{", "",
+                                         "   int a; ", "}"),
+                           violations, rules);
+            LineNumberList errors = violations.getErrorLines(
+                                        rules[rules.length - 1]);
+
+            assertEquals(BUILT_IN, names.subList(0, BUILT_IN.size()));
+            assertEquals(Collections.singletonList("TrailingSpaceRule"),
+                         names.subList(BUILT_IN.size(), names.size()));
+            assertEquals(1, errors.size());
+            assertEquals(4, errors.get(0));
+        }
+    }
+
+    @Test
+    void rejectsADeclaredRuleNamedLikeABuiltInRule() throws IOException
+    {
+        File rulesFile = directory.resolve("house.rules").toFile();
+        Files.write(rulesFile.toPath(), Arrays.asList(
+                        "rule LongLineRule", "message \"too long\"",
+                        "when length > 10"));
+        CheckerConfig config = configure(CheckerConfig.RULES_FILE,
+                                         rulesFile.getPath());
+        IllegalArgumentException ex = assertThrows(
+            IllegalArgumentException.class,
+            () -> RuleRegistry.configured(config));
+
+        assertTrue(ex.getMessage().contains("LongLineRule"),
+                   ex.getMessage());
+    }
+}
@@ -0,0 +1,147 @@
+package stylechecker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a SourceText splits a program into the lines Scanner read it
+ * as, and that reading it from a file gives the same text.
+ */
+class SourceTextTest
+{
+
+    /**
+     * Returns the lines of the given text as SourceText splits it.
+     *
+     * @param text      The text of the program
+     * @return lines    The lines of the program
+     */
+    private static List<String> split(String text)
+    {
+        return new SourceText(text.toCharArray(), text.length())
+               .toLineList();
+    }
+
+    /**
+     * Returns the lines Scanner reads from the given text, the way the
+     * checker read programs before SourceText.
+     *
+     * @param text      The text of the program
+     * @return lines    The lines of the program
+     */
+    private static List<String> scan(String text)
+    {
+        ArrayList<String> lines = new ArrayList<>();
+        Scanner scanner = new Scanner(text);
+
+        while (scanner.hasNext())
+        {
+            lines.add(scanner.nextLine());
+        }
+        return lines;
+    }
+
+    @Test
+    void splitsAtEverySeparator()
+    {
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e", "f", "g"),
+                     split("a\nb\r\nc\rd\u2028e\u2029f\u0085g"));
+    }
+
+    @Test
+    void carriageReturnAndLineFeedEndOneLine()
+    {
+        assertEquals(Arrays.asList("a", "", "b"), split("a\r\n\r\nb\r\n"));
+        assertEquals(Arrays.asList("a", "", "b"), split("a\n\rb"));
+    }
+
+    @Test
+    void whitespaceAfterTheLastCodeIsNotPartOfTheProgram()
+    {
+        assertEquals(Arrays.asList("a", "  b"), split("a\n  b\n \n\t\n"));
+        assertEquals(Arrays.asList("a"), split("a\n\u0085\n"));
+        assertEquals(0, split("").size());
+        assertEquals(0, split(" \n\r\n\t").size());
+    }
+
+    @Test
+    void blankLinesInsideTheProgramAreKept()
+    {
+        assertEquals(Arrays.asList("a", "", "   ", "b"),
+                     split("a\n\n   \nb"));
+    }
+
+    @Test
+    void linesMatchScanner()
+    {
+        // A next line character only ends lines here, where Scanner also
+        // counts it as the start of a token, so it is left out
+        char[] letters = {'a', ' ', '\t', '\n', '\r', '\u2028', '\u2029'};
+        Random random = new Random(3);
+
+        for (int i = 0; i < 5000; i++)
+        {
+            StringBuilder text = new StringBuilder();
+
+            for (int j = random.nextInt(12); j > 0; j--)
+            {
+                text.append(letters[random.nextInt(letters.length)]);
+            }
+
+            assertEquals(scan(text.toString()), split(text.toString()),
+                         text.toString().replace("\n", "\\n")
+                                        .replace("\r", "\\r"));
+        }
+    }
+
+    @Test
+    void offsetsLeaveOutTheSeparators()
+    {
+        SourceText source = new SourceText("ab\r\ncd".toCharArray(), 6);
+
+        assertEquals(0, source.lineStart(0));
+        assertEquals(2, source.lineEnd(0));
+        assertEquals(4, source.lineStart(1));
+        assertEquals(6, source.lineEnd(1));
+        assertThrows(IndexOutOfBoundsException.class,
+                     () -> source.lineStart(2));
+    }
+
+    @Test
+    void findsTheFirstLineContainingTheTarget()
+    {
+        SourceText source = new SourceText(
+                                "a\n  /* b\n/* c".toCharArray(), 13);
+
+        assertEquals(1, source.findLine("/*"));
+        assertEquals(-1, source.findLine("//"));
+    }
+
+    @Test
+    void readingAFileMatchesDecodingItsBytes(@TempDir Path directory)
+        throws IOException
+    {
+        byte[] bytes = "class A\r\n{\n\tint a;\r}\n\n".getBytes();
+        File file = directory.resolve("A.java").toFile();
+        Files.write(file.toPath(), bytes);
+
+        assertEquals(SourceText.decode(ByteBuffer.wrap(bytes)).toLineList(),
+                     SourceText.read(file).toLineList());
+        assertEquals(Arrays.asList("class A", "{", "\tint a;", "}"),
+                     SourceText.read(file).toLineList());
+    }
+}
@@ -0,0 +1,148 @@
+package stylechecker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that checking a program as a stream prints the errors a check of
+ * the whole program finds, whatever separates its lines and however many
+ * blank lines it has.
+ */
+class StreamCheckerTest
+{
+
+    private static final String[] SEPARATORS = {"\n", "\r\n", "\r",
+                                                "\u2028", "\u2029",
+                                                "\u0085"};
+    private static final String[] BLANKS = {"", "   ", "\t", " \t "};
+
+    /**
+     * Lists the errors a check of the whole program finds, one to a line,
+     * as the stream check prints them.
+     *
+     * @param text      The text of the program
+     * @return errors   The errors found
+     */
+    private static String checkWhole(String text)
+    {
+        StringBuilder errors = new StringBuilder();
+        RuleEngine.run(new SourceText(text.toCharArray(), text.length()),
+                       (rule, lineNumber) -> errors.append("Line ")
+                                                   .append(lineNumber)
+                                                   .append(": ")
+                                                   .append(rule.getMessage())
+                                                   .append('\n'),
+                       RuleRegistry.all().createRules());
+        return errors.toString();
+    }
+
+    /**
+     * Lists the errors the stream check prints, one to a line.
+     *
+     * @param text      The text of the program
+     * @return errors   The errors printed
+     * @throws IOException if the program cannot be read
+     */
+    private static String checkStream(String text) throws IOException
+    {
+        StringWriter output = new StringWriter();
+        int errorCount = StreamChecker.check(new StringReader(text),
+                                             new PrintWriter(output),
+                                             RuleRegistry.all());
+        StringBuilder errors = new StringBuilder();
+        int printed = 0;
+
+        for (String line : output.toString().split("\\R"))
+        {
+            if (line.startsWith("Line "))
+            {
+                errors.append(line).append('\n');
+                printed++;
+            }
+        }
+
+        assertEquals(printed, errorCount);
+        return errors.toString();
+    }
+
+    @Test
+    void streamMatchesWholeProgram() throws IOException
+    {
+        List<String> samples = TestPrograms.sampleLines();
+        Random random = new Random(5);
+
+        for (int program = 0; program < 40; program++)
+        {
+            StringBuilder text = new StringBuilder();
+
+            for (String line : TestPrograms.randomProgram(random, samples,
+                                                          random.nextInt(200)))
+            {
+                text.append(line).append(separator(random, program));
+
+                // Now and then a run of blank lines, some of them the same
+                for (int i = random.nextInt(10) == 0 ? random.nextInt(5) : 0;
+                     i > 0; i--)
+                {
+                    text.append(BLANKS[random.nextInt(BLANKS.length)])
+                        .append(separator(random, program));
+                }
+            }
+
+            for (int i = random.nextInt(4); i > 0; i--)
+            {
+                text.append(BLANKS[random.nextInt(BLANKS.length)])
+                    .append(separator(random, program));
+            }
+
+            assertEquals(checkWhole(text.toString()),
+                         checkStream(text.toString()),
+                         "program " + program);
+        }
+    }
+
+    @Test
+    void longRunOfBlankLinesIsCheckedLikeTheWholeProgram() throws IOException
+    {
+        StringBuilder text = new StringBuilder("class A\n{\n    int a;\n");
+
+        for (int i = 0; i < 100000; i++)
+        {
+            text.append(i % 1000 == 0 ? "    \n" : "\n");
+        }
+        text.append("    int b;\n}\n\n\n");
+
+        assertEquals(checkWhole(text.toString()),
+                     checkStream(text.toString()));
+    }
+
+    @Test
+    void lastLineNeedsNoSeparator() throws IOException
+    {
+        String text = "class A\r\n{\r\nint a; int b;\r\n}";
+
+        assertEquals(checkWhole(text), checkStream(text));
+    }
+
+    /**
+     * Returns the separator after a line: always a line feed in every other
+     * program, and any separator in the rest.
+     *
+     * @param random        The source of randomness
+     * @param program       The number of the program
+     * @return separator    The line separator
+     */
+    private static String separator(Random random, int program)
+    {
+        return program % 2 == 0 ? "\n"
+               : SEPARATORS[random.nextInt(SEPARATORS.length)];
+    }
+}
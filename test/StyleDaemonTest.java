@@ -0,0 +1,304 @@
+package stylechecker;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests the daemon's protocol over a real loopback connection: the token
+ * every connection must send, the limits on CONTENT and CHECK, and that the
+ * reports of a connection that keeps sending CONTENT are the reports of a
+ * full check.
+ */
+class StyleDaemonTest
+{
+
+    @TempDir
+    Path directory;
+
+    private StyleDaemon daemon;
+    private Thread server;
+    private String token;
+
+    @BeforeEach
+    void start() throws IOException
+    {
+        Path root = Files.createDirectory(directory.resolve("root"));
+        File tokenFile = directory.resolve("token").toFile();
+        daemon = new StyleDaemon(0, 2, null, RuleRegistry.all(),
+                                 root.toFile(), tokenFile);
+        token = Files.readAllLines(tokenFile.toPath()).get(0);
+        server = new Thread(daemon::serve);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() throws IOException, InterruptedException
+    {
+        try (Client client = new Client().authorized())
+        {
+            client.send("SHUTDOWN");
+        }
+        server.join(10000);
+        assertFalse(Files.exists(directory.resolve("token")));
+    }
+
+    /**
+     * A connection to the daemon that reads its answers.
+     */
+    private final class Client implements AutoCloseable
+    {
+        final Socket socket;
+        final InputStream input;
+        final OutputStream output;
+
+        Client() throws IOException
+        {
+            socket = new Socket(InetAddress.getLoopbackAddress(),
+                                daemon.getPort());
+
+            // A request the daemon never answers fails the test
+            socket.setSoTimeout(10000);
+            input = new BufferedInputStream(socket.getInputStream());
+            output = socket.getOutputStream();
+        }
+
+        Client authorized() throws IOException
+        {
+            send("AUTH " + token);
+            assertEquals("OK 0", readLine());
+            return this;
+        }
+
+        void send(String line) throws IOException
+        {
+            send(line, new byte[0]);
+        }
+
+        void send(String line, byte[] content) throws IOException
+        {
+            output.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            output.write(content);
+            output.flush();
+        }
+
+        String readLine() throws IOException
+        {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int letter;
+
+            while ((letter = input.read()) != '\n')
+            {
+                if (letter == -1)
+                {
+                    return line.size() == 0 ? null
+                           : line.toString(StandardCharsets.UTF_8);
+                }
+                line.write(letter);
+            }
+            return line.toString(StandardCharsets.UTF_8);
+        }
+
+        byte[] readReport() throws IOException
+        {
+            String answer = readLine();
+            assertTrue(answer.startsWith("OK "), answer);
+            return input.readNBytes(Integer.parseInt(answer.substring(3)));
+        }
+
+        byte[] checkContent(String program) throws IOException
+        {
+            byte[] bytes = program.getBytes();
+            send("CONTENT " + bytes.length, bytes);
+            return readReport();
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            socket.close();
+        }
+    }
+
+    /**
+     * Writes the report a full check of the program writes.
+     *
+     * @param program   The text of the program
+     * @return report   The bytes of the report
+     * @throws IOException if the program cannot be decoded
+     */
+    private static byte[] fullReport(String program) throws IOException
+    {
+        SourceText source = SourceText.decode(
+                                ByteBuffer.wrap(program.getBytes()));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        StyleChecker.generateReport(source, "-", ReportFormat.TEXT.open(
+                                        new OutputStreamWriter(bytes)),
+                                    null, RuleRegistry.all());
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void connectionWithoutTheTokenIsRefused() throws IOException
+    {
+        try (Client client = new Client())
+        {
+            client.send("AUTH wrong");
+
+            assertEquals("ERROR not authorized", client.readLine());
+            assertNull(client.readLine());
+        }
+
+        try (Client client = new Client())
+        {
+            client.send("CONTENT 0");
+
+            assertEquals("ERROR not authorized", client.readLine());
+        }
+    }
+
+    @Test
+    void connectionThatDoesNotAuthorizeInTimeIsClosed()
+                                    throws IOException, InterruptedException
+    {
+        daemon.setAuthTimeout(200);
+
+        try (Client client = new Client())
+        {
+            assertNull(client.readLine());
+        }
+
+        try (Client client = new Client())
+        {
+            client.output.write("AUTH ".getBytes(StandardCharsets.UTF_8));
+            client.output.flush();
+
+            assertNull(client.readLine());
+        }
+
+        // Once authorized a connection may be idle for as long as it likes
+        try (Client client = new Client().authorized())
+        {
+            Thread.sleep(500);
+            String program = "class A\n{\n}\n";
+
+            assertArrayEquals(fullReport(program),
+                              client.checkContent(program));
+        }
+    }
+
+    @Test
+    void contentOutOfRangeIsAnsweredAndCloses() throws IOException
+    {
+        try (Client client = new Client().authorized())
+        {
+            client.send("CONTENT -1");
+
+            assertTrue(client.readLine().startsWith("ERROR "));
+            assertNull(client.readLine());
+        }
+
+        try (Client client = new Client().authorized())
+        {
+            client.send("CONTENT " + (StyleDaemon.MAX_CONTENT + 1));
+
+            assertTrue(client.readLine().startsWith("ERROR "));
+            assertNull(client.readLine());
+        }
+    }
+
+    @Test
+    void checkOnlyReadsFilesUnderTheRoot() throws IOException
+    {
+        Path root = directory.resolve("root");
+        String program = "class A\n{\n    int a;\n}\n";
+        Files.write(root.resolve("A.java"), program.getBytes());
+        Files.write(directory.resolve("B.java"), program.getBytes());
+
+        try (Client client = new Client().authorized())
+        {
+            client.send("CHECK A.java");
+            assertTrue(client.readReport().length > 0);
+
+            client.send("CHECK ../B.java");
+            assertTrue(client.readLine().startsWith("ERROR "));
+
+            client.send("CHECK " + directory.resolve("B.java"));
+            assertTrue(client.readLine().startsWith("ERROR "));
+
+            client.send("CHECK missing.java");
+            assertTrue(client.readLine().startsWith("ERROR "));
+        }
+    }
+
+    @Test
+    void idleConnectionDoesNotHoldAWorker() throws IOException
+    {
+        // The daemon has two workers, and both are left idle
+        try (Client first = new Client().authorized();
+             Client second = new Client().authorized();
+             Client third = new Client().authorized())
+        {
+            String program = "class A\n{\n}\n";
+
+            assertArrayEquals(fullReport(program),
+                              third.checkContent(program));
+        }
+    }
+
+    @Test
+    void repeatedContentMatchesAFullCheck() throws IOException
+    {
+        List<String> samples = TestPrograms.sampleLines();
+        Random random = new Random(7);
+        List<String> lines = new ArrayList<>(
+                TestPrograms.randomProgram(random, samples, 300));
+
+        try (Client client = new Client().authorized())
+        {
+            for (int edit = 0; edit < 40; edit++)
+            {
+                String program = String.join("\n", lines) + "\n";
+
+                assertArrayEquals(fullReport(program),
+                                  client.checkContent(program),
+                                  "edit " + edit);
+
+                int index = random.nextInt(lines.size() + 1);
+                int removed = random.nextInt(
+                                  Math.min(3, lines.size() - index) + 1);
+                lines.subList(index, index + removed).clear();
+
+                for (int i = random.nextInt(3); i > 0; i--)
+                {
+                    lines.add(index, samples.get(
+                                         random.nextInt(samples.size())));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package stylechecker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * TestPrograms builds the programs the tests check out of the lines of the
+ * sample programs in the Input directory, and describes the errors found in
+ * a form two checks can be compared by.
+ */
+final class TestPrograms
+{
+
+    private TestPrograms()
+    {
+    }
+
+    /**
+     * Returns every line of every sample program, in file name order.
+     *
+     * @return lines    The lines of the sample programs
+     * @throws IOException if a sample program cannot be read
+     */
+    static List<String> sampleLines() throws IOException
+    {
+        File[] files = new File("Input").listFiles(
+                           (directory, name) -> name.endsWith(".txt"));
+        Arrays.sort(files);
+        ArrayList<String> lines = new ArrayList<>();
+
+        for (File file : files)
+        {
+            lines.addAll(Files.readAllLines(file.toPath(),
+                                            StandardCharsets.ISO_8859_1));
+        }
+        return lines;
+    }
+
+    /**
+     * Returns a program of the given number of lines, made mostly of runs of
+     * sample lines in their order with a random sample line now and then.
+     *
+     * @param random    The source of randomness
+     * @param samples   The sample lines
+     * @param count     The number of lines
+     * @return lines    The lines of the program
+     */
+    static List<String> randomProgram(Random random, List<String> samples,
+                                      int count)
+    {
+        ArrayList<String> lines = new ArrayList<>();
+        int start = random.nextInt(samples.size());
+
+        for (int i = 0; i < count; i++)
+        {
+            lines.add(random.nextInt(4) == 0
+                      ? samples.get(random.nextInt(samples.size()))
+                      : samples.get((start + i) % samples.size()));
+        }
+        return lines;
+    }
+
+    /**
+     * Describes the errors each rule found, one rule to a line.
+     *
+     * @param violations    The errors found
+     * @param rules         The rules the program was checked against
+     * @return description  The message of each rule and its error lines
+     */
+    static String describe(ViolationCollector violations, Rule[] rules)
+    {
+        StringBuilder description = new StringBuilder();
+
+        for (Rule rule : rules)
+        {
+            LineNumberList lines = violations.getErrorLines(rule);
+            description.append(rule.getMessage()).append(':');
+
+            for (int i = 0; i < lines.size(); i++)
+            {
+                description.append(' ').append(lines.get(i));
+            }
+            description.append('\n');
+        }
+        return description.toString();
+    }
+
+    /**
+     * Checks a whole program against new rules of the registry in a single
+     * pass and describes the errors found.
+     *
+     * @param lines         The lines of the program
+     * @return description  The errors found, as describe writes them
+     */
+    static String checkAll(List<String> lines)
+    {
+        int count = lines.size();
+
+        while (count > 0 && SourceText.isBlank(lines.get(count - 1)))
+        {
+            count--;
+        }
+        Rule[] rules = RuleRegistry.all().createRules();
+        ViolationCollector violations = new ViolationCollector();
+        RuleEngine.run(lines.subList(0, count), violations, rules);
+        return describe(violations, rules);
+    }
+}
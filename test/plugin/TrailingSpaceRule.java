@@ -0,0 +1,30 @@
+package stylechecker.plugin;
+
+import stylechecker.LineContext;
+import stylechecker.Rule;
+import stylechecker.ViolationSink;
+
+/**
+ * Finds every line that ends with whitespace. It lives outside the checker's
+ * package, as a plug-in does, so it can only use the public rule interface.
+ */
+public final class TrailingSpaceRule implements Rule
+{
+
+    @Override
+    public void checkLine(int index, LineContext current, LineContext next,
+                          LineContext nextNext, ViolationSink sink)
+    {
+        if (!current.isBlank()
+            && Character.isWhitespace(current.charAt(current.length() - 1)))
+        {
+            sink.addViolation(this, index + 1);
+        }
+    }
+
+    @Override
+    public String getMessage()
+    {
+        return "whitespace at the end of the line";
+    }
+}